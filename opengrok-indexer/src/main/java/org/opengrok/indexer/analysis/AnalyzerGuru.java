@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2021, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis;
@@ -49,6 +49,9 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -112,11 +115,12 @@ import org.opengrok.indexer.analysis.uue.UuencodeAnalyzerFactory;
 import org.opengrok.indexer.analysis.vb.VBAnalyzerFactory;
 import org.opengrok.indexer.analysis.verilog.VerilogAnalyzerFactory;
 import org.opengrok.indexer.analysis.yaml.YamlAnalyzerFactory;
+import org.opengrok.indexer.Metrics;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.Annotation;
-import org.opengrok.indexer.history.History;
 import org.opengrok.indexer.history.HistoryEntry;
+import org.opengrok.indexer.history.HistoryEntryIterator;
 import org.opengrok.indexer.history.HistoryException;
 import org.opengrok.indexer.history.HistoryGuru;
 import org.opengrok.indexer.history.HistoryReader;
@@ -587,6 +591,24 @@ public class AnalyzerGuru {
      */
     public void populateDocument(Document doc, File file, String path, AbstractAnalyzer fa, Writer xrefOut)
             throws IOException, InterruptedException {
+        populateDocument(doc, file, path, fa, xrefOut, StreamSource.fromFile(file));
+    }
+
+    /**
+     * Populate a Lucene document with the required fields.
+     *
+     * @param doc The document to populate
+     * @param file The file to index
+     * @param path Where the file is located (from source root)
+     * @param fa The analyzer to use on the file
+     * @param xrefOut Where to write the xref (possibly {@code null})
+     * @param src source of the file contents. The fields added to the document may read from it
+     * until the document is added to the index.
+     * @throws IOException If an exception occurs while collecting the data
+     * @throws InterruptedException if a timeout occurs
+     */
+    public void populateDocument(Document doc, File file, String path, AbstractAnalyzer fa, Writer xrefOut,
+            StreamSource src) throws IOException, InterruptedException {
 
         String date = DateTools.timeToString(file.lastModified(),
                 DateTools.Resolution.MILLISECOND);
@@ -598,9 +620,23 @@ public class AnalyzerGuru {
         doc.add(new SortedDocValuesField(QueryBuilder.FULLPATH,
                 new BytesRef(file.getAbsolutePath())));
 
+        HistoryReader historyReader = null;
         if (HistoryGuru.getInstance().repositorySupportsHistory(file)) {
-            populateDocumentHistory(doc, file);
+            historyReader = populateDocumentHistory(doc, file);
+        }
+        try {
+            populateDocumentContent(doc, path, date, fa, xrefOut, src);
+        } catch (Throwable e) {
+            // The history reader keeps the history cache file open until the document is indexed,
+            // which will not happen now.
+            IOUtils.close(historyReader);
+            throw e;
         }
+    }
+
+    private void populateDocumentContent(Document doc, String path, String date, AbstractAnalyzer fa, Writer xrefOut,
+            StreamSource src) throws IOException, InterruptedException {
+
         doc.add(new Field(QueryBuilder.DATE, date, string_ft_stored_nanalyzed_norms));
         doc.add(new SortedDocValuesField(QueryBuilder.DATE, new BytesRef(date)));
 
@@ -629,7 +665,7 @@ public class AnalyzerGuru {
             if (isXrefable(genre.typeName())) {
                 doc.add(new Field(QueryBuilder.T, genre.typeName(), string_ft_stored_nanalyzed_norms));
             }
-            fa.analyze(doc, StreamSource.fromFile(file), xrefOut);
+            fa.analyze(doc, src, xrefOut);
 
             String type = fa.getFileTypeName();
             doc.add(new StringField(QueryBuilder.TYPE, type, Store.YES));
@@ -646,21 +682,96 @@ public class AnalyzerGuru {
                 || genreName.equals(AbstractAnalyzer.Genre.HTML.typeName()));
     }
 
-    private static void populateDocumentHistory(Document doc, File file) {
+    /**
+     * @return reader of the history field added to the document or {@code null}
+     */
+    @Nullable
+    private static HistoryReader populateDocumentHistory(Document doc, File file) {
+        int limit = RuntimeEnvironment.getInstance().getIndexedHistoryEntriesLimit();
+        HistoryEntryIterator entries = null;
         try {
-            HistoryGuru histGuru = HistoryGuru.getInstance();
-            History history = histGuru.getHistory(file, false);
-            if (history != null) {
-                HistoryReader hr = new HistoryReader(history);
-                doc.add(new TextField(QueryBuilder.HIST, hr));
-                HistoryEntry histEntry = history.getLastHistoryEntry();
-                if (histEntry != null) {
-                    doc.add(new TextField(QueryBuilder.LASTREV, histEntry.getRevision(), Store.YES));
-                }
-                histGuru.storeHistory(file, history);
+            Statistics statistics = new Statistics();
+            entries = HistoryGuru.getInstance().getHistoryEntries(file, limit > 0 ? limit : -1);
+            statistics.report(LOGGER, Level.FINEST, String.format("got history entries of '%s'", file),
+                    "indexer.history.lookup");
+            if (entries == null) {
+                return null;
             }
+
+            // The newest entry is needed for LASTREV, the rest is read by the index writer.
+            HistoryEntry histEntry = entries.hasNext() ? entries.next() : null;
+            if (histEntry == null) {
+                entries.close();
+                return null;
+            }
+            HistoryReader reader = new IndexedHistoryReader(histEntry, entries, limit);
+            doc.add(new TextField(QueryBuilder.HIST, reader));
+            doc.add(new TextField(QueryBuilder.LASTREV, histEntry.getRevision(), Store.YES));
+            return reader;
         } catch (HistoryException e) {
             LOGGER.log(Level.WARNING, "An error occurred while reading history: ", e);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("An error occurred while closing history of '%s'", file), e);
+        } catch (RuntimeException | Error e) {
+            IOUtils.close(entries);
+            throw e;
+        }
+        return null;
+    }
+
+    /**
+     * Reader of the history field. Records the amount of the indexed history once the index writer is done
+     * with it.
+     */
+    private static class IndexedHistoryReader extends HistoryReader {
+        private boolean closed;
+
+        IndexedHistoryReader(HistoryEntry first, HistoryEntryIterator rest, int limit) {
+            super(new HistoryEntryIterator() {
+                private boolean firstDone;
+
+                @Override
+                public boolean hasNext() {
+                    return !firstDone || rest.hasNext();
+                }
+
+                @Override
+                public HistoryEntry next() {
+                    if (!firstDone) {
+                        firstDone = true;
+                        return first;
+                    }
+                    return rest.next();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    rest.close();
+                }
+            }, limit > 0 ? limit : -1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            super.close();
+
+            MeterRegistry registry = Metrics.getRegistry();
+            if (registry != null) {
+                DistributionSummary.builder("indexer.history.entries").
+                        description("number of history entries indexed per file").
+                        register(registry).
+                        record(getEntryCount());
+                if (isTruncated()) {
+                    Counter.builder("indexer.history.truncated").
+                            description("files whose indexed history was cut by the entry limit").
+                            register(registry).
+                            increment();
+                }
+            }
         }
     }
 
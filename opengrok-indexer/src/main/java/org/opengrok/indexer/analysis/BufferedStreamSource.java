@@ -0,0 +1,262 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.util.IOUtils;
+
+/**
+ * {@link StreamSource} that reads the file only once and serves every subsequent {@link #getStream()}
+ * from memory.
+ * <p>
+ * Analyzers typically make several passes over the source (full text, symbol references, definitions, xref).
+ * With {@link StreamSource#fromFile(File)} each pass reopens and rereads the file, which is costly on
+ * network file systems. This class reads the content on the first call of {@link #getStream()} into
+ * a buffer borrowed from a shared pool (or memory maps the file if it is larger than
+ * {@link #MMAP_THRESHOLD}) and hands out read-only streams over it.
+ * <p>
+ * The streams are consumed lazily, e.g. by {@code IndexWriter.addDocument()}, so the instance has to be
+ * closed only after all the readers created from it are done. Closing returns the buffer to the pool
+ * or unmaps the file; the streams must not be used afterwards.
+ */
+public class BufferedStreamSource extends StreamSource implements Closeable {
+
+    /**
+     * Files larger than this are memory mapped rather than copied to a pooled buffer.
+     */
+    static final int MMAP_THRESHOLD = 4 * 1024 * 1024;
+
+    private static final int MIN_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final ConcurrentLinkedDeque<byte[]> pool = new ConcurrentLinkedDeque<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+    private static final LongAdder bytesRead = new LongAdder();
+
+    private final File file;
+
+    private byte[] buffer;
+    private int length;
+    private MappedByteBuffer mapped;
+    private volatile boolean closed;
+
+    /**
+     * @param file the data file
+     */
+    public BufferedStreamSource(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized InputStream getStream() throws IOException {
+        if (closed) {
+            throw new IOException(String.format("stream source for '%s' is closed", file));
+        }
+        if (buffer == null && mapped == null) {
+            load();
+        }
+        if (mapped != null) {
+            return new ByteBufferInputStream(mapped.duplicate());
+        }
+        return new ByteArrayInputStream(buffer, 0, length);
+    }
+
+    private void load() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MMAP_THRESHOLD) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                bytesRead.add(size);
+                mapped = map;
+                return;
+            }
+
+            byte[] buf = acquire((int) size);
+            int len = 0;
+            try {
+                while (true) {
+                    if (len == buf.length) {
+                        // The file grew since the size was obtained.
+                        buf = grow(buf);
+                    }
+                    int n = channel.read(ByteBuffer.wrap(buf, len, buf.length - len));
+                    if (n < 0) {
+                        break;
+                    }
+                    len += n;
+                }
+            } catch (IOException e) {
+                release(buf);
+                throw e;
+            }
+            bytesRead.add(len);
+            buffer = buf;
+            length = len;
+        }
+    }
+
+    private static byte[] grow(byte[] buf) {
+        if (buf.length >= Integer.MAX_VALUE / 2) {
+            throw new OutOfMemoryError("file too large to buffer");
+        }
+        byte[] larger = new byte[buf.length * 2];
+        System.arraycopy(buf, 0, larger, 0, buf.length);
+        release(buf);
+        return larger;
+    }
+
+    /**
+     * Return the buffer to the pool or unmap the file. The streams obtained from this instance must not be
+     * read afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (buffer != null) {
+            release(buffer);
+            buffer = null;
+        }
+        if (mapped != null) {
+            // Do not wait for the garbage collector to release the mapping, the indexer maps many files.
+            IOUtils.unmap(mapped);
+            mapped = null;
+        }
+    }
+
+    private static byte[] acquire(int size) {
+        // The buffers that are too small stay in the pool for the smaller files.
+        for (byte[] buf : pool) {
+            if (buf.length > size && pool.removeFirstOccurrence(buf)) {
+                pooled.decrementAndGet();
+                return buf;
+            }
+        }
+        // Leave room for one more byte so that reaching the end of file does not require growing the buffer.
+        return new byte[Math.max(MIN_BUFFER_SIZE, Integer.highestOneBit(size) << 1)];
+    }
+
+    private static void release(byte[] buf) {
+        if (buf.length > MMAP_THRESHOLD * 2) {
+            return;
+        }
+        if (pooled.incrementAndGet() > MAX_POOLED_BUFFERS) {
+            pooled.decrementAndGet();
+            return;
+        }
+        pool.offerFirst(buf);
+    }
+
+    /**
+     * @return number of bytes read from files by all instances of this class
+     */
+    public static long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @VisibleForTesting
+    static int getPoolSize() {
+        return pooled.get();
+    }
+
+    private class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+        private int mark;
+
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        /**
+         * Reading the memory of a file that was unmapped would crash the JVM.
+         */
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException(String.format("stream source for '%s' is closed", file));
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            ensureOpen();
+            return buf.hasRemaining() ? buf.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (len == 0) {
+                return 0;
+            }
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            ensureOpen();
+            int skipped = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            mark = buf.position();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buf.position(mark);
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis;
@@ -73,15 +73,19 @@ public class Ctags implements Resettable {
     private Process ctagsProcess;
     private OutputStreamWriter ctagsIn;
     private BufferedReader ctagsOut;
-    private static final String CTAGS_FILTER_TERMINATOR = "__ctags_done_with_file__";
+    static final String CTAGS_FILTER_TERMINATOR = "__ctags_done_with_file__";
+    static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
     private String cTagsExtraOptionsFile = null;
     private int tabSize;
-    private Duration timeout = Duration.ofSeconds(10);
+    private Duration timeout = DEFAULT_TIMEOUT;
 
     private final Set<String> ctagsLanguages = new HashSet<>();
 
     private boolean junitTesting = false;
 
+    @Nullable
+    private CtagsServer server;
+
     /**
      * Initializes an instance with the current
      * {@link AnalyzerGuru#getLangMap()}.
@@ -124,6 +128,14 @@ public class Ctags implements Resettable {
         return this.timeout.getSeconds();
     }
 
+    /**
+     * Use shared ctags processes instead of running own subprocess of ctags.
+     * @param server server to submit the files to or {@code null} to run own subprocess
+     */
+    public void setServer(@Nullable CtagsServer server) {
+        this.server = server;
+    }
+
     /**
      * Resets the instance for use for another file but without closing any
      * running ctags instance.
@@ -455,6 +467,10 @@ public class Ctags implements Resettable {
             return null;
         }
 
+        if (server != null) {
+            return server.doCtags(file, tabSize);
+        }
+
         if (ctagsProcess != null) {
             try {
                 int exitValue = ctagsProcess.exitValue();
@@ -637,7 +653,7 @@ public class Ctags implements Resettable {
      * the specified file.
      * @return a defined instance or {@code null} on failure (without exception)
      */
-    private static SourceSplitter trySplitSource(String filename) {
+    static SourceSplitter trySplitSource(String filename) {
         SourceSplitter splitter = new SourceSplitter();
         try {
             StreamSource src = StreamSource.fromFile(new File(filename));
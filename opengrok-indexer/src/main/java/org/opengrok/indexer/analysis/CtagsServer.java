@@ -0,0 +1,407 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.Executor;
+import org.opengrok.indexer.util.IOUtils;
+
+/**
+ * Runs a fixed number of long-lived ctags processes shared by all {@link Ctags} instances.
+ * <p>
+ * Unlike {@link Ctags} that writes single file name to its own process and then waits for the output,
+ * the file names are pipelined: each submission is written to the least loaded process right away
+ * and the output is demultiplexed by single reader thread per process. ctags in the filter mode processes
+ * the file names in order and terminates the output for each file with
+ * {@link Ctags#CTAGS_FILTER_TERMINATOR} so the output belongs to the oldest pending submission.
+ * Thus, there is no round-trip per file nor watcher thread per call and the ctags processes do not sit idle
+ * while the indexer threads analyze the files.
+ */
+public class CtagsServer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CtagsServer.class);
+
+    private final List<String> command;
+    private final Duration timeout;
+    private final List<Channel> channels = new ArrayList<>();
+    private final OpenGrokThreadFactory threadFactory = new OpenGrokThreadFactory("ctags-server");
+    private volatile boolean closed;
+
+    /**
+     * @param command ctags command line, see {@link Ctags#getArgv()}
+     * @param processCount number of ctags processes to run
+     * @param timeout timeout for single file. Zero means no timeout was set, so the default timeout
+     * of {@link Ctags} applies like for the per-file processes.
+     */
+    public CtagsServer(List<String> command, int processCount, Duration timeout) {
+        if (processCount < 1) {
+            throw new IllegalArgumentException("processCount has to be positive");
+        }
+        this.command = List.copyOf(command);
+        this.timeout = timeout.isZero() || timeout.isNegative() ? Ctags.DEFAULT_TIMEOUT : timeout;
+        for (int i = 0; i < processCount; i++) {
+            channels.add(new Channel());
+        }
+    }
+
+    /**
+     * Run ctags on a file. The timeout applies to the time ctags spends on the file, not to the time
+     * the file waits for the files submitted before it.
+     * @param file file path to process
+     * @param tabSize tab size to use for the definitions
+     * @return valid instance of {@link Definitions} or {@code null} on error
+     * @throws IOException I/O exception
+     * @throws InterruptedException interrupted command, the ctags process died or timed out
+     */
+    @Nullable
+    public Definitions doCtags(String file, int tabSize) throws IOException, InterruptedException {
+        if (file.length() < 1 || "\n".equals(file)) {
+            return null;
+        }
+
+        Channel channel = getChannel();
+        Submission submission = new Submission(file, tabSize);
+        channel.submit(submission);
+        long timeoutNanos = timeout.toNanos();
+        try {
+            while (true) {
+                long started = submission.started;
+                long waitNanos = started == 0 ? timeoutNanos : started + timeoutNanos - System.nanoTime();
+                if (waitNanos <= 0) {
+                    if (channel.abort(submission)) {
+                        LOGGER.log(Level.WARNING, String.format("Terminating ctags process for file '%s' " +
+                                "due to timeout %d seconds", file, timeout.getSeconds()));
+                        throw new InterruptedException("ctags timeout");
+                    }
+                    // The file is not pending anymore so the future is about to be completed.
+                    return submission.future.get();
+                }
+                try {
+                    return submission.future.get(waitNanos, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // Check whether ctags has been working on the file for the whole timeout.
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            // Throw the following to indicate non-I/O error for retry.
+            throw new InterruptedException("ctags process died");
+        }
+    }
+
+    /**
+     * Submit the file to ctags without waiting for the result.
+     * @param file file path to process
+     * @param tabSize tab size to use for the definitions
+     * @return future of the definitions. It completes exceptionally if the ctags process dies.
+     */
+    public CompletableFuture<Definitions> submit(String file, int tabSize) {
+        Submission submission = new Submission(file, tabSize);
+        getChannel().submit(submission);
+        return submission.future;
+    }
+
+    private Channel getChannel() {
+        if (closed) {
+            throw new IllegalStateException("ctags server is closed");
+        }
+        Channel best = channels.get(0);
+        for (Channel channel : channels) {
+            if (channel.pendingCount.get() < best.pendingCount.get()) {
+                best = channel;
+            }
+        }
+        return best;
+    }
+
+    @VisibleForTesting
+    int getPendingCount() {
+        return channels.stream().mapToInt(channel -> channel.pendingCount.get()).sum();
+    }
+
+    /**
+     * Terminate the ctags processes. The pending submissions fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        channels.forEach(Channel::destroy);
+    }
+
+    /**
+     * File submitted to ctags. It can be written to several processes in turn if a process gets terminated
+     * because of the timeout of another file.
+     */
+    private static final class Submission {
+        private final String file;
+        private final int tabSize;
+        private final CompletableFuture<Definitions> future = new CompletableFuture<>();
+        /**
+         * Time when ctags started to work on the file, i.e. when the previous file in the process was done,
+         * or 0 if it has not started yet.
+         */
+        private volatile long started;
+
+        Submission(String file, int tabSize) {
+            this.file = file;
+            this.tabSize = tabSize;
+        }
+
+        void markStarted() {
+            if (started == 0) {
+                started = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Submission written to particular process.
+     */
+    private static final class Request {
+        private final Submission submission;
+        private final CtagsReader reader = new CtagsReader();
+
+        Request(Submission submission) {
+            this.submission = submission;
+            reader.setSplitterSupplier(() -> Ctags.trySplitSource(submission.file));
+            reader.setTabSize(submission.tabSize);
+        }
+    }
+
+    /**
+     * Running ctags process with the queue of requests that were written to it and not answered yet.
+     */
+    private static final class Session {
+        private final Process process;
+        private final Writer input;
+        private final Queue<Request> pending = new ConcurrentLinkedQueue<>();
+        /**
+         * Submission whose timeout caused the process to be terminated.
+         */
+        private volatile Submission timedOut;
+        private volatile boolean exited;
+
+        Session(Process process) {
+            this.process = process;
+            this.input = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return whether new requests can be written to the process
+         */
+        boolean isUsable() {
+            return !exited && timedOut == null && process.isAlive();
+        }
+    }
+
+    /**
+     * Single ctags process (restarted as needed) with the submissions that were written to it.
+     */
+    private final class Channel {
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private volatile Session session;
+
+        synchronized void submit(Submission submission) {
+            Request request = new Request(submission);
+            Session current = session;
+            try {
+                if (current == null || !current.isUsable()) {
+                    current = start();
+                }
+                // The order of the queue has to match the order of the file names in the input of the process.
+                current.pending.add(request);
+                pendingCount.incrementAndGet();
+                if (current.pending.peek() == request) {
+                    submission.markStarted();
+                }
+                current.input.write(submission.file + "\n");
+                current.input.flush();
+            } catch (IOException e) {
+                if (current != null && current.pending.remove(request)) {
+                    pendingCount.decrementAndGet();
+                }
+                destroy();
+                submission.future.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Terminate the process because of the timeout of given submission. The other pending submissions
+         * of the process are written to new process once it exits.
+         * @return {@code false} if the submission is not pending in the process anymore
+         */
+        boolean abort(Submission submission) {
+            Session current = session;
+            if (current == null || current.pending.stream().noneMatch(request -> request.submission == submission)) {
+                return false;
+            }
+            current.timedOut = submission;
+            destroy(current);
+            return true;
+        }
+
+        private Session start() throws IOException {
+            String commandStr = Executor.escapeForShell(command, false, SystemUtils.IS_OS_WINDOWS);
+            LOGGER.log(Level.FINE, "Executing ctags server command [{0}]", commandStr);
+
+            Session previous = session;
+            if (previous != null) {
+                IOUtils.close(previous.input);
+            }
+            Session newSession = new Session(new ProcessBuilder(command).start());
+            session = newSession;
+
+            Thread outThread = threadFactory.newThread(() -> readOutput(newSession));
+            outThread.setDaemon(true);
+            outThread.start();
+
+            Thread errThread = threadFactory.newThread(() -> readError(newSession.process));
+            errThread.setDaemon(true);
+            errThread.start();
+            return newSession;
+        }
+
+        private void readOutput(Session ctagsSession) {
+            Queue<Request> queue = ctagsSession.pending;
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(
+                    ctagsSession.process.getInputStream(), StandardCharsets.UTF_8))) {
+                String tagLine;
+                while ((tagLine = output.readLine()) != null) {
+                    Request request = queue.peek();
+                    if (request == null) {
+                        LOGGER.log(Level.WARNING, "unexpected output from ctags: {0}", tagLine);
+                        continue;
+                    }
+
+                    if (tagLine.endsWith(Ctags.CTAGS_FILTER_TERMINATOR)) {
+                        //fix for bug #16334
+                        if (!Ctags.CTAGS_FILTER_TERMINATOR.equals(tagLine)) {
+                            LOGGER.log(Level.WARNING, "ctags encountered a problem while generating tags " +
+                                    "for the file ''{0}''. The index will be incomplete.", request.submission.file);
+                        }
+                        queue.remove();
+                        pendingCount.decrementAndGet();
+                        Request next = queue.peek();
+                        if (next != null) {
+                            next.submission.markStarted();
+                        }
+                        request.submission.future.complete(request.reader.getDefinitions());
+                        continue;
+                    }
+
+                    try {
+                        request.reader.readLine(tagLine);
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING, String.format("CTags parsing problem for file '%s'",
+                                request.submission.file), e);
+                    }
+                }
+                if (!closed && ctagsSession.timedOut == null) {
+                    LOGGER.warning("ctags: Unexpected end of file!");
+                }
+            } catch (IOException e) {
+                if (!closed && ctagsSession.timedOut == null) {
+                    LOGGER.log(Level.WARNING, "Got an exception reading ctags output stream: ", e);
+                }
+            } finally {
+                // The process might not be reaped yet, make sure the next submission starts new one.
+                ctagsSession.exited = true;
+                ctagsSession.process.destroyForcibly();
+                Submission timedOut = ctagsSession.timedOut;
+                Request request;
+                while ((request = queue.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    Submission submission = request.submission;
+                    if (timedOut == null || submission == timedOut || closed) {
+                        submission.future.completeExceptionally(new IllegalStateException(
+                                String.format("ctags process exited before processing '%s'", submission.file)));
+                    } else {
+                        // The process was terminated because of another file, start over in new process.
+                        submission.started = 0;
+                        submit(submission);
+                    }
+                }
+            }
+        }
+
+        private void readError(Process ctagsProcess) {
+            try (BufferedReader error = new BufferedReader(new InputStreamReader(ctagsProcess.getErrorStream(),
+                    StandardCharsets.UTF_8))) {
+                String s;
+                while ((s = error.readLine()) != null) {
+                    if (s.length() > 0) {
+                        LOGGER.log(Level.WARNING, "Error from ctags: {0}", s);
+                    }
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    LOGGER.log(Level.WARNING, "Got an exception reading ctags error stream: ", e);
+                }
+            }
+        }
+
+        /**
+         * Kill the process. Its reader thread then fails the pending submissions and the next submission
+         * starts new process. This does not synchronize on the channel as a submitting thread might be blocked
+         * writing to the process.
+         */
+        void destroy() {
+            Session current = session;
+            if (current != null) {
+                destroy(current);
+            }
+        }
+
+        private void destroy(Session ctagsSession) {
+            LOGGER.log(Level.FINE, "Destroying ctags server process");
+            // Make sure the output stream gets closed so that the reader thread terminates.
+            ctagsSession.process.descendants().forEach(ProcessHandle::destroyForcibly);
+            ctagsSession.process.destroyForcibly();
+        }
+    }
+}
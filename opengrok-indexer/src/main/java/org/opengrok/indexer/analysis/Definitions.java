@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2008, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis;
@@ -28,7 +28,6 @@ import org.opengrok.indexer.util.DTOElement;
 import org.opengrok.indexer.util.WhitelistObjectInputFilter;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputFilter;
 import java.io.ObjectInputStream;
@@ -84,6 +83,12 @@ public class Definitions implements Serializable {
      * List of all the tags.
      */
     private final ArrayList<Tag> tags;
+    /**
+     * Encoded form this instance was de-serialized from. The maps above are populated from it only
+     * when a query cannot be answered from the encoded form directly.
+     */
+    @Nullable
+    private transient volatile DefinitionsFormat.View view;
 
     public Definitions() {
         symbols = new HashMap<>();
@@ -106,6 +111,7 @@ public class Definitions implements Serializable {
      * @return a set containing all the symbols
      */
     public Set<String> getSymbols() {
+        materialize();
         return symbols.keySet();
     }
 
@@ -116,6 +122,7 @@ public class Definitions implements Serializable {
      * @return {@code true} if there is a tag for {@code symbol}
      */
     public boolean hasSymbol(String symbol) {
+        materialize();
         return symbols.containsKey(symbol);
     }
 
@@ -131,6 +138,7 @@ public class Definitions implements Serializable {
         if (strs.length > 0) {
             strs[0] = "none";
         }
+        materialize();
 
         // Get tag info
         boolean isDefinitionPresent = Optional.ofNullable(symbols.get(symbol))
@@ -163,6 +171,10 @@ public class Definitions implements Serializable {
      * @return the number of times the specified symbol is defined
      */
     public int occurrences(String symbol) {
+        DefinitionsFormat.View encoded = view;
+        if (encoded != null) {
+            return encoded.occurrences(symbol);
+        }
         Set<Integer> lines = symbols.get(symbol);
         return lines == null ? 0 : lines.size();
     }
@@ -173,6 +185,7 @@ public class Definitions implements Serializable {
      * @return number of distinct symbols
      */
     public int numberOfSymbols() {
+        materialize();
         return symbols.size();
     }
 
@@ -182,6 +195,7 @@ public class Definitions implements Serializable {
      * @return all tags
      */
     public List<Tag> getTags() {
+        materialize();
         return tags;
     }
 
@@ -192,6 +206,11 @@ public class Definitions implements Serializable {
      * @return list of tags or null
      */
     public @Nullable List<Tag> getTags(int line) {
+        DefinitionsFormat.View encoded = view;
+        if (encoded != null) {
+            List<Tag> lineTags = encoded.getTags(line);
+            return lineTags.isEmpty() ? null : lineTags;
+        }
         return Optional.ofNullable(line_maps.get(line))
                 .map(lineMap -> lineMap.sym_tags.values().stream()
                         .flatMap(Collection::stream)
@@ -313,8 +332,14 @@ public class Definitions implements Serializable {
 
     public void addTag(int line, String symbol, String type, String text,
             String namespace, String signature, int lineStart, int lineEnd) {
-        Tag newTag = new Tag(line, symbol, type, text, namespace, signature,
-            lineStart, lineEnd);
+        materialize();
+        addTag(new Tag(line, symbol, type, text, namespace, signature,
+            lineStart, lineEnd));
+    }
+
+    private void addTag(Tag newTag) {
+        int line = newTag.line;
+        String symbol = newTag.symbol;
         tags.add(newTag);
         Set<Integer> lines = symbols.computeIfAbsent(symbol,
                 k -> new HashSet<>());
@@ -335,20 +360,55 @@ public class Definitions implements Serializable {
     }
 
     /**
-     * Create a binary representation of this object.
+     * Populate the maps from the encoded form (if any). The de-serialized instances are read concurrently
+     * by the web application so the maps are published only once they are complete.
+     */
+    private void materialize() {
+        if (view != null) {
+            synchronized (this) {
+                DefinitionsFormat.View encoded = view;
+                if (encoded != null) {
+                    for (Tag tag : encoded.getTags()) {
+                        addTag(tag);
+                    }
+                    view = null;
+                }
+            }
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        materialize();
+        out.defaultWriteObject();
+    }
+
+    /**
+     * Create a binary representation of this object. The representation uses compact encoding
+     * (see {@link #getFormatVersion()}) rather than Java serialization.
      *
      * @return a byte array representing this object
      * @throws IOException if an error happens when writing to the array
      */
     public byte[] serialize() throws IOException {
-        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(); var oos = new ObjectOutputStream(bytes)) {
-            oos.writeObject(this);
-            return bytes.toByteArray();
+        DefinitionsFormat.View encoded = view;
+        if (encoded != null) {
+            return encoded.getBytes().clone();
         }
+        return DefinitionsFormat.encode(tags);
+    }
+
+    /**
+     * @return version of the binary representation produced by {@link #serialize()}
+     */
+    public static int getFormatVersion() {
+        return DefinitionsFormat.VERSION;
     }
 
     /**
      * De-serialize a binary representation of a {@code Definitions} object.
+     * Both the current representation and the Java serialization used by older versions are accepted.
+     * The current representation is decoded lazily, e.g. {@link #getTags(int)} decodes only the tags
+     * on given line.
      *
      * @param bytes a byte array containing the {@code Definitions} object
      * @return a {@code Definitions} object
@@ -359,6 +419,11 @@ public class Definitions implements Serializable {
      * type than {@code Definitions}
      */
     public static Definitions deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        if (DefinitionsFormat.isEncoded(bytes)) {
+            Definitions definitions = new Definitions();
+            definitions.view = new DefinitionsFormat.View(bytes);
+            return definitions;
+        }
         try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
             in.setObjectInputFilter(serialFilter);
             return (Definitions) in.readObject();
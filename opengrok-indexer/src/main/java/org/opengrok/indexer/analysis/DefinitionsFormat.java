@@ -0,0 +1,395 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compact binary representation of {@link Definitions} that can be queried without decoding all the tags.
+ * <p>
+ * The layout is:
+ * <pre>
+ * magic (3 bytes) version (1 byte)
+ * tag count, string count
+ * strings: length, UTF-8 bytes (shared by symbols, types, texts, namespaces and signatures)
+ * order: 0 if the tags were added in the order of lines, otherwise tag count followed by the index
+ *   of each tag (in the order the tags were added) among the tag records
+ * line count
+ * line table: line number delta, number of tags on the line, length of the tag records of the line in bytes
+ * tag records ordered by line: symbol, type, text, namespace, signature (all string IDs + 1, 0 means null),
+ *   line start, line end
+ * </pre>
+ * All numbers are variable length integers, the signed ones (line number deltas, line offsets) are zig-zag encoded.
+ * The header, the string offsets and the line table are decoded upfront; the strings and the tag records
+ * are decoded only when needed.
+ */
+final class DefinitionsFormat {
+
+    private static final byte[] MAGIC = {'O', 'G', 'D'};
+
+    /**
+     * Version of the format. Bump when changing the layout.
+     */
+    static final int VERSION = 2;
+
+    private DefinitionsFormat() {
+        // private to enforce static
+    }
+
+    /**
+     * @param bytes serialized definitions
+     * @return whether the bytes use this format rather than Java serialization
+     */
+    static boolean isEncoded(byte[] bytes) {
+        return bytes.length > MAGIC.length && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1] && bytes[2] == MAGIC[2];
+    }
+
+    static byte[] encode(List<Definitions.Tag> tags) {
+        Integer[] order = new Integer[tags.size()];
+        Arrays.setAll(order, i -> i);
+        // Stable sort so that the tags on the same line keep their order.
+        Arrays.sort(order, Comparator.comparingInt(i -> tags.get(i).line));
+        List<Definitions.Tag> sorted = new ArrayList<>(tags.size());
+        int[] positions = new int[tags.size()];
+        boolean ordered = true;
+        for (int i = 0; i < order.length; i++) {
+            sorted.add(tags.get(order[i]));
+            positions[order[i]] = i;
+            ordered &= order[i] == i;
+        }
+
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Output records = new Output();
+        Output lineTable = new Output();
+        int lineCount = 0;
+        int i = 0;
+        int previousLine = 0;
+        while (i < sorted.size()) {
+            int line = sorted.get(i).line;
+            int start = records.size();
+            int count = 0;
+            for (; i < sorted.size() && sorted.get(i).line == line; i++, count++) {
+                Definitions.Tag tag = sorted.get(i);
+                records.writeVInt(getStringRef(tag.symbol, stringIds, strings));
+                records.writeVInt(getStringRef(tag.type, stringIds, strings));
+                records.writeVInt(getStringRef(tag.text, stringIds, strings));
+                records.writeVInt(getStringRef(tag.namespace, stringIds, strings));
+                records.writeVInt(getStringRef(tag.signature, stringIds, strings));
+                records.writeZInt(tag.lineStart);
+                records.writeZInt(tag.lineEnd);
+            }
+            lineTable.writeZInt(line - previousLine);
+            lineTable.writeVInt(count);
+            lineTable.writeVInt(records.size() - start);
+            previousLine = line;
+            lineCount++;
+        }
+
+        Output out = new Output();
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+        out.writeVInt(sorted.size());
+        out.writeVInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeVInt(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        if (ordered) {
+            out.writeVInt(0);
+        } else {
+            out.writeVInt(positions.length);
+            for (int position : positions) {
+                out.writeVInt(position);
+            }
+        }
+        out.writeVInt(lineCount);
+        lineTable.appendTo(out);
+        records.appendTo(out);
+        return out.toByteArray();
+    }
+
+    private static int getStringRef(@Nullable String string, Map<String, Integer> stringIds, List<String> strings) {
+        if (string == null) {
+            return 0;
+        }
+        return stringIds.computeIfAbsent(string, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        }) + 1;
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+        void writeVInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void writeZInt(int value) {
+            writeVInt((value << 1) ^ (value >> 31));
+        }
+
+        void appendTo(Output other) {
+            other.write(buf, 0, count);
+        }
+    }
+
+    /**
+     * Read-only view of the encoded definitions. The view can be shared by multiple threads.
+     */
+    static final class View {
+        private final byte[] bytes;
+        private final int tagCount;
+        private final int[] stringOffsets;
+        private final int[] stringLengths;
+        private final String[] stringCache;
+        /**
+         * Offset of the order of the tags or -1 if the tags were added in the order of lines.
+         */
+        private final int orderOffset;
+        private final int[] lines;
+        private final int[] lineTagCounts;
+        private final int[] lineOffsets;
+
+        View(byte[] bytes) throws IOException {
+            this.bytes = bytes;
+            try {
+                Cursor cursor = new Cursor(MAGIC.length);
+                int version = bytes[cursor.pos++];
+                if (version != VERSION) {
+                    throw new IOException(String.format("unsupported definitions format version %d", version));
+                }
+                tagCount = cursor.readVInt();
+
+                int stringCount = cursor.readVInt();
+                stringOffsets = new int[stringCount];
+                stringLengths = new int[stringCount];
+                stringCache = new String[stringCount];
+                for (int i = 0; i < stringCount; i++) {
+                    stringLengths[i] = cursor.readVInt();
+                    stringOffsets[i] = cursor.pos;
+                    cursor.pos += stringLengths[i];
+                }
+
+                int orderCount = cursor.readVInt();
+                if (orderCount == 0) {
+                    orderOffset = -1;
+                } else {
+                    if (orderCount != tagCount) {
+                        throw new IOException("corrupted definitions");
+                    }
+                    orderOffset = cursor.pos;
+                    for (int i = 0; i < orderCount; i++) {
+                        cursor.readVInt();
+                    }
+                }
+
+                int lineCount = cursor.readVInt();
+                lines = new int[lineCount];
+                lineTagCounts = new int[lineCount];
+                lineOffsets = new int[lineCount];
+                int[] lineLengths = new int[lineCount];
+                int line = 0;
+                for (int i = 0; i < lineCount; i++) {
+                    line += cursor.readZInt();
+                    lines[i] = line;
+                    lineTagCounts[i] = cursor.readVInt();
+                    lineLengths[i] = cursor.readVInt();
+                }
+                int offset = cursor.pos;
+                for (int i = 0; i < lineCount; i++) {
+                    lineOffsets[i] = offset;
+                    offset += lineLengths[i];
+                }
+                if (offset != bytes.length) {
+                    throw new IOException("corrupted definitions");
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IOException("truncated definitions", e);
+            }
+        }
+
+        int getTagCount() {
+            return tagCount;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the line numbers with some tags in ascending order
+         */
+        int[] getLines() {
+            return lines.clone();
+        }
+
+        /**
+         * @param line line number
+         * @return tags on the line, empty list if there are none
+         */
+        List<Definitions.Tag> getTags(int line) {
+            int index = Arrays.binarySearch(lines, line);
+            if (index < 0) {
+                return new ArrayList<>();
+            }
+            List<Definitions.Tag> tags = new ArrayList<>(lineTagCounts[index]);
+            readTags(index, tags);
+            return tags;
+        }
+
+        /**
+         * @return all tags in the order they were added to the encoded definitions
+         */
+        List<Definitions.Tag> getTags() {
+            List<Definitions.Tag> sorted = new ArrayList<>(tagCount);
+            for (int i = 0; i < lines.length; i++) {
+                readTags(i, sorted);
+            }
+            if (orderOffset < 0) {
+                return sorted;
+            }
+
+            List<Definitions.Tag> tags = new ArrayList<>(tagCount);
+            Cursor cursor = new Cursor(orderOffset);
+            for (int i = 0; i < tagCount; i++) {
+                tags.add(sorted.get(cursor.readVInt()));
+            }
+            return tags;
+        }
+
+        /**
+         * @param symbol symbol
+         * @return number of lines on which the symbol is defined
+         */
+        int occurrences(String symbol) {
+            int id = findString(symbol);
+            if (id < 0) {
+                return 0;
+            }
+            int count = 0;
+            for (int i = 0; i < lines.length; i++) {
+                Cursor cursor = new Cursor(lineOffsets[i]);
+                for (int j = 0; j < lineTagCounts[i]; j++) {
+                    if (cursor.readVInt() == id + 1) {
+                        count++;
+                        break;
+                    }
+                    cursor.skipTagRecordRest();
+                }
+            }
+            return count;
+        }
+
+        private void readTags(int index, List<Definitions.Tag> tags) {
+            Cursor cursor = new Cursor(lineOffsets[index]);
+            for (int j = 0; j < lineTagCounts[index]; j++) {
+                String symbol = cursor.readStringRef();
+                String type = cursor.readStringRef();
+                String text = cursor.readStringRef();
+                String namespace = cursor.readStringRef();
+                String signature = cursor.readStringRef();
+                int lineStart = cursor.readZInt();
+                int lineEnd = cursor.readZInt();
+                tags.add(new Definitions.Tag(lines[index], symbol, type, text, namespace, signature,
+                        lineStart, lineEnd));
+            }
+        }
+
+        private int findString(String string) {
+            byte[] needle = string.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < stringOffsets.length; i++) {
+                if (stringLengths[i] == needle.length && Arrays.equals(bytes, stringOffsets[i],
+                        stringOffsets[i] + stringLengths[i], needle, 0, needle.length)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Decoding position in the bytes of the view. Every decoding uses its own cursor
+         * so that the view can be read concurrently.
+         */
+        private final class Cursor {
+            private int pos;
+
+            Cursor(int pos) {
+                this.pos = pos;
+            }
+
+            private void skipTagRecordRest() {
+                for (int k = 0; k < 6; k++) {
+                    readVInt();
+                }
+            }
+
+            @Nullable
+            private String readStringRef() {
+                int ref = readVInt();
+                if (ref == 0) {
+                    return null;
+                }
+                int id = ref - 1;
+                // Racy caching is fine, the strings are immutable and equal.
+                String string = stringCache[id];
+                if (string == null) {
+                    string = new String(bytes, stringOffsets[id], stringLengths[id], StandardCharsets.UTF_8);
+                    stringCache[id] = string;
+                }
+                return string;
+            }
+
+            private int readVInt() {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[pos++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                return value;
+            }
+
+            private int readZInt() {
+                int value = readVInt();
+                return (value >>> 1) ^ -(value & 1);
+            }
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 
  /*
- * Copyright (c) 2009, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2009, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis;
@@ -39,7 +39,7 @@ import org.apache.lucene.util.AttributeImpl;
 public class JFlexTokenizer extends Tokenizer
     implements SymbolMatchedListener {
 
-    private static final int LUCENE_MAX_TOKEN_LENGTH = 32766;
+    static final int LUCENE_MAX_TOKEN_LENGTH = 32766;
 
     private final ScanningSymbolMatcher matcher;
     private boolean didSetAttribsValues;
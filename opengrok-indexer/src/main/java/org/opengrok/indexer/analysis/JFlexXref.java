@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2009, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2009, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
@@ -54,6 +54,7 @@ public class JFlexXref implements Xrefer, SymbolMatchedListener, NonSymbolMatche
     private Definitions defs;
     private boolean scopesEnabled;
     private boolean foldingEnabled;
+    private SymbolMatchedListener symbolListener;
 
     private boolean scopeOpen;
     private Scopes scopes = new Scopes();
@@ -200,8 +201,20 @@ public class JFlexXref implements Xrefer, SymbolMatchedListener, NonSymbolMatche
         this.foldingEnabled = foldingEnabled;
     }
 
+    /**
+     * Set a listener to be notified of the symbols matched while writing the xref,
+     * e.g. to record the symbol tokens in the same lexer scan.
+     * @param listener listener or {@code null}
+     */
+    public void setSymbolMatchedListener(SymbolMatchedListener listener) {
+        this.symbolListener = listener;
+    }
+
     @Override
     public void symbolMatched(SymbolMatchedEvent evt) {
+        if (symbolListener != null) {
+            symbolListener.symbolMatched(evt);
+        }
         try {
             JFlexXrefUtils.writeSymbol(out, defs, urlPrefix, project,
                 evt.getStr(), null, matcher.getLineNumber(), false, false);
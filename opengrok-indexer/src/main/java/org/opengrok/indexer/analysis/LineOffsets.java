@@ -0,0 +1,371 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BitUtil;
+import org.apache.lucene.util.BytesRef;
+import org.opengrok.indexer.configuration.Project;
+import org.opengrok.indexer.util.IOUtils;
+
+/**
+ * Represents a table of the starts of the lines of a source file, both as byte offsets in the file and as
+ * character offsets in the text read with {@link IOUtils#createBOMStrippedReader(InputStream, String)}
+ * and {@link ExpandTabsReader}, i.e. in the text the offsets in the postings of
+ * {@link org.opengrok.indexer.search.QueryBuilder#FULL} refer to.
+ * <p>
+ * The table is stored in the index so that the context of search hits can be produced by reading just
+ * the lines around the matches instead of the whole file. Lines end with {@code \n}, {@code \r\n}
+ * or {@code \r} like in {@link org.opengrok.indexer.util.StringUtils#STANDARD_EOL}.
+ */
+public final class LineOffsets {
+
+    /**
+     * Files smaller than this are cheap enough to be read whole so there is no table for them.
+     */
+    public static final int MIN_FILE_SIZE = 64 * 1024;
+
+    private static final byte VERSION = 1;
+
+    private final int tabSize;
+    private final long length;
+    private final int firstByte;
+    private final int lineCount;
+    private final byte[] lines;
+
+    private LineOffsets(int tabSize, long length, int firstByte, int lineCount, byte[] lines) {
+        this.tabSize = tabSize;
+        this.length = length;
+        this.firstByte = firstByte;
+        this.lineCount = lineCount;
+        this.lines = lines;
+    }
+
+    /**
+     * @return size of tabs the character offsets were computed with, 0 if the tabs were not expanded
+     */
+    public int getTabSize() {
+        return tabSize;
+    }
+
+    /**
+     * @return length of the file in bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return number of lines of the file
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return new cursor positioned before the first line
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Computes the line offsets of a file.
+     * @param src source of the file
+     * @param project project of the file, determines the tab size like {@link ExpandTabsReader#wrap(Reader, Project)}
+     * @return serialized line offsets or {@code null} if the file is smaller than {@link #MIN_FILE_SIZE}
+     * or is UTF-16 encoded (the line ends cannot be found in the bytes then)
+     * @throws IOException if the source cannot be read
+     */
+    public static BytesRef compute(StreamSource src, Project project) throws IOException {
+        int tabSize = project != null && project.hasTabSizeSetting() ? project.getTabSize() : 0;
+        int firstByte = 0;
+        LineLengths byteLengths = new LineLengths();
+        LineLengths charLengths = new LineLengths();
+        // Decode the bytes like the reader does so that the file is read just once for both tables.
+        // The line ends are single bytes in UTF-8 so the lines split the same in the bytes and in the text.
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().
+                onMalformedInput(CodingErrorAction.REPLACE).
+                onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(8192);
+        CharBuffer chars = CharBuffer.allocate(8192);
+        try (InputStream in = src.getStream()) {
+            byte[] buf = bytes.array();
+            int len = in.readNBytes(buf, 0, buf.length);
+            String bomEncoding = IOUtils.findBOMEncoding(buf);
+            if (bomEncoding != null) {
+                if (!bomEncoding.equals(StandardCharsets.UTF_8.name())) {
+                    return null;
+                }
+                firstByte = IOUtils.skipForBOM(buf);
+            }
+            byteLengths.add(buf, firstByte, len);
+            bytes.position(firstByte).limit(len);
+            boolean eof = len < buf.length;
+            while (true) {
+                CoderResult result = decoder.decode(bytes, chars, eof);
+                charLengths.add(chars.flip(), tabSize);
+                chars.clear();
+                if (result.isOverflow()) {
+                    continue;
+                }
+                if (eof) {
+                    break;
+                }
+                bytes.compact();
+                int n = in.read(buf, bytes.position(), bytes.remaining());
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    byteLengths.add(buf, bytes.position(), bytes.position() + n);
+                    bytes.position(bytes.position() + n);
+                }
+                bytes.flip();
+            }
+            decoder.flush(chars);
+            charLengths.add(chars.flip(), tabSize);
+        }
+        byteLengths.finish();
+        charLengths.finish();
+        long length = firstByte + byteLengths.getSum();
+        if (length < MIN_FILE_SIZE || charLengths.count != byteLengths.count) {
+            return null;
+        }
+
+        ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        out.writeByte(VERSION);
+        out.writeVInt(tabSize);
+        out.writeVLong(length);
+        out.writeVInt(firstByte);
+        out.writeVInt(charLengths.count);
+        for (int i = 0; i < charLengths.count; i++) {
+            out.writeVInt(charLengths.lengths[i]);
+            out.writeZInt(byteLengths.lengths[i] - charLengths.lengths[i]);
+        }
+        return new BytesRef(out.toArrayCopy());
+    }
+
+    /**
+     * Deserializes line offsets produced by {@link #compute(StreamSource, Project)}.
+     * @param value serialized line offsets
+     * @return line offsets or {@code null} if the value was produced by an incompatible version
+     */
+    public static LineOffsets read(BytesRef value) {
+        ByteArrayDataInput in = new ByteArrayDataInput(value.bytes, value.offset, value.length);
+        if (in.readByte() != VERSION) {
+            return null;
+        }
+        int tabSize = in.readVInt();
+        long length = in.readVLong();
+        int firstByte = in.readVInt();
+        int lineCount = in.readVInt();
+        byte[] lines = ArrayUtil.copyOfSubArray(value.bytes, in.getPosition(), value.offset + value.length);
+        return new LineOffsets(tabSize, length, firstByte, lineCount, lines);
+    }
+
+    /**
+     * Iterates over the lines in ascending order.
+     */
+    public final class Cursor {
+        private final ByteArrayDataInput in;
+        private int line = -1;
+        private long byteStart;
+        private long byteEnd = firstByte;
+        private long charStart;
+        private long charEnd;
+
+        private Cursor() {
+            in = new ByteArrayDataInput(lines);
+        }
+
+        /**
+         * Moves to the next line.
+         * @return {@code false} if there are no more lines
+         */
+        public boolean next() {
+            if (line + 1 >= lineCount) {
+                return false;
+            }
+            line++;
+            int chars = in.readVInt();
+            int bytes = chars + BitUtil.zigZagDecode(in.readVInt());
+            byteStart = byteEnd;
+            byteEnd += bytes;
+            charStart = charEnd;
+            charEnd += chars;
+            return true;
+        }
+
+        /**
+         * Moves forward to the line containing given character offset.
+         * @param offset character offset, not smaller than the start of the current line
+         * @return {@code false} if the offset is past the last line
+         */
+        public boolean advanceTo(long offset) {
+            while (line < 0 || offset >= charEnd) {
+                if (!next()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return new cursor positioned at the same line as this one
+         */
+        public Cursor copy() {
+            Cursor copy = new Cursor();
+            copy.in.setPosition(in.getPosition());
+            copy.line = line;
+            copy.byteStart = byteStart;
+            copy.byteEnd = byteEnd;
+            copy.charStart = charStart;
+            copy.charEnd = charEnd;
+            return copy;
+        }
+
+        /**
+         * @return 0-based index of the current line
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return offset of the first byte of the current line
+         */
+        public long getByteStart() {
+            return byteStart;
+        }
+
+        /**
+         * @return offset after the last byte (including the line end) of the current line
+         */
+        public long getByteEnd() {
+            return byteEnd;
+        }
+
+        /**
+         * @return offset of the first character of the current line
+         */
+        public long getCharStart() {
+            return charStart;
+        }
+
+        /**
+         * @return offset after the last character (including the line end) of the current line
+         */
+        public long getCharEnd() {
+            return charEnd;
+        }
+    }
+
+    /**
+     * Splits a sequence of bytes or characters into lines and records their lengths.
+     */
+    private static final class LineLengths {
+        private int[] lengths = new int[64];
+        private int count;
+        private long sum;
+        private int current;
+        private boolean afterCR;
+        /**
+         * Column in the text with expanded tabs, see {@link ExpandTabsReader}.
+         */
+        private int column;
+
+        void add(byte[] buf, int from, int to) {
+            for (int i = from; i < to; i++) {
+                add(buf[i]);
+            }
+        }
+
+        /**
+         * Add the characters expanding the tabs to spaces like {@link ExpandTabsReader}.
+         * @param chars characters to add
+         * @param tabSize size of tabs, 0 if the tabs should not be expanded
+         */
+        void add(CharBuffer chars, int tabSize) {
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (c == '\t' && tabSize > 0) {
+                    int spaces = tabSize - (column % tabSize);
+                    for (int i = 0; i < spaces; i++) {
+                        add(' ');
+                    }
+                    column += spaces;
+                    continue;
+                }
+                add(c);
+                column = c == '\n' || c == '\r' ? 0 : column + 1;
+            }
+        }
+
+        void add(int c) {
+            if (afterCR) {
+                afterCR = false;
+                if (c == '\n') {
+                    current++;
+                    endLine();
+                    return;
+                }
+                endLine();
+            }
+            current++;
+            if (c == '\n') {
+                endLine();
+            } else if (c == '\r') {
+                afterCR = true;
+            }
+        }
+
+        void finish() {
+            if (current > 0) {
+                endLine();
+            }
+        }
+
+        long getSum() {
+            return sum;
+        }
+
+        private void endLine() {
+            lengths = ArrayUtil.grow(lengths, count + 1);
+            lengths[count++] = current;
+            sum += current;
+            current = 0;
+        }
+    }
+}
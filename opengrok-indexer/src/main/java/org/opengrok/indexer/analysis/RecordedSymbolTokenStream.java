@@ -0,0 +1,109 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+
+/**
+ * Token stream which replays the symbols published by a {@link ScanningSymbolMatcher} while it was driven
+ * by somebody else, typically by {@link JFlexXref} during xref generation.
+ * <p>
+ * This allows to produce the {@link org.opengrok.indexer.search.QueryBuilder#REFS} tokens from the same
+ * lexer scan as the xref instead of running the symbol tokenizer over the source again. The stream has to be
+ * consumed only after the scan completed; it produces the same tokens as {@link JFlexTokenizer} would for
+ * the same symbol events.
+ */
+public class RecordedSymbolTokenStream extends TokenStream implements SymbolMatchedListener {
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+
+    private String[] symbols = new String[64];
+    private int[] offsets = new int[128];
+    private int count;
+    private int next;
+
+    /**
+     * Records the symbol unless its offsets are outside the range supported by Lucene,
+     * same as {@link JFlexTokenizer#setAttribs(String, long, long)}.
+     * @param evt the event raised
+     */
+    @Override
+    public void symbolMatched(SymbolMatchedEvent evt) {
+        if (evt.getStart() >= Integer.MAX_VALUE || evt.getEnd() >= Integer.MAX_VALUE) {
+            return;
+        }
+        if (count == symbols.length) {
+            symbols = Arrays.copyOf(symbols, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 4);
+        }
+        symbols[count] = evt.getStr();
+        offsets[2 * count] = (int) evt.getStart();
+        offsets[2 * count + 1] = (int) evt.getEnd();
+        count++;
+    }
+
+    /**
+     * Does nothing.
+     * @param evt ignored
+     */
+    @Override
+    public void sourceCodeSeen(SourceCodeSeenEvent evt) {
+    }
+
+    /**
+     * @return number of recorded symbols
+     */
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void reset() {
+        next = 0;
+    }
+
+    @Override
+    public final boolean incrementToken() {
+        clearAttributes();
+        if (next >= count) {
+            return false;
+        }
+        String str = symbols[next];
+        if (str.length() > JFlexTokenizer.LUCENE_MAX_TOKEN_LENGTH) {
+            str = str.substring(0, JFlexTokenizer.LUCENE_MAX_TOKEN_LENGTH);
+        }
+        posIncrAtt.setPositionIncrement(1);
+        termAtt.setEmpty();
+        termAtt.append(str);
+        offsetAtt.setOffset(offsets[2 * next], offsets[2 * next + 1]);
+        next++;
+        return true;
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis;
@@ -79,6 +79,9 @@ public abstract class TextAnalyzer extends FileAnalyzer {
         xref.setFoldingEnabled(foldingEnabled);
         xref.setAnnotation(args.getAnnotation());
         xref.setProject(args.getProject());
+        if (xref instanceof JFlexXref) {
+            ((JFlexXref) xref).setSymbolMatchedListener(args.getSymbolMatchedListener());
+        }
         xref.write(args.getOut());
         return xref;
     }
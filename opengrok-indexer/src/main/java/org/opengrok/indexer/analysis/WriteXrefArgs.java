@@ -38,6 +38,7 @@ public class WriteXrefArgs {
     private Definitions defs;
     private Annotation annotation;
     private Project project;
+    private SymbolMatchedListener symbolListener;
 
     /**
      * Initializes an instance of {@link WriteXrefArgs} for the required
@@ -84,4 +85,15 @@ public class WriteXrefArgs {
     public void setProject(Project value) {
         project = value;
     }
+
+    /**
+     * Listener to notify of the symbols matched during xref generation.
+     * This is honored only by {@link JFlexXref} based xrefers.
+     */
+    public SymbolMatchedListener getSymbolMatchedListener() {
+        return symbolListener;
+    }
+    public void setSymbolMatchedListener(SymbolMatchedListener value) {
+        symbolListener = value;
+    }
 }
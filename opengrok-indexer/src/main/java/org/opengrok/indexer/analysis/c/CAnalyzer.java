@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis.c;
@@ -78,6 +78,11 @@ public class CAnalyzer extends AbstractSourceCodeAnalyzer {
         return new JFlexXref(new CXref(reader));
     }
 
+    @Override
+    protected boolean supportsJointLexing() {
+        return true;
+    }
+
     @Override
     protected boolean supportsScopes() {
         return true;
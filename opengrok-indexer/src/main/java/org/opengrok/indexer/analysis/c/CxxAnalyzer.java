@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2008, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis.c;
@@ -76,6 +76,11 @@ public class CxxAnalyzer extends AbstractSourceCodeAnalyzer {
         return new JFlexXref(new CxxXref(reader));
     }
 
+    @Override
+    protected boolean supportsJointLexing() {
+        return true;
+    }
+
     @Override
     protected boolean supportsScopes() {
         return true;
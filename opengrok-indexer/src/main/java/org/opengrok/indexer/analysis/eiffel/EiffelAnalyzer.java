@@ -71,4 +71,9 @@ public class EiffelAnalyzer extends AbstractSourceCodeAnalyzer {
     protected JFlexXref newXref(Reader reader) {
         return new JFlexXref(new EiffelXref(reader));
     }
+
+    @Override
+    protected boolean supportsJointLexing() {
+        return true;
+    }
 }
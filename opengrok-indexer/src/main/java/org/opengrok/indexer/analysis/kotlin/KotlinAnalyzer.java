@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2017, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2017, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis.kotlin;
@@ -75,6 +75,11 @@ public class KotlinAnalyzer extends AbstractSourceCodeAnalyzer {
         return new JFlexXref(new KotlinXref(reader));
     }
 
+    @Override
+    protected boolean supportsJointLexing() {
+        return true;
+    }
+
     @Override
     protected boolean supportsScopes() {
         return true;
@@ -18,11 +18,12 @@
  */
 
 /*
- * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis.plain;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -30,16 +31,20 @@ import java.io.Writer;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Supplier;
 
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.StoredField;
+import org.apache.lucene.util.BytesRef;
 import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.Definitions;
 import org.opengrok.indexer.analysis.ExpandTabsReader;
 import org.opengrok.indexer.analysis.JFlexTokenizer;
 import org.opengrok.indexer.analysis.JFlexXref;
+import org.opengrok.indexer.analysis.LineOffsets;
 import org.opengrok.indexer.analysis.NumLinesLOC;
 import org.opengrok.indexer.analysis.OGKTextField;
 import org.opengrok.indexer.analysis.OGKTextVecField;
+import org.opengrok.indexer.analysis.RecordedSymbolTokenStream;
 import org.opengrok.indexer.analysis.Scopes;
 import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.analysis.TextAnalyzer;
@@ -104,6 +109,17 @@ public class PlainAnalyzer extends TextAnalyzer {
         return new JFlexXref(new PlainXref(reader));
     }
 
+    /**
+     * Tells whether the symbols published by the lexer of {@link #newXref(Reader)} are exactly those
+     * produced by the symbol tokenizer of this analyzer. If so, the
+     * {@link QueryBuilder#REFS} tokens are recorded during the xref generation instead of lexing
+     * the file separately.
+     * @return {@code false} by default
+     */
+    protected boolean supportsJointLexing() {
+        return false;
+    }
+
     @Override
     protected Reader getReader(InputStream stream) throws IOException {
         return ExpandTabsReader.wrap(super.getReader(stream), project);
@@ -115,8 +131,15 @@ public class PlainAnalyzer extends TextAnalyzer {
         NullWriter nullWriter = null;
 
         doc.add(new OGKTextField(QueryBuilder.FULL, getReader(src.getStream())));
-
         String fullPath = doc.get(QueryBuilder.FULLPATH);
+        // Most of the files are small, avoid reading them just to find out.
+        if (fullPath == null || new File(fullPath).length() >= LineOffsets.MIN_FILE_SIZE) {
+            BytesRef lineOffsets = LineOffsets.compute(src, project);
+            if (lineOffsets != null) {
+                doc.add(new BinaryDocValuesField(QueryBuilder.LINEOFFS, lineOffsets));
+            }
+        }
+
         if (fullPath != null && ctags != null) {
             defs = ctags.doCtags(fullPath);
             if (defs != null && defs.numberOfSymbols() > 0) {
@@ -126,13 +149,24 @@ public class PlainAnalyzer extends TextAnalyzer {
             }
         }
         /*
-         * This is to explicitly use appropriate analyzer's token stream to
-         * work around #1376: symbols search works like full text search.
+         * If the xref is going to be generated and its lexer publishes the same symbols
+         * as the symbol tokenizer, record the symbols during the xref pass instead of
+         * scanning the source once more.
          */
-        JFlexTokenizer symbolTokenizer = symbolTokenizerFactory.get();
-        OGKTextField ref = new OGKTextField(QueryBuilder.REFS, symbolTokenizer);
-        symbolTokenizer.setReader(getReader(src.getStream()));
-        doc.add(ref);
+        RecordedSymbolTokenStream recordedSymbols = null;
+        if ((xrefOut != null || scopesEnabled) && supportsJointLexing()) {
+            recordedSymbols = new RecordedSymbolTokenStream();
+            doc.add(new OGKTextField(QueryBuilder.REFS, recordedSymbols));
+        } else {
+            /*
+             * This is to explicitly use appropriate analyzer's token stream to
+             * work around #1376: symbols search works like full text search.
+             */
+            JFlexTokenizer symbolTokenizer = symbolTokenizerFactory.get();
+            OGKTextField ref = new OGKTextField(QueryBuilder.REFS, symbolTokenizer);
+            symbolTokenizer.setReader(getReader(src.getStream()));
+            doc.add(ref);
+        }
 
         if (scopesEnabled && xrefOut == null) {
             /*
@@ -149,6 +183,7 @@ public class PlainAnalyzer extends TextAnalyzer {
                 WriteXrefArgs args = new WriteXrefArgs(in, xrefOut);
                 args.setDefs(defs);
                 args.setProject(project);
+                args.setSymbolMatchedListener(recordedSymbols);
                 XrefWork xrefWork = new XrefWork(args, this);
                 Xrefer xref = xrefWork.getXrefer();
 
@@ -0,0 +1,116 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.authorization;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of the authorization decisions shared by the requests of the same user.
+ * <p>
+ * The decisions are valid only for the plugin stack they were made with so the
+ * cache belongs to single plugin version (generation) of {@link AuthorizationFramework}
+ * and is replaced on every reload. The least recently used users are evicted
+ * when there are more than {@code size} of them and the decisions of a user are
+ * discarded after {@code timeout} so that the changes of the underlying data
+ * (e.g. group membership in LDAP) are picked up eventually.
+ */
+final class AuthorizationDecisionCache {
+
+    private static final class UserDecisions {
+        private final long created;
+        private final Map<String, Map<String, Boolean>> decisions = new ConcurrentHashMap<>();
+
+        UserDecisions(long created) {
+            this.created = created;
+        }
+    }
+
+    private final long generation;
+    private final long timeout;
+    private final LongSupplier clock;
+    private final Map<String, UserDecisions> users;
+
+    /**
+     * @param generation plugin version of the framework the decisions belong to
+     * @param size maximum number of users
+     * @param timeout time in seconds the decisions of a user are kept
+     * @param clock source of time in nanoseconds
+     */
+    AuthorizationDecisionCache(long generation, int size, int timeout, LongSupplier clock) {
+        this.generation = generation;
+        this.timeout = TimeUnit.SECONDS.toNanos(timeout);
+        this.clock = clock;
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserDecisions> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    AuthorizationDecisionCache(long generation, int size, int timeout) {
+        this(generation, size, timeout, System::nanoTime);
+    }
+
+    /**
+     * @return plugin version of the framework the decisions belong to
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Get the decisions of a user for given type of entities.
+     *
+     * @param user user identity
+     * @param type type of the entities, e.g. projects
+     * @return modifiable thread safe map of entity name to the decision
+     */
+    Map<String, Boolean> getDecisions(String user, String type) {
+        long now = clock.getAsLong();
+        UserDecisions userDecisions;
+        synchronized (users) {
+            userDecisions = users.get(user);
+            if (userDecisions == null || now - userDecisions.created >= timeout) {
+                userDecisions = new UserDecisions(now);
+                users.put(user, userDecisions);
+            }
+        }
+        return userDecisions.decisions.computeIfAbsent(type, k -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return number of users with cached decisions
+     */
+    int size() {
+        synchronized (users) {
+            return users.size();
+        }
+    }
+}
@@ -18,17 +18,23 @@
  */
 
 /*
- * Copyright (c) 2016, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.authorization;
 
+import java.security.Principal;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -61,6 +67,10 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
             description("authorization cache hits").
             tag("what", "hits").
             register(Metrics.getRegistry());
+    private final Counter authUserCacheHits = Counter.builder("authorization.cache").
+            description("authorization cache hits across requests of the same user").
+            tag("what", "user-hits").
+            register(Metrics.getRegistry());
     private final Counter authCacheMisses = Counter.builder("authorization.cache").
             description("authorization cache misses").
             tag("what", "misses").
@@ -110,6 +120,21 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
     // HTTP session attribute that holds plugin version
     private static final String SESSION_VERSION = "opengrok-authorization-session-version";
 
+    // request attributes that hold the decisions made for the request
+    private static final String PROJECT_CACHE = "plugin_framework_project_cache";
+    private static final String GROUP_CACHE = "plugin_framework_group_cache";
+
+    /**
+     * Decisions cached across the requests of the same user for the current plugin version,
+     * {@code null} if disabled. Replaced with every reload.
+     */
+    private volatile AuthorizationDecisionCache decisionCache;
+
+    /**
+     * Name of the HTTP header with the user identity, see {@link #getUserIdentity(HttpServletRequest)}.
+     */
+    private volatile String userHeader;
+
     /**
      * Create a new instance of authorization framework with no plugin
      * directory and the default plugin stack.
@@ -150,27 +175,22 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
      * @see #checkAll
      */
     public boolean isAllowed(HttpServletRequest request, Project project) {
-        return checkAll(
-                request,
-                "plugin_framework_project_cache",
-                project,
-                new AuthorizationEntity.PluginDecisionPredicate() {
-                    @Override
-                    public boolean decision(IAuthorizationPlugin plugin) {
-                        return plugin.isAllowed(request, project);
-                    }
-                }, new AuthorizationEntity.PluginSkippingPredicate() {
-                    @Override
-                    public boolean shouldSkip(AuthorizationEntity authEntity) {
-                        // shouldn't skip if there is no setup
-                        if (authEntity.forProjects().isEmpty() && authEntity.forGroups().isEmpty()) {
-                            return false;
-                        }
+        return checkAll(request, PROJECT_CACHE, project,
+                getDecisionPredicate(request, project), getSkippingPredicate(project));
+    }
 
-                        // shouldn't skip if the project is contained in the setup
-                        return !authEntity.forProjects().contains(project.getName());
-                    }
-                });
+    /**
+     * Checks if the request should have an access to the projects. This is the same as calling
+     * {@link #isAllowed(HttpServletRequest, Project)} for each of the projects, however the
+     * cached decisions are looked up only once for all of them.
+     *
+     * @param request request object
+     * @param projects projects to check
+     * @return the allowed projects in the iteration order of {@code projects}
+     */
+    public List<Project> getAllowedProjects(HttpServletRequest request, Collection<Project> projects) {
+        return checkAll(request, PROJECT_CACHE, projects,
+                project -> getDecisionPredicate(request, project), this::getSkippingPredicate);
     }
 
     /**
@@ -183,27 +203,71 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
      * @see #checkAll
      */
     public boolean isAllowed(HttpServletRequest request, Group group) {
-        return checkAll(
-                request,
-                "plugin_framework_group_cache",
-                group,
-                new AuthorizationEntity.PluginDecisionPredicate() {
-                    @Override
-                    public boolean decision(IAuthorizationPlugin plugin) {
-                        return plugin.isAllowed(request, group);
-                    }
-                }, new AuthorizationEntity.PluginSkippingPredicate() {
-                    @Override
-                    public boolean shouldSkip(AuthorizationEntity authEntity) {
-                        // shouldn't skip if there is no setup
-                        if (authEntity.forProjects().isEmpty() && authEntity.forGroups().isEmpty()) {
-                            return false;
-                        }
+        return checkAll(request, GROUP_CACHE, group,
+                getDecisionPredicate(request, group), getSkippingPredicate(group));
+    }
 
-                        // shouldn't skip if the group is contained in the setup
-                        return !authEntity.forGroups().contains(group.getName());
-                    }
-                });
+    /**
+     * Checks if the request should have an access to the groups, see
+     * {@link #getAllowedProjects(HttpServletRequest, Collection)}.
+     *
+     * @param request request object
+     * @param groups groups to check
+     * @return the allowed groups in the iteration order of {@code groups}
+     */
+    public List<Group> getAllowedGroups(HttpServletRequest request, Collection<Group> groups) {
+        return checkAll(request, GROUP_CACHE, groups,
+                group -> getDecisionPredicate(request, group), this::getSkippingPredicate);
+    }
+
+    private AuthorizationEntity.PluginDecisionPredicate getDecisionPredicate(HttpServletRequest request,
+            Project project) {
+        return new AuthorizationEntity.PluginDecisionPredicate() {
+            @Override
+            public boolean decision(IAuthorizationPlugin plugin) {
+                return plugin.isAllowed(request, project);
+            }
+        };
+    }
+
+    private AuthorizationEntity.PluginSkippingPredicate getSkippingPredicate(Project project) {
+        return new AuthorizationEntity.PluginSkippingPredicate() {
+            @Override
+            public boolean shouldSkip(AuthorizationEntity authEntity) {
+                // shouldn't skip if there is no setup
+                if (authEntity.forProjects().isEmpty() && authEntity.forGroups().isEmpty()) {
+                    return false;
+                }
+
+                // shouldn't skip if the project is contained in the setup
+                return !authEntity.forProjects().contains(project.getName());
+            }
+        };
+    }
+
+    private AuthorizationEntity.PluginDecisionPredicate getDecisionPredicate(HttpServletRequest request,
+            Group group) {
+        return new AuthorizationEntity.PluginDecisionPredicate() {
+            @Override
+            public boolean decision(IAuthorizationPlugin plugin) {
+                return plugin.isAllowed(request, group);
+            }
+        };
+    }
+
+    private AuthorizationEntity.PluginSkippingPredicate getSkippingPredicate(Group group) {
+        return new AuthorizationEntity.PluginSkippingPredicate() {
+            @Override
+            public boolean shouldSkip(AuthorizationEntity authEntity) {
+                // shouldn't skip if there is no setup
+                if (authEntity.forProjects().isEmpty() && authEntity.forGroups().isEmpty()) {
+                    return false;
+                }
+
+                // shouldn't skip if the group is contained in the setup
+                return !authEntity.forGroups().contains(group.getName());
+            }
+        };
     }
 
     /**
@@ -392,6 +456,8 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
 
             // increase the current plugin version tracked by the framework
             increasePluginVersion();
+            // the decisions made with the old stack are no longer valid
+            decisionCache = newDecisionCache();
         } finally {
             lock.writeLock().unlock();
         }
@@ -425,6 +491,64 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
         this.pluginVersion++;
     }
 
+    /**
+     * Assumes that {@code lock} is held for writing.
+     *
+     * @return new cache for the current plugin version or {@code null} if disabled
+     */
+    private AuthorizationDecisionCache newDecisionCache() {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        userHeader = env.getAuthorizationCacheUserHeader();
+        int size = env.getAuthorizationCacheSize();
+        int timeout = env.getAuthorizationCacheTimeout();
+        if (size <= 0 || timeout <= 0) {
+            return null;
+        }
+        return new AuthorizationDecisionCache(getPluginVersion(), size, timeout);
+    }
+
+    /**
+     * Identifies the user of the request for the purpose of caching the decisions across requests.
+     * The user is either authenticated by the servlet container or the identity is passed by trusted
+     * reverse proxy in the HTTP header configured with
+     * {@link RuntimeEnvironment#setAuthorizationCacheUserHeader(String)}.
+     *
+     * @param request the request
+     * @return user identity or {@code null} if the user is not known
+     */
+    private String getUserIdentity(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null && principal.getName() != null) {
+            return "principal:" + principal.getName();
+        }
+        String header = userHeader;
+        if (header != null) {
+            String value = request.getHeader(header);
+            if (value != null && !value.isEmpty()) {
+                return "header:" + value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the decisions of the user of the request cached across requests.
+     * <p>
+     * Assumes the {@code lock} is held for reading.
+     *
+     * @param request the request
+     * @param cache type of the entities
+     * @return the decisions or {@code null} if they cannot be cached
+     */
+    private Map<String, Boolean> getUserDecisions(HttpServletRequest request, String cache) {
+        AuthorizationDecisionCache decisions = decisionCache;
+        if (decisions == null || decisions.getGeneration() != getPluginVersion()) {
+            return null;
+        }
+        String user = getUserIdentity(request);
+        return user == null ? null : decisions.getDecisions(user, cache);
+    }
+
     /**
      * Is this session marked as invalid?
      * <p>
@@ -489,7 +613,6 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
      * @return true if yes
      * @see RuntimeEnvironment#getPluginStack()
      */
-    @SuppressWarnings("unchecked")
     private boolean checkAll(HttpServletRequest request, String cache, Nameable entity,
             AuthorizationEntity.PluginDecisionPredicate pluginPredicate,
             AuthorizationEntity.PluginSkippingPredicate skippingPredicate) {
@@ -504,51 +627,118 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
             return false;
         }
 
-        Boolean val;
-        Map<String, Boolean> m = (Map<String, Boolean>) request.getAttribute(cache);
+        return !checkAll(request, cache, Collections.singletonList(entity),
+                e -> pluginPredicate, e -> skippingPredicate).isEmpty();
+    }
+
+    /**
+     * Checks if the request should have an access to the entities, see
+     * {@link #checkAll(HttpServletRequest, String, Nameable, AuthorizationEntity.PluginDecisionPredicate,
+     * AuthorizationEntity.PluginSkippingPredicate)}.
+     * <p>
+     * The decisions are cached in the request attributes and if the user of the request is known
+     * (see {@link #getUserIdentity(HttpServletRequest)}), also across the requests of the user
+     * until the next reload of the plugins.
+     *
+     * @param <T>               type of the entities
+     * @param request           request object
+     * @param cache             cache
+     * @param entities          entities with name
+     * @param pluginPredicates  provides predicate to determine the plugin's decision for the request
+     * @param skippingPredicates provides predicate to determine if the plugin should be skipped for this request
+     * @return the allowed entities
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Nameable> List<T> checkAll(HttpServletRequest request, String cache,
+            Collection<T> entities,
+            Function<T, AuthorizationEntity.PluginDecisionPredicate> pluginPredicates,
+            Function<T, AuthorizationEntity.PluginSkippingPredicate> skippingPredicates) {
+
+        if (stack == null) {
+            return new ArrayList<>(entities);
+        }
 
+        List<T> allowed = new ArrayList<>(entities.size());
+        Map<String, Boolean> m = (Map<String, Boolean>) request.getAttribute(cache);
         if (m == null) {
             m = new TreeMap<>();
-        } else if ((val = m.get(entity.getName())) != null) {
-            // cache hit
-            authCacheHits.increment();
-            return val;
         }
 
-        authCacheMisses.increment();
-
-        Duration duration;
-        boolean overallDecision;
-
-        lock.readLock().lock();
-        try {
-            // Make sure there is a HTTP session that corresponds to current plugin version.
-            HttpSession session;
-            if (((session = request.getSession(false)) != null) && isSessionInvalid(session)) {
-                session.invalidate();
-                authSessionsInvalidated.increment();
+        List<T> missing = new ArrayList<>();
+        for (T entity : entities) {
+            Boolean val;
+            if (entity == null) {
+                continue;
+            }
+            if ((val = m.get(entity.getName())) != null) {
+                // cache hit
+                authCacheHits.increment();
+                if (val) {
+                    allowed.add(entity);
+                }
+            } else {
+                missing.add(entity);
             }
-            request.getSession().setAttribute(SESSION_VERSION, getPluginVersion());
-
-            Instant start = Instant.now();
-            overallDecision = performCheck(entity, pluginPredicate, skippingPredicate);
-            Instant end = Instant.now();
-            duration = Duration.between(start, end);
-        } finally {
-            lock.readLock().unlock();
         }
 
-        // Update the timers.
-        if (overallDecision) {
-            authTimerPositive.record(duration);
-        } else {
-            authTimerNegative.record(duration);
+        if (!missing.isEmpty()) {
+            lock.readLock().lock();
+            try {
+                // The session is checked even if all the decisions come from the user cache
+                // so that the session always corresponds to the current plugin version.
+                checkSession(request);
+                Map<String, Boolean> userDecisions = getUserDecisions(request, cache);
+                for (T entity : missing) {
+                    Boolean val = userDecisions == null ? null : userDecisions.get(entity.getName());
+                    if (val != null) {
+                        authUserCacheHits.increment();
+                    } else {
+                        authCacheMisses.increment();
+
+                        Instant start = Instant.now();
+                        val = performCheck(entity, pluginPredicates.apply(entity), skippingPredicates.apply(entity));
+                        Duration duration = Duration.between(start, Instant.now());
+
+                        // Update the timers.
+                        if (val) {
+                            authTimerPositive.record(duration);
+                        } else {
+                            authTimerNegative.record(duration);
+                        }
+
+                        if (userDecisions != null) {
+                            userDecisions.put(entity.getName(), val);
+                        }
+                    }
+
+                    m.put(entity.getName(), val);
+                    if (val) {
+                        allowed.add(entity);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            request.setAttribute(cache, m);
         }
 
-        m.put(entity.getName(), overallDecision);
-        request.setAttribute(cache, m);
+        return allowed;
+    }
 
-        return overallDecision;
+    /**
+     * Make sure there is a HTTP session that corresponds to current plugin version.
+     * <p>
+     * Assumes the {@code lock} is held for reading.
+     *
+     * @param request the request
+     */
+    private void checkSession(HttpServletRequest request) {
+        HttpSession session;
+        if (((session = request.getSession(false)) != null) && isSessionInvalid(session)) {
+            session.invalidate();
+            authSessionsInvalidated.increment();
+        }
+        request.getSession().setAttribute(SESSION_VERSION, getPluginVersion());
     }
 
     /**
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2007, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2020, Aleksandr Kirillov <alexkirillovsamara@gmail.com>.
  */
@@ -109,6 +109,10 @@ public final class Configuration {
      * Should the history log be cached?
      */
     private boolean historyCache;
+    /**
+     * Storage format of the history cache.
+     */
+    private HistoryCacheType historyCacheType;
     /**
      * Should the latest annotation be cached?
      */
@@ -135,6 +139,19 @@ public final class Configuration {
      */
     private boolean authorizationWatchdogEnabled;
     private AuthorizationStack pluginStack;
+    /**
+     * Maximum number of users whose authorization decisions are cached across requests. 0 disables the cache.
+     */
+    private int authorizationCacheSize;
+    /**
+     * Time (in seconds) the authorization decisions of a user are cached across requests.
+     */
+    private int authorizationCacheTimeout;
+    /**
+     * Name of HTTP header with the user identity (set by trusted reverse proxy) used to cache
+     * the authorization decisions of users not authenticated by the servlet container.
+     */
+    private String authorizationCacheUserHeader;
     private Map<String, Project> projects; // project name -> Project
     private Map<String, Group> groups; // project name -> Group
     private String sourceRoot;
@@ -182,9 +199,22 @@ public final class Configuration {
     private int repositoryInvalidationParallelism;
     private int historyParallelism;
     private int historyFileParallelism;
+    /**
+     * Maximum number of SCM processes running concurrently (across all repositories) while prefetching
+     * the history of individual files for repositories without history for directories.
+     */
+    private int historyProcessParallelism;
+    /**
+     * Number of threads compressing and writing the xref files in the background. If 0, the xref files
+     * are written by the indexing threads as they are generated.
+     */
+    private int xrefWriterParallelism;
     private boolean tagsEnabled;
     private int hitsPerPage;
     private int cachePages;
+    private int searchResultCacheSize;
+    private int searchResultCacheTTL;
+    private int searchTotalHitsThreshold;
     private short contextLimit; // initialized non-zero in ctor
     private short contextSurround;
     private boolean lastEditedDisplayMode;
@@ -202,6 +232,7 @@ public final class Configuration {
     private int webappStartCommandTimeout; // in seconds
     private int restfulCommandTimeout; // in seconds
     private long ctagsTimeout; // in seconds
+    private int ctagsServerProcesses;
     private long xrefTimeout; // in seconds
     private boolean scopesEnabled;
     private boolean projectsEnabled;
@@ -296,6 +327,8 @@ public final class Configuration {
 
     private StatsdConfig statsdConfig = new StatsdConfig();
 
+    private IndexWriterProfile indexWriterProfile = new IndexWriterProfile();
+
     private Set<String> disabledRepositories;
 
     private Set<String> authenticationTokens; // for non-localhost API access
@@ -305,6 +338,43 @@ public final class Configuration {
     private int historyChunkCount;
     private boolean historyCachePerPartesEnabled = true;
 
+    /**
+     * Maximum number of history entries (newest first) indexed in the history field of a file.
+     * 0 means no limit.
+     */
+    private int indexedHistoryEntriesLimit;
+
+    /**
+     * Size limit (in MB) of the on-disk cache of xref files rendered by the web application on demand
+     * for files that do not have a pre-generated xref. 0 disables the cache.
+     */
+    private int xrefCacheSize;
+
+    /**
+     * Maximum number of JGit repositories kept open for reuse. 0 disables the pooling.
+     */
+    private int gitRepositoryPoolSize;
+
+    /**
+     * Time (in seconds) after which an unused pooled JGit repository is closed.
+     */
+    private int gitRepositoryPoolIdleTimeout;
+
+    /**
+     * Maximum size (in MB) of pack file data JGit keeps in memory. 0 means JGit default.
+     */
+    private int gitPackedGitLimit;
+
+    /**
+     * Whether JGit should access pack files via memory mapping.
+     */
+    private boolean gitPackedGitMmap;
+
+    /**
+     * Maximum size (in MB) of JGit cache of inflated delta bases. 0 means JGit default.
+     */
+    private int gitDeltaBaseCacheLimit;
+
     private String serverName;  // for reverse proxy environment
 
     private int connectTimeout = -1;    // connect timeout in seconds
@@ -501,6 +571,26 @@ public final class Configuration {
         this.ctagsTimeout = timeout;
     }
 
+    /**
+     * @return number of shared ctags processes the files are pipelined to during indexing, 0 means that
+     * each indexing thread runs its own ctags process and submits one file at a time
+     */
+    public int getCtagsServerProcesses() {
+        return ctagsServerProcesses;
+    }
+
+    /**
+     * @param count number of shared ctags processes, 0 to disable
+     * @throws IllegalArgumentException when the count is negative
+     */
+    public void setCtagsServerProcesses(int count) throws IllegalArgumentException {
+        if (count < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "ctagsServerProcesses", count));
+        }
+        this.ctagsServerProcesses = count;
+    }
+
     public long getXrefTimeout() {
         return xrefTimeout;
     }
@@ -556,9 +646,15 @@ public final class Configuration {
         setAnnotationCacheEnabled(false);
         setApiTimeout(300); // 5 minutes
         setAuthenticationTokens(new HashSet<>());
+        setAuthorizationCacheSize(0); // opt-in, the plugins may depend on the state of the session
+        setAuthorizationCacheTimeout(300); // 5 minutes
+        //authorizationCacheUserHeader is default(String)
         setAuthorizationWatchdogEnabled(false);
         setBugPattern("\\b([12456789][0-9]{6})\\b");
         setCachePages(5);
+        setSearchResultCacheSize(128);
+        setSearchResultCacheTTL(300);
+        setSearchTotalHitsThreshold(1000);
         setCanonicalRoots(new HashSet<>());
         setConnectTimeout(10);
         setIndexerCommandTimeout(600); // 10 minutes
@@ -569,6 +665,7 @@ public final class Configuration {
         setContextLimit((short) 10);
         //contextSurround is default(short)
         //ctags is default(String)
+        //ctagsServerProcesses is default(int)
         setCtagsTimeout(10);
         setCurrentIndexedCollapseThreshold(27);
         setDataRoot(null);
@@ -576,11 +673,17 @@ public final class Configuration {
         setFetchHistoryWhenNotInCache(true);
         setFoldingEnabled(true);
         setGenerateHtml(true);
+        //gitDeltaBaseCacheLimit is default(int)
+        //gitPackedGitLimit is default(int)
+        //gitPackedGitMmap is default(boolean)
+        setGitRepositoryPoolIdleTimeout(300); // 5 minutes
+        setGitRepositoryPoolSize(32);
         setGroups(new TreeMap<>());
         setGroupsCollapseThreshold(4);
         setHandleHistoryOfRenamedFiles(false);
         setHistoryBasedReindex(true);
         setHistoryCache(true);
+        setHistoryCacheType(HistoryCacheType.FILE);
         setHistoryEnabled(false);
         setHitsPerPage(25);
         setIgnoredNames(new IgnoredNames());
@@ -687,6 +790,53 @@ public final class Configuration {
         this.pluginStack = pluginStack;
     }
 
+    /**
+     * @return maximum number of users whose authorization decisions are cached across requests,
+     * 0 means the cache is disabled
+     */
+    public int getAuthorizationCacheSize() {
+        return authorizationCacheSize;
+    }
+
+    /**
+     * @param size maximum number of users whose authorization decisions are cached across requests,
+     * 0 to disable the cache
+     * @throws IllegalArgumentException when the size is negative
+     */
+    public void setAuthorizationCacheSize(int size) throws IllegalArgumentException {
+        if (size < 0) {
+            throw new IllegalArgumentException(String.format(NEGATIVE_NUMBER_ERROR, "authorizationCacheSize", size));
+        }
+        this.authorizationCacheSize = size;
+    }
+
+    /**
+     * @return time in seconds the authorization decisions of a user are cached across requests
+     */
+    public int getAuthorizationCacheTimeout() {
+        return authorizationCacheTimeout;
+    }
+
+    /**
+     * @param timeout time in seconds the authorization decisions of a user are cached across requests
+     * @throws IllegalArgumentException when the timeout is negative
+     */
+    public void setAuthorizationCacheTimeout(int timeout) throws IllegalArgumentException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "authorizationCacheTimeout", timeout));
+        }
+        this.authorizationCacheTimeout = timeout;
+    }
+
+    public String getAuthorizationCacheUserHeader() {
+        return authorizationCacheUserHeader;
+    }
+
+    public void setAuthorizationCacheUserHeader(String header) {
+        this.authorizationCacheUserHeader = header;
+    }
+
     public void setCmds(Map<String, String> cmds) {
         this.cmds.clear();
         this.cmds.putAll(cmds);
@@ -789,6 +939,59 @@ public final class Configuration {
         this.cachePages = cachePages;
     }
 
+    public int getSearchResultCacheSize() {
+        return searchResultCacheSize;
+    }
+
+    /**
+     * Set the maximum number of queries whose results are cached.
+     *
+     * @param searchResultCacheSize the new value, 0 disables the cache
+     * @throws IllegalArgumentException when the searchResultCacheSize is negative
+     */
+    public void setSearchResultCacheSize(int searchResultCacheSize) throws IllegalArgumentException {
+        if (searchResultCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "searchResultCacheSize", searchResultCacheSize));
+        }
+        this.searchResultCacheSize = searchResultCacheSize;
+    }
+
+    public int getSearchResultCacheTTL() {
+        return searchResultCacheTTL;
+    }
+
+    /**
+     * Set the time after which the cached query results expire.
+     *
+     * @param searchResultCacheTTL the new value in seconds
+     * @throws IllegalArgumentException when the searchResultCacheTTL is negative
+     */
+    public void setSearchResultCacheTTL(int searchResultCacheTTL) throws IllegalArgumentException {
+        if (searchResultCacheTTL < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "searchResultCacheTTL", searchResultCacheTTL));
+        }
+        this.searchResultCacheTTL = searchResultCacheTTL;
+    }
+
+    public int getSearchTotalHitsThreshold() {
+        return searchTotalHitsThreshold;
+    }
+
+    /**
+     * @param searchTotalHitsThreshold number of hits of a query to count accurately, beyond this number
+     * the total hit count is a lower bound which allows the search to skip non-competitive documents
+     * @throws IllegalArgumentException when the searchTotalHitsThreshold is negative
+     */
+    public void setSearchTotalHitsThreshold(int searchTotalHitsThreshold) throws IllegalArgumentException {
+        if (searchTotalHitsThreshold < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "searchTotalHitsThreshold", searchTotalHitsThreshold));
+        }
+        this.searchTotalHitsThreshold = searchTotalHitsThreshold;
+    }
+
     public int getHitsPerPage() {
         return hitsPerPage;
     }
@@ -863,6 +1066,20 @@ public final class Configuration {
         this.historyCache = historyCache;
     }
 
+    public HistoryCacheType getHistoryCacheType() {
+        return historyCacheType;
+    }
+
+    /**
+     * Set the storage format of the history cache. Changing the format requires the history cache
+     * to be regenerated.
+     *
+     * @param historyCacheType history cache type
+     */
+    public void setHistoryCacheType(HistoryCacheType historyCacheType) {
+        this.historyCacheType = historyCacheType;
+    }
+
     public boolean isFetchHistoryWhenNotInCache() {
         return fetchHistoryWhenNotInCache;
     }
@@ -1203,6 +1420,22 @@ public final class Configuration {
         this.historyFileParallelism = Math.max(value, 0);
     }
 
+    public int getHistoryProcessParallelism() {
+        return historyProcessParallelism;
+    }
+
+    public void setHistoryProcessParallelism(int value) {
+        this.historyProcessParallelism = Math.max(value, 0);
+    }
+
+    public int getXrefWriterParallelism() {
+        return xrefWriterParallelism;
+    }
+
+    public void setXrefWriterParallelism(int value) {
+        this.xrefWriterParallelism = Math.max(value, 0);
+    }
+
     public boolean isTagsEnabled() {
         return this.tagsEnabled;
     }
@@ -1392,6 +1625,17 @@ public final class Configuration {
         this.statsdConfig = config;
     }
 
+    public IndexWriterProfile getIndexWriterProfile() {
+        return indexWriterProfile;
+    }
+
+    public void setIndexWriterProfile(final IndexWriterProfile profile) {
+        if (profile == null) {
+            throw new IllegalArgumentException("Cannot set index writer profile to null");
+        }
+        this.indexWriterProfile = profile;
+    }
+
     public Set<String> getDisabledRepositories() {
         return disabledRepositories;
     }
@@ -1432,6 +1676,124 @@ public final class Configuration {
         this.historyChunkCount = historyChunkCount;
     }
 
+    /**
+     * @return maximum number of history entries indexed per file, 0 means no limit
+     */
+    public int getIndexedHistoryEntriesLimit() {
+        return indexedHistoryEntriesLimit;
+    }
+
+    /**
+     * @param limit maximum number of history entries indexed per file, 0 to index the complete history
+     * @throws IllegalArgumentException when the limit is negative
+     */
+    public void setIndexedHistoryEntriesLimit(int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "indexedHistoryEntriesLimit", limit));
+        }
+        this.indexedHistoryEntriesLimit = limit;
+    }
+
+    /**
+     * @return size limit of the xref cache in MB, 0 means the cache is disabled
+     */
+    public int getXrefCacheSize() {
+        return xrefCacheSize;
+    }
+
+    /**
+     * @param size size limit of the xref cache in MB, 0 to disable the cache
+     * @throws IllegalArgumentException when the size is negative
+     */
+    public void setXrefCacheSize(int size) throws IllegalArgumentException {
+        if (size < 0) {
+            throw new IllegalArgumentException(String.format(NEGATIVE_NUMBER_ERROR, "xrefCacheSize", size));
+        }
+        this.xrefCacheSize = size;
+    }
+
+    /**
+     * @return maximum number of JGit repositories kept open for reuse, 0 means the pooling is disabled
+     */
+    public int getGitRepositoryPoolSize() {
+        return gitRepositoryPoolSize;
+    }
+
+    /**
+     * @param size maximum number of JGit repositories kept open for reuse, 0 to disable the pooling
+     * @throws IllegalArgumentException when the size is negative
+     */
+    public void setGitRepositoryPoolSize(int size) throws IllegalArgumentException {
+        if (size < 0) {
+            throw new IllegalArgumentException(String.format(NEGATIVE_NUMBER_ERROR, "gitRepositoryPoolSize", size));
+        }
+        this.gitRepositoryPoolSize = size;
+    }
+
+    /**
+     * @return time in seconds after which an unused pooled JGit repository is closed
+     */
+    public int getGitRepositoryPoolIdleTimeout() {
+        return gitRepositoryPoolIdleTimeout;
+    }
+
+    /**
+     * @param timeout time in seconds after which an unused pooled JGit repository is closed
+     * @throws IllegalArgumentException when the timeout is negative
+     */
+    public void setGitRepositoryPoolIdleTimeout(int timeout) throws IllegalArgumentException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "gitRepositoryPoolIdleTimeout", timeout));
+        }
+        this.gitRepositoryPoolIdleTimeout = timeout;
+    }
+
+    /**
+     * @return maximum size of pack file data held in memory by JGit in MB, 0 means JGit default
+     */
+    public int getGitPackedGitLimit() {
+        return gitPackedGitLimit;
+    }
+
+    /**
+     * @param limit maximum size of pack file data held in memory by JGit in MB, 0 for JGit default
+     * @throws IllegalArgumentException when the limit is negative
+     */
+    public void setGitPackedGitLimit(int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException(String.format(NEGATIVE_NUMBER_ERROR, "gitPackedGitLimit", limit));
+        }
+        this.gitPackedGitLimit = limit;
+    }
+
+    public boolean isGitPackedGitMmap() {
+        return gitPackedGitMmap;
+    }
+
+    public void setGitPackedGitMmap(boolean flag) {
+        this.gitPackedGitMmap = flag;
+    }
+
+    /**
+     * @return maximum size of JGit delta base cache in MB, 0 means JGit default
+     */
+    public int getGitDeltaBaseCacheLimit() {
+        return gitDeltaBaseCacheLimit;
+    }
+
+    /**
+     * @param limit maximum size of JGit delta base cache in MB, 0 for JGit default
+     * @throws IllegalArgumentException when the limit is negative
+     */
+    public void setGitDeltaBaseCacheLimit(int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException(String.format(NEGATIVE_NUMBER_ERROR, "gitDeltaBaseCacheLimit", limit));
+        }
+        this.gitDeltaBaseCacheLimit = limit;
+    }
+
     public boolean isHistoryCachePerPartesEnabled() {
         return historyCachePerPartesEnabled;
     }
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2021, 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2021, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.configuration;
 
@@ -62,6 +62,7 @@ public class ConfigurationClassLoader extends ClassLoader {
             HashSet.class,
             IAuthorizationPlugin.class,
             IgnoredNames.class,
+            IndexWriterProfile.class,
             LuceneLockName.class,
             Project.class,
             RemoteSCM.class,
@@ -0,0 +1,265 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.util.Objects;
+
+/**
+ * Tuning of the Lucene {@code IndexWriter} used by the indexer. The defaults match the Lucene defaults
+ * so that the profile only needs to list the settings that should differ.
+ * <p>
+ * The profile can be set globally in {@link Configuration} and overridden for individual projects
+ * via {@link Project#setIndexWriterProfile(IndexWriterProfile)}.
+ */
+public class IndexWriterProfile {
+
+    public static final double MAX_MERGED_SEGMENT_MB_DEFAULT = 5 * 1024;
+    public static final double SEGMENTS_PER_TIER_DEFAULT = 10;
+    public static final int MAX_MERGE_AT_ONCE_DEFAULT = 10;
+    public static final double FLOOR_SEGMENT_MB_DEFAULT = 2;
+    public static final double DELETES_PCT_ALLOWED_DEFAULT = 20;
+    public static final int MERGE_THREADS_DEFAULT = 0;
+    public static final int MAX_MERGE_COUNT_DEFAULT = 0;
+    public static final int RAM_PER_THREAD_HARD_LIMIT_MB_DEFAULT = 1945;
+    public static final boolean USE_COMPOUND_FILE_DEFAULT = true;
+    public static final boolean BULK_LOAD_DEFAULT = false;
+
+    /**
+     * Maximum size of a segment produced by regular merges.
+     */
+    private double maxMergedSegmentMB;
+
+    /**
+     * Number of segments allowed per tier of the tiered merge policy. Higher values mean fewer merges
+     * during indexing and more segments to search.
+     */
+    private double segmentsPerTier;
+
+    /**
+     * Maximum number of segments merged at once during regular merges.
+     */
+    private int maxMergeAtOnce;
+
+    /**
+     * Segments smaller than this size are rounded up to it for the purpose of merge selection.
+     */
+    private double floorSegmentMB;
+
+    /**
+     * Maximum percentage of deleted documents tolerated in the index before the merge policy starts
+     * to prefer merges that reclaim them.
+     */
+    private double deletesPctAllowed;
+
+    /**
+     * Number of merge threads. 0 lets Lucene pick the value based on the number of CPUs and the type of storage.
+     */
+    private int mergeThreads;
+
+    /**
+     * Maximum number of merges that can be pending before the indexing threads are stalled.
+     * 0 lets Lucene pick the value. If set, it must not be lower than {@link #mergeThreads}.
+     */
+    private int maxMergeCount;
+
+    /**
+     * Amount of RAM a single indexing thread can use before its segment is flushed, regardless of the
+     * {@code ramBufferSize} setting of the configuration.
+     */
+    private int ramPerThreadHardLimitMB;
+
+    /**
+     * Whether newly flushed and small merged segments are stored as compound files. This saves file descriptors
+     * at the expense of some extra I/O.
+     */
+    private boolean useCompoundFile;
+
+    /**
+     * If the index is empty when the indexing starts, do not merge any segments until all documents are added.
+     * This avoids rewriting the same data over and over during the initial load of large projects.
+     */
+    private boolean bulkLoad;
+
+    public IndexWriterProfile() {
+        setMaxMergedSegmentMB(MAX_MERGED_SEGMENT_MB_DEFAULT);
+        setSegmentsPerTier(SEGMENTS_PER_TIER_DEFAULT);
+        setMaxMergeAtOnce(MAX_MERGE_AT_ONCE_DEFAULT);
+        setFloorSegmentMB(FLOOR_SEGMENT_MB_DEFAULT);
+        setDeletesPctAllowed(DELETES_PCT_ALLOWED_DEFAULT);
+        setMergeThreads(MERGE_THREADS_DEFAULT);
+        setMaxMergeCount(MAX_MERGE_COUNT_DEFAULT);
+        setRamPerThreadHardLimitMB(RAM_PER_THREAD_HARD_LIMIT_MB_DEFAULT);
+        setUseCompoundFile(USE_COMPOUND_FILE_DEFAULT);
+        setBulkLoad(BULK_LOAD_DEFAULT);
+    }
+
+    public double getMaxMergedSegmentMB() {
+        return maxMergedSegmentMB;
+    }
+
+    public final void setMaxMergedSegmentMB(final double maxMergedSegmentMB) {
+        if (maxMergedSegmentMB <= 0) {
+            throw new IllegalArgumentException("Maximum merged segment size must be positive");
+        }
+        this.maxMergedSegmentMB = maxMergedSegmentMB;
+    }
+
+    public double getSegmentsPerTier() {
+        return segmentsPerTier;
+    }
+
+    public final void setSegmentsPerTier(final double segmentsPerTier) {
+        if (segmentsPerTier < 2) {
+            throw new IllegalArgumentException("Segments per tier must be at least 2");
+        }
+        this.segmentsPerTier = segmentsPerTier;
+    }
+
+    public int getMaxMergeAtOnce() {
+        return maxMergeAtOnce;
+    }
+
+    public final void setMaxMergeAtOnce(final int maxMergeAtOnce) {
+        if (maxMergeAtOnce < 2) {
+            throw new IllegalArgumentException("Maximum number of segments merged at once must be at least 2");
+        }
+        this.maxMergeAtOnce = maxMergeAtOnce;
+    }
+
+    public double getFloorSegmentMB() {
+        return floorSegmentMB;
+    }
+
+    public final void setFloorSegmentMB(final double floorSegmentMB) {
+        if (floorSegmentMB <= 0) {
+            throw new IllegalArgumentException("Floor segment size must be positive");
+        }
+        this.floorSegmentMB = floorSegmentMB;
+    }
+
+    public double getDeletesPctAllowed() {
+        return deletesPctAllowed;
+    }
+
+    public final void setDeletesPctAllowed(final double deletesPctAllowed) {
+        if (deletesPctAllowed < 5 || deletesPctAllowed > 50) {
+            throw new IllegalArgumentException("Percentage of deleted documents allowed must be between 5 and 50");
+        }
+        this.deletesPctAllowed = deletesPctAllowed;
+    }
+
+    public int getMergeThreads() {
+        return mergeThreads;
+    }
+
+    public final void setMergeThreads(final int mergeThreads) {
+        if (mergeThreads < 0) {
+            throw new IllegalArgumentException("Number of merge threads cannot be negative");
+        }
+        this.mergeThreads = mergeThreads;
+    }
+
+    public int getMaxMergeCount() {
+        return maxMergeCount;
+    }
+
+    public final void setMaxMergeCount(final int maxMergeCount) {
+        if (maxMergeCount < 0) {
+            throw new IllegalArgumentException("Maximum merge count cannot be negative");
+        }
+        this.maxMergeCount = maxMergeCount;
+    }
+
+    public int getRamPerThreadHardLimitMB() {
+        return ramPerThreadHardLimitMB;
+    }
+
+    public final void setRamPerThreadHardLimitMB(final int ramPerThreadHardLimitMB) {
+        if (ramPerThreadHardLimitMB <= 0 || ramPerThreadHardLimitMB >= 2048) {
+            throw new IllegalArgumentException("Per-thread RAM limit must be between 1 and 2047 MB");
+        }
+        this.ramPerThreadHardLimitMB = ramPerThreadHardLimitMB;
+    }
+
+    public boolean isUseCompoundFile() {
+        return useCompoundFile;
+    }
+
+    public final void setUseCompoundFile(final boolean useCompoundFile) {
+        this.useCompoundFile = useCompoundFile;
+    }
+
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
+
+    public final void setBulkLoad(final boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IndexWriterProfile that = (IndexWriterProfile) o;
+        return Double.compare(maxMergedSegmentMB, that.maxMergedSegmentMB) == 0 &&
+                Double.compare(segmentsPerTier, that.segmentsPerTier) == 0 &&
+                maxMergeAtOnce == that.maxMergeAtOnce &&
+                Double.compare(floorSegmentMB, that.floorSegmentMB) == 0 &&
+                Double.compare(deletesPctAllowed, that.deletesPctAllowed) == 0 &&
+                mergeThreads == that.mergeThreads &&
+                maxMergeCount == that.maxMergeCount &&
+                ramPerThreadHardLimitMB == that.ramPerThreadHardLimitMB &&
+                useCompoundFile == that.useCompoundFile &&
+                bulkLoad == that.bulkLoad;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxMergedSegmentMB, segmentsPerTier, maxMergeAtOnce, floorSegmentMB, deletesPctAllowed,
+                mergeThreads, maxMergeCount, ramPerThreadHardLimitMB, useCompoundFile, bulkLoad);
+    }
+
+    /**
+     * Gets an instance version suitable for helper documentation by shifting
+     * most default properties slightly.
+     */
+    static IndexWriterProfile getForHelp() {
+        IndexWriterProfile res = new IndexWriterProfile();
+        res.setMaxMergedSegmentMB(1 + res.getMaxMergedSegmentMB());
+        res.setSegmentsPerTier(1 + res.getSegmentsPerTier());
+        res.setMaxMergeAtOnce(1 + res.getMaxMergeAtOnce());
+        res.setFloorSegmentMB(1 + res.getFloorSegmentMB());
+        res.setDeletesPctAllowed(1 + res.getDeletesPctAllowed());
+        res.setMergeThreads(1 + res.getMergeThreads());
+        res.setMaxMergeCount(2 + res.getMaxMergeCount());
+        res.setRamPerThreadHardLimitMB(res.getRamPerThreadHardLimitMB() - 1);
+        res.setUseCompoundFile(!res.isUseCompoundFile());
+        res.setBulkLoad(!res.isBulkLoad());
+        return res;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * Searcher over the indexes of a set of projects. The instances are pooled by {@link MultiProjectSearcherPool}
+ * and shared by concurrent searches so they are reference counted. Each user has to call {@link #release()}
+ * once done with the searcher.
+ */
+public class MultiProjectSearcher extends IndexSearcher {
+
+    private final SortedSet<String> projects;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    MultiProjectSearcher(MultiReader reader, SortedSet<String> projects, ExecutorService executor) {
+        super(reader, executor);
+        this.projects = Collections.unmodifiableSortedSet(new TreeSet<>(projects));
+    }
+
+    /**
+     * @return names of the projects covered by this searcher
+     */
+    public SortedSet<String> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Increment the reference count unless the searcher was already closed.
+     * @return whether the reference count was incremented
+     */
+    boolean tryIncRef() {
+        int count;
+        while ((count = refCount.get()) > 0) {
+            if (refCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getRefCount() {
+        return refCount.get();
+    }
+
+    /**
+     * Decrement the reference count. The underlying reader is closed once the count drops to zero.
+     * @throws IOException on error when closing the reader
+     */
+    public void release() throws IOException {
+        int count = refCount.decrementAndGet();
+        if (count == 0) {
+            getIndexReader().close();
+        } else if (count < 0) {
+            throw new IllegalStateException(String.format("searcher for %s released too many times", projects));
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiReader;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Pool of {@link MultiProjectSearcher} instances keyed by the set of projects. Searching the same set of
+ * projects repeatedly (e.g. all projects) thus does not need to acquire the searcher of each project
+ * and construct new {@link MultiReader} and {@link org.apache.lucene.search.IndexSearcher} every time.
+ * This also keeps the per searcher state (e.g. the leaf slices) around.
+ * <p>
+ * The pool holds at most {@link #DEFAULT_MAX_SIZE} searchers, the least recently used ones are evicted first.
+ * Once the searcher of a project is refreshed, the pooled searchers involving the project are removed
+ * from the pool (see {@link #invalidate(String)}). The removed searchers are closed when their last user
+ * releases them.
+ */
+public class MultiProjectSearcherPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiProjectSearcherPool.class);
+
+    static final int DEFAULT_MAX_SIZE = 64;
+
+    private final RuntimeEnvironment env;
+    private final int maxSize;
+
+    private final Map<SortedSet<String>, MultiProjectSearcher> searchers = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Incremented on each invalidation so that searchers created from the readers that were current before
+     * the invalidation are not put into the pool.
+     */
+    private long generation;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    MultiProjectSearcherPool(RuntimeEnvironment env) {
+        this(env, DEFAULT_MAX_SIZE);
+    }
+
+    @VisibleForTesting
+    MultiProjectSearcherPool(RuntimeEnvironment env, int maxSize) {
+        this.env = env;
+        this.maxSize = maxSize;
+
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            hitCounter = Counter.builder("search.searcher.pool").
+                    description("multi-project searcher pool lookups").
+                    tag("what", "hits").
+                    register(registry);
+            missCounter = Counter.builder("search.searcher.pool").
+                    description("multi-project searcher pool lookups").
+                    tag("what", "miss").
+                    register(registry);
+            Gauge.builder("search.searcher.pool.size", this, MultiProjectSearcherPool::size).
+                    description("number of pooled multi-project searchers").
+                    register(registry);
+        } else {
+            hitCounter = null;
+            missCounter = null;
+        }
+    }
+
+    /**
+     * Get searcher for given set of projects. The searcher has to be released with
+     * {@link MultiProjectSearcher#release()}.
+     * @param projects project names
+     * @return searcher
+     * @throws IOException if the index of some project cannot be opened
+     */
+    public MultiProjectSearcher acquire(SortedSet<String> projects) throws IOException {
+        long currentGeneration;
+        synchronized (this) {
+            MultiProjectSearcher searcher = searchers.get(projects);
+            if (searcher != null && searcher.tryIncRef()) {
+                if (hitCounter != null) {
+                    hitCounter.increment();
+                }
+                return searcher;
+            }
+            currentGeneration = generation;
+        }
+
+        if (missCounter != null) {
+            missCounter.increment();
+        }
+        MultiProjectSearcher searcher = create(projects);
+
+        synchronized (this) {
+            if (currentGeneration == generation && !searchers.containsKey(projects) && maxSize > 0) {
+                // The reference held by the pool.
+                searcher.tryIncRef();
+                searchers.put(searcher.getProjects(), searcher);
+                Iterator<MultiProjectSearcher> iterator = searchers.values().iterator();
+                while (searchers.size() > maxSize && iterator.hasNext()) {
+                    MultiProjectSearcher evicted = iterator.next();
+                    iterator.remove();
+                    release(evicted);
+                }
+            }
+        }
+
+        return searcher;
+    }
+
+    private MultiProjectSearcher create(SortedSet<String> projects) throws IOException {
+        List<SuperIndexSearcher> acquired = new ArrayList<>(projects.size());
+        try {
+            IndexReader[] subReaders = new IndexReader[projects.size()];
+            int i = 0;
+            for (String project : projects) {
+                SuperIndexSearcher superIndexSearcher = env.getSuperIndexSearcher(project);
+                acquired.add(superIndexSearcher);
+                subReaders[i++] = superIndexSearcher.getIndexReader();
+            }
+            // The MultiReader holds its own references to the sub-readers.
+            MultiReader reader = new MultiReader(subReaders, false);
+            return new MultiProjectSearcher(reader, new TreeSet<>(projects), env.getSearchExecutor());
+        } finally {
+            for (SuperIndexSearcher superIndexSearcher : acquired) {
+                try {
+                    superIndexSearcher.release();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "cannot release SuperIndexSearcher", e);
+                }
+            }
+        }
+    }
+
+    private static void release(MultiProjectSearcher searcher) {
+        try {
+            searcher.release();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("cannot release searcher for %s", searcher.getProjects()), e);
+        }
+    }
+
+    /**
+     * Remove the searchers involving given project from the pool.
+     * @param project project name
+     */
+    public synchronized void invalidate(String project) {
+        generation++;
+        Iterator<MultiProjectSearcher> iterator = searchers.values().iterator();
+        while (iterator.hasNext()) {
+            MultiProjectSearcher searcher = iterator.next();
+            if (searcher.getProjects().contains(project)) {
+                iterator.remove();
+                release(searcher);
+            }
+        }
+    }
+
+    /**
+     * Remove all searchers from the pool.
+     */
+    public synchronized void clear() {
+        generation++;
+        searchers.values().forEach(MultiProjectSearcherPool::release);
+        searchers.clear();
+    }
+
+    synchronized int size() {
+        return searchers.size();
+    }
+}
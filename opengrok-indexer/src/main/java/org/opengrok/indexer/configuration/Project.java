@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2006, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2006, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.configuration;
@@ -129,6 +129,17 @@ public class Project implements Comparable<Project>, Nameable, Serializable {
      */
     private Boolean historyBasedReindex = null;
 
+    /**
+     * Tuning of the index writer for this project. If not set, the global profile is used.
+     */
+    private IndexWriterProfile indexWriterProfile = null;
+
+    /**
+     * Share of the indexing threads this project gets relative to the other projects
+     * that are being indexed at the same time.
+     */
+    private int indexingWeight = 1;
+
     /**
      * Set of groups which match this project.
      */
@@ -404,6 +415,37 @@ public class Project implements Comparable<Project>, Nameable, Serializable {
         return password;
     }
 
+    /**
+     * @return index writer profile specific to this project or {@code null} if the global one should be used
+     */
+    public IndexWriterProfile getIndexWriterProfile() {
+        return indexWriterProfile;
+    }
+
+    /**
+     * @param profile index writer profile to use for this project instead of the global one
+     */
+    public void setIndexWriterProfile(IndexWriterProfile profile) {
+        this.indexWriterProfile = profile;
+    }
+
+    /**
+     * @return share of the indexing threads relative to the other projects
+     */
+    public int getIndexingWeight() {
+        return indexingWeight;
+    }
+
+    /**
+     * @param weight share of the indexing threads relative to the other projects, must be positive
+     */
+    public void setIndexingWeight(int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Indexing weight must be positive");
+        }
+        this.indexingWeight = weight;
+    }
+
     @VisibleForTesting
     public void clearProperties() {
         historyBasedReindex = null;
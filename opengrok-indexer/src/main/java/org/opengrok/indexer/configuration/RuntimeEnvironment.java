@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2006, 2024, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2006, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.configuration;
@@ -60,6 +60,7 @@ import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Response;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
@@ -74,6 +75,7 @@ import org.opengrok.indexer.history.RepositoryInfo;
 import org.opengrok.indexer.index.IndexDatabase;
 import org.opengrok.indexer.index.IndexerParallelizer;
 import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.search.SearchResultCache;
 import org.opengrok.indexer.util.CloseableReentrantReadWriteLock;
 import org.opengrok.indexer.util.CtagsUtil;
 import org.opengrok.indexer.util.ForbiddenSymlinkException;
@@ -108,6 +110,8 @@ public final class RuntimeEnvironment {
 
     private final LazilyInstantiate<SuperIndexSearcherFactory> lzSuperIndexSearcherFactory;
     private final LazilyInstantiate<IndexSearcherFactory> lzIndexSearcherFactory;
+    private final LazilyInstantiate<SearchResultCache> lzSearchResultCache;
+    private final LazilyInstantiate<MultiProjectSearcherPool> lzMultiProjectSearcherPool;
 
     private final Map<Project, List<RepositoryInfo>> repository_map = new ConcurrentHashMap<>();
     /**
@@ -162,6 +166,8 @@ public final class RuntimeEnvironment {
         lzDirectoryListingExecutor = LazilyInstantiate.using(this::newDirectoryListingExecutor);
         lzSuperIndexSearcherFactory = LazilyInstantiate.using(this::newSuperIndexSearcherFactory);
         lzIndexSearcherFactory = LazilyInstantiate.using(this::newIndexSearcherFactory);
+        lzSearchResultCache = LazilyInstantiate.using(() -> new SearchResultCache(this));
+        lzMultiProjectSearcherPool = LazilyInstantiate.using(() -> new MultiProjectSearcherPool(this));
     }
 
     // Instance of authorization framework and its lock.
@@ -253,6 +259,20 @@ public final class RuntimeEnvironment {
         return lzIndexSearcherFactory.get();
     }
 
+    /**
+     * @return cache of search results shared by all searches
+     */
+    public SearchResultCache getSearchResultCache() {
+        return lzSearchResultCache.get();
+    }
+
+    /**
+     * @return pool of searchers spanning multiple projects
+     */
+    public MultiProjectSearcherPool getMultiProjectSearcherPool() {
+        return lzMultiProjectSearcherPool.get();
+    }
+
     /**
      * Get the one and only instance of the RuntimeEnvironment.
      *
@@ -370,6 +390,14 @@ public final class RuntimeEnvironment {
         syncWriteConfiguration(timeout, Configuration::setCtagsTimeout);
     }
 
+    public int getCtagsServerProcesses() {
+        return syncReadConfiguration(Configuration::getCtagsServerProcesses);
+    }
+
+    public void setCtagsServerProcesses(int count) {
+        syncWriteConfiguration(count, Configuration::setCtagsServerProcesses);
+    }
+
     public long getXrefTimeout() {
         return syncReadConfiguration(Configuration::getXrefTimeout);
     }
@@ -678,6 +706,30 @@ public final class RuntimeEnvironment {
         syncWriteConfiguration(cachePages, Configuration::setCachePages);
     }
 
+    public int getSearchResultCacheSize() {
+        return syncReadConfiguration(Configuration::getSearchResultCacheSize);
+    }
+
+    public void setSearchResultCacheSize(int searchResultCacheSize) {
+        syncWriteConfiguration(searchResultCacheSize, Configuration::setSearchResultCacheSize);
+    }
+
+    public int getSearchResultCacheTTL() {
+        return syncReadConfiguration(Configuration::getSearchResultCacheTTL);
+    }
+
+    public void setSearchResultCacheTTL(int searchResultCacheTTL) {
+        syncWriteConfiguration(searchResultCacheTTL, Configuration::setSearchResultCacheTTL);
+    }
+
+    public int getSearchTotalHitsThreshold() {
+        return syncReadConfiguration(Configuration::getSearchTotalHitsThreshold);
+    }
+
+    public void setSearchTotalHitsThreshold(int searchTotalHitsThreshold) {
+        syncWriteConfiguration(searchTotalHitsThreshold, Configuration::setSearchTotalHitsThreshold);
+    }
+
     public int getHitsPerPage() {
         return syncReadConfiguration(Configuration::getHitsPerPage);
     }
@@ -938,6 +990,30 @@ public final class RuntimeEnvironment {
                 Configuration::setAuthorizationWatchdogEnabled);
     }
 
+    public int getAuthorizationCacheSize() {
+        return syncReadConfiguration(Configuration::getAuthorizationCacheSize);
+    }
+
+    public void setAuthorizationCacheSize(int size) {
+        syncWriteConfiguration(size, Configuration::setAuthorizationCacheSize);
+    }
+
+    public int getAuthorizationCacheTimeout() {
+        return syncReadConfiguration(Configuration::getAuthorizationCacheTimeout);
+    }
+
+    public void setAuthorizationCacheTimeout(int timeout) {
+        syncWriteConfiguration(timeout, Configuration::setAuthorizationCacheTimeout);
+    }
+
+    public String getAuthorizationCacheUserHeader() {
+        return syncReadConfiguration(Configuration::getAuthorizationCacheUserHeader);
+    }
+
+    public void setAuthorizationCacheUserHeader(String header) {
+        syncWriteConfiguration(header, Configuration::setAuthorizationCacheUserHeader);
+    }
+
     public AuthorizationStack getPluginStack() {
         return syncReadConfiguration(Configuration::getPluginStack);
     }
@@ -1227,6 +1303,35 @@ public final class RuntimeEnvironment {
                 parallelism;
     }
 
+    /**
+     * Gets the value of {@link Configuration#getHistoryProcessParallelism()} -- or
+     * if zero, then as a default gets the number of available processors.
+     *
+     * @return a natural number &gt;= 1
+     */
+    public int getHistoryProcessParallelism() {
+        int parallelism = syncReadConfiguration(Configuration::getHistoryProcessParallelism);
+        return parallelism < 1 ? Runtime.getRuntime().availableProcessors() :
+                parallelism;
+    }
+
+    public void setHistoryProcessParallelism(int parallelism) {
+        syncWriteConfiguration(parallelism, Configuration::setHistoryProcessParallelism);
+    }
+
+    /**
+     * Gets the value of {@link Configuration#getXrefWriterParallelism()}.
+     *
+     * @return number of background xref writer threads, 0 if the xref files are written synchronously
+     */
+    public int getXrefWriterParallelism() {
+        return syncReadConfiguration(Configuration::getXrefWriterParallelism);
+    }
+
+    public void setXrefWriterParallelism(int parallelism) {
+        syncWriteConfiguration(parallelism, Configuration::setXrefWriterParallelism);
+    }
+
     public boolean isTagsEnabled() {
         return syncReadConfiguration(Configuration::isTagsEnabled);
     }
@@ -1339,6 +1444,14 @@ public final class RuntimeEnvironment {
         return syncReadConfiguration(Configuration::isHistoryCache);
     }
 
+    public HistoryCacheType getHistoryCacheType() {
+        return syncReadConfiguration(Configuration::getHistoryCacheType);
+    }
+
+    public void setHistoryCacheType(HistoryCacheType historyCacheType) {
+        syncWriteConfiguration(historyCacheType, Configuration::setHistoryCacheType);
+    }
+
     public void setHandleHistoryOfRenamedFiles(boolean handleHistoryOfRenamedFiles) {
         syncWriteConfiguration(handleHistoryOfRenamedFiles,
                 Configuration::setHandleHistoryOfRenamedFiles);
@@ -1471,6 +1584,50 @@ public final class RuntimeEnvironment {
         return syncReadConfiguration(Configuration::getContextSurround);
     }
 
+    public int getIndexedHistoryEntriesLimit() {
+        return syncReadConfiguration(Configuration::getIndexedHistoryEntriesLimit);
+    }
+
+    public void setIndexedHistoryEntriesLimit(int limit) {
+        syncWriteConfiguration(limit, Configuration::setIndexedHistoryEntriesLimit);
+    }
+
+    public int getXrefCacheSize() {
+        return syncReadConfiguration(Configuration::getXrefCacheSize);
+    }
+
+    public void setXrefCacheSize(int size) {
+        syncWriteConfiguration(size, Configuration::setXrefCacheSize);
+    }
+
+    public int getGitRepositoryPoolSize() {
+        return syncReadConfiguration(Configuration::getGitRepositoryPoolSize);
+    }
+
+    public void setGitRepositoryPoolSize(int size) {
+        syncWriteConfiguration(size, Configuration::setGitRepositoryPoolSize);
+    }
+
+    public int getGitRepositoryPoolIdleTimeout() {
+        return syncReadConfiguration(Configuration::getGitRepositoryPoolIdleTimeout);
+    }
+
+    public void setGitRepositoryPoolIdleTimeout(int timeout) {
+        syncWriteConfiguration(timeout, Configuration::setGitRepositoryPoolIdleTimeout);
+    }
+
+    public int getGitPackedGitLimit() {
+        return syncReadConfiguration(Configuration::getGitPackedGitLimit);
+    }
+
+    public boolean isGitPackedGitMmap() {
+        return syncReadConfiguration(Configuration::isGitPackedGitMmap);
+    }
+
+    public int getGitDeltaBaseCacheLimit() {
+        return syncReadConfiguration(Configuration::getGitDeltaBaseCacheLimit);
+    }
+
     public int getHistoryChunkCount() {
         return syncReadConfiguration(Configuration::getHistoryChunkCount);
     }
@@ -1912,6 +2069,8 @@ public final class RuntimeEnvironment {
             sm.close();
         }
         searcherManagerMap.clear();
+        getSearchResultCache().clear();
+        getMultiProjectSearcherPool().clear();
     }
 
     /**
@@ -1960,6 +2119,22 @@ public final class RuntimeEnvironment {
             File indexDir = new File(getDataRootPath(), IndexDatabase.INDEX_DIR);
             Directory dir = FSDirectory.open(new File(indexDir, searcherName).toPath());
             mgr = new SearcherManager(dir, getSuperIndexSearcherFactory());
+            mgr.addListener(new ReferenceManager.RefreshListener() {
+                @Override
+                public void beforeRefresh() {
+                    // nothing to do
+                }
+
+                @Override
+                public void afterRefresh(boolean didRefresh) {
+                    // The document IDs of the cached results are no longer valid for the new searcher
+                    // and the pooled searchers still hold the previous reader.
+                    if (didRefresh) {
+                        getSearchResultCache().invalidate(searcherName);
+                        getMultiProjectSearcherPool().invalidate(searcherName);
+                    }
+                }
+            });
             searcherManagerMap.put(searcherName, mgr);
         }
 
@@ -1994,12 +2169,27 @@ public final class RuntimeEnvironment {
 
         for (String proj : toRemove) {
             searcherManagerMap.remove(proj);
+            getSearchResultCache().invalidate(proj);
+            getMultiProjectSearcherPool().invalidate(proj);
         }
     }
 
+    /**
+     * Get searcher for given set of projects from the {@link MultiProjectSearcherPool}.
+     * The caller is responsible for releasing the searcher via {@link MultiProjectSearcher#release()}.
+     *
+     * @param projects set of project names
+     * @return searcher spanning the projects
+     * @throws IOException if the index of some project cannot be opened
+     */
+    public MultiProjectSearcher getMultiProjectSearcher(SortedSet<String> projects) throws IOException {
+        return getMultiProjectSearcherPool().acquire(projects);
+    }
+
     /**
      * Return collection of IndexReader objects as MultiReader object for given list of projects.
      * The caller is responsible for releasing the {@link SuperIndexSearcher} objects.
+     * Unlike {@link #getMultiProjectSearcher(SortedSet)} this constructs new MultiReader on each call.
      *
      * @param projects     list of projects
      * @param searcherList each SuperIndexSearcher produced will be put into this list
@@ -2122,6 +2312,14 @@ public final class RuntimeEnvironment {
         syncWriteConfiguration(statsdConfig, Configuration::setStatsdConfig);
     }
 
+    public IndexWriterProfile getIndexWriterProfile() {
+        return syncReadConfiguration(Configuration::getIndexWriterProfile);
+    }
+
+    public void setIndexWriterProfile(IndexWriterProfile profile) {
+        syncWriteConfiguration(profile, Configuration::setIndexWriterProfile);
+    }
+
     /**
      * Applies the specified function to the runtime configuration, after having
      * obtained the configuration read-lock (and releasing afterward).
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2019, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.configuration;
@@ -52,6 +52,7 @@ public class SuggesterConfig {
     public static final int TIME_THRESHOLD_DEFAULT = 2000; // 2 sec
     public static final int REBUILD_THREAD_POOL_PERCENT_NCPUS_DEFAULT = 80;
     public static final int SEARCH_THREAD_POOL_PERCENT_NCPUS_DEFAULT = 90;
+    public static final int INCREMENTAL_REBUILD_THRESHOLD_DEFAULT = 10;
 
     private static final Set<String> allowedProjectsDefault = null;
     private static final Set<String> allowedFieldsDefault = Set.of(
@@ -147,6 +148,13 @@ public class SuggesterConfig {
      */
     private int searchThreadPoolSizeInNcpuPercent;
 
+    /**
+     * Maximum size of the index changes (in percent of the terms and documents) for which the rebuild merges
+     * the changes into the existing WFST data structures instead of building them from scratch.
+     * 0 disables the incremental rebuild.
+     */
+    private int incrementalRebuildThreshold;
+
     public SuggesterConfig() {
         setEnabled(ENABLED_DEFAULT);
         setMaxResults(MAX_RESULTS_DEFAULT);
@@ -164,6 +172,7 @@ public class SuggesterConfig {
         setBuildTerminationTime(BUILD_TERMINATION_TIME_DEFAULT);
         setRebuildThreadPoolSizeInNcpuPercent(REBUILD_THREAD_POOL_PERCENT_NCPUS_DEFAULT);
         setSearchThreadPoolSizeInNcpuPercent(SEARCH_THREAD_POOL_PERCENT_NCPUS_DEFAULT);
+        setIncrementalRebuildThreshold(INCREMENTAL_REBUILD_THRESHOLD_DEFAULT);
     }
 
     public boolean isEnabled() {
@@ -320,6 +329,17 @@ public class SuggesterConfig {
         return searchThreadPoolSizeInNcpuPercent;
     }
 
+    public final void setIncrementalRebuildThreshold(final int percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Need percentage value");
+        }
+        this.incrementalRebuildThreshold = percent;
+    }
+
+    public int getIncrementalRebuildThreshold() {
+        return incrementalRebuildThreshold;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -342,14 +362,15 @@ public class SuggesterConfig {
                 Objects.equals(allowedProjects, that.allowedProjects) &&
                 Objects.equals(allowedFields, that.allowedFields) &&
                 Objects.equals(rebuildCronConfig, that.rebuildCronConfig) &&
-                rebuildThreadPoolSizeInNcpuPercent == that.rebuildThreadPoolSizeInNcpuPercent;
+                rebuildThreadPoolSizeInNcpuPercent == that.rebuildThreadPoolSizeInNcpuPercent &&
+                incrementalRebuildThreshold == that.incrementalRebuildThreshold;
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(enabled, maxResults, minChars, allowedProjects, maxProjects, allowedFields,
                 allowComplexQueries, allowMostPopular, showScores, showProjects, showTime, rebuildCronConfig,
-                buildTerminationTime, rebuildThreadPoolSizeInNcpuPercent);
+                buildTerminationTime, rebuildThreadPoolSizeInNcpuPercent, incrementalRebuildThreshold);
     }
 
     /**
@@ -374,6 +395,7 @@ public class SuggesterConfig {
         res.setBuildTerminationTime(1 + res.getBuildTerminationTime());
         res.setRebuildThreadPoolSizeInNcpuPercent(1 + res.getRebuildThreadPoolSizeInNcpuPercent());
         res.setSearchThreadPoolSizeInNcpuPercent(1 + res.getSearchThreadPoolSizeInNcpuPercent());
+        res.setIncrementalRebuildThreshold(1 + res.getIncrementalRebuildThreshold());
 
         return res;
     }
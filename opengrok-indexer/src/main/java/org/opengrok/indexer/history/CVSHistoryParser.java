@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2008, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.history;
 
@@ -33,8 +33,10 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import io.github.g00fy2.versioncompare.Version;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.opengrok.indexer.util.Executor;
 
@@ -47,9 +49,24 @@ class CVSHistoryParser implements Executor.StreamHandler {
         NAMES, TAG, REVISION, METADATA, COMMENT
     }
 
+    private static final String FILE_SEPARATOR =
+            "=============================================================================";
+
     private History history;
     private CVSRepository cvsRepository = new CVSRepository();
 
+    /**
+     * If set, the log output is expected to contain history of multiple files. The history of each file
+     * is handed over as soon as its section of the output is parsed, together with the working file
+     * path as reported by CVS.
+     */
+    @Nullable
+    private BiConsumer<String, History> fileConsumer;
+
+    private ArrayList<HistoryEntry> entries;
+    private HistoryEntry entry;
+    private String workingFile;
+
    /**
      * Process the output from the log command and insert the {@link HistoryEntry} objects created therein
      * into the {@link #history} field.
@@ -59,16 +76,20 @@ class CVSHistoryParser implements Executor.StreamHandler {
      */
     @Override
     public void processStream(InputStream input) throws IOException {
-        ArrayList<HistoryEntry> entries = new ArrayList<>();
+        entries = new ArrayList<>();
+        entry = null;
+        workingFile = null;
 
         BufferedReader in = new BufferedReader(new InputStreamReader(input));
 
         history = new History();
-        HistoryEntry entry = null;
         HashMap<String, String> tags = null;
         ParseState state = ParseState.NAMES;
         String s = in.readLine();
         while (s != null) {
+            if (state == ParseState.NAMES && s.startsWith("Working file: ")) {
+                workingFile = s.substring("Working file: ".length());
+            }
             if (state == ParseState.NAMES && s.startsWith("symbolic names:")) {
                 tags = new HashMap<>();
                 state = ParseState.TAG;
@@ -82,6 +103,11 @@ class CVSHistoryParser implements Executor.StreamHandler {
                     s = in.readLine();
                 }
             }
+            if (state == ParseState.REVISION && s.equals(FILE_SEPARATOR)) {
+                // no revisions selected for the file
+                endOfFile();
+                state = ParseState.NAMES;
+            }
             if (state == ParseState.REVISION && s.startsWith("revision ")) {
                 if (entry != null) {
                     entries.add(entry);
@@ -105,7 +131,8 @@ class CVSHistoryParser implements Executor.StreamHandler {
             if (state == ParseState.COMMENT) {
                 if (s.equals("----------------------------")) {
                     state = ParseState.REVISION;
-                } else if (s.equals("=============================================================================")) {
+                } else if (s.equals(FILE_SEPARATOR)) {
+                    endOfFile();
                     state = ParseState.NAMES;
                 } else {
                     if (entry != null) {
@@ -116,11 +143,38 @@ class CVSHistoryParser implements Executor.StreamHandler {
             s = in.readLine();
         }
 
+        if (fileConsumer == null) {
+            if (entry != null) {
+                entries.add(entry);
+            }
+            history.setHistoryEntries(entries);
+        }
+    }
+
+    /**
+     * Hand over the history of the file whose log section has just ended (only if parsing history
+     * of multiple files) and start over with the next file.
+     */
+    private void endOfFile() {
+        if (fileConsumer == null) {
+            return;
+        }
+
         if (entry != null) {
             entries.add(entry);
         }
-
         history.setHistoryEntries(entries);
+        if (cvsRepository.getBranch() != null && !cvsRepository.getBranch().isEmpty()) {
+            sortHistoryEntries(history);
+        }
+        if (workingFile != null) {
+            fileConsumer.accept(workingFile, history);
+        }
+
+        history = new History();
+        entries = new ArrayList<>();
+        entry = null;
+        workingFile = null;
     }
 
     private void parseDateAuthor(HistoryEntry entry, String s) throws IOException {
@@ -209,6 +263,38 @@ class CVSHistoryParser implements Executor.StreamHandler {
         return history;
     }
 
+    /**
+     * Parse the history of multiple files retrieved with single invocation of the log command.
+     * The output is processed as it is produced, i.e. the history of each file is passed to the consumer
+     * as soon as it is complete, without buffering the whole output.
+     *
+     * @param files the files to parse history for
+     * @param repository the CVS repository
+     * @param consumer consumer of the parsed history, the path is relative to the repository root
+     * @throws HistoryException if the log command could not be run or its output could not be parsed
+     */
+    void parse(List<File> files, Repository repository, BiConsumer<String, History> consumer)
+            throws HistoryException {
+        cvsRepository = (CVSRepository) repository;
+        fileConsumer = consumer;
+        try {
+            Executor executor = cvsRepository.getHistoryLogExecutor(files);
+            int status = executor.exec(true, this);
+
+            if (status != 0) {
+                // The history of the files parsed so far has been consumed already, the rest will be retrieved
+                // individually.
+                throw new HistoryException(String.format("Failed to get history for %d files in %s, exit code: %d",
+                        files.size(), repository, status));
+            }
+        } catch (IOException e) {
+            throw new HistoryException(String.format("Failed to get history for %d files in %s",
+                    files.size(), repository), e);
+        } finally {
+            fileConsumer = null;
+        }
+    }
+
     /**
      * Parse the given string. Used for testing.
      *
@@ -221,4 +307,21 @@ class CVSHistoryParser implements Executor.StreamHandler {
         processStream(new ByteArrayInputStream(buffer.getBytes(StandardCharsets.UTF_8)));
         return history;
     }
+
+    /**
+     * Parse the given string containing history of multiple files. Used for testing.
+     *
+     * @param buffer The string to be parsed
+     * @param consumer consumer of the history of the files
+     * @throws IOException if we fail to parse the buffer
+     */
+    @VisibleForTesting
+    void parse(String buffer, BiConsumer<String, History> consumer) throws IOException {
+        fileConsumer = consumer;
+        try {
+            processStream(new ByteArrayInputStream(buffer.getBytes(StandardCharsets.UTF_8)));
+        } finally {
+            fileConsumer = null;
+        }
+    }
 }
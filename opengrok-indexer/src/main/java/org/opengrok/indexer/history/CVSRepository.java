@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2008, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.history;
@@ -31,7 +31,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,7 +47,7 @@ import org.opengrok.indexer.util.Executor;
 /**
  * Access to a CVS repository.
  */
-public class CVSRepository extends RCSRepository {
+public class CVSRepository extends RCSRepository implements RepositoryWithBatchedFileHistory {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CVSRepository.class);
 
@@ -58,6 +61,11 @@ public class CVSRepository extends RCSRepository {
      */
     public static final String CMD_FALLBACK = "cvs";
 
+    /**
+     * Maximum number of files passed to single invocation of the log command.
+     */
+    static final int HISTORY_BATCH_SIZE = 100;
+
     @SuppressWarnings("this-escape")
     public CVSRepository() {
         /*
@@ -170,7 +178,21 @@ public class CVSRepository extends RCSRepository {
      * @return An Executor ready to be started
      */
     Executor getHistoryLogExecutor(final File file) throws IOException {
-        String filename = getRepoRelativePath(file);
+        return getHistoryLogExecutor(Collections.singletonList(file));
+    }
+
+    /**
+     * Get an executor to be used for retrieving the history log for the named
+     * files.
+     *
+     * @param files The files to retrieve history for
+     * @return An Executor ready to be started
+     */
+    Executor getHistoryLogExecutor(final List<File> files) throws IOException {
+        List<String> filenames = new ArrayList<>(files.size());
+        for (File file : files) {
+            filenames.add(getRepoRelativePath(file));
+        }
 
         List<String> cmd = new ArrayList<>();
         ensureCommand(CMD_PROPERTY_KEY, CMD_FALLBACK);
@@ -186,8 +208,10 @@ public class CVSRepository extends RCSRepository {
             cmd.add("-b");
         }
 
-        if (filename.length() > 0) {
-            cmd.add(filename);
+        for (String filename : filenames) {
+            if (filename.length() > 0) {
+                cmd.add(filename);
+            }
         }
 
         return new Executor(cmd, new File(getDirectoryName()));
@@ -243,6 +267,65 @@ public class CVSRepository extends RCSRepository {
         return new CVSHistoryParser().parse(file, this);
     }
 
+    /**
+     * Traverses the working copy using the {@code CVS/Entries} files so that only the files known to CVS
+     * are included.
+     */
+    @Override
+    public void collectFileHistoryBatches(Consumer<List<File>> consumer) throws HistoryException {
+        List<File> batch = new ArrayList<>(HISTORY_BATCH_SIZE);
+        collectFileHistoryBatches(new File(getDirectoryName()), batch, consumer);
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+
+    private void collectFileHistoryBatches(File dir, List<File> batch, Consumer<List<File>> consumer)
+            throws HistoryException {
+
+        File entriesFile = new File(dir, "CVS" + File.separator + "Entries");
+        if (!entriesFile.isFile()) {
+            return;
+        }
+
+        List<File> subdirs = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(entriesFile))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                // The format of the lines is /name/revision/timestamp/options/tagdate for files
+                // and D/name//// for directories.
+                String[] fields = line.split("/", -1);
+                if (fields.length < 3 || fields[1].isEmpty()) {
+                    continue;
+                }
+                File file = new File(dir, fields[1]);
+                if (fields[0].equals("D")) {
+                    subdirs.add(file);
+                } else if (fields[0].isEmpty() && !fields[2].startsWith("-") && file.isFile()) {
+                    // Revision starting with '-' denotes a removed file.
+                    batch.add(file);
+                    if (batch.size() >= HISTORY_BATCH_SIZE) {
+                        consumer.accept(new ArrayList<>(batch));
+                        batch.clear();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new HistoryException(String.format("failed to read '%s'", entriesFile), e);
+        }
+
+        for (File subdir : subdirs) {
+            collectFileHistoryBatches(subdir, batch, consumer);
+        }
+    }
+
+    @Override
+    public void getHistory(List<File> files, BiConsumer<File, History> consumer) throws HistoryException {
+        File root = new File(getDirectoryName());
+        new CVSHistoryParser().parse(files, this,
+                (path, history) -> consumer.accept(new File(root, path), history));
+    }
+
     @Override
     Annotation annotate(File file, String revision) throws IOException {
         ArrayList<String> cmd = new ArrayList<>();
@@ -0,0 +1,223 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Summary of the last history entries of the files in single directory, stored under the data root
+ * so that directory listing can be served with single sequential read rather than reading the history
+ * of each file.
+ * <p>
+ * For each file the summary holds the time when the history of the file was stored together with
+ * the revision, date, author and message of the newest history entry of the file.
+ * <p>
+ * The summaries are not stored in the tree mirroring the source root as any name used there could
+ * collide with a source file or directory. Instead, the summary file of a directory is named after
+ * the hash of the directory path, see {@link #getSummaryFile(File, String)}, and the path itself is
+ * stored in the summary to detect hash collisions.
+ */
+final class DirectoryHistorySummary {
+
+    /**
+     * Name of the directory under the data root holding the summaries.
+     */
+    static final String DIR_NAME = "historysummary";
+
+    private static final int MAGIC = 0x4f474448; // "OGDH"
+    private static final int VERSION = 2;
+
+    /**
+     * Summary of the history of single file.
+     */
+    static final class Entry {
+        private final long storedTime;
+        private final HistoryEntry historyEntry;
+
+        Entry(long storedTime, HistoryEntry historyEntry) {
+            this.storedTime = storedTime;
+            this.historyEntry = historyEntry;
+        }
+
+        /**
+         * @return time (in milliseconds since the epoch) when the history of the file was stored
+         */
+        long getStoredTime() {
+            return storedTime;
+        }
+
+        /**
+         * @return the newest history entry of the file, without the list of files
+         */
+        HistoryEntry getHistoryEntry() {
+            return historyEntry;
+        }
+    }
+
+    private DirectoryHistorySummary() {
+        // private to enforce static
+    }
+
+    /**
+     * @param summaryRoot directory holding the summaries
+     * @param directory path of the directory relative to source root
+     * @return summary file for the directory
+     */
+    static File getSummaryFile(File summaryRoot, String directory) {
+        String digest;
+        try {
+            digest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").
+                    digest(directory.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required to be supported by every Java platform.
+            throw new IllegalStateException(e);
+        }
+        return new File(new File(summaryRoot, digest.substring(0, 2)), digest);
+    }
+
+    /**
+     * Read the summary.
+     * @param file summary file
+     * @param directory path of the directory relative to source root
+     * @return map of file names to the summary entries, empty if the summary file does not exist
+     * or belongs to another directory
+     * @throws IOException on error
+     */
+    static Map<String, Entry> read(File file, String directory) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(String.format("unknown format of directory history summary '%s'", file));
+            }
+            if (!Objects.equals(readString(in), directory)) {
+                return Collections.emptyMap();
+            }
+            int count = in.readInt();
+            Map<String, Entry> entries = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = readString(in);
+                long storedTime = in.readLong();
+                String revision = readString(in);
+                Date date = in.readBoolean() ? new Date(in.readLong()) : null;
+                String author = readString(in);
+                String message = readString(in);
+                entries.put(name, new Entry(storedTime,
+                        new HistoryEntry(revision, null, date, author, message, true, null)));
+            }
+            return entries;
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Write the summary. The summary is written to a temporary file first and moved into place
+     * so that the readers never see partially written file.
+     * @param file summary file
+     * @param directory path of the directory relative to source root
+     * @param entries map of file names to the summary entries
+     * @throws IOException on error
+     */
+    static void write(File file, String directory, Map<String, Entry> entries) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        File tmpFile = File.createTempFile("ogtmp", null, file.getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, directory);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    HistoryEntry historyEntry = entry.getValue().getHistoryEntry();
+                    writeString(out, entry.getKey());
+                    out.writeLong(entry.getValue().getStoredTime());
+                    writeString(out, historyEntry.getRevision());
+                    out.writeBoolean(historyEntry.getDate() != null);
+                    if (historyEntry.getDate() != null) {
+                        out.writeLong(historyEntry.getDate().getTime());
+                    }
+                    writeString(out, historyEntry.getAuthor());
+                    writeString(out, historyEntry.getMessage());
+                }
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    /**
+     * Merge the entries into the summary.
+     * @param file summary file
+     * @param directory path of the directory relative to source root
+     * @param updates map of file names to the new summary entries
+     * @throws IOException on error
+     */
+    static void update(File file, String directory, Map<String, Entry> updates) throws IOException {
+        Map<String, Entry> entries = new HashMap<>(read(file, directory));
+        entries.putAll(updates);
+        write(file, directory, entries);
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
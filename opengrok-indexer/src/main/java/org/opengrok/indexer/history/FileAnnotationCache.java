@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2021, 2024, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2021, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.history;
 
@@ -198,6 +198,16 @@ public class FileAnnotationCache extends AbstractCache implements AnnotationCach
         return annotation;
     }
 
+    @Override
+    @Nullable
+    public Annotation getStored(File file, String rev) throws CacheException {
+        if (!getCachedFile(file).isFile() || !rev.equals(getRevision(file))) {
+            return null;
+        }
+
+        return readAnnotation(file);
+    }
+
     private void writeCache(AnnotationData annotationData, File outfile) throws IOException {
         ObjectMapper mapper = new SmileMapper();
         mapper.writeValue(outfile, annotationData);
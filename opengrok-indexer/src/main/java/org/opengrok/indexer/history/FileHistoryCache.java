@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2008, 2024, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.history;
@@ -32,16 +32,19 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -49,6 +52,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -60,11 +64,13 @@ import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
 import org.opengrok.indexer.Metrics;
 import org.opengrok.indexer.configuration.PathAccepter;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.DirectoryEntry;
+import org.opengrok.indexer.util.ForbiddenSymlinkException;
 import org.opengrok.indexer.util.Progress;
 import org.opengrok.indexer.util.Statistics;
 
@@ -82,8 +88,8 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
 
     private final PathAccepter pathAccepter = env.getPathAccepter();
 
-    private Counter fileHistoryCacheHits;
-    private Counter fileHistoryCacheMisses;
+    Counter fileHistoryCacheHits;
+    Counter fileHistoryCacheMisses;
 
     /**
      * Generate history cache for single renamed file.
@@ -119,13 +125,14 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
      * @param repository repository object in which the file belongs
      * @param root root of the source repository
      * @param renamed true if the file was renamed in the past
+     * @return whether the history was stored
      */
-    private void doFileHistory(String filename, History history, Repository repository, File root, boolean renamed)
-            throws HistoryException {
+    private boolean doFileHistory(String filename, History history, Repository repository, File root,
+                                  boolean renamed) throws HistoryException {
 
         File file = new File(root, filename);
         if (file.isDirectory()) {
-            return;
+            return false;
         }
 
         // Assign tags to changesets they represent.
@@ -134,6 +141,7 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         }
 
         storeFile(history, file, repository, !renamed);
+        return true;
     }
 
     @Override
@@ -215,6 +223,37 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         return historyEntry;
     }
 
+    /**
+     * Read history entries from the cache lazily, one by one.
+     */
+    static HistoryEntryIterator readHistoryEntries(File cacheFile) throws IOException {
+        SmileFactory factory = new SmileFactory();
+        SmileParser parser = factory.createParser(cacheFile);
+        try {
+            parser.setCodec(new SmileMapper());
+            Iterator<HistoryEntry> historyEntryIterator = parser.readValuesAs(HistoryEntry.class);
+            return new HistoryEntryIterator() {
+                @Override
+                public boolean hasNext() {
+                    return historyEntryIterator.hasNext();
+                }
+
+                @Override
+                public HistoryEntry next() {
+                    return historyEntryIterator.next();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    parser.close();
+                }
+            };
+        } catch (IOException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
     /**
      * Write serialized object to file.
      * @param history {@link History} instance to be stored
@@ -294,7 +333,7 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
      * @param mergeHistory whether to merge the history with existing or store the histNew as is
      * @throws HistoryException if there was any problem with history cache generation
      */
-    private void storeFile(History histNew, File file, Repository repository, boolean mergeHistory) throws HistoryException {
+    void storeFile(History histNew, File file, Repository repository, boolean mergeHistory) throws HistoryException {
         File cacheFile;
         try {
             cacheFile = getCachedFile(file);
@@ -490,6 +529,9 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         // File based history cache does not store files for individual changesets so strip them.
         history.strip();
 
+        final long storedTime = System.currentTimeMillis();
+        final Map<String, HistoryEntry> lastEntries = new ConcurrentHashMap<>();
+
         String repoCachePath = CacheUtil.getRepositoryCacheDataDirname(repository, this);
         if (repoCachePath == null) {
             throw new CacheException(String.format("failed to get cache directory path for %s", repository));
@@ -524,7 +566,10 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
             for (String file : regularFiles) {
                 env.getIndexerParallelizer().getHistoryFileExecutor().submit(() -> {
                     try {
-                        doFileHistory(file, new History(map.get(file)), repository, root, false);
+                        List<HistoryEntry> fileEntries = map.get(file);
+                        if (doFileHistory(file, new History(fileEntries), repository, root, false)) {
+                            lastEntries.put(file, fileEntries.get(0));
+                        }
                         fileHistoryCount.getAndIncrement();
                     } catch (Exception ex) {
                         // We want to catch any exception since we are in a thread.
@@ -546,12 +591,11 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
                     new Object[]{fileHistoryCount, repository});
         }
 
-        if (!handleRenamedFiles) {
-            finishStore(repository, latestRev);
-            return;
+        if (handleRenamedFiles) {
+            storeRenamed(history.getRenamedFiles(), repository, tillRevision, lastEntries);
         }
 
-        storeRenamed(history.getRenamedFiles(), repository, tillRevision);
+        storeDirectorySummaries(lastEntries, storedTime, repository);
 
         finishStore(repository, latestRev);
     }
@@ -563,6 +607,11 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
      * @param tillRevision end revision (can be null)
      */
     public void storeRenamed(Set<String> renamedFiles, Repository repository, String tillRevision) throws CacheException {
+        storeRenamed(renamedFiles, repository, tillRevision, null);
+    }
+
+    private void storeRenamed(Set<String> renamedFiles, Repository repository, String tillRevision,
+                              @Nullable Map<String, HistoryEntry> lastEntries) throws CacheException {
         final File root = env.getSourceRootFile();
         if (renamedFiles.isEmpty()) {
             return;
@@ -587,10 +636,15 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
             for (final String file : renamedFiles) {
                 env.getIndexerParallelizer().getHistoryFileExecutor().submit(() -> {
                     try {
-                        doRenamedFileHistory(file,
-                                new File(env.getSourceRootPath() + file),
-                                repositoryF, root, tillRevision);
+                        File sourceFile = new File(env.getSourceRootPath() + file);
+                        doRenamedFileHistory(file, sourceFile, repositoryF, root, tillRevision);
                         renamedFileHistoryCount.getAndIncrement();
+                        if (lastEntries != null && useDirectorySummary()) {
+                            HistoryEntry lastEntry = readLastHistoryEntry(getCachedFile(sourceFile));
+                            if (lastEntry != null) {
+                                lastEntries.put(file, lastEntry);
+                            }
+                        }
                     } catch (Exception ex) {
                         // We want to catch any exception since we are in thread.
                         LOGGER.log(Level.WARNING, "doFileHistory() got exception ", ex);
@@ -613,7 +667,63 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
                 new Object[]{renamedFileHistoryCount.intValue(), repository});
     }
 
-    private void createDirectoriesForFiles(Set<String> files, Repository repository, String label) {
+    /**
+     * @return whether to maintain {@link DirectoryHistorySummary} for each directory
+     */
+    boolean useDirectorySummary() {
+        return true;
+    }
+
+    /**
+     * Update the {@link DirectoryHistorySummary} of the directories containing the files
+     * whose history was just stored.
+     * @param lastEntries map of file paths (relative to source root) to their newest history entries
+     * @param storedTime time when the storing of the history started
+     * @param repository repository
+     */
+    private void storeDirectorySummaries(Map<String, HistoryEntry> lastEntries, long storedTime,
+                                         Repository repository) {
+        if (!useDirectorySummary() || lastEntries.isEmpty()) {
+            return;
+        }
+
+        Map<String, Map<String, DirectoryHistorySummary.Entry>> byDirectory = new HashMap<>();
+        for (Map.Entry<String, HistoryEntry> entry : lastEntries.entrySet()) {
+            File file = new File(entry.getKey());
+            HistoryEntry lastEntry = entry.getValue();
+            byDirectory.computeIfAbsent(file.getParent(), k -> new HashMap<>()).
+                    put(file.getName(), new DirectoryHistorySummary.Entry(storedTime,
+                            new HistoryEntry(lastEntry.getRevision(), null, lastEntry.getDate(),
+                                    lastEntry.getAuthor(), lastEntry.getMessage(), true, null)));
+        }
+
+        Statistics elapsed = new Statistics();
+        final CountDownLatch latch = new CountDownLatch(byDirectory.size());
+        for (Map.Entry<String, Map<String, DirectoryHistorySummary.Entry>> entry : byDirectory.entrySet()) {
+            env.getIndexerParallelizer().getHistoryFileExecutor().submit(() -> {
+                try {
+                    DirectoryHistorySummary.update(getDirectorySummaryFile(entry.getKey()), entry.getKey(),
+                            entry.getValue());
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING,
+                            String.format("failed to store history summary for directory '%s'", entry.getKey()), e);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.SEVERE, "latch exception", ex);
+            Thread.currentThread().interrupt();
+        }
+        elapsed.report(LOGGER, Level.FINE, String.format("Done storing history summaries of %d directories for %s",
+                byDirectory.size(), repository));
+    }
+
+    void createDirectoriesForFiles(Set<String> files, Repository repository, String label) {
 
         // The directories for the files have to be created before
         // the actual files otherwise storeFile() might be racing for
@@ -665,6 +775,34 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         return null;
     }
 
+    @Override
+    @Nullable
+    public HistoryEntryIterator getHistoryEntries(File file, Repository repository, int maxEntries)
+            throws CacheException {
+
+        if (file.isDirectory()) {
+            return null;
+        }
+
+        if (isUpToDate(file)) {
+            File cacheFile = getCachedFile(file);
+            try {
+                if (fileHistoryCacheHits != null) {
+                    fileHistoryCacheHits.increment();
+                }
+                return readHistoryEntries(cacheFile);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, String.format("Error when reading cache file '%s'", cacheFile), e);
+            }
+        }
+
+        if (fileHistoryCacheMisses != null) {
+            fileHistoryCacheMisses.increment();
+        }
+
+        return null;
+    }
+
     @Override
     @Nullable
     public HistoryEntry getLastHistoryEntry(File file) throws CacheException {
@@ -761,6 +899,8 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
 
     /**
      * Attempt to fill the date and description for the input instances from pertaining last history entries.
+     * The {@link DirectoryHistorySummary} of the directory is consulted first, the history of individual files
+     * is read only for the entries missing in the summary or whose summary is out of date.
      * @param entries list of {@link DirectoryEntry} instances
      * @return true if all of them were filled, false otherwise in which case the date/description field
      * for the entries will be zeroed.
@@ -775,9 +915,11 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
 
         Statistics statistics = new Statistics();
 
+        List<DirectoryEntry> remaining = fillFromDirectorySummaries(entries);
+
         final ExecutorService executor = env.getDirectoryListingExecutor();
         Set<Future<Boolean>> futures = new HashSet<>();
-        for (DirectoryEntry directoryEntry : entries) {
+        for (DirectoryEntry directoryEntry : remaining) {
             futures.add(executor.submit(() -> {
                 try {
                     File file = directoryEntry.getFile();
@@ -826,8 +968,89 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         return ret;
     }
 
+    /**
+     * Fill the date and description for the entries that have up-to-date record in the summary of their directory.
+     * @param entries list of {@link DirectoryEntry} instances
+     * @return list of entries that could not be filled
+     */
+    private List<DirectoryEntry> fillFromDirectorySummaries(List<DirectoryEntry> entries) {
+        if (!useDirectorySummary()) {
+            return entries;
+        }
+
+        Map<File, Map<String, DirectoryHistorySummary.Entry>> summaries = new HashMap<>();
+        List<DirectoryEntry> remaining = new ArrayList<>();
+        for (DirectoryEntry directoryEntry : entries) {
+            File file = directoryEntry.getFile();
+            if (file.isDirectory()) {
+                directoryEntry.setDescription("-");
+                directoryEntry.setDate(null);
+                continue;
+            }
+
+            DirectoryHistorySummary.Entry summaryEntry = summaries.
+                    computeIfAbsent(file.getParentFile(), this::readDirectorySummary).get(file.getName());
+            if (summaryEntry != null && summaryEntry.getHistoryEntry().getDate() != null &&
+                    file.lastModified() <= summaryEntry.getStoredTime()) {
+                directoryEntry.setDescription(summaryEntry.getHistoryEntry().getDescription());
+                directoryEntry.setDate(summaryEntry.getHistoryEntry().getDate());
+            } else {
+                remaining.add(directoryEntry);
+            }
+        }
+
+        return remaining;
+    }
+
+    private Map<String, DirectoryHistorySummary.Entry> readDirectorySummary(File directory) {
+        try {
+            String path = env.getPathRelativeToSourceRoot(directory);
+            if (path.isEmpty()) {
+                path = File.separator;
+            }
+            return DirectoryHistorySummary.read(getDirectorySummaryFile(path), path);
+        } catch (ForbiddenSymlinkException | IOException e) {
+            LOGGER.log(Level.FINER, String.format("cannot read history summary for directory '%s'", directory), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * @param directory path of the directory relative to source root
+     * @return file with the {@link DirectoryHistorySummary} of the directory
+     */
+    @VisibleForTesting
+    File getDirectorySummaryFile(String directory) {
+        return DirectoryHistorySummary.getSummaryFile(new File(env.getDataRootPath(), DirectoryHistorySummary.DIR_NAME),
+                directory);
+    }
+
+    /**
+     * Remove the {@link DirectoryHistorySummary} files of the directories of the repository. The directories
+     * are enumerated using the cache directory of the repository so this has to be done before it is removed.
+     */
+    private void clearDirectorySummaries(RepositoryInfo repository) {
+        String dirName = CacheUtil.getRepositoryCacheDataDirname(repository, this);
+        if (dirName == null || !useDirectorySummary() || !Files.isDirectory(Path.of(dirName))) {
+            return;
+        }
+
+        Path cacheRoot = Path.of(env.getDataRootPath(), getCacheDirName());
+        try (Stream<Path> dirs = Files.walk(Path.of(dirName))) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                String path = File.separator + cacheRoot.relativize(dir);
+                Files.deleteIfExists(getDirectorySummaryFile(path).toPath());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.log(Level.WARNING,
+                    String.format("failed to remove history summaries of repository %s", repository), e);
+        }
+    }
+
     @Override
     public void clear(RepositoryInfo repository) {
+        clearDirectorySummaries(repository);
+
         String revPath = getRepositoryCachedRevPath(repository);
         if (revPath != null) {
             // remove the file cached last revision (done separately in case
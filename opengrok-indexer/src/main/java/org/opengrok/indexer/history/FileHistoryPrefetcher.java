@@ -0,0 +1,176 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.Statistics;
+
+/**
+ * Populates the history cache of a repository implementing {@link RepositoryWithBatchedFileHistory}
+ * by retrieving the history of its files in batches.
+ * <p>
+ * The batches are processed on the executor passed to the constructor. Its size is meant to be the global
+ * limit on the number of concurrently running SCM processes (see
+ * {@link org.opengrok.indexer.index.IndexerParallelizer#getHistoryProcessExecutor()}) so that prefetching
+ * multiple repositories in parallel does not overload the machine. The output of each process is parsed
+ * as a stream and the history of each file is stored as soon as it is parsed.
+ * <p>
+ * The files for which the history could not be retrieved this way are left to the regular per file history
+ * retrieval done during indexing.
+ */
+class FileHistoryPrefetcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileHistoryPrefetcher.class);
+
+    private final HistoryCache cache;
+    private final ExecutorService executor;
+    private final int maxPendingBatches;
+
+    /**
+     * @param cache history cache to store the history into
+     * @param executor executor to run the SCM processes on
+     * @param parallelism number of threads of the executor
+     */
+    FileHistoryPrefetcher(HistoryCache cache, ExecutorService executor, int parallelism) {
+        this.cache = cache;
+        this.executor = executor;
+        // Keep the executor busy while bounding the number of batches held in memory.
+        this.maxPendingBatches = Math.max(1, parallelism) * 2;
+    }
+
+    /**
+     * Retrieve and store the history of the files in the repository that do not have up-to-date history cache.
+     *
+     * @param repository repository implementing {@link RepositoryWithBatchedFileHistory}
+     * @param filter predicate to select the files to get the history for
+     * @return number of files with history stored
+     * @throws HistoryException if the list of files could not be retrieved
+     * @throws InterruptedException if interrupted while waiting for the batches to complete
+     */
+    int prefetch(Repository repository, Predicate<File> filter) throws HistoryException, InterruptedException {
+        if (!(repository instanceof RepositoryWithBatchedFileHistory)) {
+            throw new IllegalArgumentException(String.format("%s cannot retrieve history of files in batches",
+                    repository));
+        }
+        RepositoryWithBatchedFileHistory batchedRepository = (RepositoryWithBatchedFileHistory) repository;
+
+        Statistics elapsed = new Statistics();
+        Semaphore pending = new Semaphore(maxPendingBatches);
+        AtomicInteger batches = new AtomicInteger();
+        AtomicInteger failedBatches = new AtomicInteger();
+        AtomicInteger stored = new AtomicInteger();
+        Counter filesCounter = getFilesCounter();
+
+        try {
+            batchedRepository.collectFileHistoryBatches(files -> {
+                List<File> batch = new ArrayList<>(files.size());
+                for (File file : files) {
+                    if (filter.test(file) && !isUpToDate(file)) {
+                        batch.add(file);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                pending.acquireUninterruptibly();
+                batches.incrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            batchedRepository.getHistory(batch, (file, history) -> {
+                                try {
+                                    cache.storeFile(history, file, repository);
+                                    stored.incrementAndGet();
+                                    if (filesCounter != null) {
+                                        filesCounter.increment();
+                                    }
+                                } catch (HistoryException e) {
+                                    LOGGER.log(Level.WARNING,
+                                            String.format("cannot store history cache for '%s'", file), e);
+                                }
+                            });
+                        } catch (HistoryException | RuntimeException e) {
+                            failedBatches.incrementAndGet();
+                            LOGGER.log(Level.FINE, String.format("failed to get history of a batch of %d files in %s",
+                                    batch.size(), repository), e);
+                        } finally {
+                            pending.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    pending.release();
+                    throw e;
+                }
+            });
+        } finally {
+            // Wait for the submitted batches to complete.
+            pending.acquire(maxPendingBatches);
+            pending.release(maxPendingBatches);
+        }
+
+        if (failedBatches.get() > 0) {
+            LOGGER.log(Level.WARNING, "failed to get history for {0} out of {1} batches of files in {2}, " +
+                    "the history of the remaining files will be retrieved during indexing",
+                    new Object[]{failedBatches.get(), batches.get(), repository});
+        }
+        elapsed.report(LOGGER, Level.FINE,
+                String.format("Done prefetching history of %d files in %d batches for %s",
+                        stored.get(), batches.get(), repository),
+                "history.prefetch.latency");
+
+        return stored.get();
+    }
+
+    private boolean isUpToDate(File file) {
+        try {
+            return cache.isUpToDate(file);
+        } catch (CacheException e) {
+            return false;
+        }
+    }
+
+    private static Counter getFilesCounter() {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry == null) {
+            return null;
+        }
+        return Counter.builder("history.prefetch.files").
+                description("number of files with history retrieved in batches").
+                register(registry);
+    }
+}
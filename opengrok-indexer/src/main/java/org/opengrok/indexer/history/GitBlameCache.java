@@ -0,0 +1,247 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.jgit.blame.cache.BlameCache;
+import org.eclipse.jgit.blame.cache.CacheRegion;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Blame results of a {@link GitRepository} that can be reused by subsequent blame computations.
+ * <p>
+ * JGit consults the cache for each commit it visits while walking the history of the file; once there is a hit,
+ * the lines still unattributed at that point are resolved from the cached result and the walk stops.
+ * So annotating a newer revision of a file only needs to process the commits made since a revision
+ * whose blame is known.
+ * <p>
+ * The results are looked up in the following order:
+ * <ol>
+ *     <li>blame results computed recently, kept in memory (bounded LRU) for the lifetime of the repository
+ *     object (i.e. warm in the web application)</li>
+ *     <li>the annotation cache entry of the file, if it was stored for the same revision. This is typically
+ *     the case when the indexer re-creates the annotation cache for a file that has changed.</li>
+ * </ol>
+ */
+class GitBlameCache implements BlameCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitBlameCache.class);
+
+    static final int MAX_ENTRIES = 512;
+
+    private final Map<String, List<CacheRegion>> entries;
+
+    /**
+     * Maps file path relative to the repository root and revision to the annotation stored for the file
+     * in that revision.
+     */
+    private final BiFunction<String, String, Annotation> storedAnnotations;
+
+    private final Counter hits;
+    private final Counter storedHits;
+    private final Counter misses;
+
+    /**
+     * @param storedAnnotations function to retrieve stored annotation of the file given by path relative
+     *                          to the repository root in given revision, it can return {@code null}
+     */
+    GitBlameCache(BiFunction<String, String, Annotation> storedAnnotations) {
+        this(MAX_ENTRIES, storedAnnotations);
+    }
+
+    @VisibleForTesting
+    GitBlameCache(int maxEntries, BiFunction<String, String, Annotation> storedAnnotations) {
+        this.storedAnnotations = storedAnnotations;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<CacheRegion>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            hits = Counter.builder("git.blame.cache").
+                    description("git blame cache lookups").
+                    tag("what", "hit").
+                    register(registry);
+            storedHits = Counter.builder("git.blame.cache").
+                    description("git blame cache lookups").
+                    tag("what", "stored").
+                    register(registry);
+            misses = Counter.builder("git.blame.cache").
+                    description("git blame cache lookups").
+                    tag("what", "miss").
+                    register(registry);
+        } else {
+            hits = null;
+            storedHits = null;
+            misses = null;
+        }
+    }
+
+    private static String getKey(ObjectId commitId, String path) {
+        return commitId.name() + ":" + path;
+    }
+
+    @Override
+    @Nullable
+    public List<CacheRegion> get(Repository repository, ObjectId commitId, String path) {
+        String key = getKey(commitId, path);
+        List<CacheRegion> regions;
+        synchronized (entries) {
+            regions = entries.get(key);
+        }
+        if (regions != null) {
+            if (hits != null) {
+                hits.increment();
+            }
+            return regions;
+        }
+
+        regions = getFromStoredAnnotation(commitId, path);
+        if (regions != null) {
+            if (storedHits != null) {
+                storedHits.increment();
+            }
+            synchronized (entries) {
+                entries.put(key, regions);
+            }
+            return regions;
+        }
+
+        if (misses != null) {
+            misses.increment();
+        }
+        return null;
+    }
+
+    @Nullable
+    private List<CacheRegion> getFromStoredAnnotation(ObjectId commitId, String path) {
+        Annotation annotation;
+        try {
+            annotation = storedAnnotations.apply(path, commitId.name());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINER, String.format("cannot get stored annotation for '%s'", path), e);
+            return null;
+        }
+        if (annotation == null || !commitId.name().equals(annotation.getRevision())) {
+            return null;
+        }
+
+        return toRegions(path, annotation);
+    }
+
+    /**
+     * Convert annotation to list of regions of consecutive lines with the same revision.
+     * @param path path of the file relative to the repository root
+     * @param annotation annotation
+     * @return regions or {@code null} if the annotation is not complete
+     */
+    @Nullable
+    static List<CacheRegion> toRegions(String path, Annotation annotation) {
+        List<CacheRegion> regions = new ArrayList<>();
+        int start = 0;
+        ObjectId current = null;
+        for (int i = 0; i < annotation.size(); i++) {
+            // Annotation lines are counted from 1, regions from 0.
+            String revision = annotation.getRevision(i + 1);
+            if (!ObjectId.isId(revision)) {
+                return null;
+            }
+            ObjectId id = ObjectId.fromString(revision);
+            if (!id.equals(current)) {
+                if (current != null) {
+                    regions.add(new CacheRegion(path, current, start, i));
+                }
+                current = id;
+                start = i;
+            }
+        }
+        if (current != null) {
+            regions.add(new CacheRegion(path, current, start, annotation.size()));
+        }
+
+        return Collections.unmodifiableList(regions);
+    }
+
+    /**
+     * Remember the result of blame computation.
+     * @param commitId the commit the blame was computed for
+     * @param path path of the file relative to the repository root
+     * @param sourceCommits commits the lines of the file were attributed to
+     */
+    void put(ObjectId commitId, String path, ObjectId[] sourceCommits) {
+        List<CacheRegion> regions = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < sourceCommits.length; i++) {
+            if (sourceCommits[i] == null) {
+                // incomplete result
+                return;
+            }
+            if (i > 0 && !sourceCommits[i].equals(sourceCommits[start])) {
+                regions.add(new CacheRegion(path, sourceCommits[start].copy(), start, i));
+                start = i;
+            }
+        }
+        if (sourceCommits.length > 0) {
+            regions.add(new CacheRegion(path, sourceCommits[start].copy(), start, sourceCommits.length));
+        }
+
+        synchronized (entries) {
+            entries.put(getKey(commitId, path), Collections.unmodifiableList(regions));
+        }
+    }
+
+    /**
+     * @return number of blame results held in memory
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2008, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2019, Krystof Tulinger <k.tulinger@seznam.cz>.
  * Portions Copyright (c) 2023, Ric Harris <harrisric@users.noreply.github.com>.
@@ -52,15 +52,15 @@ import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.eclipse.jgit.api.BlameCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.blame.BlameGenerator;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.diff.RawText;
 import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
@@ -105,6 +105,8 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
     public static final int GIT_ABBREV_LEN = 8;
     public static final int MAX_CHANGESETS = 65536;
 
+    private transient GitBlameCache blameCache;
+
     public GitRepository() {
         type = "git";
 
@@ -274,7 +276,8 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
             walk.markStart(walk.parseCommit(repository.resolve(Constants.HEAD)));
             walk.markUninteresting(walk.lookupCommit(repository.resolve(changeset)));
 
-            Config config = repository.getConfig();
+            // Do not modify the configuration of the repository as it is shared, see JGitRepositoryPool.
+            Config config = new Config(repository.getConfig());
             config.setBoolean("diff", null, "renames", true);
             org.eclipse.jgit.diff.DiffConfig dc = config.get(org.eclipse.jgit.diff.DiffConfig.KEY);
             FollowFilter followFilter = FollowFilter.create(getGitFilePath(fileInRepo), dc);
@@ -373,22 +376,37 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
     @NotNull
     private Annotation getAnnotation(String revision, String filePath, String fileName) throws IOException {
         Annotation annotation = new Annotation(fileName);
+        String gitFilePath = getGitFilePath(filePath);
 
-        try (org.eclipse.jgit.lib.Repository repository = getJGitRepository(getDirectoryName()); Git gitRepo = new Git(repository)) {
-            BlameCommand blameCommand = gitRepo.blame().setFilePath(getGitFilePath(filePath));
+        try (org.eclipse.jgit.lib.Repository repository = getJGitRepository(getDirectoryName());
+             BlameGenerator generator = new BlameGenerator(repository, gitFilePath, getBlameCache())) {
             ObjectId commitId = repository.resolve(revision);
-            blameCommand.setStartCommit(commitId);
-            blameCommand.setFollowFileRenames(isHandleRenamedFiles());
-            final BlameResult result = blameCommand.setTextComparator(RawTextComparator.WS_IGNORE_ALL).call();
-            if (result != null) {
-                final RawText rawText = result.getResultContents();
+            generator.setFollowFileRenames(isHandleRenamedFiles());
+            generator.setTextComparator(RawTextComparator.WS_IGNORE_ALL);
+            if (commitId != null) {
+                generator.push(null, commitId);
+            } else {
+                generator.prepareHead();
+            }
+            // Not using BlameResult as it would disable the blame cache.
+            final RawText rawText = generator.getResultContents();
+            if (rawText != null) {
+                final RevCommit[] sourceCommits = new RevCommit[rawText.size()];
+                final PersonIdent[] sourceAuthors = new PersonIdent[rawText.size()];
+                while (generator.next()) {
+                    for (int i = generator.getResultStart(); i < generator.getResultEnd(); i++) {
+                        sourceCommits[i] = generator.getSourceCommit();
+                        sourceAuthors[i] = generator.getSourceAuthor();
+                    }
+                }
                 for (int i = 0; i < rawText.size(); i++) {
-                    final PersonIdent sourceAuthor = result.getSourceAuthor(i);
-                    final RevCommit sourceCommit = result.getSourceCommit(i);
                     annotation.addLine(
-                      sourceCommit.getId().name(),
-                      sourceAuthor.getName(), true,
-                      sourceCommit.getId().abbreviate(GIT_ABBREV_LEN).name());
+                      sourceCommits[i].getId().name(),
+                      sourceAuthors[i].getName(), true,
+                      sourceCommits[i].getId().abbreviate(GIT_ABBREV_LEN).name());
+                }
+                if (commitId != null) {
+                    getBlameCache().put(commitId, gitFilePath, sourceCommits);
                 }
             }
         } catch (GitAPIException e) {
@@ -399,6 +417,39 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
         return annotation;
     }
 
+    /**
+     * Let JGit use the commit-graph file (maintained by {@code git gc}/{@code git fetch}
+     * or {@code git commit-graph write}) of the repository if there is one. It holds the parents,
+     * commit times and root trees of all commits together with changed path filters so the commit walks
+     * do not have to inflate the commit objects and can skip the commits that did not touch the path.
+     * The setting is not persisted. It is done once when the repository is opened because the repository
+     * (and thus its configuration) is shared via {@link JGitRepositoryPool}.
+     * @return the repository
+     */
+    private static org.eclipse.jgit.lib.Repository enableCommitGraph(org.eclipse.jgit.lib.Repository repository) {
+        Config config = repository.getConfig();
+        config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+        config.setBoolean(ConfigConstants.CONFIG_COMMIT_GRAPH_SECTION, null,
+                ConfigConstants.CONFIG_KEY_READ_CHANGED_PATHS, true);
+        return repository;
+    }
+
+    /**
+     * @return cache of blame results of this repository, backed by the annotation cache
+     */
+    synchronized GitBlameCache getBlameCache() {
+        if (blameCache == null) {
+            File root = new File(getDirectoryName());
+            blameCache = new GitBlameCache((path, revision) -> {
+                if (!isAnnotationCacheEnabled()) {
+                    return null;
+                }
+                return HistoryGuru.getInstance().getStoredAnnotation(new File(root, path), revision);
+            });
+        }
+        return blameCache;
+    }
+
     @Override
     public boolean fileHasAnnotation(File file) {
         return true;
@@ -575,7 +626,7 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
         String relativePath = RuntimeEnvironment.getInstance().getPathRelativeToSourceRoot(file);
         if (!getDirectoryNameRelative().equals(relativePath)) {
             if (isHandleRenamedFiles()) {
-                Config config = repository.getConfig();
+                Config config = new Config(repository.getConfig());
                 config.setBoolean("diff", null, "renames", true);
                 org.eclipse.jgit.diff.DiffConfig dc = config.get(org.eclipse.jgit.diff.DiffConfig.KEY);
                 FollowFilter followFilter = FollowFilter.create(getGitFilePath(getRepoRelativePath(file)), dc);
@@ -730,10 +781,15 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
         return null;
     }
 
+    /**
+     * Get JGit repository for given directory. The repository comes from {@link JGitRepositoryPool}
+     * and has to be closed by the caller.
+     */
     private org.eclipse.jgit.lib.Repository getJGitRepository(String directory) throws IOException {
         File dotGitFile = Paths.get(directory, Constants.DOT_GIT).toFile();
         if (dotGitFile.isDirectory()) {
-            return FileRepositoryBuilder.create(dotGitFile);
+            return JGitRepositoryPool.getInstance().acquire(dotGitFile,
+                    () -> enableCommitGraph(FileRepositoryBuilder.create(dotGitFile)));
         }
 
         // Assume this is a sub-module so dotGitFile is a file.
@@ -749,7 +805,10 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
             gitDirFile = new File(directory, gitDirValue);
         }
 
-        return new FileRepositoryBuilder().setWorkTree(new File(directory)).setGitDir(gitDirFile).build();
+        final File gitDir = gitDirFile;
+        return JGitRepositoryPool.getInstance().acquire(gitDir,
+                () -> enableCommitGraph(new FileRepositoryBuilder().setWorkTree(new File(directory)).
+                        setGitDir(gitDir).build()));
     }
 
     private void rebuildTagList(File directory) {
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2006, 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2006, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.history;
 
@@ -52,6 +52,25 @@ interface HistoryCache extends Cache {
     @Nullable
     HistoryEntry getLastHistoryEntry(File file) throws CacheException;
 
+    /**
+     * Retrieve the history entries (newest first) of the given file from the cache for sequential reading.
+     * Unlike {@link #get(File, Repository, boolean)} the implementation may read the entries lazily
+     * without materializing the complete history.
+     *
+     * @param file The file to retrieve history for
+     * @param repository The external repository for the file
+     * @param maxEntries hint on the maximum number of entries the caller is going to read, negative value
+     *                   means all of them
+     * @return iterator over the entries or {@code null} if the cache does not have up-to-date history of the file
+     * @throws CacheException if the history cache cannot be read
+     */
+    @Nullable
+    default HistoryEntryIterator getHistoryEntries(File file, Repository repository, int maxEntries)
+            throws CacheException {
+        History history = get(file, repository, false);
+        return history == null ? null : HistoryEntryIterator.of(history.getHistoryEntries());
+    }
+
     /**
      * Store the history for a repository.
      *
@@ -0,0 +1,59 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Sequential access to history entries of a file, newest first. The entries may be read lazily
+ * from the history cache so the instance has to be closed after use.
+ */
+public interface HistoryEntryIterator extends Iterator<HistoryEntry>, Closeable {
+
+    /**
+     * @param entries list of entries
+     * @return iterator over the entries of the list
+     */
+    static HistoryEntryIterator of(List<HistoryEntry> entries) {
+        Iterator<HistoryEntry> iterator = entries.iterator();
+        return new HistoryEntryIterator() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public HistoryEntry next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() throws IOException {
+                // nothing to release
+            }
+        };
+    }
+}
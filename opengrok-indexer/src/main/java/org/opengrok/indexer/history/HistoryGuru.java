@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.history;
@@ -56,6 +56,7 @@ import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
 import org.opengrok.indexer.configuration.CommandTimeoutType;
 import org.opengrok.indexer.configuration.Configuration.RemoteSCM;
+import org.opengrok.indexer.configuration.HistoryCacheType;
 import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
 import org.opengrok.indexer.configuration.PathAccepter;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
@@ -166,11 +167,16 @@ public final class HistoryGuru {
     }
 
     /**
-     * Set history cache to its default implementation.
+     * Set history cache to the implementation selected in the configuration.
      * @return {@link HistoryCache} instance
      */
     private HistoryCache initializeHistoryCache() {
-        HistoryCache historyCacheResult = new FileHistoryCache();
+        HistoryCache historyCacheResult;
+        if (env.getHistoryCacheType() == HistoryCacheType.SEGMENTED) {
+            historyCacheResult = new SegmentedHistoryCache();
+        } else {
+            historyCacheResult = new FileHistoryCache();
+        }
 
         try {
             historyCacheResult.initialize();
@@ -240,6 +246,28 @@ public final class HistoryGuru {
         return annotationCache == null ? "No annotation cache" : annotationCache.getInfo();
     }
 
+    /**
+     * Get the annotation stored in the annotation cache for given file and revision,
+     * even if the revision is not the latest revision of the file.
+     * @param file file under source root
+     * @param rev revision
+     * @return annotation or {@code null}
+     */
+    @Nullable
+    Annotation getStoredAnnotation(File file, String rev) {
+        if (!useAnnotationCache()) {
+            return null;
+        }
+
+        try {
+            return annotationCache.getStored(file, rev);
+        } catch (CacheException e) {
+            LOGGER.log(Level.FINEST, String.format("cannot get stored annotation for '%s'",
+                    launderLog(file.toString())), e);
+            return null;
+        }
+    }
+
     /**
      * Fetch the annotation for given file from the cache or using the repository method.
      * @param file file to get the annotation for
@@ -556,6 +584,61 @@ public final class HistoryGuru {
         return null;
     }
 
+    /**
+     * Get the history entries of the specified file for indexing. Unlike {@link #getHistory(File, boolean)}
+     * the entries are read from the history cache lazily, without materializing the complete history.
+     * If the cache does not have the history, it is retrieved from the repository and stored in the cache.
+     *
+     * @param file the file to get the history for
+     * @param maxEntries hint on the maximum number of entries the caller is going to read,
+     *                   negative value means all of them
+     * @return history entries (newest first) or {@code null}. The caller is responsible for closing it.
+     * @throws HistoryException on error when accessing the history
+     */
+    @Nullable
+    public HistoryEntryIterator getHistoryEntries(File file, int maxEntries) throws HistoryException {
+        return getHistoryEntries(file, maxEntries, true);
+    }
+
+    /**
+     * Get the history entries of the specified file, read lazily from the history cache if possible.
+     *
+     * @param file the file to get the history for
+     * @param maxEntries hint on the maximum number of entries the caller is going to read,
+     *                   negative value means all of them
+     * @param store whether to store the history retrieved from the repository in the history cache
+     * @return history entries (newest first) or {@code null}. The caller is responsible for closing it.
+     * @throws HistoryException on error when accessing the history
+     */
+    @Nullable
+    public HistoryEntryIterator getHistoryEntries(File file, int maxEntries, boolean store) throws HistoryException {
+        final Repository repository = getRepository(file.getParentFile());
+        if (repository == null) {
+            LOGGER.log(Level.WARNING, "no repository found for ''{0}''", launderLog(file.toString()));
+            return null;
+        }
+
+        try {
+            if (useHistoryCache(repository)) {
+                HistoryEntryIterator entries = historyCache.getHistoryEntries(file, repository, maxEntries);
+                if (entries != null) {
+                    return entries;
+                }
+            }
+        } catch (CacheException e) {
+            LOGGER.log(Level.FINER, e.getMessage());
+        }
+
+        History history = getHistoryFromRepository(file, repository, false);
+        if (history == null) {
+            return null;
+        }
+        if (store) {
+            storeHistory(file, history);
+        }
+        return HistoryEntryIterator.of(history.getHistoryEntries());
+    }
+
     @Nullable
     private History getHistoryFromRepository(File file, Repository repository, boolean ui) throws HistoryException {
 
@@ -1075,7 +1158,11 @@ public final class HistoryGuru {
             Statistics elapsed = new Statistics();
 
             LOGGER.log(Level.INFO, "Creating history cache for {0}", repository);
-            repository.createCache(historyCache, sinceRevision);
+            if (!repository.hasHistoryForDirectories() && repository instanceof RepositoryWithBatchedFileHistory) {
+                prefetchFileHistory(repository);
+            } else {
+                repository.createCache(historyCache, sinceRevision);
+            }
             elapsed.report(LOGGER, String.format("Done history cache for %s", repository));
         } else {
             LOGGER.log(Level.WARNING,
@@ -1083,6 +1170,24 @@ public final class HistoryGuru {
         }
     }
 
+    /**
+     * Store the history of the files in a repository without history for directories upfront
+     * so that the indexer does not have to run SCM process per file.
+     * @param repository repository implementing {@link RepositoryWithBatchedFileHistory}
+     */
+    private void prefetchFileHistory(Repository repository) throws HistoryException {
+        FileHistoryPrefetcher prefetcher = new FileHistoryPrefetcher(historyCache,
+                env.getIndexerParallelizer().getHistoryProcessExecutor(), env.getHistoryProcessParallelism());
+        try {
+            prefetcher.prefetch(repository,
+                    file -> isRepoHistoryEligible(repository, file, false) && env.getPathAccepter().accept(file));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HistoryException(String.format("interrupted while getting history of files in %s",
+                    repository), e);
+        }
+    }
+
     private Map<Repository, Optional<Exception>> createHistoryCacheReal(Collection<Repository> repositories) {
         if (repositories.isEmpty()) {
             LOGGER.log(Level.WARNING, "History cache is enabled however the list of repositories is empty. " +
@@ -18,49 +18,97 @@
  */
 
 /*
- * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.history;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
-import java.util.List;
 import java.util.Objects;
 
 import org.jetbrains.annotations.NotNull;
-import org.opengrok.indexer.util.IOUtils;
 
 /**
  * Class for reading history entries in a way suitable for indexing by Lucene.
+ * <p>
+ * The entries are pulled from the underlying {@link HistoryEntryIterator} only as the text is consumed
+ * so the complete history of the file does not need to be held in memory.
  */
 public class HistoryReader extends Reader {
 
-    private final List<HistoryEntry> entries;
-    private Reader input;
+    private final HistoryEntryIterator entries;
+    private final int maxEntries;
+
+    private String line = "";
+    private int linePos;
+    private int entryCount;
+    private boolean truncated;
 
     public HistoryReader(History history) {
-        entries = history.getHistoryEntries();
+        this(HistoryEntryIterator.of(history.getHistoryEntries()), -1);
+    }
+
+    /**
+     * @param entries history entries, newest first. The iterator is closed when the reader is closed.
+     * @param maxEntries maximum number of entries to read, negative value means all of them
+     */
+    public HistoryReader(HistoryEntryIterator entries, int maxEntries) {
+        this.entries = entries;
+        this.maxEntries = maxEntries;
     }
 
     @Override
     public int read(char @NotNull [] cbuf, int off, int len) throws IOException {
-        if (input == null) {
-            input = createInternalReader();
+        Objects.requireNonNull(cbuf, "cbuf");
+        Objects.checkFromIndexSize(off, len, cbuf.length);
+        if (len == 0) {
+            return 0;
         }
-        return input.read(Objects.requireNonNull(cbuf, "cbuf"), off, len);
-    }
 
-    @Override
-    public void close() throws IOException {
-        IOUtils.close(input);
+        int count = 0;
+        while (count < len) {
+            if (linePos == line.length() && !nextLine()) {
+                break;
+            }
+            int n = Math.min(len - count, line.length() - linePos);
+            line.getChars(linePos, linePos + n, cbuf, off + count);
+            linePos += n;
+            count += n;
+        }
+
+        return count == 0 ? -1 : count;
     }
 
-    private Reader createInternalReader() {
-        StringBuilder str = new StringBuilder();
-        for (HistoryEntry entry : entries) {
-            str.append(entry.getLine());
+    private boolean nextLine() {
+        if (maxEntries >= 0 && entryCount >= maxEntries) {
+            truncated = truncated || entries.hasNext();
+            return false;
+        }
+        if (!entries.hasNext()) {
+            return false;
         }
-        return new StringReader(str.toString());
+        line = entries.next().getLine();
+        linePos = 0;
+        entryCount++;
+        return true;
+    }
+
+    /**
+     * @return number of history entries read so far
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return whether some history entries were left out because of the limit on the number of entries
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entries.close();
     }
 }
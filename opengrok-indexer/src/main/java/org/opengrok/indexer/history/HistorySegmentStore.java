@@ -0,0 +1,1126 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.IOUtils;
+
+/**
+ * Append-only, memory-mapped storage of per file history for single repository.
+ * <p>
+ * The data is stored in a sequence of segment files named {@code <generation>.<number>.seg}, each starting
+ * with 8 byte header (magic and version) followed by records. Each record consists of type (1 byte),
+ * payload length (4 bytes), CRC32 of the payload (4 bytes) and the payload itself. There are 3 types
+ * of records:
+ * <ul>
+ *     <li>string - UTF-8 encoded string. The strings are numbered in the order of appearance across all
+ *     segments of given generation and the other records refer to them using these numbers. This way
+ *     strings shared by many files (authors, commit messages, revisions) are stored just once.</li>
+ *     <li>file - history of single file: path, time of storing, history entries and tags</li>
+ *     <li>delete - path of file whose history was removed</li>
+ *  </ul>
+ * The last file record for given path wins. The offsets of the records are kept in memory so that lookup of
+ * history for given file is a hash map lookup followed by read from the mapped segment.
+ * <p>
+ * Records that are superseded by newer records for the same path are garbage. Once there is enough garbage,
+ * {@link #compact()} rewrites the live records into new generation of segments. A generation becomes
+ * visible only after its marker file {@code <generation>.gen} is created so that readers in other processes
+ * never see partially written generation.
+ * <p>
+ * There is supposed to be single writer (the indexer) for given store. Readers in other processes
+ * (the web application) pick up the changes with some delay, see {@link #REFRESH_INTERVAL_MILLIS}.
+ */
+class HistorySegmentStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HistorySegmentStore.class);
+
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String GENERATION_SUFFIX = ".gen";
+    static final String TEMPORARY_SUFFIX = ".tmp";
+
+    static final long DEFAULT_SEGMENT_SIZE_LIMIT = 256L * 1024 * 1024;
+
+    /**
+     * The segments are read via {@link MappedByteBuffer} which is indexed by {@code int}
+     * so no segment can grow beyond this size.
+     */
+    static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * How often at most to check the segment files for changes done by other processes.
+     */
+    static final long REFRESH_INTERVAL_MILLIS = 1000;
+
+    private static final int MAGIC = 0x4f474853; // "OGHS"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 9;
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_FILE = 2;
+    private static final byte TYPE_DELETE = 3;
+
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_DATE = 2;
+
+    private final Path dir;
+    private final long segmentSizeLimit;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int generation = -1;
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, Long> fileIndex = new HashMap<>();
+    private long[] stringIndex = new long[1024];
+    private int stringCount;
+    /**
+     * Reverse mapping of the strings, only needed for writing.
+     */
+    private Map<String, Integer> stringIds;
+    private FileChannel writeChannel;
+
+    private long totalBytes;
+    private long garbageBytes;
+
+    private volatile long lastRefresh;
+
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        private long size;
+
+        Segment(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = SEGMENT_HEADER_SIZE;
+        }
+
+        /**
+         * (Re)map the segment. Must be called with the write lock held as the previous mapping is released.
+         */
+        void map(long length) throws IOException {
+            MappedByteBuffer old = buffer;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (old != null) {
+                IOUtils.unmap(old);
+            }
+        }
+
+        void close() throws IOException {
+            channel.close();
+            if (buffer != null) {
+                IOUtils.unmap(buffer);
+                buffer = null;
+            }
+        }
+
+        long getMappedSize() {
+            return buffer == null ? 0 : buffer.capacity();
+        }
+    }
+
+    /**
+     * Decoded content of a file record.
+     */
+    static final class FileRecord {
+        private final String path;
+        private final long storedTime;
+        private final List<HistoryEntry> entries;
+        private final Map<String, String> tags;
+
+        FileRecord(String path, long storedTime, List<HistoryEntry> entries, Map<String, String> tags) {
+            this.path = path;
+            this.storedTime = storedTime;
+            this.entries = entries;
+            this.tags = tags;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        long getStoredTime() {
+            return storedTime;
+        }
+
+        List<HistoryEntry> getEntries() {
+            return entries;
+        }
+
+        Map<String, String> getTags() {
+            return tags;
+        }
+    }
+
+    HistorySegmentStore(Path dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_SIZE_LIMIT);
+    }
+
+    @VisibleForTesting
+    HistorySegmentStore(Path dir, long segmentSizeLimit) throws IOException {
+        if (segmentSizeLimit > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException(String.format("segment size limit %d exceeds %d",
+                    segmentSizeLimit, MAX_SEGMENT_SIZE));
+        }
+        this.dir = dir;
+        this.segmentSizeLimit = segmentSizeLimit;
+        lock.writeLock().lock();
+        try {
+            load();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Path getDirectory() {
+        return dir;
+    }
+
+    private static Path getGenerationMarker(Path dir, int generation) {
+        return dir.resolve(generation + GENERATION_SUFFIX);
+    }
+
+    private static Path getSegmentPath(Path dir, int generation, int number) {
+        return dir.resolve(generation + "." + number + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * @param dir directory
+     * @return whether the directory contains a store
+     */
+    static boolean exists(Path dir) {
+        try {
+            return findGeneration(dir) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the highest generation with marker file or -1 if there is none
+     */
+    private static int findGeneration(Path dir) throws IOException {
+        int result = -1;
+        if (!Files.isDirectory(dir)) {
+            return result;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + GENERATION_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    result = Math.max(result,
+                            Integer.parseInt(name.substring(0, name.length() - GENERATION_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    LOGGER.log(Level.FINER, "ignoring ''{0}''", path);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void load() throws IOException {
+        closeSegments();
+        fileIndex.clear();
+        stringCount = 0;
+        stringIds = null;
+        totalBytes = 0;
+        garbageBytes = 0;
+
+        generation = findGeneration(dir);
+        if (generation >= 0) {
+            for (int i = 0; Files.exists(getSegmentPath(dir, generation, i)); i++) {
+                Segment segment = new Segment(getSegmentPath(dir, generation, i));
+                segments.add(segment);
+                scan(segments.size() - 1);
+            }
+        }
+        lastRefresh = System.nanoTime();
+    }
+
+    private void closeSegments() throws IOException {
+        if (writeChannel != null) {
+            writeChannel.close();
+            writeChannel = null;
+        }
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    private static long toPosition(int segmentNumber, long offset) {
+        return ((long) segmentNumber << 32) | offset;
+    }
+
+    private static int toSegmentNumber(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static long toOffset(long position) {
+        return position & 0xffffffffL;
+    }
+
+    /**
+     * Process the records of given segment that were not seen yet.
+     * @param segmentNumber index of the segment in {@link #segments}
+     */
+    private void scan(int segmentNumber) throws IOException {
+        Segment segment = segments.get(segmentNumber);
+        long fileSize = segment.channel.size();
+        if (fileSize < SEGMENT_HEADER_SIZE) {
+            return;
+        }
+        if (fileSize > MAX_SEGMENT_SIZE) {
+            throw new IOException(String.format("history segment '%s' is too large: %d bytes",
+                    segment.path, fileSize));
+        }
+        if (segment.getMappedSize() < fileSize) {
+            segment.map(fileSize);
+        }
+        ByteBuffer buffer = segment.buffer.duplicate();
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(String.format("unknown format of history segment '%s'", segment.path));
+        }
+
+        long offset = segment.size;
+        while (offset + RECORD_HEADER_SIZE <= fileSize) {
+            buffer.position(Math.toIntExact(offset));
+            byte type = buffer.get();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length < 0 || offset + RECORD_HEADER_SIZE + length > fileSize) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            if (crc != checksum(payload)) {
+                // Torn write. Leave it for the writer to deal with.
+                break;
+            }
+            long recordSize = RECORD_HEADER_SIZE + (long) length;
+            long position = toPosition(segmentNumber, offset);
+            switch (type) {
+                case TYPE_STRING:
+                    addStringPosition(position);
+                    break;
+                case TYPE_FILE:
+                    Long old = fileIndex.put(readString(payload), position);
+                    if (old != null) {
+                        garbageBytes += getRecordSize(old);
+                    }
+                    break;
+                case TYPE_DELETE:
+                    Long removed = fileIndex.remove(readString(payload));
+                    if (removed != null) {
+                        garbageBytes += getRecordSize(removed);
+                    }
+                    garbageBytes += recordSize;
+                    break;
+                default:
+                    throw new IOException(String.format("unknown record type %d in '%s' at offset %d",
+                            type, segment.path, offset));
+            }
+            totalBytes += recordSize;
+            offset += recordSize;
+        }
+        segment.size = offset;
+    }
+
+    /**
+     * Records that would not fit into single segment are rejected rather than wrapping the offsets.
+     */
+    private static void checkSegmentSize(long segmentSize, int recordsSize) throws IOException {
+        if (segmentSize + recordsSize > MAX_SEGMENT_SIZE) {
+            throw new IOException(String.format("history records of %d bytes do not fit into segment of %d bytes",
+                    recordsSize, MAX_SEGMENT_SIZE - segmentSize));
+        }
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload.duplicate());
+        return (int) crc32.getValue();
+    }
+
+    private void addStringPosition(long position) {
+        if (stringCount == stringIndex.length) {
+            stringIndex = Arrays.copyOf(stringIndex, stringIndex.length * 2);
+        }
+        stringIndex[stringCount++] = position;
+    }
+
+    /**
+     * Check whether the segments were changed by another process and if so, pick up the changes.
+     */
+    private void maybeRefresh() {
+        if (System.nanoTime() - lastRefresh < TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL_MILLIS)) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (System.nanoTime() - lastRefresh < TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL_MILLIS)) {
+                return;
+            }
+            refresh();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to refresh history segments in '%s'", dir), e);
+        } finally {
+            lastRefresh = System.nanoTime();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void refresh() throws IOException {
+        if (generation < 0 || !Files.exists(getGenerationMarker(dir, generation))) {
+            // Either there was nothing or the store was compacted or removed.
+            load();
+            return;
+        }
+
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        // Pick up new records in the last segment as well as new segments.
+        int last = segments.size() - 1;
+        scan(last);
+        if (segments.get(last).getMappedSize() < segments.get(last).size) {
+            segments.get(last).map(segments.get(last).size);
+        }
+        for (int i = segments.size(); Files.exists(getSegmentPath(dir, generation, i)); i++) {
+            segments.add(new Segment(getSegmentPath(dir, generation, i)));
+            scan(i);
+        }
+    }
+
+    /**
+     * Get read-only buffer with the payload of the record at given position.
+     */
+    private ByteBuffer getPayload(long position) throws IOException {
+        Segment segment = segments.get(toSegmentNumber(position));
+        long offset = toOffset(position);
+
+        if (offset + RECORD_HEADER_SIZE <= segment.getMappedSize()) {
+            int length = segment.buffer.getInt(Math.toIntExact(offset + 1));
+            if (offset + RECORD_HEADER_SIZE + length <= segment.getMappedSize()) {
+                return segment.buffer.slice(Math.toIntExact(offset + RECORD_HEADER_SIZE), length);
+            }
+        }
+
+        // The record was appended after the segment was mapped. Use positional read.
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(segment.channel, header, offset);
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt(1));
+        readFully(segment.channel, payload, offset + RECORD_HEADER_SIZE);
+        return payload.flip();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("unexpected end of history segment");
+            }
+        }
+    }
+
+    private long getRecordSize(long position) throws IOException {
+        Segment segment = segments.get(toSegmentNumber(position));
+        long offset = toOffset(position);
+        if (offset + RECORD_HEADER_SIZE <= segment.getMappedSize()) {
+            return RECORD_HEADER_SIZE + (long) segment.buffer.getInt(Math.toIntExact(offset + 1));
+        }
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(segment.channel, header, offset);
+        return RECORD_HEADER_SIZE + (long) header.getInt(1);
+    }
+
+    @Nullable
+    private String getString(int id) throws IOException {
+        if (id == 0) {
+            return null;
+        }
+        ByteBuffer payload = getPayload(stringIndex[id - 1]);
+        return StandardCharsets.UTF_8.decode(payload).toString();
+    }
+
+    /**
+     * @param path path relative to source root
+     * @return whether there is history stored for the path
+     */
+    boolean contains(String path) {
+        maybeRefresh();
+        lock.readLock().lock();
+        try {
+            return fileIndex.containsKey(path);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param path path relative to source root
+     * @return time (in milliseconds since the epoch) when the history for the file was stored or -1
+     * if there is no history for the path
+     * @throws IOException on error
+     */
+    long getStoredTime(String path) throws IOException {
+        maybeRefresh();
+        lock.readLock().lock();
+        try {
+            Long position = fileIndex.get(path);
+            if (position == null) {
+                return -1;
+            }
+            ByteBuffer payload = getPayload(position);
+            readString(payload);
+            return payload.getLong();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param path path relative to source root
+     * @param maxEntries maximum number of entries to decode, negative value means all of them
+     * @param withTags whether to decode the tags
+     * @return decoded record or {@code null} if there is no history for the path
+     * @throws IOException on error
+     */
+    @Nullable
+    FileRecord get(String path, int maxEntries, boolean withTags) throws IOException {
+        maybeRefresh();
+        lock.readLock().lock();
+        try {
+            Long position = fileIndex.get(path);
+            if (position == null) {
+                return null;
+            }
+            return decodeFile(getPayload(position), maxEntries, withTags);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private FileRecord decodeFile(ByteBuffer payload, int maxEntries, boolean withTags) throws IOException {
+        String path = readString(payload);
+        long storedTime = payload.getLong();
+        int count = readVarInt(payload);
+        int decodeCount = maxEntries < 0 ? count : Math.min(count, maxEntries);
+        List<HistoryEntry> entries = new ArrayList<>(decodeCount);
+        for (int i = 0; i < count; i++) {
+            String revision = getString(readVarInt(payload));
+            String displayRevision = getString(readVarInt(payload));
+            int flags = payload.get();
+            Date date = (flags & FLAG_DATE) != 0 ? new Date(payload.getLong()) : null;
+            int authorId = readVarInt(payload);
+            int messageId = readVarInt(payload);
+            if (i < decodeCount) {
+                String message = getString(messageId);
+                entries.add(new HistoryEntry(revision, displayRevision, date, getString(authorId),
+                        message == null ? "" : message, (flags & FLAG_ACTIVE) != 0, null));
+            } else if (!withTags) {
+                break;
+            }
+        }
+
+        Map<String, String> tags = new HashMap<>();
+        if (withTags && decodeCount == count) {
+            int tagCount = readVarInt(payload);
+            for (int i = 0; i < tagCount; i++) {
+                tags.put(getString(readVarInt(payload)), getString(readVarInt(payload)));
+            }
+        }
+
+        return new FileRecord(path, storedTime, entries, tags);
+    }
+
+    /**
+     * Prepare the store for writing. The mapping of strings to their identifiers is built and incomplete record
+     * (if any) at the end of the last segment is truncated.
+     */
+    private void ensureWriter() throws IOException {
+        if (writeChannel != null) {
+            return;
+        }
+
+        refresh();
+
+        Files.createDirectories(dir);
+        if (generation < 0) {
+            generation = 0;
+            removeGenerations(generation);
+            Files.createFile(getGenerationMarker(dir, generation));
+        }
+
+        stringIds = new HashMap<>(Math.max(16, stringCount * 2));
+        for (int i = 0; i < stringCount; i++) {
+            stringIds.put(getString(i + 1), i + 1);
+        }
+
+        if (segments.isEmpty()) {
+            addSegment();
+        } else {
+            Segment last = segments.get(segments.size() - 1);
+            writeChannel = FileChannel.open(last.path, StandardOpenOption.WRITE);
+            if (writeChannel.size() > last.size) {
+                LOGGER.log(Level.WARNING, "truncating incomplete record at the end of ''{0}''", last.path);
+                writeChannel.truncate(last.size);
+            }
+            writeChannel.position(last.size);
+        }
+    }
+
+    private void addSegment() throws IOException {
+        if (writeChannel != null) {
+            writeChannel.close();
+        }
+        Path path = getSegmentPath(dir, generation, segments.size());
+        writeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            writeChannel.write(header);
+        }
+        segments.add(new Segment(path));
+    }
+
+    /**
+     * Remove files of all generations other than given generation.
+     */
+    private void removeGenerations(int keep) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if ((name.endsWith(SEGMENT_SUFFIX) || name.endsWith(GENERATION_SUFFIX) ||
+                        name.endsWith(TEMPORARY_SUFFIX)) && !name.startsWith(keep + ".")) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accumulates records to be appended to the store in single write.
+     */
+    private final class RecordBatch {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final List<String> newStrings = new ArrayList<>();
+        private final Map<String, Integer> newStringIds = new HashMap<>();
+        private final List<Long> newStringOffsets = new ArrayList<>();
+
+        int getStringId(@Nullable String str) {
+            if (str == null) {
+                return 0;
+            }
+            Integer id = stringIds.get(str);
+            if (id == null) {
+                id = newStringIds.get(str);
+            }
+            if (id == null) {
+                id = stringCount + newStrings.size() + 1;
+                newStrings.add(str);
+                newStringIds.put(str, id);
+                newStringOffsets.add((long) out.size());
+                addRecord(TYPE_STRING, str.getBytes(StandardCharsets.UTF_8));
+            }
+            return id;
+        }
+
+        long addRecord(byte type, byte[] payload) {
+            long offset = out.size();
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            header.put(type).putInt(payload.length).putInt(checksum(ByteBuffer.wrap(payload)));
+            out.write(header.array(), 0, RECORD_HEADER_SIZE);
+            out.write(payload, 0, payload.length);
+            return offset;
+        }
+
+        /**
+         * Write the batch to the last segment and register the new strings.
+         * @return offset of the batch in the last segment
+         */
+        long write() throws IOException {
+            Segment segment = segments.get(segments.size() - 1);
+            if (segment.size > SEGMENT_HEADER_SIZE && segment.size + out.size() > segmentSizeLimit) {
+                addSegment();
+                segment = segments.get(segments.size() - 1);
+            }
+            checkSegmentSize(segment.size, out.size());
+
+            long base = segment.size;
+            ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+            while (buffer.hasRemaining()) {
+                writeChannel.write(buffer);
+            }
+            segment.size += out.size();
+            totalBytes += out.size();
+
+            int segmentNumber = segments.size() - 1;
+            for (int i = 0; i < newStrings.size(); i++) {
+                addStringPosition(toPosition(segmentNumber, base + newStringOffsets.get(i)));
+                stringIds.put(newStrings.get(i), stringCount);
+            }
+            return base;
+        }
+    }
+
+    private byte[] encodeFile(RecordBatch batch, String path, long storedTime, List<HistoryEntry> entries,
+                              Map<String, String> tags) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeString(out, path);
+        writeLong(out, storedTime);
+        writeVarInt(out, entries.size());
+        for (HistoryEntry entry : entries) {
+            writeVarInt(out, batch.getStringId(entry.getRevision()));
+            writeVarInt(out, batch.getStringId(entry.getDisplayRevision()));
+            int flags = (entry.isActive() ? FLAG_ACTIVE : 0) | (entry.getDate() != null ? FLAG_DATE : 0);
+            out.write(flags);
+            if (entry.getDate() != null) {
+                writeLong(out, entry.getDate().getTime());
+            }
+            writeVarInt(out, batch.getStringId(entry.getAuthor()));
+            writeVarInt(out, batch.getStringId(entry.getMessage()));
+        }
+        writeVarInt(out, tags.size());
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            writeVarInt(out, batch.getStringId(tag.getKey()));
+            writeVarInt(out, batch.getStringId(tag.getValue()));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Store history of a file, replacing any previously stored history of the file.
+     * @param path path relative to source root
+     * @param storedTime time of storing in milliseconds since the epoch
+     * @param entries history entries, newest first
+     * @param tags map of revision to tags
+     * @throws IOException on error
+     */
+    void put(String path, long storedTime, List<HistoryEntry> entries, Map<String, String> tags)
+            throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureWriter();
+            RecordBatch batch = new RecordBatch();
+            byte[] payload = encodeFile(batch, path, storedTime, entries, tags);
+            long offset = batch.addRecord(TYPE_FILE, payload);
+            long base = batch.write();
+
+            Long old = fileIndex.put(path, toPosition(segments.size() - 1, base + offset));
+            if (old != null) {
+                garbageBytes += getRecordSize(old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove history of given file.
+     * @param path path relative to source root
+     * @throws IOException on error
+     */
+    void remove(String path) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureWriter();
+            Long old = fileIndex.remove(path);
+            if (old == null) {
+                return;
+            }
+            garbageBytes += getRecordSize(old);
+
+            RecordBatch batch = new RecordBatch();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeString(out, path);
+            batch.addRecord(TYPE_DELETE, out.toByteArray());
+            long size = batch.out.size();
+            batch.write();
+            garbageBytes += size;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return ratio of the space occupied by superseded records
+     */
+    double getGarbageRatio() {
+        lock.readLock().lock();
+        try {
+            return totalBytes == 0 ? 0 : (double) garbageBytes / totalBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long getTotalBytes() {
+        lock.readLock().lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return fileIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the live records into new generation of segments and remove the previous generation.
+     * The records are written sorted by path so that the history of files in the same directory is co-located.
+     * <p>
+     * The new generation is written from a snapshot of the file index without holding the lock, record by record,
+     * so that neither readers nor writers are blocked for the duration of the rewrite. The lock is held only
+     * to append the records that changed in the meantime and to switch to the new generation.
+     * @throws IOException on error
+     */
+    void compact() throws IOException {
+        final int oldGeneration;
+        final Map<String, Long> snapshot;
+        lock.writeLock().lock();
+        try {
+            refresh();
+            if (generation < 0) {
+                return;
+            }
+            oldGeneration = generation;
+            snapshot = new HashMap<>(fileIndex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        final int newGeneration = oldGeneration + 1;
+        List<String> paths = new ArrayList<>(snapshot.keySet());
+        paths.sort(null);
+
+        // Write the new generation with temporary names.
+        List<Path> written = new ArrayList<>();
+        boolean done = false;
+        SegmentWriter writer = new SegmentWriter(newGeneration, written);
+        try {
+            for (String path : paths) {
+                FileRecord fileRecord = readFileRecord(oldGeneration, snapshot.get(path));
+                if (fileRecord == null) {
+                    LOGGER.log(Level.FINE, "history segments in ''{0}'' changed generation, not compacting", dir);
+                    return;
+                }
+                writer.write(fileRecord);
+            }
+
+            lock.writeLock().lock();
+            try {
+                refresh();
+                if (generation != oldGeneration) {
+                    LOGGER.log(Level.FINE, "history segments in ''{0}'' changed generation, not compacting", dir);
+                    return;
+                }
+
+                // Catch up with the changes done since the snapshot was taken.
+                for (Map.Entry<String, Long> entry : fileIndex.entrySet()) {
+                    if (!entry.getValue().equals(snapshot.get(entry.getKey()))) {
+                        writer.write(decodeFile(getPayload(entry.getValue()), -1, true));
+                    }
+                }
+                for (String path : paths) {
+                    if (!fileIndex.containsKey(path)) {
+                        writer.writeDelete(path);
+                    }
+                }
+                writer.close();
+
+                for (Path path : written) {
+                    String name = path.getFileName().toString();
+                    Files.move(path, path.resolveSibling(name.substring(0,
+                                    name.length() - TEMPORARY_SUFFIX.length())), StandardCopyOption.ATOMIC_MOVE);
+                }
+                Files.createFile(getGenerationMarker(dir, newGeneration));
+                done = true;
+                long before = totalBytes;
+                closeSegments();
+                removeGenerations(newGeneration);
+                load();
+                LOGGER.log(Level.FINE, "compacted history segments in ''{0}'' from {1} to {2} bytes",
+                        new Object[]{dir, before, totalBytes});
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            if (!done) {
+                writer.close();
+                for (Path path : written) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return decoded file record at given position or {@code null} if the store is no longer
+     * at given generation
+     */
+    @Nullable
+    private FileRecord readFileRecord(int expectedGeneration, long position) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (generation != expectedGeneration) {
+                return null;
+            }
+            return decodeFile(getPayload(position), -1, true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes new generation of segments with standalone string table.
+     */
+    private final class SegmentWriter implements Closeable {
+        private final int writerGeneration;
+        private final List<Path> written;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private FileChannel channel;
+        private long size;
+        private boolean closed;
+
+        SegmentWriter(int writerGeneration, List<Path> written) {
+            this.writerGeneration = writerGeneration;
+            this.written = written;
+        }
+
+        private void nextSegment() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+            Path path = getSegmentPath(dir, writerGeneration, written.size());
+            path = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+            written.add(path);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            size = SEGMENT_HEADER_SIZE;
+        }
+
+        void write(FileRecord fileRecord) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            writeString(payload, fileRecord.getPath());
+            writeLong(payload, fileRecord.getStoredTime());
+            writeVarInt(payload, fileRecord.getEntries().size());
+            for (HistoryEntry entry : fileRecord.getEntries()) {
+                writeVarInt(payload, getId(out, entry.getRevision()));
+                writeVarInt(payload, getId(out, entry.getDisplayRevision()));
+                int flags = (entry.isActive() ? FLAG_ACTIVE : 0) | (entry.getDate() != null ? FLAG_DATE : 0);
+                payload.write(flags);
+                if (entry.getDate() != null) {
+                    writeLong(payload, entry.getDate().getTime());
+                }
+                writeVarInt(payload, getId(out, entry.getAuthor()));
+                writeVarInt(payload, getId(out, entry.getMessage()));
+            }
+            writeVarInt(payload, fileRecord.getTags().size());
+            for (Map.Entry<String, String> tag : fileRecord.getTags().entrySet()) {
+                writeVarInt(payload, getId(out, tag.getKey()));
+                writeVarInt(payload, getId(out, tag.getValue()));
+            }
+            writeRecord(out, TYPE_FILE, payload.toByteArray());
+            append(out);
+        }
+
+        void writeDelete(String path) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            writeString(payload, path);
+            writeRecord(out, TYPE_DELETE, payload.toByteArray());
+            append(out);
+        }
+
+        private void append(ByteArrayOutputStream out) throws IOException {
+            if (channel == null || (size > SEGMENT_HEADER_SIZE && size + out.size() > segmentSizeLimit)) {
+                nextSegment();
+            }
+            checkSegmentSize(size, out.size());
+            ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            size += out.size();
+        }
+
+        private int getId(ByteArrayOutputStream out, @Nullable String str) {
+            if (str == null) {
+                return 0;
+            }
+            return ids.computeIfAbsent(str, s -> {
+                writeRecord(out, TYPE_STRING, s.getBytes(StandardCharsets.UTF_8));
+                return ids.size() + 1;
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (channel == null) {
+                nextSegment();
+            }
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, byte type, byte[] payload) {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        header.put(type).putInt(payload.length).putInt(checksum(ByteBuffer.wrap(payload)));
+        out.write(header.array(), 0, RECORD_HEADER_SIZE);
+        out.write(payload, 0, payload.length);
+    }
+
+    /**
+     * Flush the appended data to the storage device.
+     * @throws IOException on error
+     */
+    void sync() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (writeChannel != null) {
+                writeChannel.force(false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Close the store and remove all its files.
+     * @throws IOException on error
+     */
+    void delete() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeSegments();
+            fileIndex.clear();
+            stringCount = 0;
+            stringIds = null;
+            generation = -1;
+            if (Files.isDirectory(dir)) {
+                removeGenerations(-1);
+            }
+        } catch (NoSuchFileException e) {
+            LOGGER.log(Level.FINEST, "directory ''{0}'' does not exist", dir);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeSegments();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int i = 56; i >= 0; i -= 8) {
+            out.write((int) (value >>> i));
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Pool of opened JGit repositories shared by all {@link GitRepository} operations
+ * (history traversal, file revision retrieval, annotation, tags etc.) so that the pack indexes,
+ * references and configuration of a repository are not re-read for each of them.
+ * <p>
+ * The pool relies on the reference counting of JGit {@link Repository}: the pool holds one reference
+ * to each pooled repository and {@link #acquire(File, Opener)} hands out an additional one, so the callers
+ * close the repository as usual once they are done with it. The repository is really closed only after
+ * the pool reference was released too, i.e. when the repository was evicted from the pool
+ * (least recently used one when the pool is full or after being idle for too long) and all its users closed it.
+ * <p>
+ * A pooled repository is reopened if its git directory was replaced (e.g. the repository was cloned again).
+ * <p>
+ * The JGit window cache (which is global) is configured when the pool is first used.
+ */
+final class JGitRepositoryPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JGitRepositoryPool.class);
+
+    private static final int MB = 1024 * 1024;
+
+    /**
+     * Interface for opening a repository that is not pooled yet.
+     */
+    @FunctionalInterface
+    interface Opener {
+        Repository open() throws IOException;
+    }
+
+    private static final class Entry {
+        private final Repository repository;
+        private final Object fileKey;
+        private long lastUsed;
+
+        private Entry(Repository repository, Object fileKey) {
+            this.repository = repository;
+            this.fileKey = fileKey;
+        }
+    }
+
+    private static final class LazyHolder {
+        private static final JGitRepositoryPool INSTANCE = new JGitRepositoryPool();
+
+        static {
+            configureWindowCache(RuntimeEnvironment.getInstance());
+        }
+    }
+
+    /**
+     * Pooled repositories keyed by git directory path, in access order.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private Timer evictionTimer;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    static JGitRepositoryPool getInstance() {
+        return LazyHolder.INSTANCE;
+    }
+
+    @VisibleForTesting
+    JGitRepositoryPool() {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            hits = Counter.builder("git.repository.pool").
+                    description("JGit repository pool lookups").
+                    tag("what", "hit").
+                    register(registry);
+            misses = Counter.builder("git.repository.pool").
+                    description("JGit repository pool lookups").
+                    tag("what", "miss").
+                    register(registry);
+            evictions = Counter.builder("git.repository.pool").
+                    description("JGit repository pool lookups").
+                    tag("what", "evicted").
+                    register(registry);
+            Gauge.builder("git.repository.pool.size", this, JGitRepositoryPool::size).
+                    description("number of pooled JGit repositories").
+                    register(registry);
+        } else {
+            hits = null;
+            misses = null;
+            evictions = null;
+        }
+    }
+
+    /**
+     * Apply the JGit window cache settings from the configuration. The settings left to default values
+     * in the configuration are left to JGit defaults.
+     * @param env runtime environment
+     */
+    static void configureWindowCache(RuntimeEnvironment env) {
+        if (env.getGitPackedGitLimit() <= 0 && !env.isGitPackedGitMmap() && env.getGitDeltaBaseCacheLimit() <= 0) {
+            return;
+        }
+
+        WindowCacheConfig config = new WindowCacheConfig();
+        if (env.getGitPackedGitLimit() > 0) {
+            config.setPackedGitLimit((long) env.getGitPackedGitLimit() * MB);
+        }
+        config.setPackedGitMMAP(env.isGitPackedGitMmap());
+        if (env.getGitDeltaBaseCacheLimit() > 0) {
+            config.setDeltaBaseCacheLimit(env.getGitDeltaBaseCacheLimit() * MB);
+        }
+        try {
+            config.install();
+            LOGGER.log(Level.CONFIG, "JGit window cache configured: packed git limit {0} bytes, " +
+                    "mmap {1}, delta base cache limit {2} bytes", new Object[]{config.getPackedGitLimit(),
+                    config.isPackedGitMMAP(), config.getDeltaBaseCacheLimit()});
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "cannot configure JGit window cache", e);
+        }
+    }
+
+    /**
+     * Get repository for given git directory. The returned repository has to be closed by the caller.
+     * @param gitDir git directory of the repository
+     * @param opener used to open the repository if it is not pooled
+     * @return repository
+     * @throws IOException if the repository cannot be opened
+     */
+    Repository acquire(File gitDir, Opener opener) throws IOException {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        int maxSize = env.getGitRepositoryPoolSize();
+        Object fileKey = getFileKey(gitDir);
+        if (maxSize <= 0 || fileKey == null) {
+            return opener.open();
+        }
+
+        String key = gitDir.getAbsolutePath();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (Objects.equals(entry.fileKey, fileKey)) {
+                    if (hits != null) {
+                        hits.increment();
+                    }
+                    return use(entry);
+                }
+                LOGGER.log(Level.FINE, "git directory ''{0}'' was replaced, reopening the repository", gitDir);
+                evict(entries.remove(key));
+            }
+        }
+
+        if (misses != null) {
+            misses.increment();
+        }
+        // Opening the repository involves I/O so do it outside of the lock.
+        Repository repository = opener.open();
+        List<Entry> evicted = new ArrayList<>();
+        Repository result;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && Objects.equals(entry.fileKey, fileKey)) {
+                // Another thread was faster.
+                result = use(entry);
+            } else {
+                if (entry != null) {
+                    evicted.add(entries.remove(key));
+                }
+                entry = new Entry(repository, fileKey);
+                entries.put(key, entry);
+                result = use(entry);
+                repository = null;
+
+                Iterator<Entry> iterator = entries.values().iterator();
+                while (entries.size() > maxSize && iterator.hasNext()) {
+                    evicted.add(iterator.next());
+                    iterator.remove();
+                }
+                scheduleEviction(env.getGitRepositoryPoolIdleTimeout());
+            }
+            evicted.forEach(this::evict);
+        }
+        if (repository != null) {
+            repository.close();
+        }
+
+        return result;
+    }
+
+    private Repository use(Entry entry) {
+        entry.lastUsed = System.currentTimeMillis();
+        entry.repository.incrementOpen();
+        return entry.repository;
+    }
+
+    /**
+     * Release the pool reference of the repository. It will be closed once the last user closes it.
+     */
+    private void evict(Entry entry) {
+        if (evictions != null) {
+            evictions.increment();
+        }
+        entry.repository.close();
+    }
+
+    /**
+     * @return identification of the directory that changes when the directory is replaced
+     * or {@code null} if the directory does not exist
+     */
+    @Nullable
+    private static Object getFileKey(File gitDir) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(gitDir.toPath(), BasicFileAttributes.class);
+            if (!attributes.isDirectory()) {
+                return null;
+            }
+            // The file key (inode) alone is not sufficient as it can be reused for the new directory.
+            // Where the creation time is not available, the last modified time is used instead, so the repository
+            // might be also reopened after the entries of the git directory have changed which is harmless.
+            return Arrays.asList(attributes.fileKey(), attributes.creationTime());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void scheduleEviction(int idleTimeout) {
+        if (evictionTimer != null || idleTimeout <= 0) {
+            return;
+        }
+
+        long period = Math.max(TimeUnit.SECONDS.toMillis(idleTimeout) / 2, 1000);
+        evictionTimer = new Timer("jgit-repository-pool-eviction", true);
+        evictionTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                evictIdle(System.currentTimeMillis());
+            }
+        }, period, period);
+    }
+
+    /**
+     * Release the repositories that were not used for longer than the idle timeout.
+     * @param now current time in milliseconds
+     */
+    @VisibleForTesting
+    synchronized void evictIdle(long now) {
+        long idleTimeout = TimeUnit.SECONDS.toMillis(RuntimeEnvironment.getInstance().getGitRepositoryPoolIdleTimeout());
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> mapEntry = iterator.next();
+            if (now - mapEntry.getValue().lastUsed > idleTimeout) {
+                LOGGER.log(Level.FINEST, "closing idle repository ''{0}''", mapEntry.getKey());
+                iterator.remove();
+                evict(mapEntry.getValue());
+            }
+        }
+
+        if (entries.isEmpty() && evictionTimer != null) {
+            evictionTimer.cancel();
+            evictionTimer = null;
+        }
+    }
+
+    /**
+     * Release all pooled repositories.
+     */
+    synchronized void clear() {
+        entries.values().forEach(this::evict);
+        entries.clear();
+        if (evictionTimer != null) {
+            evictionTimer.cancel();
+            evictionTimer = null;
+        }
+    }
+
+    /**
+     * @return number of pooled repositories
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+}
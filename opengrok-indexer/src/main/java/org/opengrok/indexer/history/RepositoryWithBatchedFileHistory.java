@@ -0,0 +1,57 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Capability of repositories without history for directories (see {@link Repository#hasHistoryForDirectories()})
+ * to retrieve the history of multiple files with single invocation of the SCM tool.
+ * This allows to populate the history cache of such repositories upfront (see {@link FileHistoryPrefetcher})
+ * instead of running one SCM process per file during indexing.
+ */
+interface RepositoryWithBatchedFileHistory {
+
+    /**
+     * Pass the files with history in the repository to the consumer in batches suitable for
+     * {@link #getHistory(List, BiConsumer)}.
+     *
+     * @param consumer consumer of the batches
+     * @throws HistoryException on error
+     */
+    void collectFileHistoryBatches(Consumer<List<File>> consumer) throws HistoryException;
+
+    /**
+     * Retrieve the history of the files. The history of each file is passed to the consumer as soon as
+     * it is available, the files for which the SCM does not report any history are skipped.
+     *
+     * @param files the files to get the history for
+     * @param consumer consumer of the history
+     * @throws HistoryException if the history could not be retrieved for all the files. The consumer
+     * might have been called for some of them.
+     */
+    void getHistory(List<File> files, BiConsumer<File, History> consumer) throws HistoryException;
+}
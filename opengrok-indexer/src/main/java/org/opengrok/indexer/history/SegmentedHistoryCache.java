@@ -0,0 +1,376 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.ForbiddenSymlinkException;
+
+/**
+ * History cache that keeps history of all files of a repository in a {@link HistorySegmentStore}
+ * rather than in one file per source file. This avoids the inode and directory overhead of
+ * {@link FileHistoryCache} for large repositories and makes the lookups (e.g. for directory listings)
+ * cheap as they amount to reading from memory-mapped file.
+ * <p>
+ * The latest cached revision of each repository is still tracked the same way as in {@link FileHistoryCache}.
+ */
+class SegmentedHistoryCache extends FileHistoryCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentedHistoryCache.class);
+
+    private static final String HISTORY_SEGMENTS_DIR_NAME = "historysegments";
+
+    /**
+     * Compact the segments of a repository once at least this portion of them is occupied by stale records.
+     */
+    static final double COMPACTION_THRESHOLD = 0.5;
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+
+    /**
+     * Map of repository cache directory to the store.
+     */
+    private final Map<String, HistorySegmentStore> stores = new HashMap<>();
+
+    /**
+     * Map of cache directory found not to contain a store to the time (from {@link System#nanoTime()})
+     * of the check. The stores can be created by another process so the directory is checked again
+     * once {@link HistorySegmentStore#REFRESH_INTERVAL_MILLIS} elapses.
+     */
+    private final Map<String, Long> missingStores = new HashMap<>();
+    private static final int MAX_MISSING_STORES = 10000;
+
+    private final ExecutorService compactionExecutor;
+
+    SegmentedHistoryCache() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new OpenGrokThreadFactory("history-compaction-"));
+        executor.allowCoreThreadTimeOut(true);
+        compactionExecutor = executor;
+    }
+
+    @Nullable
+    private HistorySegmentStore getStore(RepositoryInfo repository) throws CacheException {
+        String dirName = CacheUtil.getRepositoryCacheDataDirname(repository, this);
+        if (dirName == null) {
+            return null;
+        }
+        return getStore(dirName);
+    }
+
+    private synchronized HistorySegmentStore getStore(String dirName) throws CacheException {
+        HistorySegmentStore store = stores.get(dirName);
+        if (store == null) {
+            try {
+                store = new HistorySegmentStore(Path.of(dirName));
+            } catch (IOException e) {
+                throw new CacheException(String.format("failed to open history segments in '%s'", dirName), e);
+            }
+            stores.put(dirName, store);
+            missingStores.remove(dirName);
+        }
+        return store;
+    }
+
+    /**
+     * Find the store for given file. The nearest ancestor directory of the file that has a store wins
+     * so that nested repositories are handled correctly.
+     */
+    @Nullable
+    private HistorySegmentStore getStore(File file) throws CacheException {
+        List<String> dirNames = new ArrayList<>();
+        String prefix = env.getDataRootPath() + File.separator + getCacheDirName();
+        for (String parent = new File(getPath(file)).getParent(); parent != null;
+             parent = new File(parent).getParent()) {
+            dirNames.add(prefix + (parent.equals(File.separator) ? "" : parent));
+        }
+
+        synchronized (this) {
+            for (String dirName : dirNames) {
+                HistorySegmentStore store = stores.get(dirName);
+                if (store != null) {
+                    return store;
+                }
+            }
+
+            long now = System.nanoTime();
+            long interval = TimeUnit.MILLISECONDS.toNanos(HistorySegmentStore.REFRESH_INTERVAL_MILLIS);
+            if (missingStores.size() > MAX_MISSING_STORES) {
+                missingStores.values().removeIf(checked -> now - checked >= interval);
+            }
+            for (String dirName : dirNames) {
+                Long checked = missingStores.get(dirName);
+                if (checked != null && now - checked < interval) {
+                    continue;
+                }
+                if (HistorySegmentStore.exists(Path.of(dirName))) {
+                    return getStore(dirName);
+                }
+                missingStores.put(dirName, now);
+            }
+        }
+
+        return null;
+    }
+
+    private String getPath(File file) throws CacheException {
+        try {
+            return env.getPathRelativeToSourceRoot(file);
+        } catch (ForbiddenSymlinkException | IOException e) {
+            throw new CacheException(String.format("Failed to get path relative to source root for '%s'", file), e);
+        }
+    }
+
+    @Override
+    void storeFile(History histNew, File file, Repository repository, boolean mergeHistory) throws HistoryException {
+        try {
+            HistorySegmentStore store = getStore(repository);
+            if (store == null) {
+                throw new HistoryException(String.format("cannot get history segments for repository %s",
+                        repository));
+            }
+            String path = getPath(file);
+
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                LOGGER.log(Level.FINEST, "writing history entries for ''{0}'' to ''{1}'': {2}",
+                        new Object[]{path, store.getDirectory(), histNew.getRevisionList()});
+            }
+
+            boolean assignTags = repository.isTagsEnabled() && repository.hasFileBasedTags();
+            List<HistoryEntry> entries = new ArrayList<>(histNew.getHistoryEntries());
+            if (mergeHistory) {
+                HistorySegmentStore.FileRecord fileRecord = store.get(path, -1, false);
+                if (fileRecord != null) {
+                    entries.addAll(fileRecord.getEntries());
+                    // Re-tag from scratch, see the comment in the parent class.
+                    if (assignTags) {
+                        histNew.getHistoryEntries().addAll(fileRecord.getEntries());
+                        histNew.strip();
+                        repository.assignTagsInHistory(histNew);
+                    }
+                }
+            }
+
+            store.put(path, System.currentTimeMillis(), entries,
+                    assignTags ? histNew.getTags() : Collections.emptyMap());
+        } catch (CacheException | IOException e) {
+            throw new HistoryException(String.format("Failed to store history for '%s'", file), e);
+        }
+    }
+
+    /**
+     * The last history entry of a file is cheap to get from the segments so there is no need for the summaries.
+     */
+    @Override
+    boolean useDirectorySummary() {
+        return false;
+    }
+
+    @Override
+    void createDirectoriesForFiles(Set<String> files, Repository repository, String label) {
+        // There is just single directory per repository.
+        String dirName = CacheUtil.getRepositoryCacheDataDirname(repository, this);
+        if (dirName == null || files.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(Path.of(dirName));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Unable to create cache directory '%s'", dirName), e);
+        }
+    }
+
+    @Nullable
+    private HistorySegmentStore.FileRecord getRecord(File file, @Nullable HistorySegmentStore store,
+                                                     int maxEntries, boolean withTags) throws CacheException {
+        if (file.isDirectory()) {
+            return null;
+        }
+
+        if (store != null) {
+            try {
+                HistorySegmentStore.FileRecord fileRecord = store.get(getPath(file), maxEntries, withTags);
+                if (fileRecord != null && file.lastModified() <= fileRecord.getStoredTime()) {
+                    if (fileHistoryCacheHits != null) {
+                        fileHistoryCacheHits.increment();
+                    }
+                    return fileRecord;
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, String.format("Error when reading history of '%s' from '%s'",
+                        file, store.getDirectory()), e);
+            }
+        }
+
+        if (fileHistoryCacheMisses != null) {
+            fileHistoryCacheMisses.increment();
+        }
+
+        return null;
+    }
+
+    @Override
+    @Nullable
+    public History get(File file, Repository repository, boolean withFiles) throws CacheException {
+        boolean withTags = repository.isTagsEnabled() && repository.hasFileBasedTags();
+        HistorySegmentStore.FileRecord fileRecord = getRecord(file, getStore(repository), -1, withTags);
+        if (fileRecord == null) {
+            return null;
+        }
+
+        History history = new History(fileRecord.getEntries());
+        if (withTags) {
+            history.setTags(fileRecord.getTags());
+        }
+        return history;
+    }
+
+    @Override
+    @Nullable
+    public HistoryEntryIterator getHistoryEntries(File file, Repository repository, int maxEntries)
+            throws CacheException {
+        // Decode one more entry than requested so that the caller can tell the history was cut.
+        HistorySegmentStore.FileRecord fileRecord = getRecord(file, getStore(repository),
+                maxEntries < 0 ? -1 : maxEntries + 1, false);
+        return fileRecord == null ? null : HistoryEntryIterator.of(fileRecord.getEntries());
+    }
+
+    @Override
+    @Nullable
+    public HistoryEntry getLastHistoryEntry(File file) throws CacheException {
+        HistorySegmentStore.FileRecord fileRecord = getRecord(file, getStore(file), 1, false);
+        if (fileRecord == null || fileRecord.getEntries().isEmpty()) {
+            return null;
+        }
+        return fileRecord.getEntries().get(0);
+    }
+
+    @Override
+    public boolean isUpToDate(File file) throws CacheException {
+        HistorySegmentStore store = getStore(file);
+        if (store == null) {
+            return false;
+        }
+        try {
+            long storedTime = store.getStoredTime(getPath(file));
+            return storedTime >= 0 && file.lastModified() <= storedTime;
+        } catch (IOException e) {
+            throw new CacheException(String.format("failed to check history of '%s'", file), e);
+        }
+    }
+
+    @Override
+    public boolean hasCacheForFile(File file) throws CacheException {
+        HistorySegmentStore store = getStore(file);
+        return store != null && store.contains(getPath(file));
+    }
+
+    @Override
+    public void clearFile(String path) {
+        File file = new File(env.getSourceRootPath() + path);
+        try {
+            HistorySegmentStore store = getStore(file);
+            if (store != null) {
+                store.remove(path);
+            }
+        } catch (CacheException | IOException e) {
+            LOGGER.log(Level.WARNING, String.format("cannot clear history of '%s'", path), e);
+        }
+    }
+
+    /**
+     * Flush the stores to disk and schedule compaction of the ones with too many stale records.
+     * The compaction runs in the background. Readers are not blocked by it as the compacted segments
+     * are written without holding the lock of the store and become visible atomically.
+     */
+    @Override
+    public void optimize() {
+        List<HistorySegmentStore> toCompact = new ArrayList<>();
+        synchronized (this) {
+            for (HistorySegmentStore store : stores.values()) {
+                try {
+                    store.sync();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, String.format("failed to sync '%s'", store.getDirectory()), e);
+                }
+                if (store.getGarbageRatio() >= COMPACTION_THRESHOLD) {
+                    toCompact.add(store);
+                }
+            }
+        }
+
+        for (HistorySegmentStore store : toCompact) {
+            compactionExecutor.submit(() -> {
+                try {
+                    store.compact();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, String.format("failed to compact '%s'", store.getDirectory()), e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void clear(RepositoryInfo repository) {
+        String dirName = CacheUtil.getRepositoryCacheDataDirname(repository, this);
+        if (dirName != null) {
+            HistorySegmentStore store;
+            synchronized (this) {
+                store = stores.remove(dirName);
+            }
+            if (store != null) {
+                try {
+                    store.delete();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, String.format("failed to remove '%s'", dirName), e);
+                }
+            }
+        }
+
+        super.clear(repository);
+    }
+
+    @Override
+    public String getCacheDirName() {
+        return HISTORY_SEGMENTS_DIR_NAME;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Writes (and possibly compresses) the xref files in the background so that the indexing threads
+ * can proceed with the next file as soon as the xref is rendered into memory.
+ * <p>
+ * The renaming of the transient file is queued in the {@link PendingFileCompleter} only once the file
+ * is completely written, so the xref files still become visible all at once when the completer runs.
+ * {@link #await()} has to be called before that. If an xref file cannot be written, it is left out and
+ * the next indexer run will regenerate it as the file will be detected as missing.
+ * <p>
+ * The xrefs held in memory are limited by their total size rather than by their count as single xref
+ * of a large file can take lots of memory. {@link #submit(CharArrayWriter, File, String)} blocks when
+ * the limit would be exceeded. An xref larger than the limit is admitted once all the other xrefs are written.
+ */
+class AsyncXrefWriter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncXrefWriter.class);
+
+    /**
+     * Size of pending xrefs (in bytes) per writer thread.
+     */
+    static final long CAPACITY_PER_THREAD = 16L * 1024 * 1024;
+
+    /**
+     * The permits of the semaphore are kilobytes so that the capacity does not overflow {@code int}.
+     */
+    private static final int PERMIT_SIZE = 1024;
+
+    private final Executor executor;
+    private final PendingFileCompleter completer;
+    private final boolean compressed;
+    private final int capacity;
+    private final Semaphore permits;
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final Timer writeTimer;
+
+    /**
+     * @param executor executor to write the files on
+     * @param parallelism number of threads of the executor
+     * @param completer completer to register the renaming of the written files with
+     * @param compressed whether the xref files should be compressed
+     */
+    AsyncXrefWriter(Executor executor, int parallelism, PendingFileCompleter completer, boolean compressed) {
+        this(executor, completer, compressed, Math.max(1, parallelism) * CAPACITY_PER_THREAD);
+    }
+
+    /**
+     * @param executor executor to write the files on
+     * @param completer completer to register the renaming of the written files with
+     * @param compressed whether the xref files should be compressed
+     * @param capacityBytes maximum size of the xrefs held in memory
+     */
+    @VisibleForTesting
+    AsyncXrefWriter(Executor executor, PendingFileCompleter completer, boolean compressed, long capacityBytes) {
+        this.executor = executor;
+        this.completer = completer;
+        this.compressed = compressed;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(1, capacityBytes / PERMIT_SIZE));
+        this.permits = new Semaphore(capacity);
+
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            writeTimer = Timer.builder("indexer.xref.write").
+                    description("time to write xref file in the background").
+                    register(registry);
+        } else {
+            writeTimer = null;
+        }
+    }
+
+    /**
+     * Schedule the xref to be written.
+     * @param xref rendered xref
+     * @param transientXref file to write the xref to
+     * @param xrefAbs final path of the xref file
+     * @throws InterruptedException if interrupted while waiting for enough of the pending xrefs to be written
+     */
+    void submit(CharArrayWriter xref, File transientXref, String xrefAbs) throws InterruptedException {
+        int size = getPermits(xref);
+        permits.acquire(size);
+        try {
+            executor.execute(() -> write(xref, transientXref, xrefAbs, size));
+        } catch (RejectedExecutionException e) {
+            permits.release(size);
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of permits corresponding to the memory taken by the xref, at most {@link #capacity}
+     */
+    private int getPermits(CharArrayWriter xref) {
+        long bytes = (long) xref.size() * Character.BYTES;
+        return (int) Math.min(capacity, Math.max(1, (bytes + PERMIT_SIZE - 1) / PERMIT_SIZE));
+    }
+
+    private void write(CharArrayWriter xref, File transientXref, String xrefAbs, int size) {
+        long start = System.nanoTime();
+        try {
+            try (Writer out = IndexDatabase.openXrefWriter(transientXref, compressed)) {
+                xref.writeTo(out);
+            }
+            completer.add(new PendingFileRenaming(xrefAbs, transientXref.getAbsolutePath()));
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            LOGGER.log(Level.WARNING, String.format("failed to write xref file '%s'", transientXref), e);
+            completer.add(new PendingFileDeletion(transientXref.getAbsolutePath()));
+        } finally {
+            if (writeTimer != null) {
+                writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            permits.release(size);
+        }
+    }
+
+    /**
+     * Wait for all the submitted xrefs to be written.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void await() throws InterruptedException {
+        permits.acquire(capacity);
+        permits.release(capacity);
+    }
+
+    /**
+     * @return number of xref files that could not be written
+     */
+    int getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Wait for the pending writes so that they do not interfere with the next run of the indexer.
+     */
+    @Override
+    public void close() {
+        try {
+            await();
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.WARNING, "interrupted while waiting for the xref writes to complete");
+            Thread.currentThread().interrupt();
+        }
+    }
+}
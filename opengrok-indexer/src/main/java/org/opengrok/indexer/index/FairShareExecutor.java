@@ -0,0 +1,385 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.StringUtils;
+
+/**
+ * Executor shared by all {@link IndexDatabase} instances that are being updated at the same time.
+ * <p>
+ * Each index database submits its file works via its own {@link Lane}. The worker threads pick the tasks
+ * from the lanes using stride scheduling: every lane has a virtual time that is advanced by {@code 1/weight}
+ * for each task taken from it and the lane with the lowest virtual time goes next. Thus a project with
+ * many files cannot starve the others and the workers freed by a project that is busy committing its
+ * index are immediately used for the remaining projects.
+ * <p>
+ * Tasks submitted directly via {@link #execute(Runnable)} go to a default lane with weight 1.
+ * <p>
+ * Per-lane wall time and the time the tasks spent waiting in the queue are logged when the lane is closed
+ * and reported via {@link Metrics#getRegistry()} (if available).
+ */
+public class FairShareExecutor extends AbstractExecutorService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FairShareExecutor.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition terminated = lock.newCondition();
+
+    /**
+     * Lanes that are open or still have some tasks queued.
+     */
+    private final List<Lane> lanes = new ArrayList<>();
+    private final Lane defaultLane;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private double virtualTime;
+    private int liveWorkers;
+    private boolean shutdown;
+
+    /**
+     * @param parallelism number of worker threads
+     * @param threadFactory factory for the worker threads
+     */
+    public FairShareExecutor(int parallelism, ThreadFactory threadFactory) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        defaultLane = newLane("default", 1);
+        liveWorkers = parallelism;
+        for (int i = 0; i < parallelism; i++) {
+            Thread thread = threadFactory.newThread(this::runWorker);
+            workers.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Create new lane. The lane should be closed once all its tasks are completed.
+     * @param name name of the lane used for logging and metrics, typically project name
+     * @param weight share of the worker threads relative to the other lanes
+     * @return lane
+     */
+    public Lane newLane(String name, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+
+        Lane lane = new Lane(name, weight);
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("executor is shut down");
+            }
+            lanes.add(lane);
+        } finally {
+            lock.unlock();
+        }
+        return lane;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        defaultLane.execute(command);
+    }
+
+    private void enqueue(Lane lane, Runnable command) {
+        if (command == null) {
+            throw new NullPointerException("command");
+        }
+
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("executor is shut down");
+            }
+            if (lane.closed) {
+                throw new RejectedExecutionException(String.format("lane '%s' is closed", lane.name));
+            }
+            if (lane.queue.isEmpty()) {
+                // Idle lanes do not accumulate credit.
+                lane.pass = Math.max(lane.pass, virtualTime);
+            }
+            lane.queue.add(new Task(lane, command));
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return next task to run or {@code null} if the executor was shut down and there are no more tasks
+     */
+    private Task take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                Lane next = null;
+                for (Lane lane : lanes) {
+                    if (!lane.queue.isEmpty() && (next == null || lane.pass < next.pass)) {
+                        next = lane;
+                    }
+                }
+                if (next != null) {
+                    Task task = next.queue.poll();
+                    virtualTime = next.pass;
+                    next.pass += 1.0 / next.weight;
+                    if (next.closed && next.queue.isEmpty()) {
+                        lanes.remove(next);
+                    }
+                    return task;
+                }
+                if (shutdown) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWorker() {
+        try {
+            while (true) {
+                Task task;
+                try {
+                    task = take();
+                } catch (InterruptedException e) {
+                    // Interrupted by shutdownNow(), the next take() will return null.
+                    continue;
+                }
+                if (task == null) {
+                    return;
+                }
+                task.run();
+            }
+        } finally {
+            lock.lock();
+            try {
+                if (--liveWorkers == 0) {
+                    terminated.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            for (Lane lane : lanes) {
+                for (Task task : lane.queue) {
+                    pending.add(task.command);
+                }
+                lane.queue.clear();
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.forEach(Thread::interrupt);
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        lock.lock();
+        try {
+            return shutdown && liveWorkers == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!(shutdown && liveWorkers == 0)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Task {
+        private final Lane lane;
+        private final Runnable command;
+        private final long enqueued = System.nanoTime();
+
+        Task(Lane lane, Runnable command) {
+            this.lane = lane;
+            this.command = command;
+        }
+
+        void run() {
+            long start = System.nanoTime();
+            lane.recordQueueTime(start - enqueued);
+            try {
+                command.run();
+            } catch (Throwable e) {
+                // Errors thrown by the analysis of a single file (e.g. StackOverflowError from a lexer)
+                // must not terminate the worker thread as there is nothing to replace it.
+                lane.failed.increment();
+                LOGGER.log(Level.WARNING, String.format("task in lane '%s' failed", lane.name), e);
+            } finally {
+                lane.runNanos.add(System.nanoTime() - start);
+                lane.completed.increment();
+            }
+        }
+    }
+
+    /**
+     * Sub-queue of the executor with its own share of the worker threads.
+     */
+    public final class Lane implements Executor, AutoCloseable {
+        private final String name;
+        private final int weight;
+        private final long created = System.nanoTime();
+        private final ArrayDeque<Task> queue = new ArrayDeque<>();
+        private final LongAdder queueNanos = new LongAdder();
+        private final LongAdder runNanos = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final Timer queueTimer;
+
+        // guarded by the executor lock
+        private double pass;
+        private boolean closed;
+
+        private Lane(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+
+            MeterRegistry registry = Metrics.getRegistry();
+            if (registry != null) {
+                queueTimer = Timer.builder("indexer.scheduler.queue").
+                        description("time the index works spent waiting for a worker thread").
+                        tag("project", name).
+                        register(registry);
+            } else {
+                queueTimer = null;
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            enqueue(this, command);
+        }
+
+        private void recordQueueTime(long nanos) {
+            queueNanos.add(nanos);
+            if (queueTimer != null) {
+                queueTimer.record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Reject any further tasks and report the statistics of the lane. The tasks already queued
+         * will still be run.
+         */
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (queue.isEmpty()) {
+                    lanes.remove(this);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            long wallNanos = System.nanoTime() - created;
+            if (LOGGER.isLoggable(Level.INFO) && completed.sum() > 0) {
+                LOGGER.log(Level.INFO, String.format("lane '%s' (weight %d): %d tasks (%d failed), wall time %s, " +
+                                "run time %s, queue time %s", name, weight, completed.sum(), failed.sum(),
+                        StringUtils.getReadableTime(TimeUnit.NANOSECONDS.toMillis(wallNanos)),
+                        StringUtils.getReadableTime(TimeUnit.NANOSECONDS.toMillis(runNanos.sum())),
+                        StringUtils.getReadableTime(TimeUnit.NANOSECONDS.toMillis(queueNanos.sum()))));
+            }
+            MeterRegistry registry = Metrics.getRegistry();
+            if (registry != null) {
+                Timer.builder("indexer.project.wall").
+                        description("wall time of the parallel indexing stage of a project").
+                        tag("project", name).
+                        register(registry).
+                        record(wallNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.lucene.util.InfoStream;
+
+/**
+ * Lucene does not provide a listener for segment flushes, however the indexing threads
+ * report the flush duration via {@link InfoStream}. This class enables just the messages of the
+ * {@code DWPT} component and records the durations found therein.
+ */
+class FlushTimingInfoStream extends InfoStream {
+
+    static final String COMPONENT = "DWPT";
+    private static final String FLUSH_TIME_PREFIX = "flush time ";
+    private static final String FLUSH_TIME_SUFFIX = " ms";
+
+    private final Timer flushTimer;
+
+    FlushTimingInfoStream(MeterRegistry registry) {
+        flushTimer = Timer.builder("indexer.flush").
+                description("duration of Lucene segment flushes").
+                register(registry);
+    }
+
+    @Override
+    public void message(String component, String message) {
+        if (!message.startsWith(FLUSH_TIME_PREFIX) || !message.endsWith(FLUSH_TIME_SUFFIX)) {
+            return;
+        }
+
+        try {
+            double millis = Double.parseDouble(message.substring(FLUSH_TIME_PREFIX.length(),
+                    message.length() - FLUSH_TIME_SUFFIX.length()));
+            flushTimer.record((long) (millis * TimeUnit.MILLISECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+        } catch (NumberFormatException e) {
+            // The message format is not part of the Lucene API, ignore anything unexpected.
+        }
+    }
+
+    @Override
+    public boolean isEnabled(String component) {
+        return COMPONENT.equals(component);
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+}
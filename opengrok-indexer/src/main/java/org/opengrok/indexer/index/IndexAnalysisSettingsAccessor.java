@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2022, 2026, Oracle and/or its affiliates. All rights reserved.
  * Copyright (c) 2018, 2019, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.index;
@@ -52,7 +52,7 @@ public class IndexAnalysisSettingsAccessor {
      */
     static final String INDEX_ANALYSIS_SETTINGS_OBJUID = "uthuslvotkgltggqqjmurqojpjpjjkutkujktnkk";
 
-    private static final int INDEX_ANALYSIS_SETTINGS_OBJVER = 3;
+    private static final int INDEX_ANALYSIS_SETTINGS_OBJVER = 4;
 
     /**
      * Searches for a document with a {@link QueryBuilder#OBJUID} value matching
@@ -62,8 +62,8 @@ public class IndexAnalysisSettingsAccessor {
      * @return a defined instance or {@code null} if none could be found
      * @throws IOException if I/O error occurs while searching Lucene
      */
-    public IndexAnalysisSettings3 read(IndexReader reader) throws IOException {
-        IndexAnalysisSettings3[] res = read(reader, 1);
+    public IndexAnalysisSettings4 read(IndexReader reader) throws IOException {
+        IndexAnalysisSettings4[] res = read(reader, 1);
         return res.length > 0 ? res[0] : null;
     }
 
@@ -76,7 +76,7 @@ public class IndexAnalysisSettingsAccessor {
      * @return a defined instance, which is empty if none could be found
      * @throws IOException if I/O error occurs while searching Lucene
      */
-    public IndexAnalysisSettings3[] read(IndexReader reader, int n) throws IOException {
+    public IndexAnalysisSettings4[] read(IndexReader reader, int n) throws IOException {
 
         IndexSearcher searcher = RuntimeEnvironment.getInstance().getIndexSearcherFactory().newSearcher(reader);
         Query q;
@@ -90,7 +90,7 @@ public class IndexAnalysisSettingsAccessor {
         TopDocs top = searcher.search(q, n);
 
         int nres = top.totalHits.value > n ? n : (int) top.totalHits.value;
-        IndexAnalysisSettings3[] res = new IndexAnalysisSettings3[nres];
+        IndexAnalysisSettings4[] res = new IndexAnalysisSettings4[nres];
 
         IndexAnalysisSettingsUpgrader upgrader = new IndexAnalysisSettingsUpgrader();
         StoredFields storedFields = searcher.storedFields();
@@ -118,7 +118,7 @@ public class IndexAnalysisSettingsAccessor {
      * @param settings a defined instance
      * @throws IOException if I/O error occurs while writing Lucene
      */
-    public void write(IndexWriter writer, IndexAnalysisSettings3 settings)
+    public void write(IndexWriter writer, IndexAnalysisSettings4 settings)
             throws IOException {
         byte[] objser = settings.serialize();
 
@@ -19,6 +19,7 @@
 
 /*
  * Copyright (c) 2018, 2019, Chris Fraire <cfraire@me.com>.
+ * Portions Copyright (c) 2026, Oracle and/or its affiliates.
  */
 package org.opengrok.indexer.index;
 
@@ -33,7 +34,7 @@ public class IndexAnalysisSettingsUpgrader {
     /**
      * De-serialize the specified {@code bytes}, and upgrade if necessary from
      * an older version to the current object version which is
-     * {@link IndexAnalysisSettings3}.
+     * {@link IndexAnalysisSettings4}.
      * @param bytes a defined instance
      * @param objectVersion a value greater than or equal to 1
      * @return a defined instance
@@ -41,7 +42,7 @@ public class IndexAnalysisSettingsUpgrader {
      * found
      * @throws IOException if any of the usual Input/Output related exceptions
      */
-    public IndexAnalysisSettings3 upgrade(byte[] bytes, int objectVersion)
+    public IndexAnalysisSettings4 upgrade(byte[] bytes, int objectVersion)
             throws ClassNotFoundException, IOException {
         switch (objectVersion) {
             case 1:
@@ -50,14 +51,17 @@ public class IndexAnalysisSettingsUpgrader {
                 IndexAnalysisSettings old2 = IndexAnalysisSettings.deserialize(bytes);
                 return convertFromV2(old2);
             case 3:
-                return IndexAnalysisSettings3.deserialize(bytes);
+                IndexAnalysisSettings3 old3 = IndexAnalysisSettings3.deserialize(bytes);
+                return convertFromV3(old3);
+            case 4:
+                return IndexAnalysisSettings4.deserialize(bytes);
             default:
                 throw new IllegalArgumentException("Unknown version " + objectVersion);
         }
     }
 
-    private IndexAnalysisSettings3 convertFromV2(IndexAnalysisSettings old2) {
-        IndexAnalysisSettings3 res = new IndexAnalysisSettings3();
+    private IndexAnalysisSettings4 convertFromV2(IndexAnalysisSettings old2) {
+        IndexAnalysisSettings4 res = new IndexAnalysisSettings4();
         res.setAnalyzerGuruVersion(old2.getAnalyzerGuruVersion());
         res.setAnalyzersVersions(old2.getAnalyzersVersions());
         res.setProjectName(old2.getProjectName());
@@ -65,4 +69,19 @@ public class IndexAnalysisSettingsUpgrader {
         // Version 2 has no indexedSymlinks, so nothing more to do.
         return res;
     }
+
+    private IndexAnalysisSettings4 convertFromV3(IndexAnalysisSettings3 old3) {
+        IndexAnalysisSettings4 res = new IndexAnalysisSettings4();
+        res.setAnalyzerGuruVersion(old3.getAnalyzerGuruVersion());
+        res.setAnalyzersVersions(old3.getAnalyzersVersions());
+        res.setProjectName(old3.getProjectName());
+        res.setTabSize(old3.getTabSize());
+        res.setIndexedSymlinks(old3.getIndexedSymlinks());
+        /*
+         * Version 3 has no definitionsFormatVersion as the definitions were
+         * stored using Java serialization. Leaving it unset makes the files
+         * to be re-analyzed so that the compact format is used.
+         */
+        return res;
+    }
 }
@@ -18,19 +18,21 @@
  */
 
 /*
- * Copyright (c) 2008, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.index;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
+import java.io.CharArrayWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.file.Files;
@@ -41,7 +43,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -50,30 +51,25 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.MultiBits;
 import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
@@ -97,10 +93,12 @@ import org.jetbrains.annotations.VisibleForTesting;
 import org.opengrok.indexer.analysis.AbstractAnalyzer;
 import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.analysis.BufferedStreamSource;
 import org.opengrok.indexer.analysis.Ctags;
 import org.opengrok.indexer.analysis.Definitions;
 import org.opengrok.indexer.analysis.NullableNumLinesLOC;
 import org.opengrok.indexer.analysis.NumLinesLOC;
+import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.configuration.PathAccepter;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
@@ -172,8 +170,9 @@ public class IndexDatabase {
     private FSDirectory indexDirectory;
     private IndexReader reader;
     private IndexWriter writer;
-    private IndexAnalysisSettings3 settings;
+    private IndexAnalysisSettings4 settings;
     private PendingFileCompleter completer;
+    private AsyncXrefWriter xrefWriter;
     private NumLinesLOCAggregator countsAggregator;
     private TermsEnum uidIter;
     private PostingsEnum postsIter;
@@ -237,7 +236,7 @@ public class IndexDatabase {
         indexDownArgsFactory = factory;
         this.project = project;
         lockFactory = NoLockFactory.INSTANCE;
-        indexWriterConfigFactory = new IndexWriterConfigFactory();
+        indexWriterConfigFactory = new IndexWriterConfigFactory(project);
         initialize();
     }
 
@@ -320,6 +319,23 @@ public class IndexDatabase {
     static void updateAll(IndexChangedListener listener,
                                     Map<Repository, Optional<Exception>> historyCacheResults)
             throws IOException, IndexerException {
+        updateAll(listener, historyCacheResults, false);
+    }
+
+    /**
+     * Update the index database for all the projects.
+     *
+     * @param listener where to signal the changes to the database
+     * @param historyCacheResults map of repository to optional exception
+     * @param reduceSegmentCount whether to reduce the segment count of each index database right after
+     *                           it is updated. This overlaps the merge of one project with the indexing of others.
+     * @throws IOException if an error occurs
+     * @throws IndexerException if indexing failed for any reason
+     */
+    static void updateAll(IndexChangedListener listener,
+                          Map<Repository, Optional<Exception>> historyCacheResults,
+                          boolean reduceSegmentCount)
+            throws IOException, IndexerException {
 
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
         List<IndexDatabase> dbs = new ArrayList<>();
@@ -344,6 +360,9 @@ public class IndexDatabase {
             parallelizer.getFixedExecutor().submit(() -> {
                 try {
                     db.update();
+                    if (reduceSegmentCount) {
+                        db.reduceSegmentCount();
+                    }
                 } catch (Throwable e) {
                     exception.addSuppressed(e);
                     LOGGER.log(Level.SEVERE, String.format("Problem updating index database in directory '%s': ",
@@ -597,6 +616,10 @@ public class IndexDatabase {
             writer = new IndexWriter(indexDirectory, indexWriterConfigFactory.get());
             writer.commit(); // to make sure index exists on the disk
             completer = new PendingFileCompleter();
+            if (env.isGenerateHtml() && env.getXrefWriterParallelism() > 0) {
+                xrefWriter = new AsyncXrefWriter(env.getIndexerParallelizer().getXrefWriterExecutor(),
+                        env.getXrefWriterParallelism(), completer, env.isCompressXref());
+            }
 
             String dir = this.directory;
             File sourceRoot;
@@ -610,11 +633,17 @@ public class IndexDatabase {
 
             String startUid = Util.path2uid(dir, "");
             reader = DirectoryReader.open(indexDirectory); // open existing index
+            MergePolicy deferredMergePolicy = null;
+            if (reader.numDocs() == 0 && indexWriterConfigFactory.getProfile().isBulkLoad()) {
+                LOGGER.log(Level.INFO, "Deferring segment merges of the initial index of ''{0}''", dir);
+                deferredMergePolicy = writer.getConfig().getMergePolicy();
+                writer.getConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            }
             setupDeletedUids();
             countsAggregator = new NumLinesLOCAggregator();
             settings = readAnalysisSettings();
             if (settings == null) {
-                settings = new IndexAnalysisSettings3();
+                settings = new IndexAnalysisSettings4();
             }
             Terms terms = null;
             if (reader.numDocs() > 0) {
@@ -651,19 +680,12 @@ public class IndexDatabase {
                     }
                 }
 
-                // The actual indexing happens in indexParallel(). Here we merely collect the files
-                // that need to be indexed and the files that should be removed.
+                // The files are collected and indexed in parallel in indexParallel(). The files that should
+                // be removed are processed by the collection stage right away.
                 IndexDownArgs args = indexDownArgsFactory.getIndexDownArgs();
-                boolean usedHistory = getIndexDownArgs(dir, sourceRoot, args);
-
-                // Traverse the trailing terms. This needs to be done before indexParallel() because
-                // in some cases it can add items to the args parameter.
-                processTrailingTerms(startUid, usedHistory, args);
-
-                args.curCount = 0;
                 Statistics elapsed = new Statistics();
                 LOGGER.log(Level.INFO, "Starting indexing of directory ''{0}''", dir);
-                indexParallel(dir, args);
+                indexParallel(dir, sourceRoot, startUid, args);
                 elapsed.report(LOGGER, String.format("Done indexing of directory '%s'", dir),
                         "indexer.db.directory.index");
 
@@ -688,6 +710,12 @@ public class IndexDatabase {
                 countsAccessor.store(writer, reader, countsAggregator,
                         isWithDirectoryCounts && isCountingDeltas);
 
+                if (deferredMergePolicy != null) {
+                    // The merges will run in the background, the writer waits for them when closing.
+                    writer.getConfig().setMergePolicy(deferredMergePolicy);
+                    writer.maybeMerge();
+                }
+
                 markProjectIndexed(project);
             } finally {
                 reader.close();
@@ -704,6 +732,10 @@ public class IndexDatabase {
             LOGGER.log(Level.SEVERE, "Failed with unexpected RuntimeException", ex);
             throw ex;
         } finally {
+            if (xrefWriter != null) {
+                xrefWriter.close();
+                xrefWriter = null;
+            }
             completer = null;
             try {
                 if (writer != null) {
@@ -807,8 +839,7 @@ public class IndexDatabase {
                 if (!matchOK) {
                     removeFile(false);
 
-                    args.curCount++;
-                    args.works.add(new IndexFileWork(termFile, termPath));
+                    args.add(new IndexFileWork(termFile, termPath));
                 }
             } else {
                 // Remove data for the trailing terms that getIndexDownArgs()
@@ -992,11 +1023,7 @@ public class IndexDatabase {
             Statistics elapsed = new Statistics();
             String projectDetail = this.project != null ? " for project " + project.getName() : "";
             LOGGER.log(Level.INFO, "Reducing number of segments in the index{0}", projectDetail);
-            Analyzer analyzer = new StandardAnalyzer();
-            IndexWriterConfig conf = new IndexWriterConfig(analyzer);
-            conf.setOpenMode(OpenMode.CREATE_OR_APPEND);
-
-            wrt = new IndexWriter(indexDirectory, conf);
+            wrt = new IndexWriter(indexDirectory, indexWriterConfigFactory.get());
             wrt.forceMerge(1);
             elapsed.report(LOGGER, String.format("Done reducing number of segments in index%s", projectDetail),
                     "indexer.db.reduceSegments");
@@ -1103,10 +1130,14 @@ public class IndexDatabase {
         removeHistoryCacheFile(path, removeHistory);
 
         /*
-         * Even when the history should not be removed (incremental reindex), annotation should,
-         * because for given file it is always regenerated from scratch.
+         * When the history should not be removed (incremental reindex), the file is going to be added again,
+         * which overwrites the annotation cache entry. Until then the entry is kept as it can be used
+         * to compute the new annotation incrementally (see GitBlameCache). It cannot be served as current
+         * as its revision no longer matches the latest revision of the file.
          */
-        removeAnnotationFile(path);
+        if (removeHistory) {
+            removeAnnotationFile(path);
+        }
 
         setDirty();
 
@@ -1176,24 +1207,46 @@ public class IndexDatabase {
         fa.setScopesEnabled(env.isScopesEnabled());
         fa.setFoldingEnabled(env.isFoldingEnabled());
 
+        // Read the file just once for all the analysis passes. The source has to stay open
+        // until the document is added as the fields read it lazily.
+        try (BufferedStreamSource src = new BufferedStreamSource(file)) {
+            addFile(file, path, fa, src);
+        }
+    }
+
+    private void addFile(File file, String path, AbstractAnalyzer fa, StreamSource src)
+            throws IOException, InterruptedException {
+
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
         Document doc = new Document();
         CountingWriter xrefOut = null;
         try {
             String xrefAbs = null;
             File transientXref = null;
+            CharArrayWriter xrefBuffer = null;
             if (env.isGenerateHtml()) {
                 xrefAbs = getXrefPath(path);
                 transientXref = new File(TandemPath.join(xrefAbs, PendingFileCompleter.PENDING_EXTENSION));
-                xrefOut = newXrefWriter(path, transientXref, env.isCompressXref());
+                if (xrefWriter != null) {
+                    // Render the xref into memory, the compression and writing is done in the background.
+                    xrefBuffer = new CharArrayWriter();
+                    xrefOut = new CountingWriter(xrefBuffer);
+                } else {
+                    xrefOut = new CountingWriter(openXrefWriter(transientXref, env.isCompressXref()));
+                }
             }
 
-            analyzerGuru.populateDocument(doc, file, path, fa, xrefOut);
+            analyzerGuru.populateDocument(doc, file, path, fa, xrefOut, src);
 
             // Avoid producing empty xref files.
             if (xrefOut != null && xrefOut.getCount() > 0) {
-                PendingFileRenaming ren = new PendingFileRenaming(xrefAbs,
-                        transientXref.getAbsolutePath());
-                completer.add(ren);
+                if (xrefBuffer != null) {
+                    xrefWriter.submit(xrefBuffer, transientXref, xrefAbs);
+                } else {
+                    PendingFileRenaming ren = new PendingFileRenaming(xrefAbs,
+                            transientXref.getAbsolutePath());
+                    completer.add(ren);
+                }
             } else if (xrefOut != null) {
                 LOGGER.log(Level.FINER, "xref for {0} would be empty, will remove", path);
                 completer.add(new PendingFileDeletion(transientXref.toString()));
@@ -1731,8 +1784,9 @@ public class IndexDatabase {
      * @param args {@link IndexDownArgs} instance to which an entry will be added if deemed acceptable
      * @param file file object
      * @param path path of the file relative to given source root (not necessarily global source root)
+     * @throws IOException on error
      */
-    private void addWorkHistoryBased(IndexDownArgs args, File file, String path) {
+    private void addWorkHistoryBased(IndexDownArgs args, File file, String path) throws IOException {
         AcceptSymlinkRet ret = new AcceptSymlinkRet();
         if (accept(file, ret)) {
             // accept() returns true for directories because it was made to work with indexDown().
@@ -1741,8 +1795,7 @@ public class IndexDatabase {
                 return;
             }
 
-            args.curCount++;
-            args.works.add(new IndexFileWork(file, path));
+            args.add(new IndexFileWork(file, path));
         } else {
             handleSymlink(file.getParent(), ret);
         }
@@ -1825,94 +1878,62 @@ public class IndexDatabase {
             }
         }
 
-        args.curCount++;
-        args.works.add(new IndexFileWork(file, path));
+        args.add(new IndexFileWork(file, path));
     }
 
     /**
-     * Executes the second, parallel stage of indexing.
+     * Executes the first, serial stage of indexing and feeds its output to the second, parallel stage.
+     * The files to index are handed over to a bounded {@link IndexWorkPipeline} as soon as they are
+     * discovered so that the collection stage blocks if the indexing workers cannot keep up.
      * @param dir the parent directory (when appended to SOURCE_ROOT)
-     * @param args contains a list of files to index, found during the earlier stage
+     * @param sourceRoot source root File object
+     * @param startUid uid corresponding to the directory
+     * @param args {@link IndexDownArgs} instance to use for the collection stage
+     * @throws IOException on error in the collection stage
      * @throws IndexerException in case the indexing failed or was interrupted
      */
-    private void indexParallel(String dir, IndexDownArgs args) throws IndexerException {
-
-        int worksCount = args.works.size();
-        if (worksCount < 1) {
-            return;
-        }
+    private void indexParallel(String dir, File sourceRoot, String startUid, IndexDownArgs args)
+            throws IOException, IndexerException {
 
-        AtomicInteger successCounter = new AtomicInteger();
-        AtomicInteger currentCounter = new AtomicInteger();
         AtomicInteger alreadyClosedCounter = new AtomicInteger();
         IndexerParallelizer parallelizer = RuntimeEnvironment.getInstance().getIndexerParallelizer();
         ObjectPool<Ctags> ctagsPool = parallelizer.getCtagsPool();
 
-        Map<Boolean, List<IndexFileWork>> bySuccess = new HashMap<>();
-        try (Progress progress = new Progress(LOGGER, String.format("indexing '%s'", dir), worksCount)) {
-            Set<Callable<IndexFileWork>> callables = args.works.stream().
-                    <Callable<IndexFileWork>>map(x -> () -> {
-                        int tries = 0;
-                        Ctags pctags = null;
-                        while (true) {
-                            try {
-                                if (alreadyClosedCounter.get() > 0) {
-                                    x.ret = false;
-                                } else {
-                                    pctags = ctagsPool.get();
-                                    addFile(x.file, x.path, pctags);
-                                    successCounter.incrementAndGet();
-                                    x.ret = true;
-                                }
-                            } catch (AlreadyClosedException e) {
-                                alreadyClosedCounter.incrementAndGet();
-                                String errmsg = String.format("ERROR addFile(): '%s'", x.file);
-                                LOGGER.log(Level.SEVERE, errmsg, e);
-                                x.exception = e;
-                                x.ret = false;
-                            } catch (InterruptedException e) {
-                                // Allow one retry if interrupted
-                                if (++tries <= 1) {
-                                    continue;
-                                }
-                                LOGGER.log(Level.WARNING, "No retry: ''{0}''", x.file);
-                                x.exception = e;
-                                x.ret = false;
-                            } catch (RuntimeException | IOException e) {
-                                String errmsg = String.format("ERROR addFile(): '%s'", x.file);
-                                LOGGER.log(Level.WARNING, errmsg, e);
-                                x.exception = e;
-                                x.ret = false;
-                            } finally {
-                                if (pctags != null) {
-                                    pctags.reset();
-                                    ctagsPool.release(pctags);
-                                }
-                            }
-
-                            progress.increment();
-                            return x;
-                        }
-                    }).
-                    collect(Collectors.toSet());
-            List<Future<IndexFileWork>> futures = parallelizer.getIndexWorkExecutor().invokeAll(callables);
-            for (var future : futures) {
-                IndexFileWork work = future.get();
-                bySuccess.computeIfAbsent(work.ret, key -> new ArrayList<>()).add(work);
-            }
-        } catch (InterruptedException | ExecutionException e) {
-            int successCount = successCounter.intValue();
-            double successPct = 100.0 * successCount / worksCount;
-            LOGGER.log(Level.SEVERE, String.format("%d successes (%.1f%%) after aborting parallel-indexing",
-                    successCount, successPct));
-            throw new IndexerException(e);
-        }
-
-        args.curCount = currentCounter.intValue();
-
-        int failureCount = worksCount - Optional.ofNullable(bySuccess.get(Boolean.TRUE))
-                .map(List::size)
-                .orElse(0);
+        int worksCount;
+        int successCount;
+        try (FairShareExecutor.Lane lane = parallelizer.getIndexWorkExecutor().newLane(
+                     project != null ? project.getName() : "/", project != null ? project.getIndexingWeight() : 1);
+             Progress progress = new Progress(LOGGER, String.format("indexing '%s'", dir));
+             IndexWorkPipeline pipeline = new IndexWorkPipeline(dir, lane,
+                     parallelizer.getIndexingParallelism(),
+                     work -> indexFileWork(work, ctagsPool, alreadyClosedCounter, progress))) {
+            args.setPipeline(pipeline);
+            try {
+                boolean usedHistory = getIndexDownArgs(dir, sourceRoot, args);
+
+                // Traverse the trailing terms. This needs to be done as part of the collection because
+                // in some cases it can add items to the args parameter.
+                processTrailingTerms(startUid, usedHistory, args);
+            } finally {
+                args.setPipeline(null);
+            }
+
+            try {
+                pipeline.finish();
+            } catch (InterruptedException e) {
+                pipeline.abort();
+                successCount = pipeline.getSuccessCount();
+                double successPct = 100.0 * successCount / Math.max(1, pipeline.getSubmittedCount());
+                LOGGER.log(Level.SEVERE, String.format("%d successes (%.1f%%) after aborting parallel-indexing",
+                        successCount, successPct));
+                throw new IndexerException(e);
+            }
+
+            worksCount = pipeline.getSubmittedCount();
+            successCount = pipeline.getSuccessCount();
+        }
+
+        int failureCount = worksCount - successCount;
         if (failureCount > 0) {
             double pctFailed = 100.0 * failureCount / worksCount;
             String exmsg = String.format("%d failures (%.1f%%) while parallel-indexing", failureCount, pctFailed);
@@ -1929,6 +1950,58 @@ public class IndexDatabase {
         }
     }
 
+    /**
+     * Index single file as part of the second, parallel stage of indexing.
+     * The result is recorded in the {@code work} parameter.
+     * @param work work to process
+     * @param ctagsPool pool of {@link Ctags} instances
+     * @param alreadyClosedCounter counter of {@link AlreadyClosedException} occurrences
+     * @param progress {@link Progress} instance
+     */
+    private void indexFileWork(IndexFileWork work, ObjectPool<Ctags> ctagsPool,
+                               AtomicInteger alreadyClosedCounter, Progress progress) {
+        int tries = 0;
+        while (true) {
+            Ctags pctags = null;
+            try {
+                if (alreadyClosedCounter.get() > 0) {
+                    work.ret = false;
+                } else {
+                    pctags = ctagsPool.get();
+                    addFile(work.file, work.path, pctags);
+                    work.ret = true;
+                }
+            } catch (AlreadyClosedException e) {
+                alreadyClosedCounter.incrementAndGet();
+                String errmsg = String.format("ERROR addFile(): '%s'", work.file);
+                LOGGER.log(Level.SEVERE, errmsg, e);
+                work.exception = e;
+                work.ret = false;
+            } catch (InterruptedException e) {
+                // Allow one retry if interrupted
+                if (++tries <= 1) {
+                    continue;
+                }
+                LOGGER.log(Level.WARNING, "No retry: ''{0}''", work.file);
+                work.exception = e;
+                work.ret = false;
+            } catch (RuntimeException | IOException e) {
+                String errmsg = String.format("ERROR addFile(): '%s'", work.file);
+                LOGGER.log(Level.WARNING, errmsg, e);
+                work.exception = e;
+                work.ret = false;
+            } finally {
+                if (pctags != null) {
+                    pctags.reset();
+                    ctagsPool.release(pctags);
+                }
+            }
+
+            progress.increment();
+            return;
+        }
+    }
+
     /**
      * Register an object to receive events when modifications is done to the
      * index database.
@@ -2177,13 +2250,12 @@ public class IndexDatabase {
     }
 
     /**
-     * Get a writer to which the xref can be written, or null if no xref
-     * should be produced for files of this type.
+     * Get a writer to which the xref can be written.
      */
-    private CountingWriter newXrefWriter(String path, File transientXref, boolean compressed) throws IOException {
-        return new CountingWriter(new BufferedWriter(new OutputStreamWriter(compressed ?
+    static Writer openXrefWriter(File transientXref, boolean compressed) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(compressed ?
                 new GZIPOutputStream(new FileOutputStream(transientXref)) :
-                new FileOutputStream(transientXref))));
+                new FileOutputStream(transientXref)));
     }
 
     final LockFactory pickLockFactory(RuntimeEnvironment env) {
@@ -2208,6 +2280,20 @@ public class IndexDatabase {
             writer.prepareCommit();
             hasPendingCommit = true;
 
+            // The Lucene commit does not depend on the xref files, so they can be written while it is prepared.
+            // However, they have to be complete before the completer makes them visible.
+            if (xrefWriter != null) {
+                Statistics xrefStat = new Statistics();
+                try {
+                    xrefWriter.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for the xref files to be written");
+                }
+                xrefStat.report(LOGGER, Level.FINE, String.format("xref files written for %s (%d failed)",
+                        this, xrefWriter.getFailureCount()));
+            }
+
             Statistics completerStat = new Statistics();
             final String logSuffix = this.project != null ? " for project " + this.project : "";
             int n = completer.complete(logSuffix);
@@ -2248,6 +2334,18 @@ public class IndexDatabase {
             return false;
         }
 
+        /*
+         * Documents written before the definitions format was recorded have
+         * the definitions stored using Java serialization so re-analyze them.
+         * Indexes without any stored analyzerGuruVersion are left alone, same
+         * as below.
+         */
+        if (settings.getAnalyzerGuruVersion() != null &&
+                !Objects.equals(settings.getDefinitionsFormatVersion(), Definitions.getFormatVersion())) {
+            LOGGER.log(Level.FINE, "Definitions format mismatch: ''{0}''", path);
+            return false;
+        }
+
         int n = 0;
         postsIter = uidIter.postings(postsIter);
         StoredFields storedFields = reader.storedFields();
@@ -2341,11 +2439,12 @@ public class IndexDatabase {
     }
 
     private void writeAnalysisSettings() throws IOException {
-        settings = new IndexAnalysisSettings3();
+        settings = new IndexAnalysisSettings4();
         settings.setProjectName(project != null ? project.getName() : null);
         settings.setTabSize(project != null && project.hasTabSizeSetting() ?
             project.getTabSize() : 0);
         settings.setAnalyzerGuruVersion(AnalyzerGuru.getVersionNo());
+        settings.setDefinitionsFormatVersion(Definitions.getFormatVersion());
         settings.setAnalyzersVersions(AnalyzerGuru.getAnalyzersVersionNos());
         settings.setIndexedSymlinks(indexedSymlinks);
 
@@ -2353,7 +2452,7 @@ public class IndexDatabase {
         dao.write(writer, settings);
     }
 
-    private IndexAnalysisSettings3 readAnalysisSettings() throws IOException {
+    private IndexAnalysisSettings4 readAnalysisSettings() throws IOException {
         IndexAnalysisSettingsAccessor dao = new IndexAnalysisSettingsAccessor();
         return dao.read(reader);
     }
@@ -18,17 +18,38 @@
  */
 
 /*
- * Copyright (c) 2018, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.index;
 
 import java.io.File;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Collects the output of the first, serial stage of indexing.
+ * <p>
+ * If a {@link IndexWorkPipeline} is attached, the works are handed over to it as they are discovered
+ * (and are not retained); otherwise they are accumulated in {@link #works}.
+ */
 class IndexDownArgs {
     int curCount;
     final List<IndexFileWork> works = new ArrayList<>();
+    private IndexWorkPipeline pipeline;
+
+    void setPipeline(IndexWorkPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    void add(IndexFileWork work) throws InterruptedIOException {
+        curCount++;
+        if (pipeline != null) {
+            pipeline.submit(work);
+        } else {
+            works.add(work);
+        }
+    }
 }
 
 class IndexFileWork {
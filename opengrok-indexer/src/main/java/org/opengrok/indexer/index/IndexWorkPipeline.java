@@ -0,0 +1,270 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.StringUtils;
+
+/**
+ * Bounded producer/consumer pipeline between the serial file collection stage of {@link IndexDatabase}
+ * and the parallel indexing stage.
+ * <p>
+ * The traversal thread hands each {@link IndexFileWork} to {@link #submit(IndexFileWork)} as soon as it is
+ * discovered. At most {@code capacity} works are pending (queued or running) on the executor at any time;
+ * once the limit is reached the traversal blocks until a worker completes. This keeps memory usage flat
+ * regardless of the size of the source tree.
+ * <p>
+ * Backpressure is reported via {@link Metrics#getRegistry()} (if available): the number of pending works
+ * (sampled on every submission), the time the producer spent stalled and the number of files that passed
+ * each stage of the pipeline.
+ */
+class IndexWorkPipeline implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexWorkPipeline.class);
+
+    /**
+     * Number of pending works per indexing thread. Gives the workers enough slack so that they do not
+     * starve while the traversal is busy with e.g. directory listing.
+     */
+    static final int CAPACITY_PER_THREAD = 32;
+
+    private final String dir;
+    private final Executor executor;
+    private final Consumer<IndexFileWork> worker;
+    private final int capacity;
+    private final Semaphore permits;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger maxPending = new AtomicInteger();
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong stallNanos = new AtomicLong();
+
+    private volatile boolean aborted;
+    private boolean finished;
+
+    private final DistributionSummary queueDepth;
+    private final Timer stallTimer;
+    private final Counter collectedCounter;
+    private final Counter indexedCounter;
+    private final Counter failedCounter;
+
+    /**
+     * @param dir directory being indexed (for logging)
+     * @param executor executor to run the works on
+     * @param parallelism number of threads of the executor
+     * @param worker consumer that performs the actual indexing of a work. It is expected to set
+     * {@link IndexFileWork#ret} and must not throw.
+     */
+    IndexWorkPipeline(String dir, Executor executor, int parallelism, Consumer<IndexFileWork> worker) {
+        this.dir = dir;
+        this.executor = executor;
+        this.worker = worker;
+        this.capacity = Math.max(1, parallelism) * CAPACITY_PER_THREAD;
+        this.permits = new Semaphore(capacity);
+
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            queueDepth = DistributionSummary.builder("indexer.pipeline.queue.depth").
+                    description("number of pending index works sampled on submission").
+                    register(registry);
+            stallTimer = Timer.builder("indexer.pipeline.stall").
+                    description("time the file collection spent waiting for the indexing workers").
+                    register(registry);
+            collectedCounter = Counter.builder("indexer.pipeline.files").
+                    description("files passing through the indexing pipeline").
+                    tag("stage", "collected").
+                    register(registry);
+            indexedCounter = Counter.builder("indexer.pipeline.files").
+                    description("files passing through the indexing pipeline").
+                    tag("stage", "indexed").
+                    register(registry);
+            failedCounter = Counter.builder("indexer.pipeline.files").
+                    description("files passing through the indexing pipeline").
+                    tag("stage", "failed").
+                    register(registry);
+        } else {
+            queueDepth = null;
+            stallTimer = null;
+            collectedCounter = null;
+            indexedCounter = null;
+            failedCounter = null;
+        }
+    }
+
+    /**
+     * Schedule the work for indexing. Blocks if there are already {@code capacity} pending works.
+     * @param work work to schedule
+     * @throws InterruptedIOException if interrupted while waiting for a free slot
+     */
+    void submit(IndexFileWork work) throws InterruptedIOException {
+        if (!permits.tryAcquire()) {
+            long start = System.nanoTime();
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException ex = new InterruptedIOException(
+                        String.format("interrupted while scheduling '%s'", work.path));
+                ex.initCause(e);
+                throw ex;
+            }
+            long stalled = System.nanoTime() - start;
+            stallNanos.addAndGet(stalled);
+            if (stallTimer != null) {
+                stallTimer.record(stalled, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        int depth = pending.incrementAndGet();
+        maxPending.accumulateAndGet(depth, Math::max);
+        submitted.incrementAndGet();
+        if (queueDepth != null) {
+            queueDepth.record(depth);
+        }
+        if (collectedCounter != null) {
+            collectedCounter.increment();
+        }
+
+        try {
+            executor.execute(() -> run(work));
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void run(IndexFileWork work) {
+        try {
+            if (aborted) {
+                work.ret = false;
+            } else {
+                worker.accept(work);
+            }
+        } finally {
+            if (work.ret) {
+                succeeded.incrementAndGet();
+                if (indexedCounter != null) {
+                    indexedCounter.increment();
+                }
+            } else {
+                failed.incrementAndGet();
+                if (failedCounter != null) {
+                    failedCounter.increment();
+                }
+            }
+            pending.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    /**
+     * Wait for all submitted works to complete. No more works can be submitted afterwards.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void finish() throws InterruptedException {
+        if (finished) {
+            return;
+        }
+        permits.acquire(capacity);
+        finished = true;
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, String.format("indexing pipeline for '%s': %d files submitted, " +
+                            "%d succeeded, %d failed, max queue depth %d/%d, collection stalled for %s",
+                    dir, submitted.get(), succeeded.get(), failed.get(), maxPending.get(), capacity,
+                    StringUtils.getReadableTime(TimeUnit.NANOSECONDS.toMillis(stallNanos.get()))));
+        }
+    }
+
+    /**
+     * Make the works that have not started yet complete without indexing.
+     */
+    void abort() {
+        aborted = true;
+    }
+
+    /**
+     * @return number of works submitted so far
+     */
+    int getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * @return number of works that completed successfully
+     */
+    int getSuccessCount() {
+        return succeeded.get();
+    }
+
+    /**
+     * @return number of works that completed unsuccessfully
+     */
+    int getFailureCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return the maximum number of pending works
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Abort the pending works (if {@link #finish()} was not called) and wait for the running ones to complete
+     * so that the caller can safely release the resources used by the workers.
+     */
+    @Override
+    public void close() {
+        if (finished) {
+            return;
+        }
+        abort();
+        try {
+            finish();
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.WARNING, "interrupted while waiting for the indexing pipeline of ''{0}''", dir);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -18,27 +18,87 @@
  */
 
 /*
- * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2023, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.index;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.Metrics;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.configuration.IndexWriterProfile;
+import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 
+/**
+ * Creates {@link IndexWriterConfig} instances according to the {@link IndexWriterProfile} of the project
+ * (or the global one if the project does not override it).
+ */
 public class IndexWriterConfigFactory {
 
+    @Nullable
+    private final Project project;
+
     IndexWriterConfigFactory() {
+        this(null);
+    }
+
+    IndexWriterConfigFactory(@Nullable Project project) {
+        this.project = project;
+    }
+
+    /**
+     * @return the profile that applies to the index writers created by this factory
+     */
+    IndexWriterProfile getProfile() {
+        if (project != null && project.getIndexWriterProfile() != null) {
+            return project.getIndexWriterProfile();
+        }
+        return RuntimeEnvironment.getInstance().getIndexWriterProfile();
     }
 
     public IndexWriterConfig get() {
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        IndexWriterProfile profile = getProfile();
 
         Analyzer analyzer = AnalyzerGuru.getAnalyzer();
         IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
         iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
         iwc.setRAMBufferSizeMB(env.getRamBufferSize());
+        iwc.setRAMPerThreadHardLimitMB(profile.getRamPerThreadHardLimitMB());
+        iwc.setUseCompoundFile(profile.isUseCompoundFile());
+        iwc.setMergePolicy(createMergePolicy(profile));
+        iwc.setMergeScheduler(createMergeScheduler(profile));
+        if (Metrics.getRegistry() != null) {
+            iwc.setInfoStream(new FlushTimingInfoStream(Metrics.getRegistry()));
+        }
         return iwc;
     }
+
+    static TieredMergePolicy createMergePolicy(IndexWriterProfile profile) {
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setMaxMergedSegmentMB(profile.getMaxMergedSegmentMB());
+        mergePolicy.setSegmentsPerTier(profile.getSegmentsPerTier());
+        mergePolicy.setMaxMergeAtOnce(profile.getMaxMergeAtOnce());
+        mergePolicy.setFloorSegmentMB(profile.getFloorSegmentMB());
+        mergePolicy.setDeletesPctAllowed(profile.getDeletesPctAllowed());
+        if (!profile.isUseCompoundFile()) {
+            mergePolicy.setNoCFSRatio(0.0);
+        }
+        return mergePolicy;
+    }
+
+    static ConcurrentMergeScheduler createMergeScheduler(IndexWriterProfile profile) {
+        ConcurrentMergeScheduler mergeScheduler = new MeteredMergeScheduler(Metrics.getRegistry());
+        if (profile.getMergeThreads() > 0 || profile.getMaxMergeCount() > 0) {
+            int threads = profile.getMergeThreads() > 0 ? profile.getMergeThreads() :
+                    Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+            int maxMergeCount = profile.getMaxMergeCount() > 0 ? profile.getMaxMergeCount() : threads + 5;
+            mergeScheduler.setMaxMergesAndThreads(Math.max(maxMergeCount, threads), threads);
+        }
+        return mergeScheduler;
+    }
 }
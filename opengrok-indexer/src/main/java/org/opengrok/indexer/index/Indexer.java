@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
@@ -406,10 +406,8 @@ public final class Indexer {
                     }
                     historyCacheResults = Collections.emptyMap();
                 }
-                getInstance().doIndexerExecution(projects, progress, historyCacheResults);
-            }
-
-            if (reduceSegmentCount) {
+                getInstance().doIndexerExecution(projects, progress, historyCacheResults, reduceSegmentCount);
+            } else if (reduceSegmentCount) {
                 IndexDatabase.reduceSegmentCountAll();
             }
 
@@ -748,6 +746,14 @@ public final class Indexer {
                     "Assumes -H/--history.").execute(threadCount ->
                     cfg.setHistoryFileParallelism((Integer) threadCount));
 
+            parser.on("--historyProcesses", "=number", Integer.class,
+                    "The maximum number of SCM processes running at the same time when retrieving",
+                    "history of individual files in batches (for repositories without history",
+                    "for directories). By default the number will be set to the number of",
+                    "available CPUs.",
+                    "Assumes -H/--history.").execute(processCount ->
+                    cfg.setHistoryProcessParallelism((Integer) processCount));
+
             parser.on("-I", "--include", "=pattern",
                     "Only files matching this pattern will be examined. Pattern supports",
                     "wildcards (example: -I '*.java' -I '*.c'). Option may be repeated.").execute(
@@ -1015,6 +1021,12 @@ public final class Indexer {
             parser.on("--webappCtags", "=on|off", ON_OFF, Boolean.class,
                     "Web application should run ctags when necessary. Default is off.").
                     execute(v -> cfg.setWebappCtags((Boolean) v));
+
+            parser.on("--xrefThreads", "=number", Integer.class,
+                    "The number of threads compressing and writing xref files in the background",
+                    "so that the indexing threads can proceed with the next file.",
+                    "By default (0) the xref files are written by the indexing threads.").execute(threadCount ->
+                    cfg.setXrefWriterParallelism((Integer) threadCount));
         });
 
         // Need to read the configuration file first, so that options may be overwritten later.
@@ -1221,6 +1233,25 @@ public final class Indexer {
     public void doIndexerExecution(@Nullable Set<Project> projects, @Nullable IndexChangedListener progress,
                                    Map<Repository, Optional<Exception>> historyCacheResults)
             throws IOException, IndexerException {
+        doIndexerExecution(projects, progress, historyCacheResults, false);
+    }
+
+    /**
+     * This is the second phase of the indexer which generates Lucene index
+     * by passing source code files through {@code ctags}, generating xrefs
+     * and storing data from the source files in the index (along with history, if any).
+     *
+     * @param projects if not {@code null}, index just the projects specified
+     * @param progress if not {@code null}, an object to receive notifications as indexer progress is made
+     * @param historyCacheResults per repository results of history cache update
+     * @param reduceSegmentCount whether to reduce segment count of each index database once it is updated
+     * @throws IOException if I/O exception occurred
+     * @throws IndexerException if the indexing has failed for any reason
+     */
+    public void doIndexerExecution(@Nullable Set<Project> projects, @Nullable IndexChangedListener progress,
+                                   Map<Repository, Optional<Exception>> historyCacheResults,
+                                   boolean reduceSegmentCount)
+            throws IOException, IndexerException {
 
         Statistics elapsed = new Statistics();
         LOGGER.info("Starting indexing");
@@ -1229,7 +1260,7 @@ public final class Indexer {
         try (IndexerParallelizer parallelizer = env.getIndexerParallelizer()) {
             final CountDownLatch latch;
             if (projects == null || projects.isEmpty()) {
-                IndexDatabase.updateAll(progress, historyCacheResults);
+                IndexDatabase.updateAll(progress, historyCacheResults, reduceSegmentCount);
             } else {
                 // Setup with projects enabled is assumed here.
                 List<IndexDatabase> dbs = new ArrayList<>();
@@ -1244,6 +1275,9 @@ public final class Indexer {
                     parallelizer.getFixedExecutor().submit(() -> {
                         try {
                             db.update();
+                            if (reduceSegmentCount) {
+                                db.reduceSegmentCount();
+                            }
                         } catch (Throwable e) {
                             indexerException.addSuppressed(e);
                             LOGGER.log(Level.SEVERE, "An error occurred while updating index", e);
@@ -19,15 +19,17 @@
 
 /*
  * Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
- * Copyright (c) 2020, 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2020, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.index;
 
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import org.opengrok.indexer.analysis.Ctags;
+import org.opengrok.indexer.analysis.CtagsServer;
 import org.opengrok.indexer.analysis.CtagsValidator;
 import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
@@ -43,9 +45,11 @@ import org.opengrok.indexer.util.ObjectPool;
  * <p>A fixed-thread pool is used for parallelism across repositories, and a
  * {@link #lzIndexWorkExecutor} is used for parallelism within any
  * {@link IndexDatabase}. Threads in the former pool are customers of the
- * latter, and the bulk of work is done in the latter pool.
+ * latter, and the bulk of work is done in the latter pool, which divides its
+ * threads fairly among the index databases being updated.
  * The {@link #lzIndexWorkExecutor} makes use of a corresponding fixed pool
- * of {@link Ctags} instances.
+ * of {@link Ctags} instances. If {@link RuntimeEnvironment#getCtagsServerProcesses()} is positive,
+ * the instances submit the files to shared {@link CtagsServer} rather than running own ctags process.
  * <p>Additionally there are pools for executing for history, for renames in
  * history, and for watching the {@link Ctags} instances for timing purposes.
  */
@@ -54,13 +58,16 @@ public class IndexerParallelizer implements AutoCloseable {
     private final RuntimeEnvironment env;
     private final int indexingParallelism;
 
-    private LazilyInstantiate<ExecutorService> lzIndexWorkExecutor;
+    private LazilyInstantiate<FairShareExecutor> lzIndexWorkExecutor;
     private LazilyInstantiate<ObjectPool<Ctags>> lzCtagsPool;
+    private LazilyInstantiate<CtagsServer> lzCtagsServer;
     private LazilyInstantiate<ExecutorService> lzFixedExecutor;
     private LazilyInstantiate<ExecutorService> lzHistoryExecutor;
     private LazilyInstantiate<ExecutorService> lzHistoryFileExecutor;
+    private LazilyInstantiate<ExecutorService> lzHistoryProcessExecutor;
     private LazilyInstantiate<ExecutorService> lzCtagsWatcherExecutor;
     private LazilyInstantiate<ExecutorService> lzXrefWatcherExecutor;
+    private LazilyInstantiate<ExecutorService> lzXrefWriterExecutor;
 
     /**
      * Initializes a new instance using settings from the specified environment
@@ -80,11 +87,14 @@ public class IndexerParallelizer implements AutoCloseable {
 
         createIndexWorkExecutor();
         createLazyCtagsPool();
+        createLazyCtagsServer();
         createLazyFixedExecutor();
         createLazyHistoryExecutor();
         createLazyHistoryFileExecutor();
+        createLazyHistoryProcessExecutor();
         createLazyCtagsWatcherExecutor();
         createLazyXrefWatcherExecutor();
+        createLazyXrefWriterExecutor();
     }
 
     /**
@@ -95,9 +105,17 @@ public class IndexerParallelizer implements AutoCloseable {
     }
 
     /**
-     * @return the executor used for individual file processing in the 2nd stage of indexing
+     * @return number of threads of the {@link #getIndexWorkExecutor()} executor
      */
-    public ExecutorService getIndexWorkExecutor() {
+    public int getIndexingParallelism() {
+        return indexingParallelism;
+    }
+
+    /**
+     * @return the executor used for individual file processing in the 2nd stage of indexing.
+     * Each {@link IndexDatabase} submits its work via its own {@link FairShareExecutor.Lane}.
+     */
+    public FairShareExecutor getIndexWorkExecutor() {
         return lzIndexWorkExecutor.get();
     }
 
@@ -122,6 +140,15 @@ public class IndexerParallelizer implements AutoCloseable {
         return lzHistoryFileExecutor.get();
     }
 
+    /**
+     * @return the ExecutorService used for running the SCM processes that retrieve history of files in batches.
+     * Its size is the global limit on the number of such processes.
+     * @see RuntimeEnvironment#getHistoryProcessParallelism()
+     */
+    public ExecutorService getHistoryProcessExecutor() {
+        return lzHistoryProcessExecutor.get();
+    }
+
     /**
      * @return the Executor used for ctags parallelism
      */
@@ -136,6 +163,14 @@ public class IndexerParallelizer implements AutoCloseable {
         return lzXrefWatcherExecutor.get();
     }
 
+    /**
+     * @return the Executor used for writing the xref files in the background
+     * @see RuntimeEnvironment#getXrefWriterParallelism()
+     */
+    public ExecutorService getXrefWriterExecutor() {
+        return lzXrefWriterExecutor.get();
+    }
+
     /**
      * Calls {@link #bounce()}, which prepares for -- but does not start -- new
      * pools.
@@ -165,15 +200,18 @@ public class IndexerParallelizer implements AutoCloseable {
         bounceIndexWorkExecutor();
         bounceFixedExecutor();
         bounceCtagsPool();
+        bounceCtagsServer();
         bounceHistoryExecutor();
         bounceHistoryRenamedExecutor();
+        bounceHistoryProcessExecutor();
         bounceCtagsWatcherExecutor();
         bounceXrefWatcherExecutor();
+        bounceXrefWriterExecutor();
     }
 
     private void bounceIndexWorkExecutor() {
         if (lzIndexWorkExecutor.isActive()) {
-            ExecutorService formerIndexWorkExecutor = lzIndexWorkExecutor.get();
+            FairShareExecutor formerIndexWorkExecutor = lzIndexWorkExecutor.get();
             createIndexWorkExecutor();
             formerIndexWorkExecutor.shutdown();
         }
@@ -195,6 +233,14 @@ public class IndexerParallelizer implements AutoCloseable {
         }
     }
 
+    private void bounceCtagsServer() {
+        if (lzCtagsServer.isActive()) {
+            CtagsServer formerCtagsServer = lzCtagsServer.get();
+            createLazyCtagsServer();
+            formerCtagsServer.close();
+        }
+    }
+
     private void bounceHistoryExecutor() {
         if (lzHistoryExecutor.isActive()) {
             ExecutorService formerHistoryExecutor = lzHistoryExecutor.get();
@@ -211,6 +257,14 @@ public class IndexerParallelizer implements AutoCloseable {
         }
     }
 
+    private void bounceHistoryProcessExecutor() {
+        if (lzHistoryProcessExecutor.isActive()) {
+            ExecutorService formerHistoryProcessExecutor = lzHistoryProcessExecutor.get();
+            createLazyHistoryProcessExecutor();
+            formerHistoryProcessExecutor.shutdown();
+        }
+    }
+
     private void bounceCtagsWatcherExecutor() {
         if (lzCtagsWatcherExecutor.isActive()) {
             ExecutorService formerCtagsWatcherExecutor = lzCtagsWatcherExecutor.get();
@@ -227,9 +281,17 @@ public class IndexerParallelizer implements AutoCloseable {
         }
     }
 
+    private void bounceXrefWriterExecutor() {
+        if (lzXrefWriterExecutor.isActive()) {
+            ExecutorService formerXrefWriterExecutor = lzXrefWriterExecutor.get();
+            createLazyXrefWriterExecutor();
+            formerXrefWriterExecutor.shutdown();
+        }
+    }
+
     private void createIndexWorkExecutor() {
         lzIndexWorkExecutor = LazilyInstantiate.using(() ->
-                Executors.newFixedThreadPool(indexingParallelism,
+                new FairShareExecutor(indexingParallelism,
                         new OpenGrokThreadFactory("index-worker")));
     }
 
@@ -239,6 +301,12 @@ public class IndexerParallelizer implements AutoCloseable {
                         new CtagsValidator(), new CtagsObjectFactory()));
     }
 
+    private void createLazyCtagsServer() {
+        lzCtagsServer = LazilyInstantiate.using(() ->
+                new CtagsServer(new Ctags().getArgv(), env.getCtagsServerProcesses(),
+                        Duration.ofSeconds(env.getCtagsTimeout())));
+    }
+
     private void createLazyCtagsWatcherExecutor() {
         lzCtagsWatcherExecutor = LazilyInstantiate.using(() ->
                 new ScheduledThreadPoolExecutor(indexingParallelism,
@@ -251,6 +319,12 @@ public class IndexerParallelizer implements AutoCloseable {
                         new OpenGrokThreadFactory("xref-watcher")));
     }
 
+    private void createLazyXrefWriterExecutor() {
+        lzXrefWriterExecutor = LazilyInstantiate.using(() ->
+                Executors.newFixedThreadPool(Math.max(1, env.getXrefWriterParallelism()),
+                        new OpenGrokThreadFactory("xref-writer")));
+    }
+
     private void createLazyFixedExecutor() {
         lzFixedExecutor = LazilyInstantiate.using(() ->
                 Executors.newFixedThreadPool(indexingParallelism,
@@ -269,10 +343,20 @@ public class IndexerParallelizer implements AutoCloseable {
                         new OpenGrokThreadFactory("history-file")));
     }
 
+    private void createLazyHistoryProcessExecutor() {
+        lzHistoryProcessExecutor = LazilyInstantiate.using(() ->
+                Executors.newFixedThreadPool(env.getHistoryProcessParallelism(),
+                        new OpenGrokThreadFactory("history-process")));
+    }
+
     private class CtagsObjectFactory implements ObjectFactory<Ctags> {
 
         public Ctags createNew() {
-            return new Ctags();
+            Ctags ctags = new Ctags();
+            if (env.getCtagsServerProcesses() > 0) {
+                ctags.setServer(lzCtagsServer.get());
+            }
+            return ctags;
         }
     }
 }
@@ -0,0 +1,83 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.MergePolicy;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * {@link ConcurrentMergeScheduler} that reports the duration and size of the merges
+ * via the supplied meter registry. Forced merges (e.g. the segment count reduction) are reported
+ * separately from the merges selected by the merge policy during indexing.
+ */
+class MeteredMergeScheduler extends ConcurrentMergeScheduler {
+
+    private final Timer naturalMergeTimer;
+    private final Timer forcedMergeTimer;
+    private final DistributionSummary mergeSize;
+
+    MeteredMergeScheduler(@Nullable MeterRegistry registry) {
+        if (registry != null) {
+            naturalMergeTimer = Timer.builder("indexer.merge").
+                    description("duration of Lucene segment merges").
+                    tag("type", "natural").
+                    register(registry);
+            forcedMergeTimer = Timer.builder("indexer.merge").
+                    description("duration of Lucene segment merges").
+                    tag("type", "forced").
+                    register(registry);
+            mergeSize = DistributionSummary.builder("indexer.merge.size").
+                    description("size of the segments being merged").
+                    baseUnit("bytes").
+                    register(registry);
+        } else {
+            naturalMergeTimer = null;
+            forcedMergeTimer = null;
+            mergeSize = null;
+        }
+    }
+
+    @Override
+    protected void doMerge(MergeSource mergeSource, MergePolicy.OneMerge merge) throws IOException {
+        if (naturalMergeTimer == null) {
+            super.doMerge(mergeSource, merge);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            super.doMerge(mergeSource, merge);
+        } finally {
+            boolean forced = merge.getStoreMergeInfo().mergeMaxNumSegments != -1;
+            (forced ? forcedMergeTimer : naturalMergeTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            mergeSize.record(merge.totalBytesSize());
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2010, 2019, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
@@ -60,6 +60,7 @@ public class QueryBuilder {
     public static final String SCOPES = "scopes";
     public static final String NUML = "numl";
     public static final String LOC = "loc";
+    public static final String LINEOFFS = "lineoffs"; // line offsets, see LineOffsets
     public static final String LASTREV = "lastrev"; // last revision
     /**
      * Fields we use in Lucene: internal ones.
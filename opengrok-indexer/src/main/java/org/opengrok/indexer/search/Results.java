@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
@@ -36,7 +36,10 @@ import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -81,11 +84,13 @@ public final class Results {
      * @param hits hits produced by the given searcher's search
      * @param startIdx the index of the first hit to check
      * @param stopIdx the index of the last hit to check
+     * @param docs output: the loaded documents keyed by document ID
      * @return a (directory, list of hitDocument) hashmap
      * @throws IOException when index cannot be read
      */
     private static Map<String, ArrayList<Integer>> createMap(
-        IndexSearcher searcher, ScoreDoc[] hits, int startIdx, long stopIdx) throws IOException {
+        IndexSearcher searcher, ScoreDoc[] hits, int startIdx, long stopIdx,
+        Map<Integer, Document> docs) throws IOException {
 
         LOGGER.log(Level.FINEST, "directory hash contents for search hits ({0},{1}):",
                 new Object[]{startIdx, stopIdx});
@@ -100,6 +105,7 @@ public final class Results {
             if (rpath == null) {
                 continue;
             }
+            docs.put(docId, doc);
 
             if (LOGGER.isLoggable(Level.FINEST)) {
                 LOGGER.log(Level.FINEST, "{0}: {1}", new Object[]{docId, rpath});
@@ -176,10 +182,14 @@ public final class Results {
 
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
 
+        Map<Integer, Document> docs = new HashMap<>();
+        Map<String, ArrayList<Integer>> dirHash = createMap(sh.getSearcher(), sh.getHits(), start, end, docs);
+        Map<Integer, String> contexts = getContexts(sh, env, dirHash, docs, xrefPrefix, morePrefix);
+        Map<String, String> historyContexts = getHistoryContexts(sh, env, dirHash, docs);
+
         boolean evenRow = true;
         out.write("<tbody class=\"search-result\">");
-        for (Map.Entry<String, ArrayList<Integer>> entry :
-                createMap(sh.getSearcher(), sh.getHits(), start, end).entrySet()) {
+        for (Map.Entry<String, ArrayList<Integer>> entry : dirHash.entrySet()) {
             String parent = entry.getKey();
             out.write("<tr class=\"dir\"><td colspan=\"3\"><a href=\"");
             out.write(xrefPrefixE);
@@ -202,14 +212,12 @@ public final class Results {
                 out.write("</a>");
             }
 
-            int tabSize = sh.getTabSize(p);
             PrintPlainFinalArgs fargs = new PrintPlainFinalArgs(out, sh, env,
-                xrefPrefix, tabSize, morePrefix);
+                xrefPrefix, morePrefix);
 
             out.write("</td></tr>");
-            StoredFields storedFields = sh.getSearcher().storedFields();
             for (int docId : entry.getValue()) {
-                Document doc = storedFields.document(docId);
+                Document doc = docs.get(docId);
                 String rpath = doc.get(QueryBuilder.PATH);
                 String rpathE = Util.uriEncodePath(rpath);
                 if (evenRow) {
@@ -244,14 +252,13 @@ public final class Results {
                         String htags = getTags(sh.getSourceRoot(), rpath, false);
                         out.write(summarizer.getSummary(htags).toString());
                     } else if (genre == AbstractAnalyzer.Genre.PLAIN) {
-                        printPlain(fargs, doc, docId, rpath);
+                        printPlain(fargs, doc, rpath, contexts.get(docId));
                     }
                 }
 
-                HistoryContext historyContext = sh.getHistoryContext();
+                String historyContext = historyContexts.get(rpath);
                 if (historyContext != null) {
-                    historyContext.getContext(new File(sh.getSourceRoot(), rpath),
-                            rpath, out, sh.getContextPath());
+                    out.write(historyContext);
                 }
                 out.write("</code></td></tr>\n");
             }
@@ -272,16 +279,71 @@ public final class Results {
         }
     }
 
+    /**
+     * Get the contexts of all plain documents on the page at once.
+     * @return map of document ID to context as produced by
+     * {@link org.opengrok.indexer.search.context.Context#getContexts(RuntimeEnvironment, IndexSearcher, Map,
+     * String, String, boolean, int)}
+     * @throws IOException if the tab size of a project cannot be determined
+     */
+    private static Map<Integer, String> getContexts(SearchHelper sh, RuntimeEnvironment env,
+            Map<String, ArrayList<Integer>> dirHash, Map<Integer, Document> docs,
+            String xrefPrefix, String morePrefix) throws IOException {
+
+        if (sh.getSourceContext() == null) {
+            return Collections.emptyMap();
+        }
+
+        // The tab size is a per-project setting.
+        Map<Integer, Map<Integer, Document>> plainDocsByTabSize = new HashMap<>();
+        for (Map.Entry<String, ArrayList<Integer>> entry : dirHash.entrySet()) {
+            int tabSize = sh.getTabSize(Project.getProject(entry.getKey()));
+            for (int docId : entry.getValue()) {
+                Document doc = docs.get(docId);
+                if (AbstractAnalyzer.Genre.get(doc.get(QueryBuilder.T)) == AbstractAnalyzer.Genre.PLAIN) {
+                    plainDocsByTabSize.computeIfAbsent(tabSize, k -> new LinkedHashMap<>()).put(docId, doc);
+                }
+            }
+        }
+
+        Map<Integer, String> contexts = new HashMap<>();
+        for (Map.Entry<Integer, Map<Integer, Document>> entry : plainDocsByTabSize.entrySet()) {
+            contexts.putAll(sh.getSourceContext().getContexts(env, sh.getSearcher(), entry.getValue(),
+                    xrefPrefix, morePrefix, true, entry.getKey()));
+        }
+        return contexts;
+    }
+
+    /**
+     * Get the history contexts of all documents on the page at once.
+     * @return map of path to context as produced by
+     * {@link HistoryContext#getContexts(RuntimeEnvironment, File, java.util.Collection, String)}
+     */
+    private static Map<String, String> getHistoryContexts(SearchHelper sh, RuntimeEnvironment env,
+            Map<String, ArrayList<Integer>> dirHash, Map<Integer, Document> docs) {
+
+        HistoryContext historyContext = sh.getHistoryContext();
+        if (historyContext == null) {
+            return Collections.emptyMap();
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (ArrayList<Integer> docIds : dirHash.values()) {
+            for (int docId : docIds) {
+                paths.add(docs.get(docId).get(QueryBuilder.PATH));
+            }
+        }
+        return historyContext.getContexts(env, sh.getSourceRoot(), paths, sh.getContextPath());
+    }
+
     private static void printPlain(PrintPlainFinalArgs fargs, Document doc,
-        int docId, String rpath) throws ClassNotFoundException, IOException {
+        String rpath, String context) throws ClassNotFoundException, IOException {
 
         fargs.shelp.getSourceContext().toggleAlt();
 
-        boolean didPresentNew = fargs.shelp.getSourceContext().getContext2(fargs.env,
-            fargs.shelp.getSearcher(), docId, fargs.out, fargs.xrefPrefix,
-            fargs.morePrefix, true, fargs.tabSize);
-
-        if (!didPresentNew) {
+        if (context != null) {
+            fargs.out.write(context);
+        } else {
             /*
              * Fall back to the old view, which re-analyzes text using
              * PlainLinetokenizer. E.g., when source code is updated (thus
@@ -329,17 +391,15 @@ public final class Results {
         final RuntimeEnvironment env;
         final String xrefPrefix;
         final String morePrefix;
-        final int tabSize;
 
         PrintPlainFinalArgs(Writer out, SearchHelper shelp,
-                RuntimeEnvironment env, String xrefPrefix, int tabSize,
+                RuntimeEnvironment env, String xrefPrefix,
                 String morePrefix) {
             this.out = out;
             this.shelp = shelp;
             this.env = env;
             this.xrefPrefix = xrefPrefix;
             this.morePrefix = morePrefix;
-            this.tabSize = tabSize;
         }
     }
 }
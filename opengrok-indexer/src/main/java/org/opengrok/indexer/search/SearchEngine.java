@@ -18,7 +18,7 @@
  */
 
  /*
- * Copyright (c) 2005, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.search;
@@ -34,6 +34,7 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.logging.Level;
@@ -42,18 +43,18 @@ import java.util.zip.GZIPInputStream;
 import org.apache.lucene.analysis.charfilter.HTMLStripCharFilter;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexableField;
-import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.util.Version;
 import org.opengrok.indexer.analysis.AbstractAnalyzer;
 import org.opengrok.indexer.analysis.CompatibleAnalyser;
 import org.opengrok.indexer.analysis.Definitions;
 import org.opengrok.indexer.analysis.Scopes;
+import org.opengrok.indexer.configuration.MultiProjectSearcher;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.configuration.SuperIndexSearcher;
@@ -132,10 +133,11 @@ public class SearchEngine {
     int cachePages = RuntimeEnvironment.getInstance().getCachePages();
     int totalHits = 0;
     private ScoreDoc[] hits;
-    private TopScoreDocCollector collector;
     private IndexSearcher searcher;
+    private SortedSet<String> searchedProjects;
     boolean allCollected;
     private final ArrayList<SuperIndexSearcher> searcherList = new ArrayList<>();
+    private MultiProjectSearcher multiProjectSearcher;
 
     /**
      * Creates a new instance of SearchEngine.
@@ -181,6 +183,7 @@ public class SearchEngine {
         SuperIndexSearcher superIndexSearcher = RuntimeEnvironment.getInstance().getSuperIndexSearcher("");
         searcherList.add(superIndexSearcher);
         searcher = superIndexSearcher;
+        searchedProjects = new TreeSet<>(Set.of(""));
         searchIndex(superIndexSearcher, paging);
     }
 
@@ -198,30 +201,46 @@ public class SearchEngine {
 
         // We use MultiReader even for single project. This should
         // not matter given that MultiReader is just a cheap wrapper
-        // around set of IndexReader objects.
-        MultiReader searchables = RuntimeEnvironment.getInstance().getMultiReader(projectNames, searcherList);
-        searcher = RuntimeEnvironment.getInstance().getIndexSearcherFactory().newSearcher(searchables);
+        // around set of IndexReader objects. The searchers are pooled
+        // so that repeated searches of the same projects can reuse them.
+        multiProjectSearcher = RuntimeEnvironment.getInstance().getMultiProjectSearcher(projectNames);
+        searcher = multiProjectSearcher;
+        searchedProjects = projectNames;
         searchIndex(searcher, paging);
     }
 
+    /**
+     * Get the top documents for the query using the shared {@link SearchResultCache}.
+     * Repeated searches (e.g. for subsequent pages) are served from the cache and if more documents
+     * are needed than what is cached, only the missing ones are collected.
+     */
+    private TopDocs getTopDocs(IndexSearcher searcher, int numHits) throws IOException {
+        return RuntimeEnvironment.getInstance().getSearchResultCache().
+                search(searcher, query, null, searchedProjects, numHits, Short.MAX_VALUE);
+    }
+
     private void searchIndex(IndexSearcher searcher, boolean paging) throws IOException {
-        collector = TopScoreDocCollector.create(hitsPerPage * cachePages, Short.MAX_VALUE);
         Statistics stat = new Statistics();
-        searcher.search(query, collector);
-        totalHits = collector.getTotalHits();
+        TopDocs topDocs = getTopDocs(searcher, hitsPerPage * cachePages);
+        totalHits = (int) topDocs.totalHits.value;
         stat.report(LOGGER, Level.FINEST, "search via SearchEngine done",
                 "search.latency", new String[]{"category", "engine",
                         "outcome", totalHits > 0 ? "success" : "empty"});
-        if (!paging && totalHits > 0) {
-            collector = TopScoreDocCollector.create(totalHits, Short.MAX_VALUE);
-            searcher.search(query, collector);
+        if (!paging && topDocs.scoreDocs.length < totalHits) {
+            topDocs = getTopDocs(searcher, totalHits);
         }
-        hits = collector.topDocs().scoreDocs;
+        hits = topDocs.scoreDocs;
+        addDocuments(0);
+    }
+
+    /**
+     * Load the documents for the hits starting at given index.
+     * @param from index of the first hit to load the document for
+     */
+    private void addDocuments(int from) throws IOException {
         StoredFields storedFields = searcher.storedFields();
-        for (ScoreDoc hit : hits) {
-            int docId = hit.doc;
-            Document d = storedFields.document(docId);
-            docs.add(d);
+        for (int i = from; i < hits.length; i++) {
+            docs.add(storedFields.document(hits[i].doc));
         }
     }
 
@@ -390,9 +409,10 @@ public class SearchEngine {
 
     /**
      * Get results , if no search was started before, no results are returned.
-     * This method will requery if {@code end} is more than first query from search,
-     * hence performance hit applies, if you want results in later pages than
-     * number of cachePages. {@code end} has to be bigger than {@code start} !
+     * If {@code end} is more than first query from search, the remaining hits are collected
+     * (unless they are already present in {@link SearchResultCache}), hence performance hit applies,
+     * if you want results in later pages than number of cachePages. {@code end} has to be bigger than
+     * {@code start} !
      *
      * @param start start of the hit list
      * @param end end of the hit list
@@ -412,33 +432,14 @@ public class SearchEngine {
         // TODO check if below fits for if end=old hits.length, or it should include it
         if (end > hits.length && !allCollected) {
             //do the requery, we want more than 5 pages
-            collector = TopScoreDocCollector.create(totalHits, Short.MAX_VALUE);
             try {
-                searcher.search(query, collector);
+                int collected = hits.length;
+                hits = getTopDocs(searcher, totalHits).scoreDocs;
+                addDocuments(collected);
             } catch (Exception e) { // this exception should never be hit, since search() will hit this before
                 LOGGER.log(
                         Level.WARNING, SEARCH_EXCEPTION_MSG, e);
             }
-            hits = collector.topDocs().scoreDocs;
-            StoredFields storedFields = null;
-            try {
-                storedFields = searcher.storedFields();
-            } catch (Exception e) {
-                LOGGER.log(
-                        Level.WARNING, SEARCH_EXCEPTION_MSG, e);
-            }
-            if (storedFields != null) {
-                Document d;
-                for (ScoreDoc hit : hits) {
-                    try {
-                        d = storedFields.document(hit.doc);
-                        docs.add(d);
-                    } catch (Exception e) {
-                        LOGGER.log(
-                                Level.SEVERE, SEARCH_EXCEPTION_MSG, e);
-                    }
-                }
-            }
             allCollected = true;
         }
 
@@ -536,6 +537,15 @@ public class SearchEngine {
                 LOGGER.log(Level.WARNING, "cannot release indexSearcher", ex);
             }
         }
+        searcherList.clear();
+        if (multiProjectSearcher != null) {
+            try {
+                multiProjectSearcher.release();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "cannot release multi-project searcher", ex);
+            }
+            multiProjectSearcher = null;
+        }
     }
 
     /**
@@ -0,0 +1,317 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHits;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Cache of top documents of recent queries shared by all searches. This allows to serve subsequent pages
+ * of search results without running the query again. If more documents are requested than what is cached,
+ * the query is run with {@link IndexSearcher#searchAfter(ScoreDoc, Query, int)} semantics to collect
+ * just the missing documents.
+ * <p>
+ * The entries are keyed by the query, the sort, the set of searched projects and the identity
+ * of the index segments the query was run against. The last part guarantees that the document IDs
+ * stored in the entries are valid for the searcher the entry is served to. The entries for a project are
+ * dropped once its searcher is refreshed (see {@link #invalidate(String)}) as they cannot be used anymore.
+ * <p>
+ * The cache is bounded by {@link RuntimeEnvironment#getSearchResultCacheSize()} entries (the least recently
+ * used entries are evicted first) and the entries expire after {@link RuntimeEnvironment#getSearchResultCacheTTL()}
+ * seconds.
+ */
+public class SearchResultCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchResultCache.class);
+
+    /**
+     * Results with more documents are not cached to keep the memory consumption in check.
+     */
+    static final int MAX_CACHED_DOCS = 100_000;
+
+    private final RuntimeEnvironment env;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter extendCounter;
+
+    /**
+     * Cache key. Two keys are equal only if the queries would produce the same list of document IDs.
+     */
+    static final class Key {
+        private final Query query;
+        private final Sort sort;
+        private final SortedSet<String> projects;
+        private final List<Object> segmentKeys;
+
+        Key(Query query, @Nullable Sort sort, Collection<String> projects, List<Object> segmentKeys) {
+            this.query = query;
+            this.sort = sort;
+            this.projects = Collections.unmodifiableSortedSet(new TreeSet<>(projects));
+            this.segmentKeys = segmentKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return query.equals(key.query) && Objects.equals(sort, key.sort) &&
+                    projects.equals(key.projects) && segmentKeys.equals(key.segmentKeys);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, sort, projects, segmentKeys);
+        }
+    }
+
+    /**
+     * Cached top documents of a query.
+     */
+    private static final class Entry {
+        private final long created = System.nanoTime();
+        private TotalHits totalHits;
+        private ScoreDoc[] scoreDocs;
+
+        Entry(TopDocs topDocs) {
+            this.totalHits = topDocs.totalHits;
+            this.scoreDocs = topDocs.scoreDocs;
+        }
+
+        /**
+         * @return whether all matching documents are cached
+         */
+        boolean isComplete() {
+            return totalHits.relation == TotalHits.Relation.EQUAL_TO && scoreDocs.length >= totalHits.value;
+        }
+    }
+
+    public SearchResultCache(RuntimeEnvironment env) {
+        this.env = env;
+
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            hitCounter = Counter.builder("search.cache").
+                    description("search result cache lookups").
+                    tag("what", "hits").
+                    register(registry);
+            missCounter = Counter.builder("search.cache").
+                    description("search result cache lookups").
+                    tag("what", "miss").
+                    register(registry);
+            extendCounter = Counter.builder("search.cache").
+                    description("search result cache lookups").
+                    tag("what", "extend").
+                    register(registry);
+        } else {
+            hitCounter = null;
+            missCounter = null;
+            extendCounter = null;
+        }
+    }
+
+    /**
+     * Get top documents for the query, using the cached documents where possible.
+     *
+     * @param searcher searcher to use
+     * @param query query
+     * @param sort sort to apply or {@code null} to sort by relevance
+     * @param projects names of the projects the searcher covers (empty string for project-less setup)
+     * @param numHits number of top documents to return
+     * @param totalHitsThreshold the number of hits to count accurately
+     * @return top documents
+     * @throws IOException on error
+     */
+    public TopDocs search(IndexSearcher searcher, Query query, @Nullable Sort sort, Collection<String> projects,
+                          int numHits, int totalHitsThreshold) throws IOException {
+
+        numHits = Math.max(1, Math.min(numHits, searcher.getIndexReader().maxDoc()));
+
+        Key key = getKey(searcher.getIndexReader(), query, sort, projects);
+        if (key == null || env.getSearchResultCacheSize() <= 0) {
+            return doSearch(searcher, query, sort, null, numHits, totalHitsThreshold);
+        }
+
+        Entry entry = get(key);
+        if (entry == null) {
+            if (missCounter != null) {
+                missCounter.increment();
+            }
+            TopDocs topDocs = doSearch(searcher, query, sort, null, numHits, totalHitsThreshold);
+            put(key, new Entry(topDocs));
+            return topDocs;
+        }
+
+        synchronized (entry) {
+            if (entry.scoreDocs.length < numHits && !entry.isComplete() && entry.scoreDocs.length > 0) {
+                if (extendCounter != null) {
+                    extendCounter.increment();
+                }
+                ScoreDoc after = entry.scoreDocs[entry.scoreDocs.length - 1];
+                int remaining = numHits - entry.scoreDocs.length;
+                TopDocs more = doSearch(searcher, query, sort, after, remaining, totalHitsThreshold);
+                ScoreDoc[] scoreDocs = Arrays.copyOf(entry.scoreDocs, entry.scoreDocs.length + more.scoreDocs.length);
+                System.arraycopy(more.scoreDocs, 0, scoreDocs, entry.scoreDocs.length, more.scoreDocs.length);
+                entry.scoreDocs = scoreDocs;
+                if (more.scoreDocs.length < remaining) {
+                    // All the matching documents have been collected so the total is known exactly.
+                    entry.totalHits = new TotalHits(scoreDocs.length, TotalHits.Relation.EQUAL_TO);
+                } else if (more.totalHits.relation == TotalHits.Relation.EQUAL_TO ||
+                        more.totalHits.value > entry.totalHits.value) {
+                    // Both searches count all the matching documents, keep the more accurate total.
+                    entry.totalHits = more.totalHits;
+                }
+                if (scoreDocs.length > MAX_CACHED_DOCS) {
+                    remove(key);
+                }
+            } else if (hitCounter != null) {
+                hitCounter.increment();
+            }
+
+            return new TopDocs(entry.totalHits,
+                    Arrays.copyOf(entry.scoreDocs, Math.min(numHits, entry.scoreDocs.length)));
+        }
+    }
+
+    private static TopDocs doSearch(IndexSearcher searcher, Query query, @Nullable Sort sort,
+                                    @Nullable ScoreDoc after, int numHits, int totalHitsThreshold)
+            throws IOException {
+
+        CollectorManager<?, ? extends TopDocs> manager;
+        if (sort == null) {
+            manager = TopScoreDocCollector.createSharedManager(numHits, after, totalHitsThreshold);
+        } else {
+            manager = TopFieldCollector.createSharedManager(sort, numHits, (FieldDoc) after, totalHitsThreshold);
+        }
+        return searcher.search(query, manager);
+    }
+
+    /**
+     * @return key identifying the results or {@code null} if the reader does not allow caching
+     */
+    @Nullable
+    private static Key getKey(IndexReader reader, Query query, @Nullable Sort sort, Collection<String> projects) {
+        List<LeafReaderContext> leaves = reader.leaves();
+        List<Object> segmentKeys = new ArrayList<>(leaves.size());
+        for (LeafReaderContext leaf : leaves) {
+            IndexReader.CacheHelper cacheHelper = leaf.reader().getReaderCacheHelper();
+            if (cacheHelper == null) {
+                return null;
+            }
+            segmentKeys.add(cacheHelper.getKey());
+        }
+        return new Key(query, sort, projects, segmentKeys);
+    }
+
+    @Nullable
+    private synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.created >
+                TimeUnit.SECONDS.toNanos(env.getSearchResultCacheTTL())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (entry.scoreDocs.length > MAX_CACHED_DOCS) {
+            return;
+        }
+        entries.put(key, entry);
+        int maxSize = env.getSearchResultCacheSize();
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private synchronized void remove(Key key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove the entries involving given project. To be called when the index searcher of the project
+     * is refreshed.
+     * @param project project name or empty string for project-less setup
+     */
+    public synchronized void invalidate(String project) {
+        int size = entries.size();
+        entries.keySet().removeIf(key -> key.projects.contains(project));
+        LOGGER.log(Level.FINEST, "invalidated {0} search result cache entries for ''{1}''",
+                new Object[]{size - entries.size(), project});
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @VisibleForTesting
+    synchronized int size() {
+        return entries.size();
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2011, 2019, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2017, 2019, Chris Fraire <cfraire@me.com>.
  */
@@ -26,7 +26,7 @@ package org.opengrok.indexer.search;
 
 import org.apache.lucene.index.IndexReader;
 import org.opengrok.indexer.configuration.Project;
-import org.opengrok.indexer.index.IndexAnalysisSettings3;
+import org.opengrok.indexer.index.IndexAnalysisSettings4;
 import org.opengrok.indexer.index.IndexAnalysisSettingsAccessor;
 import org.opengrok.indexer.index.IndexedSymlink;
 
@@ -49,7 +49,7 @@ public class SettingsHelper {
     /**
      * Key is Project name or empty string for null Project.
      */
-    private Map<String, IndexAnalysisSettings3> mappedAnalysisSettings;
+    private Map<String, IndexAnalysisSettings4> mappedAnalysisSettings;
 
     /**
      * Key is Project name or empty string for null Project. Map is ordered by
@@ -87,7 +87,7 @@ public class SettingsHelper {
      */
     public int getTabSize(Project proj) throws IOException {
         String projectName = proj != null ? proj.getName() : null;
-        IndexAnalysisSettings3 settings = getSettings(projectName);
+        IndexAnalysisSettings4 settings = getSettings(projectName);
         int tabSize;
         if (settings != null && settings.getTabSize() != null) {
             tabSize = settings.getTabSize();
@@ -104,10 +104,10 @@ public class SettingsHelper {
      * @return a defined instance or {@code null} if none is found
      * @throws IOException if an I/O error occurs querying the initialized reader
      */
-    public IndexAnalysisSettings3 getSettings(String projectName) throws IOException {
+    public IndexAnalysisSettings4 getSettings(String projectName) throws IOException {
         if (mappedAnalysisSettings == null) {
             IndexAnalysisSettingsAccessor dao = new IndexAnalysisSettingsAccessor();
-            IndexAnalysisSettings3[] setts = dao.read(reader, Short.MAX_VALUE);
+            IndexAnalysisSettings4[] setts = dao.read(reader, Short.MAX_VALUE);
             map(setts);
         }
 
@@ -115,12 +115,12 @@ public class SettingsHelper {
         return mappedAnalysisSettings.get(projectKey);
     }
 
-    private void map(IndexAnalysisSettings3[] setts) {
+    private void map(IndexAnalysisSettings4[] setts) {
 
-        Map<String, IndexAnalysisSettings3> settingsMap = new HashMap<>();
+        Map<String, IndexAnalysisSettings4> settingsMap = new HashMap<>();
         Map<String, Map<String, IndexedSymlink>> symlinksMap = new HashMap<>();
 
-        for (IndexAnalysisSettings3 settings : setts) {
+        for (IndexAnalysisSettings4 settings : setts) {
             String projectName = settings.getProjectName();
             String projectKey = projectName != null ? projectName : "";
             settingsMap.put(projectKey, settings);
@@ -130,7 +130,7 @@ public class SettingsHelper {
         mappedIndexedSymlinks = symlinksMap;
     }
 
-    private Map<String, IndexedSymlink> mapSymlinks(IndexAnalysisSettings3 settings) {
+    private Map<String, IndexedSymlink> mapSymlinks(IndexAnalysisSettings4 settings) {
 
         Map<String, IndexedSymlink> res = new TreeMap<>(
                 Comparator.comparingInt(String::length).thenComparing(o -> o));
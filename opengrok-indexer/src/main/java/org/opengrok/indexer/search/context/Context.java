@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2018, 2020, Chris Fraire <cfraire@me.com>.
  */
@@ -27,10 +27,18 @@ package org.opengrok.indexer.search.context;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,7 +46,10 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
 import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.indexer.analysis.AbstractAnalyzer;
 import org.opengrok.indexer.analysis.Definitions;
 import org.opengrok.indexer.analysis.Scopes;
@@ -147,6 +158,144 @@ public class Context {
             return false;
         }
 
+        ContextArgs args = new ContextArgs(env.getContextSurround(), env.getContextLimit());
+        int linelimit = getLineLimit(args, limit);
+        ContextFormatter formatter = newFormatter(doc, args, urlPrefix, morePrefix, linelimit);
+        if (formatter == null) {
+            return false;
+        }
+
+        OGKUnifiedHighlighter uhi = newHighlighter(env, searcher, formatter, tabSize);
+
+        try {
+            List<String> fieldList = qbuilder.getContextFields();
+            String[] fields = fieldList.toArray(new String[0]);
+
+            String res = uhi.highlightFieldsUnion(fields, query, docId,
+                linelimit);
+            if (res != null) {
+                dest.append(res);
+                return true;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "ERROR highlightFieldsUnion(...)", e);
+            // Continue below.
+        } catch (Throwable e) {
+            LOGGER.log(Level.SEVERE, "ERROR highlightFieldsUnion(...)", e);
+            throw e;
+        }
+        return false;
+    }
+
+    /**
+     * Look for context for this instance's initialized query in multiple search result documents
+     * (e.g. all hits of a result page) at once. This yields the same contexts as calling
+     * {@link #getContext2(RuntimeEnvironment, IndexSearcher, int, Appendable, String, String, boolean, int)}
+     * for each of the documents, however the documents are highlighted in a single pass per file type
+     * instead of setting up the highlighter for each document, the stored documents are not loaded again
+     * and the contexts are formatted in parallel using {@link RuntimeEnvironment#getSearchExecutor()}.
+     * @param env required environment
+     * @param searcher required search that produced the documents
+     * @param docs required documents keyed by document ID
+     * @param urlPrefix prefix for links
+     * @param morePrefix optional link to more... page
+     * @param limit a value indicating if the number of matching lines should be limited
+     * @param tabSize optional positive tab size, see
+     * {@link #getContext2(RuntimeEnvironment, IndexSearcher, int, Appendable, String, String, boolean, int)}
+     * @return map of document ID to context, documents without any matching context are not present
+     */
+    public Map<Integer, String> getContexts(RuntimeEnvironment env, IndexSearcher searcher,
+            Map<Integer, Document> docs, String urlPrefix, String morePrefix, boolean limit, int tabSize) {
+
+        if (isEmpty() || docs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        ContextArgs args = new ContextArgs(env.getContextSurround(), env.getContextLimit());
+        int linelimit = getLineLimit(args, limit);
+        String[] fields = qbuilder.getContextFields().toArray(new String[0]);
+        ExecutorService executor = env.getSearchExecutor();
+
+        // The highlighter can use file type specific analyzer only for all the documents of the pass.
+        Map<String, List<Integer>> docIdsByType = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Document> entry : docs.entrySet()) {
+            String type = Objects.requireNonNullElse(entry.getValue().get(QueryBuilder.TYPE), "");
+            docIdsByType.computeIfAbsent(type, k -> new ArrayList<>()).add(entry.getKey());
+        }
+
+        Map<Integer, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (List<Integer> docIdList : docIdsByType.values()) {
+            int[] docIds = docIdList.stream().mapToInt(Integer::intValue).toArray();
+            Map<String, Object[]> highlights;
+            try {
+                highlights = newHighlighter(env, searcher, PassageCapture.FORMATTER, tabSize).
+                        highlightDocuments(fields, query, docIds, docs, linelimit, executor);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "ERROR highlightDocuments(...)", e);
+                continue;
+            } catch (Throwable e) {
+                LOGGER.log(Level.SEVERE, "ERROR highlightDocuments(...)", e);
+                throw e;
+            }
+
+            for (int i = 0; i < docIds.length; i++) {
+                List<PassageCapture> captures = new ArrayList<>();
+                for (Object[] results : highlights.values()) {
+                    if (results[i] != null) {
+                        captures.add((PassageCapture) results[i]);
+                    }
+                }
+                if (captures.isEmpty()) {
+                    continue;
+                }
+
+                Document doc = docs.get(docIds[i]);
+                futures.put(docIds[i], CompletableFuture.supplyAsync(() -> {
+                    ContextFormatter formatter = newFormatter(doc, args, urlPrefix, morePrefix, linelimit);
+                    if (formatter == null) {
+                        return null;
+                    }
+                    List<Object> formatted = new ArrayList<>();
+                    for (PassageCapture capture : captures) {
+                        formatted.add(formatter.format(capture.passages, capture.originalText));
+                    }
+                    return OGKUnifiedHighlighter.mergeFormatted(formatted, linelimit);
+                }, executor));
+            }
+        }
+
+        Map<Integer, String> contexts = new HashMap<>();
+        for (Map.Entry<Integer, CompletableFuture<String>> entry : futures.entrySet()) {
+            try {
+                String context = entry.getValue().join();
+                if (context != null) {
+                    contexts.put(entry.getKey(), context);
+                }
+            } catch (CompletionException e) {
+                LOGGER.log(Level.WARNING, String.format("ERROR formatting context of document %d", entry.getKey()),
+                        e.getCause());
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * Lucene adds to the returned value in FieldHighlighter, so avoid
+     * integer overflow by not using Integer.MAX_VALUE -- Short is good
+     * enough.
+     */
+    private static int getLineLimit(ContextArgs args, boolean limit) {
+        return limit ? args.getContextLimit() : Short.MAX_VALUE;
+    }
+
+    /**
+     * @return formatter for given document or {@code null} if the definitions or scopes of the document
+     * cannot be deserialized
+     */
+    @Nullable
+    private ContextFormatter newFormatter(Document doc, ContextArgs args, String urlPrefix, String morePrefix,
+            int linelimit) {
+
         Definitions tags = null;
         try {
             IndexableField tagsField = doc.getField(QueryBuilder.TAGS);
@@ -155,7 +304,7 @@ public class Context {
             }
         } catch (ClassNotFoundException | IOException e) {
             LOGGER.log(Level.WARNING, "ERROR Definitions.deserialize(...)", e);
-            return false;
+            return null;
         }
 
         Scopes scopes;
@@ -168,35 +317,31 @@ public class Context {
             }
         } catch (ClassNotFoundException | IOException e) {
             LOGGER.log(Level.WARNING, "ERROR Scopes.deserialize(...)", e);
-            return false;
+            return null;
         }
 
-        /*
-         * UnifiedHighlighter demands an analyzer "even if in some
-         * circumstances it isn't used"; here it is not meant to be used.
-         */
-        PlainAnalyzerFactory fac = PlainAnalyzerFactory.DEFAULT_INSTANCE;
-        AbstractAnalyzer anz = fac.getAnalyzer();
-
         String path = doc.get(QueryBuilder.PATH);
         String pathE = Util.uriEncodePath(path);
         String urlPrefixE = urlPrefix == null ? "" : Util.uriEncodePath(urlPrefix);
         String moreURL = morePrefix == null ? null : Util.uriEncodePath(morePrefix) + pathE + "?" + queryAsURI;
 
-        ContextArgs args = new ContextArgs(env.getContextSurround(), env.getContextLimit());
-        /*
-         * Lucene adds to the following value in FieldHighlighter, so avoid
-         * integer overflow by not using Integer.MAX_VALUE -- Short is good
-         * enough.
-         */
-        int linelimit = limit ? args.getContextLimit() : Short.MAX_VALUE;
-
         ContextFormatter formatter = new ContextFormatter(args);
         formatter.setUrl(urlPrefixE + pathE);
         formatter.setDefs(tags);
         formatter.setScopes(scopes);
         formatter.setMoreUrl(moreURL);
         formatter.setMoreLimit(linelimit);
+        return formatter;
+    }
+
+    private static OGKUnifiedHighlighter newHighlighter(RuntimeEnvironment env, IndexSearcher searcher,
+            PassageFormatter formatter, int tabSize) {
+        /*
+         * UnifiedHighlighter demands an analyzer "even if in some
+         * circumstances it isn't used"; here it is not meant to be used.
+         */
+        PlainAnalyzerFactory fac = PlainAnalyzerFactory.DEFAULT_INSTANCE;
+        AbstractAnalyzer anz = fac.getAnalyzer();
 
         UnifiedHighlighter.Builder uhBuilder =  new UnifiedHighlighter.Builder(searcher, anz)
 //                .withMaxLength(maxDocCharsToAnalyze)
@@ -206,25 +351,28 @@ public class Context {
                 .withFormatter(formatter);
         OGKUnifiedHighlighter uhi = new OGKUnifiedHighlighter(env, uhBuilder);
         uhi.setTabSize(tabSize);
+        return uhi;
+    }
 
-        try {
-            List<String> fieldList = qbuilder.getContextFields();
-            String[] fields = fieldList.toArray(new String[0]);
-
-            String res = uhi.highlightFieldsUnion(fields, query, docId,
-                linelimit);
-            if (res != null) {
-                dest.append(res);
-                return true;
+    /**
+     * Passages of a document captured during the highlighting so that they can be formatted later
+     * with a formatter specific to the document.
+     */
+    private static final class PassageCapture {
+        private static final PassageFormatter FORMATTER = new PassageFormatter() {
+            @Override
+            public Object format(Passage[] passages, String content) {
+                return new PassageCapture(passages, content);
             }
-        } catch (IOException e) {
-            LOGGER.log(Level.WARNING, "ERROR highlightFieldsUnion(...)", e);
-            // Continue below.
-        } catch (Throwable e) {
-            LOGGER.log(Level.SEVERE, "ERROR highlightFieldsUnion(...)", e);
-            throw e;
+        };
+
+        private final Passage[] passages;
+        private final String originalText;
+
+        private PassageCapture(Passage[] passages, String originalText) {
+            this.passages = passages;
+            this.originalText = originalText;
         }
-        return false;
     }
 
     /**
@@ -18,27 +18,37 @@
  */
 
 /*
- * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.search.context;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.lucene.search.Query;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.History;
 import org.opengrok.indexer.history.HistoryEntry;
+import org.opengrok.indexer.history.HistoryEntryIterator;
 import org.opengrok.indexer.history.HistoryException;
 import org.opengrok.indexer.history.HistoryGuru;
 import org.opengrok.indexer.logger.LoggerFactory;
@@ -56,8 +66,8 @@ public class HistoryContext {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HistoryContext.class);
 
+    private final Query query;
     private final LineMatcher[] m;
-    HistoryLineTokenizer tokens;
 
     /**
      * Map whose keys tell which fields to look for in the history, and
@@ -68,12 +78,18 @@ public class HistoryContext {
             Collections.singletonMap(QueryBuilder.HIST, Boolean.TRUE);
 
     public HistoryContext(Query query) {
-        QueryMatchers qm = new QueryMatchers();
-        m = qm.getMatchers(query, tokenFields);
-        if (m != null) {
-            tokens = new HistoryLineTokenizer(null);
-        }
+        this.query = query;
+        m = newMatchers();
+    }
+
+    /**
+     * The matchers keep the state of a partial phrase match so each history has to be scanned
+     * with its own set.
+     */
+    private LineMatcher[] newMatchers() {
+        return new QueryMatchers().getMatchers(query, tokenFields);
     }
+
     public boolean isEmpty() {
         return m == null;
     }
@@ -82,14 +98,7 @@ public class HistoryContext {
         if (m == null) {
             return false;
         }
-        File f = new File(filename);
-        History history = HistoryGuru.getInstance().getHistory(f);
-        if (history == null) {
-            LOGGER.log(Level.INFO, "Null history got for {0}", f);
-            return false;
-        }
-        return getHistoryContext(history, path, null, hits, null);
-
+        return getHistoryContext(new File(filename), path, null, hits, null);
     }
 
     public boolean getContext(String parent, String basename, String path, Writer out, String context)
@@ -114,16 +123,78 @@ public class HistoryContext {
         if (m == null) {
             return false;
         }
-        History hist = HistoryGuru.getInstance().getHistory(src);
-        if (hist == null) {
+        return getHistoryContext(src, path, out, null, context);
+    }
+
+    /**
+     * Obtain the history contexts of multiple files (e.g. all hits of a result page) at once.
+     * This yields the same contexts as calling {@link #getContext(File, String, Writer, String)}
+     * for each of the files, however the histories are read and matched in parallel
+     * using {@link RuntimeEnvironment#getSearchExecutor()}.
+     *
+     * @param env required environment
+     * @param sourceRoot the source root directory
+     * @param paths paths of the files (rooted at SOURCE_ROOT)
+     * @param context the servlet context path of the application (the path prefix for URLs)
+     * @return map of path to context, files without any matching history entry are not present
+     */
+    public Map<String, String> getContexts(RuntimeEnvironment env, File sourceRoot, Collection<String> paths,
+            String context) {
+
+        if (m == null || paths.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        ExecutorService executor = env.getSearchExecutor();
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (String path : paths) {
+            futures.computeIfAbsent(path, p -> CompletableFuture.supplyAsync(() -> {
+                StringWriter out = new StringWriter();
+                try {
+                    return getContext(new File(sourceRoot, p), p, out, context) ? out.toString() : null;
+                } catch (HistoryException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        Map<String, String> contexts = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<String>> entry : futures.entrySet()) {
+            try {
+                String ctx = entry.getValue().join();
+                if (ctx != null) {
+                    contexts.put(entry.getKey(), ctx);
+                }
+            } catch (CompletionException e) {
+                LOGGER.log(Level.WARNING, String.format("ERROR getting history context of '%s'", entry.getKey()),
+                        e.getCause());
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * Writes matching history log entries of the file to either 'out' or to 'hits'. The entries are read
+     * lazily so that only the history up to the last needed match is loaded from the history cache.
+     */
+    private boolean getHistoryContext(File src, String path, @Nullable Writer out, @Nullable List<Hit> hits,
+            String urlPrefix) throws HistoryException {
+
+        HistoryEntryIterator entries = HistoryGuru.getInstance().getHistoryEntries(src, -1, false);
+        if (entries == null) {
             LOGGER.log(Level.INFO, "Null history got for {0}", src);
             return false;
         }
-        return getHistoryContext(hist, path, out, null, context);
+        try (entries) {
+            return getHistoryContext(entries, path, out, hits, urlPrefix);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Could not close history of '%s'", src), e);
+            return false;
+        }
     }
 
-    private int matchLine(String line, String urlPrefix, String path, @Nullable Writer out, @Nullable List<Hit> hits,
-                   String rev, String nrev) throws IOException {
+    private static int matchLine(LineMatcher[] m, HistoryLineTokenizer tokens, String line, String urlPrefix,
+            String path, @Nullable Writer out, @Nullable List<Hit> hits, String rev, String nrev) throws IOException {
 
         int matchedLines = 0;
         tokens.reInit(line);
@@ -178,6 +249,11 @@ public class HistoryContext {
                                       String urlPrefix) {
         history = Optional.ofNullable(history)
                 .orElseThrow(() -> new IllegalArgumentException("`in' is null"));
+        return getHistoryContext(history.getHistoryEntries().iterator(), path, out, hits, urlPrefix);
+    }
+
+    private boolean getHistoryContext(Iterator<HistoryEntry> entries, String path, @Nullable Writer out,
+            @Nullable List<Hit> hits, String urlPrefix) {
         if ((out == null) == (hits == null)) {
             // There should be exactly one destination for the output. If
             // none or both are specified, it's a bug.
@@ -188,8 +264,10 @@ public class HistoryContext {
             return false;
         }
 
+        LineMatcher[] matchers = newMatchers();
+        HistoryLineTokenizer tokens = new HistoryLineTokenizer(null);
         int matchedLines = 0;
-        Iterator<HistoryEntry> it = history.getHistoryEntries().stream().filter(HistoryEntry::isActive).iterator();
+        Iterator<HistoryEntry> it = new ActiveEntryIterator(entries);
         try {
             HistoryEntry he;
             HistoryEntry nhe = null;
@@ -215,7 +293,7 @@ public class HistoryContext {
                 } else {
                     nrev = nhe.getRevision();
                 }
-                matchedLines += matchLine(line, urlPrefix, path, out, hits, rev, nrev);
+                matchedLines += matchLine(matchers, tokens, line, urlPrefix, path, out, hits, rev, nrev);
             }
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, e, () -> "Could not get history context for " + path);
@@ -223,6 +301,39 @@ public class HistoryContext {
         return matchedLines > 0;
     }
 
+    /**
+     * Skips the entries that are not active.
+     */
+    private static class ActiveEntryIterator implements Iterator<HistoryEntry> {
+        private final Iterator<HistoryEntry> entries;
+        private HistoryEntry next;
+
+        ActiveEntryIterator(Iterator<HistoryEntry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && entries.hasNext()) {
+                HistoryEntry entry = entries.next();
+                if (entry.isActive()) {
+                    next = entry;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public HistoryEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            HistoryEntry entry = next;
+            next = null;
+            return entry;
+        }
+    }
+
     /**
      * Write a match to a stream.
      *
@@ -0,0 +1,236 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search.context;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.search.uhighlight.OffsetsEnum;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.opengrok.indexer.analysis.ExpandTabsReader;
+import org.opengrok.indexer.analysis.LineOffsets;
+
+/**
+ * Represents the text of selected lines of a source file read using {@link LineOffsets}.
+ * <p>
+ * The lines which were not read are replaced with empty lines so that the line numbers stay the same
+ * and e.g. {@link ContextFormatter} can work with the text as if it was the whole file. The offsets
+ * within the file are translated to offsets within the text by {@link #wrap(OffsetsEnum)}.
+ */
+final class LineWindows {
+
+    /**
+     * Replacement of a line which was not read. {@code \r\n} is used as it cannot be joined
+     * with the line end of the previous line or with the start of the next line into a single line end.
+     */
+    private static final String SKIPPED_LINE = "\r\n";
+
+    private final String text;
+    private final long[] fileStarts;
+    private final long[] fileEnds;
+    private final int[] textStarts;
+
+    private LineWindows(String text, long[] fileStarts, long[] fileEnds, int[] textStarts) {
+        this.text = text;
+        this.fileStarts = fileStarts;
+        this.fileEnds = fileEnds;
+        this.textStarts = textStarts;
+    }
+
+    /**
+     * @return text of the file with the lines which were not read replaced with empty lines
+     */
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Reads selected lines of a file.
+     * @param file file the line offsets belong to
+     * @param lineOffsets line offsets of the file
+     * @param ranges ranges of 0-based line numbers (both inclusive) to read, can overlap
+     * @param tabSize size of tabs to expand, must be the same as the one the line offsets were computed with
+     * @return the lines or {@code null} if the file does not match the line offsets (e.g. it was changed)
+     * @throws IOException if the file cannot be read
+     */
+    static LineWindows read(Path file, LineOffsets lineOffsets, List<int[]> ranges, int tabSize)
+            throws IOException {
+
+        int[][] sorted = ranges.toArray(new int[0][]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a[0], b[0]));
+
+        StringBuilder text = new StringBuilder();
+        long[] fileStarts = new long[sorted.length];
+        long[] fileEnds = new long[sorted.length];
+        int[] textStarts = new int[sorted.length];
+        int count = 0;
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().
+                onMalformedInput(CodingErrorAction.REPLACE).
+                onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != lineOffsets.getLength()) {
+                return null;
+            }
+
+            LineOffsets.Cursor cursor = lineOffsets.cursor();
+            int i = 0;
+            while (i < sorted.length) {
+                int from = Math.max(sorted[i][0], cursor.getLine() + 1);
+                int to = sorted[i][1];
+                // Merge the overlapping and adjacent ranges.
+                while (++i < sorted.length && sorted[i][0] <= to + 1) {
+                    to = Math.max(to, sorted[i][1]);
+                }
+                to = Math.min(to, lineOffsets.getLineCount() - 1);
+                if (from > to) {
+                    continue;
+                }
+
+                while (cursor.getLine() < from - 1 && cursor.next()) {
+                    text.append(SKIPPED_LINE);
+                }
+                cursor.next();
+                long byteStart = cursor.getByteStart();
+                long charStart = cursor.getCharStart();
+                while (cursor.getLine() < to) {
+                    cursor.next();
+                }
+
+                String lines = readLines(channel, decoder, byteStart, cursor.getByteEnd(), tabSize);
+                if (lines.length() != cursor.getCharEnd() - charStart) {
+                    return null;
+                }
+                fileStarts[count] = charStart;
+                fileEnds[count] = cursor.getCharEnd();
+                textStarts[count] = text.length();
+                count++;
+                text.append(lines);
+            }
+        }
+
+        return new LineWindows(text.toString(), ArrayUtil.copyOfSubArray(fileStarts, 0, count),
+                ArrayUtil.copyOfSubArray(fileEnds, 0, count), ArrayUtil.copyOfSubArray(textStarts, 0, count));
+    }
+
+    private static String readLines(FileChannel channel, CharsetDecoder decoder, long start, long end,
+            int tabSize) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException(String.format("unexpected end of file at %d",
+                        start + buffer.position()));
+            }
+        }
+        buffer.flip();
+        String lines = decoder.decode(buffer).toString();
+        if (tabSize < 1) {
+            return lines;
+        }
+
+        StringBuilder expanded = new StringBuilder(lines.length());
+        try (Reader reader = ExpandTabsReader.wrap(new StringReader(lines), tabSize)) {
+            int c;
+            while ((c = reader.read()) != -1) {
+                expanded.append((char) c);
+            }
+        }
+        return expanded.toString();
+    }
+
+    /**
+     * @param offset offset within the file
+     * @return index of the window containing the offset or -1
+     */
+    private int find(int offset) {
+        int i = Arrays.binarySearch(fileStarts, offset);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return i >= 0 && offset < fileEnds[i] ? i : -1;
+    }
+
+    /**
+     * Translates the offsets of the matches to offsets within {@link #getText()}. The matches which are not
+     * (completely) within the lines that were read are skipped.
+     * @param offsetsEnum offsets within the file
+     * @return offsets within the text
+     */
+    OffsetsEnum wrap(OffsetsEnum offsetsEnum) {
+        return new OffsetsEnum() {
+            private int window;
+
+            @Override
+            public boolean nextPosition() throws IOException {
+                while (offsetsEnum.nextPosition()) {
+                    window = find(offsetsEnum.startOffset());
+                    if (window >= 0 && offsetsEnum.endOffset() <= fileEnds[window]) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public int freq() throws IOException {
+                return offsetsEnum.freq();
+            }
+
+            @Override
+            public BytesRef getTerm() throws IOException {
+                return offsetsEnum.getTerm();
+            }
+
+            @Override
+            public int startOffset() throws IOException {
+                return translate(offsetsEnum.startOffset());
+            }
+
+            @Override
+            public int endOffset() throws IOException {
+                return translate(offsetsEnum.endOffset());
+            }
+
+            private int translate(int offset) {
+                return (int) (textStarts[window] + offset - fileStarts[window]);
+            }
+
+            @Override
+            public void close() throws IOException {
+                offsetsEnum.close();
+            }
+        };
+    }
+}
@@ -16,7 +16,7 @@
  *
  */
 /*
- * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2023, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
  */
 
@@ -27,25 +27,43 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.uhighlight.FieldHighlighter;
+import org.apache.lucene.search.uhighlight.FieldOffsetStrategy;
+import org.apache.lucene.search.uhighlight.OffsetsEnum;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
 import org.apache.lucene.search.uhighlight.PassageScorer;
 import org.apache.lucene.search.uhighlight.UHComponents;
 import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 import org.apache.lucene.util.BytesRef;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
 import org.opengrok.indexer.analysis.ExpandTabsReader;
+import org.opengrok.indexer.analysis.LineOffsets;
 import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.logger.LoggerFactory;
@@ -64,8 +82,34 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
 
     private int tabSize;
 
+    private int contextSurround;
+
     private String fileTypeName;
 
+    /**
+     * Documents (keyed by document ID) that were already loaded by the caller
+     * of {@link #highlightDocuments(String[], Query, int[], Map, int, Executor)}.
+     */
+    private Map<Integer, Document> documents;
+
+    /**
+     * Content of the documents being read ahead in parallel
+     * by {@link #highlightDocuments(String[], Query, int[], Map, int, Executor)}.
+     */
+    private Map<Integer, CompletableFuture<String>> contents;
+
+    /**
+     * Set if the offsets of some of the fields being highlighted are produced
+     * by re-analysis of the content, which then has to be read whole.
+     */
+    private boolean contentRequired;
+
+    /**
+     * Documents (keyed by document ID) being highlighted by reading just the
+     * lines around the matches, see {@link WindowedFieldHighlighter}.
+     */
+    private Map<Integer, WindowedSource> windowedSources;
+
     /**
      * Initializes an instance with
      * {@link UnifiedHighlighter#UnifiedHighlighter(UnifiedHighlighter.Builder)}
@@ -84,11 +128,13 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
             throw new IllegalArgumentException("env is null");
         }
         this.env = env;
+        this.contextSurround = env.getContextSurround();
     }
 
     /**
      * Gets a file type name-specific analyzer during the execution of
-     * {@link #highlightFieldsUnion(java.lang.String[], org.apache.lucene.search.Query, int, int)},
+     * {@link #highlightFieldsUnion(java.lang.String[], org.apache.lucene.search.Query, int, int)}
+     * or {@link #highlightDocuments(String[], Query, int[], Map, int, Executor)},
      * or just gets the object passed in to the constructor at all other times.
      * @return a defined instance
      */
@@ -110,6 +156,20 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
         this.tabSize = value;
     }
 
+    public int getContextSurround() {
+        return contextSurround;
+    }
+
+    /**
+     * Sets the number of lines around the matches that are read for the files
+     * with {@link LineOffsets} in the index. It has to be at least
+     * {@link ContextArgs#getContextSurround()} of the formatter.
+     * @param value the number of lines
+     */
+    public void setContextSurround(int value) {
+        this.contextSurround = value;
+    }
+
     /**
      * Transiently arranges that {@link #getIndexAnalyzer()} returns a file type
      * name-specific analyzer during a subsequent call of
@@ -159,22 +219,35 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
          */
         Arrays.fill(maxPassagesCopy, lineLimit + 1);
 
-        FormattedLines res = null;
         Map<String, Object[]> mappedRes = highlightFieldsAsObjects(fields,
             query, new int[]{docId}, maxPassagesCopy);
+        List<Object> results = new ArrayList<>();
         for (Object[] flinesz : mappedRes.values()) {
-            for (Object obj : flinesz) {
-                /*
-                  Empirical testing showed that the passage could be null if
-                  the original source text is not available to the highlighter.
-                 */
-                if (obj != null) {
-                    if (!(obj instanceof FormattedLines)) {
-                        return obj.toString();
-                    }
-                    FormattedLines flines = (FormattedLines) obj;
-                    res = res == null ? flines : res.merge(flines);
+            results.addAll(Arrays.asList(flinesz));
+        }
+        return mergeFormatted(results, lineLimit);
+    }
+
+    /**
+     * Merges the formatter results for the fields of a document if the formatter returns
+     * {@link FormattedLines} or else returns the first formatted result.
+     * @param results formatter results, possibly containing {@code null} values
+     * @param lineLimit the maximum number of lines to return
+     * @return a defined instance or else {@code null} if there are no results
+     */
+    static String mergeFormatted(List<Object> results, int lineLimit) {
+        FormattedLines res = null;
+        for (Object obj : results) {
+            /*
+              Empirical testing showed that the passage could be null if
+              the original source text is not available to the highlighter.
+             */
+            if (obj != null) {
+                if (!(obj instanceof FormattedLines)) {
+                    return obj.toString();
                 }
+                FormattedLines flines = (FormattedLines) obj;
+                res = res == null ? flines : res.merge(flines);
             }
         }
         if (res == null) {
@@ -189,6 +262,59 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
         return res.toString();
     }
 
+    /**
+     * Highlights multiple documents of the same file type in one
+     * {@link #highlightFieldsAsObjects(java.lang.String[], org.apache.lucene.search.Query, int[], int[])} pass.
+     * The documents are not loaded again from the index and their content is read ahead in parallel
+     * using the {@code executor}.
+     * @param fields a defined instance
+     * @param query a defined instance
+     * @param docIds IDs of the documents to highlight, all of them have to be of the same file type
+     * @param docs documents keyed by document ID, has to contain all the documents to highlight
+     * @param lineLimit the maximum number of lines to return for a document
+     * @param executor executor used to read the content of the documents
+     * @return map of field name to array of formatter results in the order of {@code docIds},
+     * the results can be {@code null}
+     * @throws IOException if accessing the Lucene document fails
+     */
+    public Map<String, Object[]> highlightDocuments(String[] fields, Query query, int[] docIds,
+            Map<Integer, Document> docs, int lineLimit, Executor executor) throws IOException {
+
+        if (docIds.length == 0) {
+            return Map.of();
+        }
+
+        // See highlightFieldsUnion() for why this is necessary.
+        fileTypeName = docs.get(docIds[0]).get(QueryBuilder.TYPE);
+        documents = docs;
+        contents = new HashMap<>();
+        for (int docId : docIds) {
+            if (getLineOffsets(docId) != null) {
+                // Only the lines around the matches will be read, see WindowedFieldHighlighter.
+                continue;
+            }
+            Document doc = docs.get(docId);
+            contents.put(docId, CompletableFuture.supplyAsync(() -> {
+                try {
+                    return getRepoFileContent(doc.get(QueryBuilder.PATH), doc.get(QueryBuilder.U));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+
+        int[] maxPassages = new int[fields.length];
+        // See highlightFieldsUnionWork() for the + 1.
+        Arrays.fill(maxPassages, lineLimit + 1);
+        try {
+            return highlightFieldsAsObjects(fields, query, docIds, maxPassages);
+        } finally {
+            fileTypeName = null;
+            documents = null;
+            contents = null;
+        }
+    }
+
     /**
      * Produces original text by reading from OpenGrok source content relative
      * to {@link RuntimeEnvironment#getSourceRootPath()} and returns the content
@@ -219,11 +345,22 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
             if (docId == DocIdSetIterator.NO_MORE_DOCS) {
                 break;
             }
-            Document doc = storedFields.document(docId);
-
-            String path = doc.get(QueryBuilder.PATH);
-            String storedU = doc.get(QueryBuilder.U);
-            String content = getRepoFileContent(path, storedU);
+            String content;
+            CompletableFuture<String> future = contents == null ? null : contents.get(docId);
+            if (future != null) {
+                content = getContent(future);
+            } else {
+                Document doc = documents == null ? null : documents.get(docId);
+                if (doc == null) {
+                    doc = storedFields.document(docId);
+                }
+                String path = doc.get(QueryBuilder.PATH);
+                String storedU = doc.get(QueryBuilder.U);
+                content = contentRequired ? null : getWindowedContent(docId, path, storedU);
+                if (content == null) {
+                    content = getRepoFileContent(path, storedU);
+                }
+            }
 
             CharSequence[] seqs = new CharSequence[fields.length];
             Arrays.fill(seqs, content);
@@ -237,6 +374,30 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
         return docListOfFields;
     }
 
+    @Override
+    protected Map<String, Object[]> highlightFieldsAsObjects(String[] fieldsIn, Query query, int[] docIdsIn,
+            int[] maxPassagesIn) throws IOException {
+        contentRequired = false;
+        windowedSources = new HashMap<>();
+        try {
+            return super.highlightFieldsAsObjects(fieldsIn, query, docIdsIn, maxPassagesIn);
+        } finally {
+            windowedSources = null;
+        }
+    }
+
+    @Override
+    protected FieldHighlighter newFieldHighlighter(String field, FieldOffsetStrategy fieldOffsetStrategy,
+            BreakIterator breakIterator, PassageScorer passageScorer, int maxPassages, int maxNoHighlightPassages,
+            PassageFormatter passageFormatter) {
+
+        if (fieldOffsetStrategy.getOffsetSource() == OffsetSource.ANALYSIS) {
+            contentRequired = true;
+        }
+        return new WindowedFieldHighlighter(field, fieldOffsetStrategy, breakIterator, passageScorer, maxPassages,
+                maxNoHighlightPassages, passageFormatter);
+    }
+
     /**
      * Returns the value from the {@code super} implementation, with logging for
      * ANALYSIS of any field but {@link QueryBuilder#FULL} or
@@ -281,9 +442,42 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
         return res;
     }
 
+    private static String getContent(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
     private String getRepoFileContent(String repoRelPath, String storedU)
             throws IOException {
 
+        File repoAbsFile = getRepoFile(repoRelPath, storedU);
+        if (repoAbsFile == null) {
+            return null;
+        }
+
+        StringBuilder bld = new StringBuilder();
+        StreamSource src = StreamSource.fromFile(repoAbsFile);
+        try (InputStream in = src.getStream();
+            Reader rdr = getReader(in)) {
+            int c;
+            while ((c = rdr.read()) != -1) {
+                bld.append((char) c);
+            }
+        }
+
+        return bld.toString();
+    }
+
+    /**
+     * @return the file if it exists and its timestamp matches the stored one or else {@code null}
+     */
+    private File getRepoFile(String repoRelPath, String storedU) {
         if (storedU == null) {
             LOGGER.log(Level.FINE, "Missing U[UID] for: {0}",
                 repoRelPath);
@@ -310,17 +504,60 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
             return null;
         }
 
-        StringBuilder bld = new StringBuilder();
-        StreamSource src = StreamSource.fromFile(repoAbsFile);
-        try (InputStream in = src.getStream();
-            Reader rdr = getReader(in)) {
-            int c;
-            while ((c = rdr.read()) != -1) {
-                bld.append((char) c);
-            }
+        return repoAbsFile;
+    }
+
+    /**
+     * Registers the document to be highlighted by {@link WindowedFieldHighlighter}
+     * if its line offsets are present in the index and match the file.
+     * @return empty placeholder content if the document was registered or else {@code null}
+     */
+    private String getWindowedContent(int docId, String repoRelPath, String storedU) throws IOException {
+        if (windowedSources == null) {
+            return null;
+        }
+        BytesRef value = getLineOffsets(docId);
+        if (value == null) {
+            return null;
+        }
+        File repoAbsFile = getRepoFile(repoRelPath, storedU);
+        if (repoAbsFile == null) {
+            return null;
+        }
+        LineOffsets lineOffsets = LineOffsets.read(value);
+        if (lineOffsets == null || lineOffsets.getTabSize() != Math.max(tabSize, 0) ||
+                lineOffsets.getLength() != repoAbsFile.length()) {
+            return null;
         }
 
-        return bld.toString();
+        windowedSources.put(docId, new WindowedSource(repoAbsFile.toPath(), lineOffsets, repoRelPath, storedU));
+        return "";
+    }
+
+    /**
+     * @return serialized {@link LineOffsets} of the document or {@code null} if not present in the index
+     */
+    private BytesRef getLineOffsets(int docId) throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+        BinaryDocValues values = leaf.reader().getBinaryDocValues(QueryBuilder.LINEOFFS);
+        if (values == null || !values.advanceExact(docId - leaf.docBase)) {
+            return null;
+        }
+        return values.binaryValue();
+    }
+
+    private WindowedSource getWindowedSource(LeafReader reader, int docId) {
+        if (windowedSources == null || windowedSources.isEmpty() || reader == null) {
+            return null;
+        }
+        LeafReader unwrapped = FilterLeafReader.unwrap(reader);
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            if (leaf.reader() == unwrapped) {
+                return windowedSources.get(leaf.docBase + docId);
+            }
+        }
+        return null;
     }
 
     private Reader getReader(InputStream in) throws IOException {
@@ -334,4 +571,125 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
     protected PassageScorer getScorer(String field) {
         return new OGPassageScorer();
     }
+
+    private static final class WindowedSource {
+        private final Path file;
+        private final LineOffsets lineOffsets;
+        private final String repoRelPath;
+        private final String storedU;
+
+        private WindowedSource(Path file, LineOffsets lineOffsets, String repoRelPath, String storedU) {
+            this.file = file;
+            this.lineOffsets = lineOffsets;
+            this.repoRelPath = repoRelPath;
+            this.storedU = storedU;
+        }
+    }
+
+    /**
+     * Represents a {@link FieldHighlighter} which for the files with {@link LineOffsets} in the index
+     * reads just the lines of the first {@code maxPassages} passages (plus the context lines) instead
+     * of the whole file. The offsets of the matches are determined from the index first, which requires
+     * that they are not produced by re-analysis of the content.
+     */
+    private final class WindowedFieldHighlighter extends FieldHighlighter {
+
+        WindowedFieldHighlighter(String field, FieldOffsetStrategy fieldOffsetStrategy, BreakIterator breakIterator,
+                PassageScorer passageScorer, int maxPassages, int maxNoHighlightPassages,
+                PassageFormatter passageFormatter) {
+            super(field, fieldOffsetStrategy, breakIterator, passageScorer, maxPassages, maxNoHighlightPassages,
+                    passageFormatter);
+        }
+
+        @Override
+        public Object highlightFieldForDoc(LeafReader reader, int docId, String content) throws IOException {
+            WindowedSource source = getWindowedSource(reader, docId);
+            if (source == null) {
+                return super.highlightFieldForDoc(reader, docId, content);
+            }
+
+            LineWindows windows = readWindows(source, reader, docId, content);
+            if (windows == null) {
+                LOGGER.log(Level.FINE, "Line offsets do not match: {0}", source.repoRelPath);
+                String fullContent = getRepoFileContent(source.repoRelPath, source.storedU);
+                return fullContent == null ? null : super.highlightFieldForDoc(reader, docId, fullContent);
+            }
+
+            // The rest is the same as in the parent class, just with the text of the windows.
+            String text = windows.getText();
+            if (text.isEmpty()) {
+                return null;
+            }
+            breakIterator.setText(text);
+            try (OffsetsEnum offsetsEnum = windows.wrap(fieldOffsetStrategy.getOffsetsEnum(reader, docId, content))) {
+                Passage[] passages = highlightOffsetsEnums(offsetsEnum);
+                if (passages.length == 0) {
+                    passages = getSummaryPassagesNoHighlight(
+                            maxNoHighlightPassages == -1 ? maxPassages : maxNoHighlightPassages);
+                }
+                return passages.length > 0 ? passageFormatter.format(passages, text) : null;
+            }
+        }
+
+        private LineWindows readWindows(WindowedSource source, LeafReader reader, int docId, String content)
+                throws IOException {
+
+            LineOffsets.Cursor cursor = source.lineOffsets.cursor();
+            List<int[]> ranges = new ArrayList<>();
+            int passages = 0;
+            int lastLine = -1;
+            try (OffsetsEnum offsetsEnum = fieldOffsetStrategy.getOffsetsEnum(reader, docId, content)) {
+                while (offsetsEnum.nextPosition()) {
+                    int start = offsetsEnum.startOffset();
+                    int end = offsetsEnum.endOffset();
+                    if (start < cursor.getCharStart()) {
+                        // Not expected as the parent class relies on the matches being sorted as well.
+                        return null;
+                    }
+                    if (!cursor.advanceTo(start)) {
+                        return null;
+                    }
+                    int startLine = cursor.getLine();
+                    if (startLine > lastLine) {
+                        /*
+                         * The passages are ordered by their start offsets (see OGPassageScorer)
+                         * so the matches past the first maxPassages passages cannot be used.
+                         */
+                        if (passages == maxPassages) {
+                            break;
+                        }
+                        passages++;
+                    }
+                    int endLine = startLine;
+                    if (end - 1 >= cursor.getCharEnd()) {
+                        LineOffsets.Cursor endCursor = cursor.copy();
+                        endLine = endCursor.advanceTo(end - 1) ? endCursor.getLine() :
+                                source.lineOffsets.getLineCount() - 1;
+                    }
+                    addRange(ranges, startLine, endLine);
+                    lastLine = Math.max(lastLine, endLine);
+                }
+            }
+            if (ranges.isEmpty()) {
+                // The parent class produces passages from the beginning of the file if there are no matches.
+                int summaryPassages = maxNoHighlightPassages == -1 ? maxPassages : maxNoHighlightPassages;
+                if (summaryPassages > 0) {
+                    addRange(ranges, 0, summaryPassages - 1);
+                }
+            }
+
+            return LineWindows.read(source.file, source.lineOffsets, ranges, Math.max(tabSize, 0));
+        }
+
+        private void addRange(List<int[]> ranges, int startLine, int endLine) {
+            int from = startLine - contextSurround;
+            int to = endLine + contextSurround;
+            int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && from <= last[1] + 1) {
+                last[1] = Math.max(last[1], to);
+            } else {
+                ranges.add(new int[]{from, to});
+            }
+        }
+    }
 }
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2011, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2026, Oracle and/or its affiliates. All rights reserved.
  * Copyright (c) 2011, Trond Norbye.
  * Portions Copyright (c) 2017, 2021, Chris Fraire <cfraire@me.com>.
  */
@@ -31,6 +31,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
@@ -301,4 +305,21 @@ public final class IOUtils {
         }
         return "";
     }
+
+    /**
+     * Release the mapping of given buffer right away instead of waiting for the garbage collector to do so.
+     * Neither the buffer nor any buffer derived from it may be accessed afterwards.
+     * @param buffer mapped buffer (not a slice or duplicate of one)
+     */
+    public static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.log(Level.FINEST, "cannot unmap buffer, leaving it to the garbage collector", e);
+        }
+    }
 }
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2011, 2024, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2024, Gino Augustine <gino.augustine@oracle.com>.
@@ -69,6 +69,7 @@ import org.opengrok.indexer.analysis.AbstractAnalyzer;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
 import org.opengrok.indexer.analysis.CompatibleAnalyser;
 import org.opengrok.indexer.analysis.Definitions;
+import org.opengrok.indexer.configuration.MultiProjectSearcher;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.configuration.SuperIndexSearcher;
@@ -186,6 +187,10 @@ public class SearchHelper {
      * once the results are read.
      */
     private final ArrayList<SuperIndexSearcher> superIndexSearchers = new ArrayList<>();
+    /**
+     * Pooled searcher used for project search. Released in {@link #destroy()}.
+     */
+    private MultiProjectSearcher multiProjectSearcher;
     /**
      * List of docs which result from the executing the query.
      */
@@ -396,9 +401,15 @@ public class SearchHelper {
 
                 // We use MultiReader even for single project. This should not matter
                 // given that MultiReader is just a cheap wrapper around set of IndexReader objects.
-                reader = RuntimeEnvironment.getInstance().getMultiReader(projects, superIndexSearchers);
-                if (reader != null) {
-                    searcher = RuntimeEnvironment.getInstance().getIndexSearcherFactory().newSearcher(reader);
+                // The searchers are pooled so that they are not constructed for each request.
+                try {
+                    multiProjectSearcher = RuntimeEnvironment.getInstance().getMultiProjectSearcher(projects);
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, e, () -> "cannot get searcher for projects " + projects);
+                }
+                if (multiProjectSearcher != null) {
+                    searcher = multiProjectSearcher;
+                    reader = multiProjectSearcher.getIndexReader();
                 } else {
                     errorMsg = projects.stream()
                             .collect(new ErrorMessageCollector("Failed to initialize search. Check the index for projects: ",
@@ -475,7 +486,10 @@ public class SearchHelper {
             return this;
         }
         try {
-            TopFieldDocs fdocs = searcher.search(query, start + maxItems, sort);
+            // The results of previous pages are reused from the cache.
+            RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+            TopDocs fdocs = env.getSearchResultCache().search(searcher, query, sort,
+                    projects.isEmpty() ? Set.of("") : projects, start + maxItems, env.getSearchTotalHitsThreshold());
             totalHits = fdocs.totalHits.value;
             hits = fdocs.scoreDocs;
 
@@ -712,6 +726,15 @@ public class SearchHelper {
                 LOGGER.log(Level.WARNING, "cannot release SuperIndexSearcher", ex);
             }
         }
+        superIndexSearchers.clear();
+        if (multiProjectSearcher != null) {
+            try {
+                multiProjectSearcher.release();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "cannot release MultiProjectSearcher", ex);
+            }
+            multiProjectSearcher = null;
+        }
     }
 
     /**
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2019, Krystof Tulinger <k.tulinger@seznam.cz>.
@@ -43,7 +43,12 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Arrays;
@@ -86,6 +91,11 @@ public final class Util {
 
     private static final int BOLD_COUNT_THRESHOLD = 1000;
 
+    /**
+     * The first two bytes of a gzip member (big endian).
+     */
+    private static final int GZIP_MAGIC = 0x1f8b;
+
     private static final String ANCHOR_LINK_START = "<a href=\"";
     private static final String ANCHOR_CLASS_START = "<a class=\"";
     private static final String ANCHOR_END = "</a>";
@@ -1244,6 +1254,62 @@ public final class Util {
         stat.report(LOGGER, Level.FINEST, String.format("dumped xref '%s'", file), "xref.dump.latency");
     }
 
+    /**
+     * Check whether xref files stored by the indexer can be sent to the client as they are,
+     * i.e. without passing them through {@link #dumpXref(Writer, Reader, String, File)}.
+     * This is the case if the stored documents use the same charset as the web pages
+     * and the links therein need no translation.
+     * @param contextPath an optional override of "/source/" as the context path
+     * @return {@code true} if no transformation of the stored xref is needed
+     */
+    public static boolean isXrefPassthroughPossible(@Nullable String contextPath) {
+        if (!StandardCharsets.UTF_8.equals(Charset.defaultCharset())) {
+            return false;
+        }
+
+        return contextPath == null || contextPath.equals("source") || contextPath.equals("/source") ||
+                contextPath.equals("/source/");
+    }
+
+    /**
+     * Copy a gzipped xref file to the given destination without decompressing it.
+     * The content is transferred with {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+     * so that it does not have to pass through the Java heap if the destination supports that.
+     * <p>
+     * The caller is responsible for making sure that the destination is positioned at gzip member boundary
+     * and that the client is able to decode the data, see {@link #isXrefPassthroughPossible(String)}.
+     * @param out dump destination
+     * @param file gzipped file to dump
+     * @return {@code true} on success, {@code false} if the file does not exist or is not gzipped
+     * (in which case nothing was written)
+     * @throws IOException if the file cannot be read or the data cannot be written
+     */
+    public static boolean dumpGzippedXref(WritableByteChannel out, File file) throws IOException {
+        if (!file.isFile()) {
+            return false;
+        }
+
+        Statistics stat = new Statistics();
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(2);
+            while (magic.hasRemaining() && in.read(magic, magic.position()) > 0) {
+                // Nothing else to do.
+            }
+            if (magic.hasRemaining() || (magic.getShort(0) & 0xffff) != GZIP_MAGIC) {
+                return false;
+            }
+
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+        stat.report(LOGGER, Level.FINEST, String.format("transferred gzipped xref '%s'", file),
+                "xref.dump.latency");
+        return true;
+    }
+
     /**
      * Print a row in an HTML table.
      *
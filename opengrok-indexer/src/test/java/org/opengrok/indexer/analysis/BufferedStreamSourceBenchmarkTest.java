@@ -0,0 +1,153 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.opengrok.indexer.util.NullWriter;
+import org.opengrok.indexer.util.TestRepository;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the number of bytes read per indexed file by {@link StreamSource#fromFile(File)}
+ * and {@link BufferedStreamSource}.
+ * Run with {@code -Dorg.opengrok.indexer.analysis.BufferedStreamSourceBenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "org.opengrok.indexer.analysis.BufferedStreamSourceBenchmark", matches = "true")
+class BufferedStreamSourceBenchmarkTest {
+
+    private static TestRepository repository;
+    private static List<File> files;
+
+    @BeforeAll
+    static void setUpClass() throws Exception {
+        repository = new TestRepository();
+        repository.create(BufferedStreamSourceBenchmarkTest.class.getClassLoader().getResource("sources"));
+        try (Stream<Path> paths = Files.walk(Path.of(repository.getSourceRoot()))) {
+            files = paths.filter(Files::isRegularFile).map(Path::toFile).collect(Collectors.toList());
+        }
+    }
+
+    @AfterAll
+    static void tearDownClass() {
+        repository.destroy();
+    }
+
+    private interface SourceFactory {
+        StreamSource create(File file);
+    }
+
+    /**
+     * Index all the plain text files and return the average number of bytes read per file.
+     */
+    private static double runBenchmark(String name, SourceFactory factory, LongSupplier bytesRead) throws Exception {
+        long size = 0;
+        int count = 0;
+        long start = System.nanoTime();
+        try (ByteBuffersDirectory directory = new ByteBuffersDirectory();
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(AnalyzerGuru.getAnalyzer()))) {
+            for (File file : files) {
+                AbstractAnalyzer fa;
+                try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                    fa = AnalyzerGuru.getAnalyzer(in, file.getPath());
+                }
+                if (fa.getGenre() != AbstractAnalyzer.Genre.PLAIN) {
+                    continue;
+                }
+                StreamSource src = factory.create(file);
+                try {
+                    Document doc = new Document();
+                    fa.analyze(doc, src, new NullWriter());
+                    writer.addDocument(doc);
+                } finally {
+                    if (src instanceof BufferedStreamSource) {
+                        ((BufferedStreamSource) src).close();
+                    }
+                }
+                size += file.length();
+                count++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        double perFile = (double) bytesRead.getAsLong() / count;
+        System.out.printf("%s: %d files (%d bytes) in %d ms, %.1f bytes read per file (%.2fx file size)%n",
+                name, count, size, elapsed / 1_000_000, perFile, (double) bytesRead.getAsLong() / size);
+        return perFile;
+    }
+
+    @Test
+    void compareBytesRead() throws Exception {
+        AtomicLong unbuffered = new AtomicLong();
+        double before = runBenchmark("fromFile", file -> new StreamSource() {
+            @Override
+            public InputStream getStream() throws IOException {
+                return new FilterInputStream(StreamSource.fromFile(file).getStream()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0) {
+                            unbuffered.incrementAndGet();
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = super.read(b, off, len);
+                        if (n > 0) {
+                            unbuffered.addAndGet(n);
+                        }
+                        return n;
+                    }
+                };
+            }
+        }, unbuffered::get);
+
+        long initial = BufferedStreamSource.getBytesRead();
+        double after = runBenchmark("buffered", BufferedStreamSource::new,
+                () -> BufferedStreamSource.getBytesRead() - initial);
+
+        assertTrue(after <= before);
+    }
+}
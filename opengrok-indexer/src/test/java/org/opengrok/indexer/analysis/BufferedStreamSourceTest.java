@@ -0,0 +1,140 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferedStreamSourceTest {
+
+    @TempDir
+    private Path dir;
+
+    private Path createFile(int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        Path file = dir.resolve("file" + size);
+        Files.write(file, content);
+        return file;
+    }
+
+    @Test
+    void testFileIsReadOnce() throws IOException {
+        Path file = createFile(10_000);
+        byte[] expected = Files.readAllBytes(file);
+        long before = BufferedStreamSource.getBytesRead();
+        try (BufferedStreamSource src = new BufferedStreamSource(file.toFile())) {
+            for (int i = 0; i < 4; i++) {
+                try (InputStream in = src.getStream()) {
+                    assertArrayEquals(expected, in.readAllBytes());
+                }
+            }
+        }
+        assertEquals(expected.length, BufferedStreamSource.getBytesRead() - before);
+    }
+
+    @Test
+    void testConcurrentStreamsDoNotInterfere() throws IOException {
+        Path file = createFile(1000);
+        byte[] expected = Files.readAllBytes(file);
+        try (BufferedStreamSource src = new BufferedStreamSource(file.toFile());
+             InputStream in1 = src.getStream(); InputStream in2 = src.getStream()) {
+            assertEquals(expected[0] & 0xff, in1.read());
+            assertArrayEquals(expected, in2.readAllBytes());
+            assertEquals(expected[1] & 0xff, in1.read());
+        }
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        Path file = createFile(0);
+        try (BufferedStreamSource src = new BufferedStreamSource(file.toFile()); InputStream in = src.getStream()) {
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void testLargeFileIsMapped() throws IOException {
+        Path file = createFile(BufferedStreamSource.MMAP_THRESHOLD + 1);
+        byte[] expected = Files.readAllBytes(file);
+        try (BufferedStreamSource src = new BufferedStreamSource(file.toFile())) {
+            for (int i = 0; i < 2; i++) {
+                try (InputStream in = src.getStream()) {
+                    assertArrayEquals(expected, in.readAllBytes());
+                }
+            }
+        }
+    }
+
+    /**
+     * The mapping is released on close, reading the stream afterwards must fail rather than crash.
+     */
+    @Test
+    void testMappedStreamFailsAfterClose() throws IOException {
+        Path file = createFile(BufferedStreamSource.MMAP_THRESHOLD + 1);
+        BufferedStreamSource src = new BufferedStreamSource(file.toFile());
+        InputStream in = src.getStream();
+        in.read();
+        src.close();
+        assertThrows(IOException.class, in::read);
+    }
+
+    /**
+     * Pooled buffers that are too small for a file should stay in the pool.
+     */
+    @Test
+    void testSmallBuffersStayInPool() throws IOException {
+        try (BufferedStreamSource src = new BufferedStreamSource(createFile(100).toFile())) {
+            src.getStream().close();
+        }
+        int poolSize = BufferedStreamSource.getPoolSize();
+        assertTrue(poolSize > 0);
+        try (BufferedStreamSource src = new BufferedStreamSource(createFile(3 * 1024 * 1024).toFile())) {
+            src.getStream().close();
+            assertEquals(poolSize, BufferedStreamSource.getPoolSize());
+        }
+    }
+
+    @Test
+    void testBufferIsReturnedToPool() throws IOException {
+        Path file = createFile(100);
+        BufferedStreamSource src = new BufferedStreamSource(file.toFile());
+        src.getStream().close();
+        int poolSize = BufferedStreamSource.getPoolSize();
+        src.close();
+        assertTrue(BufferedStreamSource.getPoolSize() >= Math.min(poolSize + 1,
+                2 * Runtime.getRuntime().availableProcessors()));
+        assertThrows(IOException.class, src::getStream);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.opengrok.indexer.util.TestRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the throughput of {@link CtagsServer} with the per-file round-trips of {@link Ctags}.
+ * Requires Universal ctags, run with {@code -Dorg.opengrok.indexer.analysis.CtagsServerBenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "org.opengrok.indexer.analysis.CtagsServerBenchmark", matches = "true")
+class CtagsServerBenchmarkTest {
+
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 5;
+
+    private static TestRepository repository;
+    private static List<String> files;
+
+    @BeforeAll
+    static void setUpClass() throws Exception {
+        repository = new TestRepository();
+        repository.create(CtagsServerBenchmarkTest.class.getClassLoader().getResource("sources"));
+        try (Stream<Path> paths = Files.walk(Path.of(repository.getSourceRoot()))) {
+            files = paths.filter(Files::isRegularFile).map(Path::toString).collect(Collectors.toList());
+        }
+    }
+
+    @AfterAll
+    static void tearDownClass() {
+        repository.destroy();
+    }
+
+    private interface CtagsRunner {
+        Definitions run(String file) throws IOException, InterruptedException;
+    }
+
+    private static long runBenchmark(String name, CtagsRunner runner) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<Definitions>> futures = new ArrayList<>();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (String file : files) {
+                    futures.add(executor.submit(() -> runner.run(file)));
+                }
+            }
+            long symbols = 0;
+            for (Future<Definitions> future : futures) {
+                Definitions defs = future.get();
+                if (defs != null) {
+                    symbols += defs.numberOfSymbols();
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%s: %d files in %d ms (%.1f files/s), %d symbols%n", name, futures.size(),
+                    elapsed / 1_000_000, futures.size() * 1e9 / elapsed, symbols);
+            return symbols;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void compareThroughput() throws Exception {
+        List<Ctags> instances = new ArrayList<>();
+        ThreadLocal<Ctags> ctags = ThreadLocal.withInitial(() -> {
+            Ctags instance = new Ctags();
+            synchronized (instances) {
+                instances.add(instance);
+            }
+            return instance;
+        });
+        long perFileSymbols;
+        try {
+            perFileSymbols = runBenchmark("per-file", file -> ctags.get().doCtags(file));
+        } finally {
+            instances.forEach(Ctags::close);
+        }
+
+        long serverSymbols;
+        try (CtagsServer server = new CtagsServer(new Ctags().getArgv(), THREADS, Duration.ofSeconds(10))) {
+            serverSymbols = runBenchmark("server", file -> server.doCtags(file, 0));
+        }
+
+        assertEquals(perFileSymbols, serverSymbols);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the demultiplexing of {@link CtagsServer} using a shell script that mimics ctags in the filter mode.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class CtagsServerTest {
+
+    /**
+     * Emits single function definition named after the file. Exits on file named {@code crash},
+     * hangs on file named {@code hang}.
+     */
+    private static final String FAKE_CTAGS = "while read f; do " +
+            "n=$(basename \"$f\"); " +
+            "if [ \"$n\" = crash ]; then exit 1; fi; " +
+            "if [ \"$n\" = hang ]; then sleep 30; fi; " +
+            "printf '%s\\t%s\\t/^int %s(void) {$/;\"\\tfunction\\tline:1\\n' \"$n\" \"$f\" \"$n\"; " +
+            "echo " + Ctags.CTAGS_FILTER_TERMINATOR + "; " +
+            "done";
+
+    @TempDir
+    Path dir;
+
+    private CtagsServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private CtagsServer newServer(int processCount, Duration timeout) {
+        return new CtagsServer(List.of("sh", "-c", FAKE_CTAGS), processCount, timeout);
+    }
+
+    private String createFile(String name) throws IOException {
+        Path file = dir.resolve(name);
+        Files.writeString(file, String.format("int %s(void) {%n}%n", name));
+        return file.toString();
+    }
+
+    private static void assertDefinition(String name, Definitions defs) {
+        assertNotNull(defs);
+        assertEquals(1, defs.numberOfSymbols());
+        assertTrue(defs.hasDefinitionAt(name, 1, new String[1]));
+    }
+
+    @Test
+    void testConcurrentSubmissions() throws Exception {
+        server = newServer(2, Duration.ofSeconds(30));
+        final int count = 200;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(createFile("f" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Definitions>> futures = new ArrayList<>();
+            for (String file : files) {
+                futures.add(executor.submit(() -> server.doCtags(file, 0)));
+            }
+            for (int i = 0; i < count; i++) {
+                assertDefinition("f" + i, futures.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, server.getPendingCount());
+    }
+
+    @Test
+    void testProcessRestartAfterCrash() throws Exception {
+        server = newServer(1, Duration.ofSeconds(30));
+        assertDefinition("a", server.doCtags(createFile("a"), 0));
+        assertThrows(InterruptedException.class, () -> server.doCtags(createFile("crash"), 0));
+        assertDefinition("b", server.doCtags(createFile("b"), 0));
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        server = newServer(1, Duration.ofSeconds(1));
+        assertThrows(InterruptedException.class, () -> server.doCtags(createFile("hang"), 0));
+        assertDefinition("c", server.doCtags(createFile("c"), 0));
+        assertEquals(0, server.getPendingCount());
+    }
+
+    /**
+     * Zero timeout means that no timeout was configured, it should not abort the files right away.
+     */
+    @Test
+    void testZeroTimeout() throws Exception {
+        server = newServer(1, Duration.ZERO);
+        assertDefinition("z", server.doCtags(createFile("z"), 0));
+        assertEquals(0, server.getPendingCount());
+    }
+
+    /**
+     * The files queued behind a file that timed out should not time out themselves nor fail
+     * when the process is terminated.
+     */
+    @Test
+    void testTimeoutDoesNotFailQueuedFiles() throws Exception {
+        server = newServer(1, Duration.ofSeconds(2));
+        String hang = createFile("hang");
+        List<String> files = List.of(createFile("d"), createFile("e"));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<Definitions> hangFuture = executor.submit(() -> server.doCtags(hang, 0));
+            while (server.getPendingCount() == 0) {
+                Thread.sleep(10);
+            }
+            List<Future<Definitions>> futures = new ArrayList<>();
+            for (String file : files) {
+                futures.add(executor.submit(() -> server.doCtags(file, 0)));
+            }
+            ExecutionException exception = assertThrows(ExecutionException.class, hangFuture::get);
+            assertInstanceOf(InterruptedException.class, exception.getCause());
+            assertDefinition("d", futures.get(0).get());
+            assertDefinition("e", futures.get(1).get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, server.getPendingCount());
+    }
+}
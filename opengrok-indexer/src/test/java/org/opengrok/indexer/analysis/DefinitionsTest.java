@@ -18,18 +18,27 @@
  */
 
 /*
- * Copyright (c) 2010, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -145,4 +154,115 @@ class DefinitionsTest {
         assertEquals(instance.getSymbols().size(), deserializedInstance.getSymbols().size());
     }
 
+    private static Definitions createDefinitions() {
+        Definitions instance = new Definitions();
+        instance.addTag(10, "foo", "function", "int foo(void) {", "Bar", "(void)", 4, 7);
+        instance.addTag(2, "bar", "variable", "static int bar = -1;", 11, 14);
+        instance.addTag(10, "foo", "macro", "int foo(void) {", null, null, -1, 0);
+        instance.addTag(300, "foo", "function", "void foo() { /* \u00e9\u00e8 */ }", 5, 8);
+        return instance;
+    }
+
+    private static void assertTagEquals(Definitions.Tag expected, Definitions.Tag actual) {
+        assertEquals(expected.line, actual.line);
+        assertEquals(expected.symbol, actual.symbol);
+        assertEquals(expected.type, actual.type);
+        assertEquals(expected.text, actual.text);
+        assertEquals(expected.namespace, actual.namespace);
+        assertEquals(expected.signature, actual.signature);
+        assertEquals(expected.lineStart, actual.lineStart);
+        assertEquals(expected.lineEnd, actual.lineEnd);
+    }
+
+    @Test
+    void serializeAllFields() throws Exception {
+        Definitions instance = createDefinitions();
+        Definitions deserializedInstance = Definitions.deserialize(instance.serialize());
+
+        List<Definitions.Tag> tags = deserializedInstance.getTags();
+        assertEquals(4, tags.size());
+        // The tags keep the order in which they were added.
+        for (int i = 0; i < tags.size(); i++) {
+            assertTagEquals(instance.getTags().get(i), tags.get(i));
+        }
+        assertEquals(instance.getSymbols(), deserializedInstance.getSymbols());
+        assertTrue(deserializedInstance.hasDefinitionAt("foo", 300, new String[1]));
+    }
+
+    /**
+     * The queries that can be answered from the encoded form should give the same results
+     * as the materialized instance.
+     */
+    @Test
+    void deserializedLineQueries() throws Exception {
+        Definitions instance = createDefinitions();
+        byte[] serial = instance.serialize();
+
+        Definitions deserializedInstance = Definitions.deserialize(serial);
+        assertNull(deserializedInstance.getTags(1));
+        List<Definitions.Tag> lineTags = deserializedInstance.getTags(10);
+        assertNotNull(lineTags);
+        assertEquals(2, lineTags.size());
+        assertEquals(Set.of("function", "macro"), Set.of(lineTags.get(0).type, lineTags.get(1).type));
+        assertEquals(2, deserializedInstance.occurrences("foo"));
+        assertEquals(1, deserializedInstance.occurrences("bar"));
+        assertEquals(0, deserializedInstance.occurrences("baz"));
+
+        // Re-serializing without materializing gives the same bytes.
+        assertArrayEquals(serial, deserializedInstance.serialize());
+
+        deserializedInstance.addTag(1, "baz", "", "", 0, 0);
+        assertEquals(5, deserializedInstance.getTags().size());
+        assertEquals(1, deserializedInstance.occurrences("baz"));
+        assertEquals(1, Definitions.deserialize(deserializedInstance.serialize()).getTags(1).size());
+    }
+
+    /**
+     * The de-serialized instance is shared by the threads of the web application.
+     */
+    @Test
+    void deserializedConcurrentQueries() throws Exception {
+        Definitions deserializedInstance = Definitions.deserialize(createDefinitions().serialize());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        assertEquals(2, deserializedInstance.occurrences("foo"));
+                        assertEquals("bar", deserializedInstance.getTags(2).get(0).symbol);
+                        assertEquals(2, deserializedInstance.getTags(10).size());
+                    }
+                    assertEquals(4, deserializedInstance.getTags().size());
+                    assertTrue(deserializedInstance.hasSymbol("bar"));
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Definitions stored by older versions use Java serialization.
+     */
+    @Test
+    void deserializeJavaSerialization() throws Exception {
+        Definitions instance = createDefinitions();
+        byte[] serial;
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(instance);
+            oos.flush();
+            serial = bytes.toByteArray();
+        }
+
+        Definitions deserializedInstance = Definitions.deserialize(serial);
+        assertEquals(4, deserializedInstance.getTags().size());
+        assertEquals(2, deserializedInstance.occurrences("foo"));
+        assertEquals(2, deserializedInstance.getTags(10).size());
+    }
+
 }
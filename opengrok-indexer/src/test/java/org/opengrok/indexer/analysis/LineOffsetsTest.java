@@ -0,0 +1,227 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.configuration.Project;
+import org.opengrok.indexer.util.IOUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link LineOffsets} class.
+ */
+class LineOffsetsTest {
+
+    /**
+     * Splits after the line ends while keeping them.
+     */
+    private static final String LINE_END = "(?<=\r\n|\r(?!\n)|\n)";
+
+    private static String getLargeContent() {
+        StringBuilder content = new StringBuilder();
+        int i = 0;
+        while (content.length() < LineOffsets.MIN_FILE_SIZE) {
+            switch (i % 4) {
+                case 0:
+                    content.append("plain line ").append(i).append('\n');
+                    break;
+                case 1:
+                    content.append('\n');
+                    break;
+                case 2:
+                    content.append("\u00e9t\u00e9 \u20ac ").append(i).append("\r\n");
+                    break;
+                default:
+                    content.append("\tab\tc ").append(i).append('\r');
+                    break;
+            }
+            i++;
+        }
+        return content.append("last line without EOL").toString();
+    }
+
+    private static StreamSource fromBytes(byte[] bytes) {
+        return new StreamSource() {
+            @Override
+            public InputStream getStream() {
+                return new ByteArrayInputStream(bytes);
+            }
+        };
+    }
+
+    /**
+     * Verifies that the line offsets match the bytes and the (tab expanded) characters of every line.
+     */
+    private static void verify(byte[] bytes, String content, int tabSize, LineOffsets lineOffsets)
+            throws IOException {
+
+        StringBuilder expanded = new StringBuilder();
+        try (Reader reader = ExpandTabsReader.wrap(new StringReader(content), tabSize)) {
+            int c;
+            while ((c = reader.read()) != -1) {
+                expanded.append((char) c);
+            }
+        }
+        String[] lines = content.split(LINE_END);
+        String[] expandedLines = expanded.toString().split(LINE_END);
+
+        assertEquals(tabSize, lineOffsets.getTabSize());
+        assertEquals(bytes.length, lineOffsets.getLength());
+        assertEquals(lines.length, lineOffsets.getLineCount());
+        LineOffsets.Cursor cursor = lineOffsets.cursor();
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(cursor.next());
+            assertEquals(i, cursor.getLine());
+            assertEquals(lines[i], new String(bytes, (int) cursor.getByteStart(),
+                    (int) (cursor.getByteEnd() - cursor.getByteStart()), StandardCharsets.UTF_8));
+            assertEquals(expandedLines[i], expanded.substring((int) cursor.getCharStart(), (int) cursor.getCharEnd()));
+        }
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void testCompute() throws IOException {
+        String content = getLargeContent();
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        BytesRef value = LineOffsets.compute(fromBytes(bytes), null);
+        assertNotNull(value);
+        LineOffsets lineOffsets = LineOffsets.read(value);
+        assertNotNull(lineOffsets);
+        verify(bytes, content, 0, lineOffsets);
+    }
+
+    @Test
+    void testComputeWithTabSize() throws IOException {
+        Project project = new Project("foo", "/foo");
+        project.setTabSize(4);
+        String content = getLargeContent();
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        LineOffsets lineOffsets = LineOffsets.read(LineOffsets.compute(fromBytes(bytes), project));
+        assertNotNull(lineOffsets);
+        verify(bytes, content, 4, lineOffsets);
+    }
+
+    @Test
+    void testComputeWithBOM() throws IOException {
+        String content = getLargeContent();
+        byte[] text = content.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[text.length + 3];
+        bytes[0] = (byte) 0xEF;
+        bytes[1] = (byte) 0xBB;
+        bytes[2] = (byte) 0xBF;
+        System.arraycopy(text, 0, bytes, 3, text.length);
+
+        LineOffsets lineOffsets = LineOffsets.read(LineOffsets.compute(fromBytes(bytes), null));
+        assertNotNull(lineOffsets);
+        assertEquals(bytes.length, lineOffsets.getLength());
+        LineOffsets.Cursor cursor = lineOffsets.cursor();
+        assertTrue(cursor.next());
+        assertEquals(3, cursor.getByteStart());
+        assertEquals(0, cursor.getCharStart());
+    }
+
+    /**
+     * The character offsets have to match the text produced by the reader also for the characters
+     * that span the buffers and for the malformed input.
+     */
+    @Test
+    void testComputeMatchesReader() throws IOException {
+        Project project = new Project("foo", "/foo");
+        project.setTabSize(8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; out.size() < LineOffsets.MIN_FILE_SIZE; i++) {
+            out.writeBytes(("\t\uD83D\uDE00 " + i).getBytes(StandardCharsets.UTF_8));
+            out.write(0xFF); // malformed
+            out.write(0xE2); // truncated sequence
+            out.writeBytes(("\u00e9\t" + i % 3 + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] bytes = out.toByteArray();
+
+        StringBuilder expanded = new StringBuilder();
+        try (Reader reader = ExpandTabsReader.wrap(IOUtils.createBOMStrippedReader(new ByteArrayInputStream(bytes),
+                StandardCharsets.UTF_8.name()), project)) {
+            int c;
+            while ((c = reader.read()) != -1) {
+                expanded.append((char) c);
+            }
+        }
+        String[] expandedLines = expanded.toString().split(LINE_END);
+
+        LineOffsets lineOffsets = LineOffsets.read(LineOffsets.compute(fromBytes(bytes), project));
+        assertNotNull(lineOffsets);
+        assertEquals(bytes.length, lineOffsets.getLength());
+        assertEquals(expandedLines.length, lineOffsets.getLineCount());
+        LineOffsets.Cursor cursor = lineOffsets.cursor();
+        for (String line : expandedLines) {
+            assertTrue(cursor.next());
+            assertEquals(line, expanded.substring((int) cursor.getCharStart(), (int) cursor.getCharEnd()));
+            assertEquals('\n', bytes[(int) cursor.getByteEnd() - 1]);
+        }
+    }
+
+    @Test
+    void testComputeUTF16() throws IOException {
+        byte[] bytes = ("\uFEFF" + getLargeContent()).getBytes(StandardCharsets.UTF_16BE);
+        assertNull(LineOffsets.compute(fromBytes(bytes), null));
+    }
+
+    @Test
+    void testComputeSmallFile() throws IOException {
+        assertNull(LineOffsets.compute(StreamSource.fromString("foo\nbar\n"), null));
+    }
+
+    @Test
+    void testAdvanceTo() throws IOException {
+        String content = getLargeContent();
+        LineOffsets lineOffsets = LineOffsets.read(LineOffsets.compute(
+                fromBytes(content.getBytes(StandardCharsets.UTF_8)), null));
+        assertNotNull(lineOffsets);
+
+        int offset = content.indexOf("plain line 8\n");
+        LineOffsets.Cursor cursor = lineOffsets.cursor();
+        assertTrue(cursor.advanceTo(offset));
+        assertEquals(8, cursor.getLine());
+        assertEquals(offset, cursor.getCharStart());
+
+        LineOffsets.Cursor copy = cursor.copy();
+        assertTrue(copy.advanceTo(offset + "plain line 8\n".length()));
+        assertEquals(9, copy.getLine());
+        assertEquals(8, cursor.getLine());
+
+        assertFalse(cursor.advanceTo(content.length()));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis.plain;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.analysis.AbstractAnalyzer;
+import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.analysis.RecordedSymbolTokenStream;
+import org.opengrok.indexer.analysis.StreamSource;
+import org.opengrok.indexer.analysis.WriteXrefArgs;
+import org.opengrok.indexer.analysis.java.JavaAnalyzerFactory;
+import org.opengrok.indexer.search.QueryBuilder;
+import org.opengrok.indexer.util.NullWriter;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the analyzers which record the symbol tokens during the xref generation
+ * produce the same tokens as their symbol tokenizers.
+ */
+class JointLexingTest {
+
+    private static List<String> getTokens(TokenStream ts) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+        OffsetAttribute offset = ts.addAttribute(OffsetAttribute.class);
+        ts.reset();
+        while (ts.incrementToken()) {
+            tokens.add(term + "@" + offset.startOffset() + "-" + offset.endOffset());
+        }
+        ts.end();
+        ts.close();
+        return tokens;
+    }
+
+    private static List<Path> getSamples() throws IOException, URISyntaxException {
+        Path root = Path.of(Objects.requireNonNull(
+                JointLexingTest.class.getClassLoader().getResource("analysis")).toURI());
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile).
+                    filter(path -> !path.toString().endsWith(".html")).
+                    sorted().
+                    collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testRecordedSymbolsMatchSymbolTokenizer() throws Exception {
+        Set<String> covered = new TreeSet<>();
+        for (Path sample : getSamples()) {
+            File file = sample.toFile();
+            AbstractAnalyzer fa;
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                fa = AnalyzerGuru.getAnalyzer(in, file.getPath());
+            }
+            if (!(fa instanceof PlainAnalyzer) || !((PlainAnalyzer) fa).supportsJointLexing()) {
+                continue;
+            }
+            PlainAnalyzer analyzer = (PlainAnalyzer) fa;
+
+            List<String> expected;
+            try (Reader in = analyzer.getReader(new FileInputStream(file))) {
+                expected = getTokens(analyzer.tokenStream(QueryBuilder.REFS, in));
+            }
+
+            RecordedSymbolTokenStream recorded = new RecordedSymbolTokenStream();
+            try (Reader in = analyzer.getReader(new FileInputStream(file))) {
+                WriteXrefArgs args = new WriteXrefArgs(in, new NullWriter());
+                args.setSymbolMatchedListener(recorded);
+                analyzer.writeXref(args);
+            }
+
+            assertEquals(expected, getTokens(recorded), file.toString());
+            covered.add(analyzer.getClass().getSimpleName());
+        }
+        assertTrue(covered.size() > 20, "only " + covered + " covered");
+    }
+
+    @Test
+    void testAnalyzeRecordsSymbols() throws Exception {
+        AbstractAnalyzer fa = new JavaAnalyzerFactory().getAnalyzer();
+        fa.setScopesEnabled(false);
+        Document doc = new Document();
+        fa.analyze(doc, StreamSource.fromString("class Foo { int bar; }"), new StringWriter());
+
+        TokenStream refs = ((Field) doc.getField(QueryBuilder.REFS)).tokenStreamValue();
+        assertInstanceOf(RecordedSymbolTokenStream.class, refs);
+        assertEquals(List.of("Foo@6-9", "bar@16-19"), getTokens(refs));
+    }
+}
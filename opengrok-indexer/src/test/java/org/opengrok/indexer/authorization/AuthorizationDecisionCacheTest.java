@@ -0,0 +1,273 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.authorization;
+
+import java.nio.file.Path;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.configuration.Configuration;
+import org.opengrok.indexer.configuration.Group;
+import org.opengrok.indexer.configuration.Project;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.web.DummyHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthorizationDecisionCacheTest {
+
+    private final AtomicInteger projectChecks = new AtomicInteger();
+    private final AtomicInteger groupChecks = new AtomicInteger();
+    private String savedUserHeader;
+    private int savedCacheSize;
+
+    @TempDir
+    Path pluginDirectory;
+
+    @BeforeEach
+    void setUp() {
+        savedUserHeader = RuntimeEnvironment.getInstance().getAuthorizationCacheUserHeader();
+        savedCacheSize = RuntimeEnvironment.getInstance().getAuthorizationCacheSize();
+        RuntimeEnvironment.getInstance().setAuthorizationCacheSize(1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RuntimeEnvironment.getInstance().setAuthorizationCacheUserHeader(savedUserHeader);
+        RuntimeEnvironment.getInstance().setAuthorizationCacheSize(savedCacheSize);
+    }
+
+    @Test
+    void testTimeout() {
+        AtomicLong clock = new AtomicLong();
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache(1, 10, 60, clock::get);
+        Map<String, Boolean> decisions = cache.getDecisions("alice", "projects");
+        decisions.put("foo", true);
+        assertSame(decisions, cache.getDecisions("alice", "projects"));
+        assertNotSame(decisions, cache.getDecisions("alice", "groups"));
+        assertNotSame(decisions, cache.getDecisions("bob", "projects"));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertTrue(cache.getDecisions("alice", "projects").isEmpty());
+    }
+
+    @Test
+    void testEviction() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache(1, 2, 60);
+        cache.getDecisions("alice", "projects").put("foo", true);
+        cache.getDecisions("bob", "projects").put("foo", true);
+        // alice is the most recently used now
+        cache.getDecisions("alice", "projects");
+        cache.getDecisions("carol", "projects");
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.getDecisions("alice", "projects").isEmpty());
+        assertTrue(cache.getDecisions("bob", "projects").isEmpty());
+    }
+
+    private AuthorizationFramework createFramework() {
+        AuthorizationFramework framework = new AuthorizationFramework(pluginDirectory.toString());
+        framework.setLoadClasses(false);
+        framework.setLoadJars(false);
+        // reload to get the decision cache for new plugin version
+        framework.reload();
+        setStack(framework);
+        return framework;
+    }
+
+    private void setStack(AuthorizationFramework framework) {
+        AuthorizationStack stack = new AuthorizationStack(AuthControlFlag.REQUIRED, "stack");
+        stack.add(new AuthorizationPlugin(AuthControlFlag.REQUIRED, new TestPlugin() {
+            @Override
+            public boolean isAllowed(HttpServletRequest request, Project project) {
+                projectChecks.incrementAndGet();
+                return project.getName().startsWith("allowed");
+            }
+
+            @Override
+            public boolean isAllowed(HttpServletRequest request, Group group) {
+                groupChecks.incrementAndGet();
+                return group.getName().startsWith("allowed");
+            }
+        }));
+        framework.loadAllPlugins(stack);
+        framework.stack = stack;
+    }
+
+    private static HttpServletRequest createRequest(String user, Map<String, String> headers) {
+        return new DummyHttpServletRequest() {
+            @Override
+            public Principal getUserPrincipal() {
+                return user == null ? null : () -> user;
+            }
+
+            @Override
+            public String getHeader(String name) {
+                return headers.get(name);
+            }
+
+            @Override
+            public Map<String, String[]> getParameterMap() {
+                return new HashMap<>();
+            }
+        };
+    }
+
+    private static HttpServletRequest createRequest(String user) {
+        return createRequest(user, Map.of());
+    }
+
+    @Test
+    void testDecisionsAreSharedByUserRequests() {
+        AuthorizationFramework framework = createFramework();
+        Project allowed = new Project("allowed_project");
+        Project denied = new Project("denied_project");
+
+        assertTrue(framework.isAllowed(createRequest("alice"), allowed));
+        assertFalse(framework.isAllowed(createRequest("alice"), denied));
+        assertEquals(2, projectChecks.get());
+
+        assertTrue(framework.isAllowed(createRequest("alice"), allowed));
+        assertFalse(framework.isAllowed(createRequest("alice"), denied));
+        assertEquals(2, projectChecks.get());
+
+        // different user
+        assertTrue(framework.isAllowed(createRequest("bob"), allowed));
+        assertEquals(3, projectChecks.get());
+
+        // unknown user
+        assertTrue(framework.isAllowed(createRequest(null), allowed));
+        assertTrue(framework.isAllowed(createRequest(null), allowed));
+        assertEquals(5, projectChecks.get());
+
+        // groups are cached separately
+        Group group = new Group("allowed_project");
+        assertTrue(framework.isAllowed(createRequest("alice"), group));
+        assertTrue(framework.isAllowed(createRequest("alice"), group));
+        assertEquals(1, groupChecks.get());
+    }
+
+    /**
+     * The plugins may depend on the state of the session so the decisions are not cached across requests
+     * unless configured.
+     */
+    @Test
+    void testDisabledByDefault() {
+        RuntimeEnvironment.getInstance().setAuthorizationCacheSize(new Configuration().getAuthorizationCacheSize());
+        AuthorizationFramework framework = createFramework();
+        Project project = new Project("allowed_project");
+
+        assertTrue(framework.isAllowed(createRequest("alice"), project));
+        assertTrue(framework.isAllowed(createRequest("alice"), project));
+        assertEquals(2, projectChecks.get());
+    }
+
+    @Test
+    void testSessionIsCheckedOnUserCacheHit() {
+        AuthorizationFramework framework = createFramework();
+        Project project = new Project("allowed_project");
+
+        assertTrue(framework.isAllowed(createRequest("alice"), project));
+        HttpServletRequest request = createRequest("alice");
+        assertTrue(framework.isAllowed(request, project));
+        assertEquals(1, projectChecks.get());
+        assertNotNull(request.getSession(false));
+    }
+
+    @Test
+    void testReloadInvalidatesDecisions() {
+        AuthorizationFramework framework = createFramework();
+        Project project = new Project("allowed_project");
+
+        assertTrue(framework.isAllowed(createRequest("alice"), project));
+        assertEquals(1, projectChecks.get());
+
+        framework.reload();
+        setStack(framework);
+        assertTrue(framework.isAllowed(createRequest("alice"), project));
+        assertEquals(2, projectChecks.get());
+    }
+
+    @Test
+    void testUserHeader() {
+        RuntimeEnvironment.getInstance().setAuthorizationCacheUserHeader("X-User");
+        AuthorizationFramework framework = createFramework();
+        Project project = new Project("allowed_project");
+
+        assertTrue(framework.isAllowed(createRequest(null, Map.of("X-User", "alice")), project));
+        assertTrue(framework.isAllowed(createRequest(null, Map.of("X-User", "alice")), project));
+        assertEquals(1, projectChecks.get());
+        // the principal takes precedence
+        assertTrue(framework.isAllowed(createRequest("alice", Map.of("X-User", "alice")), project));
+        assertEquals(2, projectChecks.get());
+    }
+
+    @Test
+    void testGetAllowedProjects() {
+        AuthorizationFramework framework = createFramework();
+        List<Project> projects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            projects.add(new Project((i % 2 == 0 ? "allowed_" : "denied_") + i));
+        }
+
+        HttpServletRequest request = createRequest("alice");
+        assertTrue(framework.isAllowed(request, projects.get(0)));
+        List<Project> allowed = framework.getAllowedProjects(request, projects);
+        assertEquals(50, allowed.size());
+        assertTrue(allowed.stream().allMatch(p -> p.getName().startsWith("allowed_")));
+        assertEquals(projects.get(0), allowed.get(0));
+        assertEquals(100, projectChecks.get());
+
+        // the decisions are cached for the single checks and across requests
+        for (Project project : projects) {
+            assertEquals(project.getName().startsWith("allowed_"), framework.isAllowed(request, project));
+        }
+        assertEquals(allowed, framework.getAllowedProjects(createRequest("alice"), projects));
+        assertEquals(100, projectChecks.get());
+    }
+
+    @Test
+    void testGetAllowedGroups() {
+        AuthorizationFramework framework = createFramework();
+        List<Group> groups = List.of(new Group("allowed_group"), new Group("denied_group"));
+        assertEquals(List.of(groups.get(0)), framework.getAllowedGroups(createRequest("alice"), groups));
+        assertEquals(List.of(groups.get(0)), framework.getAllowedGroups(createRequest("alice"), groups));
+        assertEquals(2, groupChecks.get());
+    }
+}
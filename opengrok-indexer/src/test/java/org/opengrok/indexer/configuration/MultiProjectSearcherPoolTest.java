@@ -0,0 +1,176 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.index.IndexDatabase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MultiProjectSearcherPoolTest {
+
+    private static final List<String> PROJECTS = List.of("foo", "bar", "baz");
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+    private String origDataRoot;
+
+    @TempDir
+    Path dataRoot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        origDataRoot = env.getDataRootPath();
+        env.setDataRoot(dataRoot.toString());
+        for (String project : PROJECTS) {
+            addDocument(project, "/" + project + "/file");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        env.releaseIndexSearchers();
+        env.setDataRoot(origDataRoot);
+    }
+
+    private void addDocument(String project, String path) throws IOException {
+        Path indexDir = dataRoot.resolve(IndexDatabase.INDEX_DIR).resolve(project);
+        try (IndexWriter writer = new IndexWriter(FSDirectory.open(indexDir),
+                new IndexWriterConfig(new StandardAnalyzer()))) {
+            Document doc = new Document();
+            doc.add(new StringField("path", path, Field.Store.YES));
+            writer.addDocument(doc);
+        }
+    }
+
+    private static SortedSet<String> projects(String... names) {
+        return new TreeSet<>(List.of(names));
+    }
+
+    @Test
+    void testSearcherIsReused() throws IOException {
+        MultiProjectSearcherPool pool = new MultiProjectSearcherPool(env);
+        MultiProjectSearcher searcher1 = pool.acquire(projects("foo", "bar"));
+        MultiProjectSearcher searcher2 = pool.acquire(projects("bar", "foo"));
+        assertSame(searcher1, searcher2);
+        assertEquals(2, searcher1.getIndexReader().numDocs());
+        // pool + 2 users
+        assertEquals(3, searcher1.getRefCount());
+
+        MultiProjectSearcher searcher3 = pool.acquire(projects("foo", "bar", "baz"));
+        assertNotSame(searcher1, searcher3);
+        assertEquals(3, searcher3.getIndexReader().numDocs());
+        assertEquals(2, pool.size());
+
+        searcher1.release();
+        searcher2.release();
+        searcher3.release();
+        assertEquals(1, searcher1.getRefCount());
+        assertEquals(1, searcher3.getRefCount());
+
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertEquals(0, searcher1.getIndexReader().getRefCount());
+        assertEquals(0, searcher3.getIndexReader().getRefCount());
+    }
+
+    /**
+     * Invalidated searcher has to remain usable until released by all its users.
+     */
+    @Test
+    void testInvalidate() throws IOException {
+        MultiProjectSearcherPool pool = new MultiProjectSearcherPool(env);
+        MultiProjectSearcher fooBar = pool.acquire(projects("foo", "bar"));
+        MultiProjectSearcher baz = pool.acquire(projects("baz"));
+
+        pool.invalidate("foo");
+        assertEquals(1, pool.size());
+        IndexReader reader = fooBar.getIndexReader();
+        assertEquals(1, reader.getRefCount());
+        assertEquals(2, reader.numDocs());
+
+        MultiProjectSearcher fooBar2 = pool.acquire(projects("foo", "bar"));
+        assertNotSame(fooBar, fooBar2);
+        assertSame(baz, pool.acquire(projects("baz")));
+
+        fooBar.release();
+        assertEquals(0, reader.getRefCount());
+        assertThrows(IllegalStateException.class, fooBar::release);
+
+        fooBar2.release();
+        baz.release();
+        baz.release();
+        pool.clear();
+    }
+
+    @Test
+    void testEviction() throws IOException {
+        MultiProjectSearcherPool pool = new MultiProjectSearcherPool(env, 2);
+        for (String project : PROJECTS) {
+            pool.acquire(projects(project)).release();
+        }
+        assertEquals(2, pool.size());
+
+        MultiProjectSearcher baz = pool.acquire(projects("baz"));
+        assertEquals(2, baz.getRefCount());
+        baz.release();
+        pool.clear();
+    }
+
+    @Test
+    void testRefreshInvalidatesPooledSearchers() throws IOException {
+        MultiProjectSearcherPool pool = env.getMultiProjectSearcherPool();
+        MultiProjectSearcher searcher = pool.acquire(projects("foo", "bar"));
+        searcher.release();
+        assertSame(searcher, pool.acquire(projects("foo", "bar")));
+        searcher.release();
+
+        addDocument("foo", "/foo/file2");
+        env.maybeRefreshIndexSearchers(List.of("foo"));
+
+        MultiProjectSearcher refreshed = pool.acquire(projects("foo", "bar"));
+        assertNotSame(searcher, refreshed);
+        assertEquals(3, refreshed.getIndexReader().numDocs());
+        assertEquals(0, searcher.getIndexReader().getRefCount());
+        refreshed.release();
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2008, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.history;
 
@@ -35,6 +35,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -164,6 +165,79 @@ class CVSHistoryParserTest {
         assertEquals(Map.of(revId2, tag1), result.getTags());
     }
 
+    /**
+     * Parse output of {@code cvs log} run for multiple files, including a file without selected revisions.
+     */
+    @Test
+    void parseMultipleFiles() throws Exception {
+        String output = "\n" +
+                "RCS file: /cvsroot/repo/foo.c,v\n" +
+                "Working file: foo.c\n" +
+                "head: 1.2\n" +
+                "branch:\n" +
+                "locks: strict\n" +
+                "access list:\n" +
+                "symbolic names:\n" +
+                "\tfoo_tag: 1.1\n" +
+                "keyword substitution: kv\n" +
+                "total revisions: 2;\tselected revisions: 2\n" +
+                "description:\n" +
+                "----------------------------\n" +
+                "revision 1.2\n" +
+                "date: 2008/09/04 16:11:24;  author: austvik;  state: Exp;  lines: +1 -0;\n" +
+                "second\n" +
+                "----------------------------\n" +
+                "revision 1.1\n" +
+                "date: 2008/09/04 16:09:41;  author: austvik;  state: Exp;\n" +
+                "first\n" +
+                "=============================================================================\n" +
+                "\n" +
+                "RCS file: /cvsroot/repo/dir/empty.c,v\n" +
+                "Working file: dir/empty.c\n" +
+                "head: 1.1\n" +
+                "branch:\n" +
+                "locks: strict\n" +
+                "access list:\n" +
+                "symbolic names:\n" +
+                "keyword substitution: kv\n" +
+                "total revisions: 1;\tselected revisions: 0\n" +
+                "description:\n" +
+                "=============================================================================\n" +
+                "\n" +
+                "RCS file: /cvsroot/repo/dir/bar.c,v\n" +
+                "Working file: dir/bar.c\n" +
+                "head: 1.1\n" +
+                "branch:\n" +
+                "locks: strict\n" +
+                "access list:\n" +
+                "symbolic names:\n" +
+                "\tbar_tag: 1.1\n" +
+                "keyword substitution: kv\n" +
+                "total revisions: 1;\tselected revisions: 1\n" +
+                "description:\n" +
+                "----------------------------\n" +
+                "revision 1.1\n" +
+                "date: 2008/09/04 16:09:41;  author: someone;  state: Exp;\n" +
+                "bar\n" +
+                "=============================================================================\n";
+
+        Map<String, History> result = new LinkedHashMap<>();
+        instance.parse(output, result::put);
+        assertEquals(List.of("foo.c", "dir/empty.c", "dir/bar.c"), List.copyOf(result.keySet()));
+
+        History foo = result.get("foo.c");
+        assertEquals(List.of("1.2", "1.1"), foo.getRevisionList());
+        assertEquals("second", foo.getHistoryEntries().get(0).getMessage());
+        assertEquals(Map.of("1.1", "foo_tag"), foo.getTags());
+
+        assertEquals(0, result.get("dir/empty.c").getHistoryEntries().size());
+
+        History bar = result.get("dir/bar.c");
+        assertEquals(List.of("1.1"), bar.getRevisionList());
+        assertEquals("someone", bar.getHistoryEntries().get(0).getAuthor());
+        assertEquals(Map.of("1.1", "bar_tag"), bar.getTags());
+    }
+
     /**
      * Check that history can be retrieved for a directory. This is needed for the web application to operate
      * correctly. Specifically, this tests the state transitions in {@link CVSHistoryParser#processStream(InputStream)}.
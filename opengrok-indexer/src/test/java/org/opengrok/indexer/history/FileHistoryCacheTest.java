@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2014, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, 2020, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2020, 2023, Ric Harris <harrisric@users.noreply.github.com>.
  */
@@ -29,7 +29,9 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.opengrok.indexer.condition.RepositoryInstalled.Type.MERCURIAL;
 import static org.opengrok.indexer.condition.RepositoryInstalled.Type.SCCS;
 import static org.opengrok.indexer.condition.RepositoryInstalled.Type.SUBVERSION;
@@ -1054,6 +1056,93 @@ class FileHistoryCacheTest {
         assertEquals("aa35c25882b9a60a97758e0ceb276a3f8cb4ae3a", historyEntry.getRevision());
     }
 
+    /**
+     * Incremental history stored in {@link SegmentedHistoryCache} should be merged with the history
+     * of the file that is already stored.
+     */
+    @Test
+    void testSegmentedStoreFileMerge() throws Exception {
+        File repositoryRoot = new File(repositories.getSourceRoot(), "git");
+        Repository repository = RepositoryFactory.getRepository(repositoryRoot);
+        SegmentedHistoryCache segmentedCache = new SegmentedHistoryCache();
+        segmentedCache.initialize();
+
+        segmentedCache.clear(repository);
+        File sourceFile = new File(repositoryRoot, "main.c");
+        assertNull(segmentedCache.getLastHistoryEntry(sourceFile));
+
+        segmentedCache.store(repository.getHistory(repositoryRoot), repository);
+        List<HistoryEntry> storedEntries = segmentedCache.get(sourceFile, repository, false).getHistoryEntries();
+        assertTrue(storedEntries.size() > 1);
+        assertEquals("aa35c25882b9a60a97758e0ceb276a3f8cb4ae3a",
+                segmentedCache.getLastHistoryEntry(sourceFile).getRevision());
+
+        HistoryEntry newEntry = new HistoryEntry("0123456789abcdef0123456789abcdef01234567", null,
+                new Date(), "Tom", "incremental change", true, null);
+        segmentedCache.storeFile(new History(new LinkedList<>(List.of(newEntry))), sourceFile, repository, true);
+
+        List<HistoryEntry> expectedEntries = new LinkedList<>(storedEntries);
+        expectedEntries.add(0, newEntry);
+        assertSameEntries(expectedEntries, segmentedCache.get(sourceFile, repository, false).getHistoryEntries(),
+                false);
+        assertSameEntry(newEntry, segmentedCache.getLastHistoryEntry(sourceFile), false);
+    }
+
+    /**
+     * History of a file removed via {@link SegmentedHistoryCache#clearFile(String)} should not be returned
+     * until it is stored again. The history of other files should not be affected.
+     */
+    @Test
+    void testSegmentedClearFile() throws Exception {
+        File repositoryRoot = new File(repositories.getSourceRoot(), "git");
+        Repository repository = RepositoryFactory.getRepository(repositoryRoot);
+        SegmentedHistoryCache segmentedCache = new SegmentedHistoryCache();
+        segmentedCache.initialize();
+
+        segmentedCache.clear(repository);
+        segmentedCache.store(repository.getHistory(repositoryRoot), repository);
+        File sourceFile = new File(repositoryRoot, "main.c");
+        File otherFile = new File(repositoryRoot, "header.h");
+        assertTrue(segmentedCache.hasCacheForFile(sourceFile));
+        List<HistoryEntry> otherEntries = segmentedCache.get(otherFile, repository, false).getHistoryEntries();
+
+        segmentedCache.clearFile(env.getPathRelativeToSourceRoot(sourceFile));
+        assertFalse(segmentedCache.hasCacheForFile(sourceFile));
+        assertNull(segmentedCache.get(sourceFile, repository, false));
+        assertNull(segmentedCache.getLastHistoryEntry(sourceFile));
+        assertSameEntries(otherEntries, segmentedCache.get(otherFile, repository, false).getHistoryEntries(),
+                false);
+
+        // Nothing to merge with after the history was cleared.
+        History history = repository.getHistory(sourceFile);
+        segmentedCache.storeFile(history, sourceFile, repository, true);
+        assertTrue(segmentedCache.hasCacheForFile(sourceFile));
+        assertSameEntries(history.getHistoryEntries(),
+                segmentedCache.get(sourceFile, repository, false).getHistoryEntries(), false);
+        assertSameEntry(history.getHistoryEntries().get(0), segmentedCache.getLastHistoryEntry(sourceFile), false);
+    }
+
+    @Test
+    void testGetHistoryEntries() throws Exception {
+        File repositoryRoot = new File(repositories.getSourceRoot(), "git");
+        Repository repository = RepositoryFactory.getRepository(repositoryRoot);
+
+        cache.clear(repository);
+        File sourceFile = new File(repositoryRoot, "main.c");
+        assertNull(cache.getHistoryEntries(sourceFile, repository, -1));
+
+        cache.store(repository.getHistory(repositoryRoot), repository);
+        List<HistoryEntry> expected = cache.get(sourceFile, repository, false).getHistoryEntries();
+        assertTrue(expected.size() > 1);
+
+        List<HistoryEntry> actual = new LinkedList<>();
+        try (HistoryEntryIterator entries = cache.getHistoryEntries(sourceFile, repository, -1)) {
+            assertNotNull(entries);
+            entries.forEachRemaining(actual::add);
+        }
+        assertEquals(expected, actual);
+    }
+
     /**
      * Test {@link FileHistoryCache#fillLastHistoryEntries(List)}, in particular that it avoids
      * getting history cache entries for directories.
@@ -1095,6 +1184,52 @@ class FileHistoryCacheTest {
         cache.clear(repository);
     }
 
+    /**
+     * Test that {@link FileHistoryCache#fillLastHistoryEntries(List)} uses the directory summary
+     * written by {@link FileHistoryCache#store(History, Repository)} and reads the history of individual
+     * files only for the entries whose summary is out of date.
+     */
+    @Test
+    void testFillLastHistoryEntriesFromDirectorySummary() throws Exception {
+        File repositoryRoot = new File(repositories.getSourceRoot(), "git");
+        Repository repository = RepositoryFactory.getRepository(repositoryRoot);
+
+        FileHistoryCache spyCache = Mockito.spy(cache);
+        spyCache.clear(repository);
+        History historyToStore = repository.getHistory(repositoryRoot);
+        spyCache.store(historyToStore, repository);
+        File summaryFile = cache.getDirectorySummaryFile(File.separator + "git");
+        assertTrue(summaryFile.exists());
+        // The summary is stored outside the tree mirroring the source root.
+        assertFalse(summaryFile.toPath().startsWith(cache.getCachedFile(repositoryRoot).toPath()));
+
+        File[] files = repositoryRoot.listFiles(File::isFile);
+        assertNotNull(files);
+        assertTrue(files.length > 1);
+        List<DirectoryEntry> directoryEntries = Arrays.stream(files).map(DirectoryEntry::new).
+                collect(Collectors.toList());
+        assertTrue(spyCache.fillLastHistoryEntries(directoryEntries));
+        Mockito.verify(spyCache, never()).getLastHistoryEntry(any());
+        for (DirectoryEntry directoryEntry : directoryEntries) {
+            HistoryEntry historyEntry = cache.getLastHistoryEntry(directoryEntry.getFile());
+            assertNotNull(historyEntry);
+            assertEquals(historyEntry.getDate(), directoryEntry.getDate());
+            assertEquals(historyEntry.getDescription(), directoryEntry.getDescription());
+        }
+
+        // Entry that was modified after the history was stored has to be looked up individually.
+        File modifiedFile = files[0];
+        assertTrue(modifiedFile.setLastModified(System.currentTimeMillis() + 10000));
+        directoryEntries = Arrays.stream(files).map(DirectoryEntry::new).collect(Collectors.toList());
+        assertFalse(spyCache.fillLastHistoryEntries(directoryEntries));
+        Mockito.verify(spyCache).getLastHistoryEntry(modifiedFile);
+        Mockito.verify(spyCache, times(1)).getLastHistoryEntry(any());
+
+        // Cleanup.
+        cache.clear(repository);
+        assertFalse(summaryFile.exists());
+    }
+
     /**
      * Test {@link FileHistoryCache#fillLastHistoryEntries(List)}, in particular that it
      * returns {@code false} and resets date/descriptions if some entries cannot be filled.
@@ -0,0 +1,195 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the {@link FileHistoryPrefetcher} class.
+ */
+class FileHistoryPrefetcherTest {
+
+    private static final int PARALLELISM = 2;
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+
+    private ExecutorService executor;
+    private String origSourceRoot;
+
+    @TempDir
+    private File repositoryRoot;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(PARALLELISM);
+        origSourceRoot = env.getSourceRootPath();
+        env.setSourceRoot(repositoryRoot.getParent());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        env.setSourceRoot(origSourceRoot);
+    }
+
+    /**
+     * Repository that reports history for batches of files without running any process.
+     */
+    private static class BatchedRepository extends CVSRepository {
+        private static final long serialVersionUID = 1L;
+
+        private final List<List<File>> batches;
+        private final transient Set<File> failing;
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+        private final transient List<List<File>> processed = Collections.synchronizedList(new ArrayList<>());
+
+        BatchedRepository(File root, List<List<File>> batches, Set<File> failing) {
+            setDirectoryName(root);
+            this.batches = batches;
+            this.failing = failing;
+        }
+
+        @Override
+        public void collectFileHistoryBatches(Consumer<List<File>> consumer) {
+            batches.forEach(consumer);
+        }
+
+        @Override
+        public void getHistory(List<File> files, BiConsumer<File, History> consumer) throws HistoryException {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+                processed.add(files);
+                for (File file : files) {
+                    if (failing.contains(file)) {
+                        throw new HistoryException("failed to get history");
+                    }
+                    consumer.accept(file, new History(List.of(new HistoryEntry("1.1", null, "author",
+                            file.getName(), true))));
+                }
+            } catch (InterruptedException e) {
+                throw new HistoryException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private static List<List<File>> createBatches(int count, int size) {
+        List<List<File>> batches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<File> batch = new ArrayList<>();
+            for (int j = 0; j < size; j++) {
+                batch.add(new File("dir" + i, "file" + j));
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    @Test
+    void testAllFilesAreStored() throws Exception {
+        HistoryCache cache = mock(HistoryCache.class);
+        List<List<File>> batches = createBatches(10, 5);
+        BatchedRepository repository = new BatchedRepository(repositoryRoot, batches, Set.of());
+
+        FileHistoryPrefetcher prefetcher = new FileHistoryPrefetcher(cache, executor, PARALLELISM);
+        assertEquals(50, prefetcher.prefetch(repository, file -> true));
+
+        for (List<File> batch : batches) {
+            for (File file : batch) {
+                verify(cache).storeFile(any(History.class), eq(file), eq(repository));
+            }
+        }
+        assertEquals(10, repository.processed.size());
+        assertTrue(repository.maxRunning.get() <= PARALLELISM);
+    }
+
+    @Test
+    void testUpToDateAndFilteredFilesAreSkipped() throws Exception {
+        HistoryCache cache = mock(HistoryCache.class);
+        List<List<File>> batches = createBatches(2, 2);
+        File upToDate = batches.get(0).get(0);
+        File filtered = batches.get(0).get(1);
+        when(cache.isUpToDate(upToDate)).thenReturn(true);
+        BatchedRepository repository = new BatchedRepository(repositoryRoot, batches, Set.of());
+
+        FileHistoryPrefetcher prefetcher = new FileHistoryPrefetcher(cache, executor, PARALLELISM);
+        assertEquals(2, prefetcher.prefetch(repository, file -> !file.equals(filtered)));
+
+        // The first batch is empty after the filtering so it should not be processed at all.
+        assertEquals(List.of(batches.get(1)), repository.processed);
+        verify(cache, never()).storeFile(any(History.class), eq(upToDate), eq(repository));
+        verify(cache, never()).storeFile(any(History.class), eq(filtered), eq(repository));
+    }
+
+    @Test
+    void testFailedBatch() throws Exception {
+        HistoryCache cache = mock(HistoryCache.class);
+        List<List<File>> batches = createBatches(3, 3);
+        File failing = batches.get(1).get(1);
+        BatchedRepository repository = new BatchedRepository(repositoryRoot, batches, Set.of(failing));
+
+        FileHistoryPrefetcher prefetcher = new FileHistoryPrefetcher(cache, executor, PARALLELISM);
+        // The history parsed before the failure is kept.
+        assertEquals(7, prefetcher.prefetch(repository, file -> true));
+        verify(cache, times(7)).storeFile(any(History.class), any(File.class), eq(repository));
+        verify(cache, never()).storeFile(any(History.class), eq(failing), eq(repository));
+    }
+
+    @Test
+    void testRepositoryWithoutBatchedHistory() {
+        FileHistoryPrefetcher prefetcher = new FileHistoryPrefetcher(mock(HistoryCache.class), executor,
+                PARALLELISM);
+        SCCSRepository repository = new SCCSRepository();
+        repository.setDirectoryName(repositoryRoot);
+        assertThrows(IllegalArgumentException.class, () -> prefetcher.prefetch(repository, file -> true));
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.blame.BlameGenerator;
+import org.eclipse.jgit.blame.cache.CacheRegion;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitBlameCacheTest {
+
+    private static final String FILE_NAME = "file.txt";
+
+    @TempDir
+    private File repositoryRoot;
+
+    private String sourceRoot;
+    private Git git;
+    private RevCommit first;
+    private RevCommit second;
+    private RevCommit third;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        sourceRoot = env.getSourceRootPath();
+        env.setSourceRoot(repositoryRoot.getParent());
+
+        git = Git.init().setDirectory(repositoryRoot).call();
+        first = commit("a\nb\nc\n");
+        second = commit("a\nB\nc\n");
+        third = commit("a\nB\nc\nd\n");
+    }
+
+    @AfterEach
+    void tearDown() {
+        git.close();
+        RuntimeEnvironment.getInstance().setSourceRoot(sourceRoot);
+    }
+
+    private RevCommit commit(String contents) throws Exception {
+        Files.writeString(new File(repositoryRoot, FILE_NAME).toPath(), contents, StandardCharsets.UTF_8);
+        git.add().addFilepattern(FILE_NAME).call();
+        return git.commit().setMessage("change").call();
+    }
+
+    private static final class Blame {
+        private final List<ObjectId> commits = new ArrayList<>();
+        private boolean cacheHit;
+    }
+
+    private Blame blame(GitBlameCache cache, ObjectId commitId) throws IOException {
+        Blame blame = new Blame();
+        try (BlameGenerator generator = new BlameGenerator(git.getRepository(), FILE_NAME, cache)) {
+            generator.push(null, commitId);
+            RawText rawText = generator.getResultContents();
+            assertNotNull(rawText);
+            ObjectId[] sourceCommits = new ObjectId[rawText.size()];
+            while (generator.next()) {
+                for (int i = generator.getResultStart(); i < generator.getResultEnd(); i++) {
+                    sourceCommits[i] = generator.getSourceCommit().copy();
+                }
+            }
+            blame.commits.addAll(List.of(sourceCommits));
+            if (cache != null) {
+                cache.put(commitId, FILE_NAME, sourceCommits);
+            }
+            blame.cacheHit = generator.getStats().isCacheHit();
+        }
+        return blame;
+    }
+
+    private Annotation getAnnotation(Blame blame, ObjectId commitId) {
+        Annotation annotation = new Annotation(FILE_NAME);
+        for (ObjectId id : blame.commits) {
+            annotation.addLine(id.name(), "author", true);
+        }
+        annotation.setRevision(commitId.name());
+        return annotation;
+    }
+
+    @Test
+    void testToRegions() {
+        Annotation annotation = new Annotation(FILE_NAME);
+        annotation.addLine(first.name(), "author", true);
+        annotation.addLine(first.name(), "author", true);
+        annotation.addLine(second.name(), "author", true);
+        annotation.addLine(first.name(), "author", true);
+
+        List<CacheRegion> regions = GitBlameCache.toRegions(FILE_NAME, annotation);
+        assertNotNull(regions);
+        assertEquals(3, regions.size());
+        assertEquals(first.getId(), regions.get(0).getSourceCommit());
+        assertEquals(0, regions.get(0).getStart());
+        assertEquals(2, regions.get(0).getEnd());
+        assertEquals(second.getId(), regions.get(1).getSourceCommit());
+        assertEquals(2, regions.get(1).getStart());
+        assertEquals(3, regions.get(1).getEnd());
+        assertEquals(first.getId(), regions.get(2).getSourceCommit());
+        assertEquals(3, regions.get(2).getStart());
+        assertEquals(4, regions.get(2).getEnd());
+    }
+
+    @Test
+    void testToRegionsWithAbbreviatedRevisions() {
+        Annotation annotation = new Annotation(FILE_NAME);
+        annotation.addLine(first.abbreviate(8).name(), "author", true);
+        assertNull(GitBlameCache.toRegions(FILE_NAME, annotation));
+    }
+
+    @Test
+    void testPutAndGet() throws Exception {
+        GitBlameCache cache = new GitBlameCache((path, revision) -> null);
+        assertNull(cache.get(git.getRepository(), second, FILE_NAME));
+
+        Blame blame = blame(cache, second);
+        assertFalse(blame.cacheHit);
+        assertEquals(1, cache.size());
+        List<CacheRegion> regions = cache.get(git.getRepository(), second, FILE_NAME);
+        assertNotNull(regions);
+        assertEquals(List.of(first.getId(), second.getId(), first.getId()),
+                regions.stream().map(CacheRegion::getSourceCommit).toList());
+
+        // Subsequent blame of newer revision stops at the cached commit.
+        Blame cached = blame(cache, third);
+        assertTrue(cached.cacheHit);
+        assertEquals(blame(null, third).commits, cached.commits);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testEviction() throws Exception {
+        GitBlameCache cache = new GitBlameCache(1, (path, revision) -> null);
+        blame(cache, first);
+        blame(cache, second);
+        assertEquals(1, cache.size());
+        assertNull(cache.get(git.getRepository(), first, FILE_NAME));
+        assertNotNull(cache.get(git.getRepository(), second, FILE_NAME));
+    }
+
+    /**
+     * The stored annotation is used only if it matches the revision the blame walk is asking for.
+     */
+    @Test
+    void testStoredAnnotation() throws Exception {
+        Annotation stored = getAnnotation(blame(null, second), second);
+        GitBlameCache cache = new GitBlameCache((path, revision) -> {
+            assertEquals(FILE_NAME, path);
+            return stored;
+        });
+        assertNull(cache.get(git.getRepository(), first, FILE_NAME));
+        assertEquals(0, cache.size());
+
+        Blame cached = blame(cache, third);
+        assertTrue(cached.cacheHit);
+        assertEquals(blame(null, third).commits, cached.commits);
+        assertEquals(List.of(first.getId(), second.getId(), first.getId(), third.getId()), cached.commits);
+    }
+
+    @Test
+    void testGitRepositoryAnnotate() throws Exception {
+        GitRepository gitRepository = new GitRepository();
+        gitRepository.setDirectoryName(repositoryRoot);
+        File file = new File(repositoryRoot, FILE_NAME);
+
+        Annotation annotation = gitRepository.annotate(file, second.name());
+        assertNotNull(annotation);
+        assertEquals(3, annotation.size());
+        assertEquals(second.name(), annotation.getRevision(2));
+        GitBlameCache cache = gitRepository.getBlameCache();
+        assertSame(cache, gitRepository.getBlameCache());
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(git.getRepository(), second, FILE_NAME));
+    }
+}
@@ -18,14 +18,23 @@
  */
 
 /*
- * Copyright (c) 2018, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2024, Heewon Lee <heewon.lee@kaist.ac.kr>.
  */
 package org.opengrok.indexer.history;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HistoryReaderTest {
     @Test
@@ -35,4 +44,59 @@ public class HistoryReaderTest {
             historyReader.read(null, 0, 0);
         });
     }
-}
\ No newline at end of file
+
+    private static List<HistoryEntry> createEntries() {
+        return List.of(new HistoryEntry("3", new Date(3000), "alice", "third", true),
+                new HistoryEntry("2", new Date(2000), "bob", "second", true),
+                new HistoryEntry("1", new Date(1000), "carol", "first", true));
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[7];
+        int n;
+        while ((n = reader.read(buf, 0, buf.length)) != -1) {
+            sb.append(buf, 0, n);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void testReadAll() throws Exception {
+        List<HistoryEntry> entries = createEntries();
+        try (HistoryReader reader = new HistoryReader(new History(entries))) {
+            assertEquals(entries.get(0).getLine() + entries.get(1).getLine() + entries.get(2).getLine(),
+                    readAll(reader));
+            assertEquals(3, reader.getEntryCount());
+            assertFalse(reader.isTruncated());
+        }
+    }
+
+    @Test
+    void testLimit() throws Exception {
+        List<HistoryEntry> entries = createEntries();
+        AtomicBoolean closed = new AtomicBoolean();
+        HistoryEntryIterator iterator = HistoryEntryIterator.of(entries);
+        try (HistoryReader reader = new HistoryReader(new HistoryEntryIterator() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public HistoryEntry next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        }, 2)) {
+            assertEquals(entries.get(0).getLine() + entries.get(1).getLine(), readAll(reader));
+            assertEquals(2, reader.getEntryCount());
+            assertTrue(reader.isTruncated());
+        }
+        assertTrue(closed.get());
+    }
+}
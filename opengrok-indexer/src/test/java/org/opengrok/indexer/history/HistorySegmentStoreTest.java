@@ -0,0 +1,250 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistorySegmentStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<HistoryEntry> getEntries(int count, String author) {
+        List<HistoryEntry> entries = new ArrayList<>();
+        for (int i = count; i > 0; i--) {
+            entries.add(new HistoryEntry("rev" + i, "r" + i, new Date(1000L * i), author,
+                    "message " + i, true, null));
+        }
+        return entries;
+    }
+
+    private static long countSegments(Path dir) throws Exception {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(p -> p.toString().endsWith(HistorySegmentStore.SEGMENT_SUFFIX)).count();
+        }
+    }
+
+    @Test
+    void testPutGet() throws Exception {
+        try (HistorySegmentStore store = new HistorySegmentStore(dir)) {
+            assertNull(store.get("/foo/bar.c", -1, true));
+            assertFalse(store.contains("/foo/bar.c"));
+            assertEquals(-1, store.getStoredTime("/foo/bar.c"));
+
+            List<HistoryEntry> entries = getEntries(3, "Tom");
+            entries.add(new HistoryEntry("rev0", null, null, null, "", false, null));
+            store.put("/foo/bar.c", 42, entries, Map.of("rev2", "v1.0"));
+
+            HistorySegmentStore.FileRecord fileRecord = store.get("/foo/bar.c", -1, true);
+            assertNotNull(fileRecord);
+            assertEquals("/foo/bar.c", fileRecord.getPath());
+            assertEquals(42, fileRecord.getStoredTime());
+            assertEquals(entries, fileRecord.getEntries());
+            assertEquals(Map.of("rev2", "v1.0"), fileRecord.getTags());
+            assertEquals(42, store.getStoredTime("/foo/bar.c"));
+            assertTrue(store.contains("/foo/bar.c"));
+
+            fileRecord = store.get("/foo/bar.c", 1, false);
+            assertNotNull(fileRecord);
+            assertEquals(entries.subList(0, 1), fileRecord.getEntries());
+            assertTrue(fileRecord.getTags().isEmpty());
+        }
+    }
+
+    /**
+     * The record offsets have to fit into the mapped buffers so the segments cannot be larger than 2 GB.
+     */
+    @Test
+    void testSegmentSizeLimitTooLarge() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HistorySegmentStore(dir, HistorySegmentStore.MAX_SEGMENT_SIZE + 1));
+    }
+
+    @Test
+    void testReplaceAndRemove() throws Exception {
+        try (HistorySegmentStore store = new HistorySegmentStore(dir)) {
+            store.put("/foo/bar.c", 1, getEntries(1, "Tom"), Map.of());
+            store.put("/foo/bar.c", 2, getEntries(2, "Tom"), Map.of());
+            assertEquals(getEntries(2, "Tom"), store.get("/foo/bar.c", -1, false).getEntries());
+            assertTrue(store.getGarbageRatio() > 0);
+
+            store.remove("/foo/bar.c");
+            assertNull(store.get("/foo/bar.c", -1, false));
+            assertEquals(0, store.size());
+        }
+    }
+
+    /**
+     * The strings shared by the histories of multiple files should be stored just once.
+     */
+    @Test
+    void testSharedStrings() throws Exception {
+        try (HistorySegmentStore store = new HistorySegmentStore(dir)) {
+            store.put("/foo/a.c", 1, getEntries(100, "Tom"), Map.of());
+            long size = store.getTotalBytes();
+            store.put("/foo/b.c", 1, getEntries(100, "Tom"), Map.of());
+            assertTrue(store.getTotalBytes() - size < size / 2);
+            assertEquals(getEntries(100, "Tom"), store.get("/foo/b.c", -1, false).getEntries());
+        }
+    }
+
+    @Test
+    void testReopen() throws Exception {
+        try (HistorySegmentStore store = new HistorySegmentStore(dir, 1024)) {
+            for (int i = 0; i < 50; i++) {
+                store.put("/foo/file" + i, i, getEntries(5, "Tom" + i), Map.of());
+            }
+            store.remove("/foo/file0");
+        }
+        assertTrue(countSegments(dir) > 1);
+
+        try (HistorySegmentStore store = new HistorySegmentStore(dir, 1024)) {
+            assertEquals(49, store.size());
+            assertNull(store.get("/foo/file0", -1, false));
+            for (int i = 1; i < 50; i++) {
+                assertEquals(getEntries(5, "Tom" + i), store.get("/foo/file" + i, -1, false).getEntries());
+            }
+
+            // Append to existing segments.
+            store.put("/foo/file0", 0, getEntries(2, "Jerry"), Map.of());
+            assertEquals(getEntries(2, "Jerry"), store.get("/foo/file0", -1, false).getEntries());
+        }
+    }
+
+    @Test
+    void testCompact() throws Exception {
+        try (HistorySegmentStore store = new HistorySegmentStore(dir, 4096)) {
+            for (int j = 0; j < 5; j++) {
+                for (int i = 0; i < 20; i++) {
+                    store.put("/foo/file" + i, j, getEntries(j + 1, "Tom"), Map.of("rev1", "tag" + j));
+                }
+            }
+            store.remove("/foo/file19");
+            long size = store.getTotalBytes();
+            assertTrue(store.getGarbageRatio() > 0.5);
+
+            store.compact();
+            assertTrue(store.getTotalBytes() < size);
+            assertEquals(0, store.getGarbageRatio());
+            assertEquals(19, store.size());
+            for (int i = 0; i < 19; i++) {
+                HistorySegmentStore.FileRecord fileRecord = store.get("/foo/file" + i, -1, true);
+                assertEquals(getEntries(5, "Tom"), fileRecord.getEntries());
+                assertEquals(Map.of("rev1", "tag4"), fileRecord.getTags());
+            }
+            assertFalse(Files.exists(dir.resolve("0" + HistorySegmentStore.GENERATION_SUFFIX)));
+            assertTrue(Files.exists(dir.resolve("1" + HistorySegmentStore.GENERATION_SUFFIX)));
+
+            // The store remains writable after the compaction.
+            store.put("/foo/file19", 5, getEntries(1, "Jerry"), Map.of());
+        }
+
+        try (HistorySegmentStore store = new HistorySegmentStore(dir)) {
+            assertEquals(20, store.size());
+            assertEquals(getEntries(1, "Jerry"), store.get("/foo/file19", -1, false).getEntries());
+        }
+    }
+
+    /**
+     * The changes done while the compaction is running must not be lost.
+     */
+    @Test
+    void testCompactWithConcurrentWrites() throws Exception {
+        try (HistorySegmentStore store = new HistorySegmentStore(dir, 4096)) {
+            Map<String, List<HistoryEntry>> expected = new HashMap<>();
+            for (int j = 0; j < 5; j++) {
+                for (int i = 0; i < 50; i++) {
+                    store.put("/foo/file" + i, j, getEntries(j + 1, "Tom"), Map.of());
+                    expected.put("/foo/file" + i, getEntries(j + 1, "Tom"));
+                }
+            }
+
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        if (i % 3 == 0) {
+                            store.remove("/foo/file" + i);
+                        } else {
+                            store.put("/foo/file" + i, 10, getEntries(2, "Jerry"), Map.of());
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.start();
+            store.compact();
+            writer.join();
+            for (int i = 0; i < 50; i++) {
+                if (i % 3 == 0) {
+                    expected.remove("/foo/file" + i);
+                } else {
+                    expected.put("/foo/file" + i, getEntries(2, "Jerry"));
+                }
+            }
+
+            assertEquals(expected.size(), store.size());
+            for (int i = 0; i < 50; i++) {
+                HistorySegmentStore.FileRecord fileRecord = store.get("/foo/file" + i, -1, false);
+                if (expected.containsKey("/foo/file" + i)) {
+                    assertEquals(expected.get("/foo/file" + i), fileRecord.getEntries());
+                } else {
+                    assertNull(fileRecord);
+                }
+            }
+        }
+
+        try (HistorySegmentStore store = new HistorySegmentStore(dir)) {
+            assertEquals(33, store.size());
+            assertNull(store.get("/foo/file0", -1, false));
+            assertEquals(getEntries(2, "Jerry"), store.get("/foo/file1", -1, false).getEntries());
+        }
+    }
+
+    @Test
+    void testDelete() throws Exception {
+        try (HistorySegmentStore store = new HistorySegmentStore(dir)) {
+            store.put("/foo/bar.c", 1, getEntries(1, "Tom"), Map.of());
+            store.delete();
+            assertEquals(0, countSegments(dir));
+            assertNull(store.get("/foo/bar.c", -1, false));
+        }
+    }
+}
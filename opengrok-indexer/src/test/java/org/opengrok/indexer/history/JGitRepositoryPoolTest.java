@@ -0,0 +1,165 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JGitRepositoryPoolTest {
+
+    @TempDir
+    private File root;
+
+    private int poolSize;
+    private int idleTimeout;
+    private JGitRepositoryPool pool;
+    private final AtomicInteger opened = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        poolSize = env.getGitRepositoryPoolSize();
+        idleTimeout = env.getGitRepositoryPoolIdleTimeout();
+        pool = new JGitRepositoryPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.clear();
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        env.setGitRepositoryPoolSize(poolSize);
+        env.setGitRepositoryPoolIdleTimeout(idleTimeout);
+    }
+
+    private File createRepository(String name) throws Exception {
+        File dir = new File(root, name);
+        try (Git git = Git.init().setDirectory(dir).call()) {
+            git.commit().setMessage("initial").setAllowEmpty(true).call();
+        }
+        return new File(dir, Constants.DOT_GIT);
+    }
+
+    private Repository acquire(File gitDir) throws Exception {
+        return pool.acquire(gitDir, () -> {
+            opened.incrementAndGet();
+            return FileRepositoryBuilder.create(gitDir);
+        });
+    }
+
+    @Test
+    void testRepositoryIsReused() throws Exception {
+        File gitDir = createRepository("repo");
+        Repository first;
+        try (Repository repository = acquire(gitDir)) {
+            first = repository;
+        }
+        try (Repository repository = acquire(gitDir)) {
+            assertSame(first, repository);
+            // The repository is still usable after the previous user closed it.
+            assertNotNull(repository.resolve(Constants.HEAD));
+        }
+        assertEquals(1, opened.get());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void testPoolDisabled() throws Exception {
+        RuntimeEnvironment.getInstance().setGitRepositoryPoolSize(0);
+        File gitDir = createRepository("repo");
+        try (Repository first = acquire(gitDir); Repository second = acquire(gitDir)) {
+            assertNotSame(first, second);
+        }
+        assertEquals(2, opened.get());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void testSizeLimit() throws Exception {
+        RuntimeEnvironment.getInstance().setGitRepositoryPoolSize(2);
+        File gitDir1 = createRepository("repo1");
+        File gitDir2 = createRepository("repo2");
+        File gitDir3 = createRepository("repo3");
+
+        Repository first = acquire(gitDir1);
+        acquire(gitDir2).close();
+        // The least recently used repository is evicted but it remains usable until closed.
+        acquire(gitDir3).close();
+        assertEquals(2, pool.size());
+        assertNotNull(first.resolve(Constants.HEAD));
+        first.close();
+
+        try (Repository repository = acquire(gitDir1)) {
+            assertNotSame(first, repository);
+        }
+        assertEquals(4, opened.get());
+    }
+
+    @Test
+    void testIdleEviction() throws Exception {
+        RuntimeEnvironment.getInstance().setGitRepositoryPoolIdleTimeout(60);
+        File gitDir = createRepository("repo");
+        acquire(gitDir).close();
+
+        pool.evictIdle(System.currentTimeMillis());
+        assertEquals(1, pool.size());
+        pool.evictIdle(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(2));
+        assertEquals(0, pool.size());
+
+        acquire(gitDir).close();
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    void testReplacedRepositoryIsReopened() throws Exception {
+        File gitDir = createRepository("repo");
+        Repository first;
+        try (Repository repository = acquire(gitDir)) {
+            first = repository;
+        }
+
+        FileUtils.delete(gitDir.getParentFile(), FileUtils.RECURSIVE);
+        createRepository("repo");
+        try (Repository repository = acquire(gitDir)) {
+            assertNotSame(first, repository);
+            assertNotNull(repository.resolve(Constants.HEAD));
+        }
+        assertEquals(1, pool.size());
+    }
+}
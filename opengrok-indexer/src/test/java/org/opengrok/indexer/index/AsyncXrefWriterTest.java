@@ -0,0 +1,164 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsyncXrefWriterTest {
+
+    @TempDir
+    private Path xrefDir;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static CharArrayWriter render(String content) {
+        CharArrayWriter xref = new CharArrayWriter();
+        xref.append(content);
+        return xref;
+    }
+
+    /**
+     * The xref files should become visible only once the completer runs.
+     */
+    @Test
+    void testWriteCompressed() throws Exception {
+        PendingFileCompleter completer = new PendingFileCompleter();
+        final int count = 20;
+        try (AsyncXrefWriter xrefWriter = new AsyncXrefWriter(executor, 2, completer, true)) {
+            for (int i = 0; i < count; i++) {
+                File xrefFile = xrefDir.resolve("file" + i + ".gz").toFile();
+                File transientXref = new File(xrefFile.getPath() + PendingFileCompleter.PENDING_EXTENSION);
+                xrefWriter.submit(render("<span>" + i + "</span>"), transientXref, xrefFile.getAbsolutePath());
+            }
+            xrefWriter.await();
+            assertEquals(0, xrefWriter.getFailureCount());
+        }
+
+        assertFalse(xrefDir.resolve("file0.gz").toFile().exists());
+        assertEquals(count, completer.complete(""));
+
+        for (int i = 0; i < count; i++) {
+            try (InputStream in = new GZIPInputStream(new FileInputStream(xrefDir.resolve("file" + i + ".gz").
+                    toFile()))) {
+                assertEquals("<span>" + i + "</span>", new String(in.readAllBytes(), Charset.defaultCharset()));
+            }
+        }
+    }
+
+    /**
+     * The xrefs held in memory should be limited by their size. An xref larger than the limit should not
+     * block forever.
+     */
+    @Test
+    void testCapacityInBytes() throws Exception {
+        BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        PendingFileCompleter completer = new PendingFileCompleter();
+        // 2 KB xrefs (1024 chars) fit twice into 4 KB capacity
+        try (AsyncXrefWriter xrefWriter = new AsyncXrefWriter(tasks::add, completer, false, 4096)) {
+            String content = "x".repeat(1024);
+            for (int i = 0; i < 2; i++) {
+                File xrefFile = xrefDir.resolve("file" + i).toFile();
+                xrefWriter.submit(render(content),
+                        new File(xrefFile.getPath() + PendingFileCompleter.PENDING_EXTENSION),
+                        xrefFile.getAbsolutePath());
+            }
+            assertEquals(2, tasks.size());
+
+            File largeFile = xrefDir.resolve("large").toFile();
+            Future<?> large = executor.submit(() -> {
+                xrefWriter.submit(render("x".repeat(100_000)),
+                        new File(largeFile.getPath() + PendingFileCompleter.PENDING_EXTENSION),
+                        largeFile.getAbsolutePath());
+                return null;
+            });
+            assertThrows(TimeoutException.class, () -> large.get(200, TimeUnit.MILLISECONDS));
+
+            // The large xref has to wait for all the others.
+            tasks.take().run();
+            assertThrows(TimeoutException.class, () -> large.get(200, TimeUnit.MILLISECONDS));
+            tasks.take().run();
+            large.get();
+            tasks.take().run();
+            xrefWriter.await();
+            assertEquals(0, xrefWriter.getFailureCount());
+        }
+
+        assertEquals(3, completer.complete(""));
+        assertEquals(100_000, Files.size(xrefDir.resolve("large")));
+    }
+
+    /**
+     * Failure to write the xref file should not prevent the other files from completing.
+     */
+    @Test
+    void testWriteFailure() throws Exception {
+        PendingFileCompleter completer = new PendingFileCompleter();
+        try (AsyncXrefWriter xrefWriter = new AsyncXrefWriter(executor, 1, completer, false)) {
+            File bogus = xrefDir.resolve("nonexistent").resolve("file").toFile();
+            xrefWriter.submit(render("foo"), new File(bogus.getPath() + PendingFileCompleter.PENDING_EXTENSION),
+                    bogus.getAbsolutePath());
+            File xrefFile = xrefDir.resolve("file").toFile();
+            xrefWriter.submit(render("bar"), new File(xrefFile.getPath() + PendingFileCompleter.PENDING_EXTENSION),
+                    xrefFile.getAbsolutePath());
+            xrefWriter.await();
+            assertEquals(1, xrefWriter.getFailureCount());
+        }
+
+        completer.complete("");
+        assertEquals("bar", new String(Files.readAllBytes(xrefDir.resolve("file")),
+                Charset.defaultCharset()));
+    }
+}
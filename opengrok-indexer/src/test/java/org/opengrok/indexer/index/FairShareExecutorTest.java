@@ -0,0 +1,164 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairShareExecutorTest {
+
+    private FairShareExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new FairShareExecutor(1, new OpenGrokThreadFactory("fair-share-test"));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Block the only worker thread so that the tasks can be queued up before any of them runs.
+     * @return latch to release the worker
+     */
+    private CountDownLatch blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return latch;
+    }
+
+    private List<String> runLanes(int bigWeight, int smallWeight) throws InterruptedException {
+        final int bigCount = 100;
+        final int smallCount = 10;
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(bigCount + smallCount);
+
+        CountDownLatch latch = blockWorker();
+        try (FairShareExecutor.Lane big = executor.newLane("big", bigWeight);
+             FairShareExecutor.Lane small = executor.newLane("small", smallWeight)) {
+            for (int i = 0; i < bigCount; i++) {
+                big.execute(() -> {
+                    order.add("big");
+                    done.countDown();
+                });
+            }
+            for (int i = 0; i < smallCount; i++) {
+                small.execute(() -> {
+                    order.add("small");
+                    done.countDown();
+                });
+            }
+            latch.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+        assertEquals(bigCount, Collections.frequency(order, "big"));
+        return order;
+    }
+
+    /**
+     * The tasks of a lane submitted later should not wait for all the tasks of a big lane.
+     */
+    @Test
+    void testLanesAreInterleaved() throws InterruptedException {
+        List<String> order = runLanes(1, 1);
+        assertEquals(10, Collections.frequency(order.subList(0, 20), "small"));
+    }
+
+    @Test
+    void testWeights() throws InterruptedException {
+        List<String> order = runLanes(3, 1);
+        assertEquals(10, Collections.frequency(order.subList(0, 40), "small"));
+        assertEquals(30, Collections.frequency(order.subList(0, 40), "big"));
+    }
+
+    @Test
+    void testClosedLaneRejectsTasks() {
+        FairShareExecutor.Lane lane = executor.newLane("foo", 1);
+        lane.close();
+        assertThrows(RejectedExecutionException.class, () -> lane.execute(() -> { }));
+    }
+
+    /**
+     * A task throwing an {@link Error} should not take the worker thread down with it.
+     */
+    @Test
+    void testErrorDoesNotStopWorker() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        try (FairShareExecutor.Lane lane = executor.newLane("foo", 1)) {
+            lane.execute(() -> {
+                throw new StackOverflowError();
+            });
+            lane.execute(counter::incrementAndGet);
+            lane.execute(done::countDown);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, counter.get());
+    }
+
+    /**
+     * Tasks queued before the shutdown should still be executed.
+     */
+    @Test
+    void testShutdownRunsQueuedTasks() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch latch = blockWorker();
+        final int count = 10;
+        try (FairShareExecutor.Lane lane = executor.newLane("foo", 1)) {
+            for (int i = 0; i < count; i++) {
+                lane.execute(counter::incrementAndGet);
+            }
+        }
+        executor.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+        latch.countDown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(count, counter.get());
+    }
+}
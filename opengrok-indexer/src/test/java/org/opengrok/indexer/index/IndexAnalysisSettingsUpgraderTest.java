@@ -19,6 +19,7 @@
 
 /*
  * Copyright (c) 2018, 2020, Chris Fraire <cfraire@me.com>.
+ * Portions Copyright (c) 2026, Oracle and/or its affiliates.
  */
 package org.opengrok.indexer.index;
 
@@ -29,10 +30,12 @@ import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.analysis.Definitions;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -57,6 +60,49 @@ class IndexAnalysisSettingsUpgraderTest {
     @Test
     void shouldHandleLatest() throws IOException,
             ClassNotFoundException {
+        IndexAnalysisSettings4 obj = new IndexAnalysisSettings4();
+        obj.setAnalyzerGuruVersion(ANALYZER_GURU_VERSION);
+        Map<String, Long> actAnalyzersVersionNos = AnalyzerGuru.getAnalyzersVersionNos();
+        obj.setAnalyzersVersions(actAnalyzersVersionNos);
+        obj.setProjectName(PROJECT_NAME);
+        obj.setTabSize(TABSIZE);
+        obj.setIndexedSymlinks(TEST_MAPPED_SYMLINKS);
+        obj.setDefinitionsFormatVersion(Definitions.getFormatVersion());
+        byte[] bin = obj.serialize();
+
+        IndexAnalysisSettingsUpgrader upgrader = new IndexAnalysisSettingsUpgrader();
+        IndexAnalysisSettings4 vLatest = upgrader.upgrade(bin, 4);
+        assertNotNull(vLatest, "should get non-null from upgrader");
+        assertEquals(PROJECT_NAME, vLatest.getProjectName(), "should have same projectName");
+        assertEquals(TABSIZE, (int) vLatest.getTabSize(), "should have same tabSize");
+        assertEquals(ANALYZER_GURU_VERSION, (long) vLatest.getAnalyzerGuruVersion(),
+                "should have same analyzerGuruVersion");
+        assertEquals(vLatest.getAnalyzersVersions().size(), actAnalyzersVersionNos.size(),
+                "should have expected analyzer versions");
+
+        Object[] expectedVersionKeys = actAnalyzersVersionNos.keySet().stream().sorted().toArray();
+        assertArrayEquals(expectedVersionKeys,
+                vLatest.getAnalyzersVersions().keySet().stream().sorted().toArray(),
+                "analyzer versions keysets should be equal");
+        assertArrayEquals(getMapValues(actAnalyzersVersionNos, expectedVersionKeys),
+                getMapValues(vLatest.getAnalyzersVersions(), expectedVersionKeys),
+                "analyzer versions values should be equal");
+
+        assertEquals(Definitions.getFormatVersion(), (int) vLatest.getDefinitionsFormatVersion(),
+                "should have same definitionsFormatVersion");
+
+        Object[] expectedSymlinkKeys = TEST_MAPPED_SYMLINKS.keySet().stream().sorted().toArray();
+        assertArrayEquals(expectedSymlinkKeys,
+                vLatest.getIndexedSymlinks().keySet().stream().sorted().toArray(),
+                "index symlinks keysets should be equal");
+        assertArrayEquals(getMapValues(TEST_MAPPED_SYMLINKS, expectedSymlinkKeys),
+                getMapValues(vLatest.getIndexedSymlinks(), expectedSymlinkKeys),
+                "index symlinks values should be equal");
+    }
+
+    @Test
+    void shouldUpgradeV3() throws IOException,
+            ClassNotFoundException {
         IndexAnalysisSettings3 obj = new IndexAnalysisSettings3();
         obj.setAnalyzerGuruVersion(ANALYZER_GURU_VERSION);
         Map<String, Long> actAnalyzersVersionNos = AnalyzerGuru.getAnalyzersVersionNos();
@@ -67,7 +113,7 @@ class IndexAnalysisSettingsUpgraderTest {
         byte[] bin = obj.serialize();
 
         IndexAnalysisSettingsUpgrader upgrader = new IndexAnalysisSettingsUpgrader();
-        IndexAnalysisSettings3 vLatest = upgrader.upgrade(bin, 3);
+        IndexAnalysisSettings4 vLatest = upgrader.upgrade(bin, 3);
         assertNotNull(vLatest, "should get non-null from upgrader");
         assertEquals(PROJECT_NAME, vLatest.getProjectName(), "should have same projectName");
         assertEquals(TABSIZE, (int) vLatest.getTabSize(), "should have same tabSize");
@@ -84,6 +130,8 @@ class IndexAnalysisSettingsUpgraderTest {
                 getMapValues(vLatest.getAnalyzersVersions(), expectedVersionKeys),
                 "analyzer versions values should be equal");
 
+        assertNull(vLatest.getDefinitionsFormatVersion(), "should have no definitionsFormatVersion");
+
         Object[] expectedSymlinkKeys = TEST_MAPPED_SYMLINKS.keySet().stream().sorted().toArray();
         assertArrayEquals(expectedSymlinkKeys,
                 vLatest.getIndexedSymlinks().keySet().stream().sorted().toArray(),
@@ -105,7 +153,7 @@ class IndexAnalysisSettingsUpgraderTest {
         byte[] bin = obj.serialize();
 
         IndexAnalysisSettingsUpgrader upgrader = new IndexAnalysisSettingsUpgrader();
-        IndexAnalysisSettings3 v3 = upgrader.upgrade(bin, 2);
+        IndexAnalysisSettings4 v3 = upgrader.upgrade(bin, 2);
         assertNotNull(v3, "should get non-null from upgrader");
         assertEquals(PROJECT_NAME, v3.getProjectName(), "should have same projectName");
         assertEquals(TABSIZE, (int) v3.getTabSize(), "should have same tabSize");
@@ -559,9 +559,10 @@ class IndexDatabaseTest {
         idb.update();
 
         verify(spyFactory).getIndexDownArgs();
-        // Cannot use args.curCount to compare against because it gets reset in indexParallel()
-        // as it is reused in that stage of indexing.
-        assertNotEquals(0, args.works.size());
+        // The works are streamed to the indexing stage rather than retained in args.works,
+        // so use the listener to verify which files were indexed.
+        assertNotEquals(0, args.curCount);
+        assertTrue(args.works.isEmpty());
         // The expected data has to match the work done in changeGitRepository().
         Set<Path> expectedFileSet = new HashSet<>();
         expectedFileSet.add(Path.of("/git/Makefile.renamed"));
@@ -572,7 +573,7 @@ class IndexDatabaseTest {
         if (createSymlinks) {
             expectedFileSet.add(Path.of("/git/symlink"));
         }
-        assertEquals(expectedFileSet, args.works.stream().map(v -> Path.of(v.path)).collect(Collectors.toSet()));
+        assertEquals(expectedFileSet, listener.getAddedFiles().stream().map(Path::of).collect(Collectors.toSet()));
 
         assertEquals(Set.of(
                 Path.of("/git/header.h"),
@@ -0,0 +1,145 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexWorkPipelineTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static IndexFileWork newWork(int i) {
+        return new IndexFileWork(new File("file" + i), "/file" + i);
+    }
+
+    @Test
+    void testAllWorksAreProcessed() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        final int count = 1000;
+        try (IndexWorkPipeline pipeline = new IndexWorkPipeline("/", executor, 1, work -> {
+            counter.incrementAndGet();
+            work.ret = !work.path.endsWith("0");
+        })) {
+            for (int i = 0; i < count; i++) {
+                pipeline.submit(newWork(i));
+            }
+            pipeline.finish();
+
+            assertEquals(count, counter.get());
+            assertEquals(count, pipeline.getSubmittedCount());
+            assertEquals(count / 10, pipeline.getFailureCount());
+            assertEquals(count - count / 10, pipeline.getSuccessCount());
+        }
+    }
+
+    /**
+     * The producer has to block once the number of pending works reaches the capacity of the pipeline.
+     */
+    @Test
+    void testBackpressure() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        try (IndexWorkPipeline pipeline = new IndexWorkPipeline("/", executor, 1, work -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            work.ret = true;
+        })) {
+            final int capacity = pipeline.getCapacity();
+            for (int i = 0; i < capacity; i++) {
+                pipeline.submit(newWork(i));
+            }
+
+            Future<?> future = producer.submit(() -> {
+                pipeline.submit(newWork(capacity));
+                return null;
+            });
+            assertThrows(TimeoutException.class, () -> future.get(500, TimeUnit.MILLISECONDS));
+            assertFalse(future.isDone());
+
+            latch.countDown();
+            future.get(10, TimeUnit.SECONDS);
+            pipeline.finish();
+            assertEquals(capacity + 1, pipeline.getSuccessCount());
+        } finally {
+            producer.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCloseAbortsPendingWorks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        IndexWorkPipeline pipeline = new IndexWorkPipeline("/", executor, 1, work -> {
+            counter.incrementAndGet();
+            started.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            work.ret = true;
+        });
+        final int count = 10;
+        for (int i = 0; i < count; i++) {
+            pipeline.submit(newWork(i));
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        pipeline.abort();
+        latch.countDown();
+        pipeline.close();
+
+        assertEquals(1, counter.get());
+        assertEquals(1, pipeline.getSuccessCount());
+        assertEquals(count - 1, pipeline.getFailureCount());
+    }
+}
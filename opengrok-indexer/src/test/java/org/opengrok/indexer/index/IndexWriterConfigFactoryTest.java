@@ -0,0 +1,162 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.configuration.IndexWriterProfile;
+import org.opengrok.indexer.configuration.Project;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexWriterConfigFactoryTest {
+
+    @AfterEach
+    void tearDown() {
+        RuntimeEnvironment.getInstance().setIndexWriterProfile(new IndexWriterProfile());
+    }
+
+    /**
+     * The default profile should not change the Lucene defaults.
+     */
+    @Test
+    void testDefaultProfile() {
+        IndexWriterConfig iwc = new IndexWriterConfigFactory().get();
+        IndexWriterConfig luceneDefaults = new IndexWriterConfig();
+        TieredMergePolicy expected = new TieredMergePolicy();
+
+        TieredMergePolicy mergePolicy = assertInstanceOf(TieredMergePolicy.class, iwc.getMergePolicy());
+        assertEquals(expected.getMaxMergedSegmentMB(), mergePolicy.getMaxMergedSegmentMB());
+        assertEquals(expected.getSegmentsPerTier(), mergePolicy.getSegmentsPerTier());
+        assertEquals(expected.getMaxMergeAtOnce(), mergePolicy.getMaxMergeAtOnce());
+        assertEquals(expected.getFloorSegmentMB(), mergePolicy.getFloorSegmentMB());
+        assertEquals(expected.getDeletesPctAllowed(), mergePolicy.getDeletesPctAllowed());
+        assertEquals(expected.getNoCFSRatio(), mergePolicy.getNoCFSRatio());
+        assertEquals(luceneDefaults.getRAMPerThreadHardLimitMB(), iwc.getRAMPerThreadHardLimitMB());
+        assertEquals(luceneDefaults.getUseCompoundFile(), iwc.getUseCompoundFile());
+
+        ConcurrentMergeScheduler mergeScheduler = assertInstanceOf(ConcurrentMergeScheduler.class,
+                iwc.getMergeScheduler());
+        assertEquals(ConcurrentMergeScheduler.AUTO_DETECT_MERGES_AND_THREADS, mergeScheduler.getMaxThreadCount());
+    }
+
+    @Test
+    void testProjectOverride() {
+        IndexWriterProfile global = new IndexWriterProfile();
+        global.setSegmentsPerTier(20);
+        RuntimeEnvironment.getInstance().setIndexWriterProfile(global);
+
+        Project project = new Project("foo", "/foo");
+        assertSame(global, new IndexWriterConfigFactory(project).getProfile());
+
+        IndexWriterProfile profile = new IndexWriterProfile();
+        profile.setMaxMergedSegmentMB(1024);
+        profile.setSegmentsPerTier(5);
+        profile.setMaxMergeAtOnce(30);
+        profile.setFloorSegmentMB(16);
+        profile.setDeletesPctAllowed(33);
+        profile.setMergeThreads(8);
+        profile.setMaxMergeCount(12);
+        profile.setRamPerThreadHardLimitMB(512);
+        profile.setUseCompoundFile(false);
+        project.setIndexWriterProfile(profile);
+
+        IndexWriterConfig iwc = new IndexWriterConfigFactory(project).get();
+        TieredMergePolicy mergePolicy = assertInstanceOf(TieredMergePolicy.class, iwc.getMergePolicy());
+        assertEquals(1024, mergePolicy.getMaxMergedSegmentMB());
+        assertEquals(5, mergePolicy.getSegmentsPerTier());
+        assertEquals(30, mergePolicy.getMaxMergeAtOnce());
+        assertEquals(16, mergePolicy.getFloorSegmentMB());
+        assertEquals(33, mergePolicy.getDeletesPctAllowed());
+        assertEquals(0.0, mergePolicy.getNoCFSRatio());
+        assertEquals(512, iwc.getRAMPerThreadHardLimitMB());
+        assertFalse(iwc.getUseCompoundFile());
+
+        ConcurrentMergeScheduler mergeScheduler = assertInstanceOf(ConcurrentMergeScheduler.class,
+                iwc.getMergeScheduler());
+        assertEquals(8, mergeScheduler.getMaxThreadCount());
+        assertEquals(12, mergeScheduler.getMaxMergeCount());
+
+        // The global profile is not affected.
+        mergePolicy = assertInstanceOf(TieredMergePolicy.class, new IndexWriterConfigFactory().get().getMergePolicy());
+        assertEquals(20, mergePolicy.getSegmentsPerTier());
+    }
+
+    @Test
+    void testInvalidProfile() {
+        IndexWriterProfile profile = new IndexWriterProfile();
+        assertThrows(IllegalArgumentException.class, () -> profile.setSegmentsPerTier(1));
+        assertThrows(IllegalArgumentException.class, () -> profile.setMergeThreads(-1));
+        assertThrows(IllegalArgumentException.class, () -> profile.setRamPerThreadHardLimitMB(2048));
+        assertThrows(IllegalArgumentException.class, () -> profile.setDeletesPctAllowed(60));
+    }
+
+    @Test
+    void testMergeAndFlushMetrics() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        IndexWriterConfig iwc = new IndexWriterConfig(new StandardAnalyzer());
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        MeteredMergeScheduler mergeScheduler = new MeteredMergeScheduler(registry);
+        iwc.setMergeScheduler(mergeScheduler);
+        iwc.setInfoStream(new FlushTimingInfoStream(registry));
+
+        final int segments = 3;
+        try (Directory directory = new ByteBuffersDirectory();
+             IndexWriter writer = new IndexWriter(directory, iwc)) {
+            for (int i = 0; i < segments; i++) {
+                Document doc = new Document();
+                doc.add(new TextField("full", "foo bar " + i, Field.Store.NO));
+                writer.addDocument(doc);
+                writer.flush();
+            }
+            assertEquals(segments, registry.get("indexer.flush").timer().count());
+
+            writer.getConfig().setMergePolicy(new TieredMergePolicy());
+            writer.forceMerge(1);
+            // The merge is reported as finished before the merge thread records it.
+            mergeScheduler.sync();
+            assertEquals(1, registry.get("indexer.merge").tag("type", "forced").timer().count());
+            assertEquals(0, registry.get("indexer.merge").tag("type", "natural").timer().count());
+            assertTrue(registry.get("indexer.merge.size").summary().totalAmount() > 0);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchResultCacheTest {
+
+    private static final int DOC_COUNT = 100;
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+    private Directory directory;
+    private DirectoryReader reader;
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (int i = 0; i < DOC_COUNT; i++) {
+                Document doc = new Document();
+                String path = String.format("/foo/file%03d", i);
+                doc.add(new StringField("path", path, Field.Store.YES));
+                doc.add(new SortedDocValuesField("path", new BytesRef(path)));
+                // Vary the term frequency so that the documents get different scores.
+                doc.add(new TextField("full", "foo ".repeat(i % 7 + 1) + (i % 2 == 0 ? "even" : "odd"),
+                        Field.Store.NO));
+                writer.addDocument(doc);
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        cache = new SearchResultCache(env);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        reader.close();
+        directory.close();
+    }
+
+    private static int[] getDocIds(ScoreDoc[] scoreDocs) {
+        return Arrays.stream(scoreDocs).mapToInt(scoreDoc -> scoreDoc.doc).toArray();
+    }
+
+    @Test
+    void testHitAndExtend() throws Exception {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        Query query = new TermQuery(new Term("full", "foo"));
+        TopDocs expected = searcher.search(query, DOC_COUNT);
+
+        TopDocs topDocs = cache.search(searcher, query, null, Set.of(""), 10, Short.MAX_VALUE);
+        assertEquals(DOC_COUNT, topDocs.totalHits.value);
+        assertArrayEquals(getDocIds(Arrays.copyOf(expected.scoreDocs, 10)), getDocIds(topDocs.scoreDocs));
+        assertEquals(1, cache.size());
+
+        // Different searcher over the same reader should reuse the entry.
+        topDocs = cache.search(new IndexSearcher(reader), query, null, Set.of(""), 5, Short.MAX_VALUE);
+        assertArrayEquals(getDocIds(Arrays.copyOf(expected.scoreDocs, 5)), getDocIds(topDocs.scoreDocs));
+
+        // Extend the entry with the remaining documents.
+        topDocs = cache.search(searcher, query, null, Set.of(""), DOC_COUNT, Short.MAX_VALUE);
+        assertEquals(DOC_COUNT, topDocs.totalHits.value);
+        assertArrayEquals(getDocIds(expected.scoreDocs), getDocIds(topDocs.scoreDocs));
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * The total hit count of the entry has to be updated when the entry is extended.
+     */
+    @Test
+    void testExtendUpdatesTotalHits() throws Exception {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        Query query = new TermQuery(new Term("full", "even"));
+
+        TopDocs topDocs = cache.search(searcher, query, null, Set.of(""), 5, 5);
+        assertEquals(TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO, topDocs.totalHits.relation);
+
+        topDocs = cache.search(searcher, query, null, Set.of(""), DOC_COUNT, 5);
+        assertEquals(DOC_COUNT / 2, topDocs.scoreDocs.length);
+        assertEquals(TotalHits.Relation.EQUAL_TO, topDocs.totalHits.relation);
+        assertEquals(DOC_COUNT / 2, topDocs.totalHits.value);
+
+        // The updated count is served from the cache.
+        topDocs = cache.search(searcher, query, null, Set.of(""), 5, 5);
+        assertEquals(TotalHits.Relation.EQUAL_TO, topDocs.totalHits.relation);
+        assertEquals(DOC_COUNT / 2, topDocs.totalHits.value);
+    }
+
+    @Test
+    void testSortedExtend() throws Exception {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        Query query = new TermQuery(new Term("full", "even"));
+        Sort sort = new Sort(new SortField("path", SortField.Type.STRING, true));
+        TopDocs expected = searcher.search(query, DOC_COUNT, sort);
+
+        cache.search(searcher, query, sort, Set.of(""), 7, 1000);
+        TopDocs topDocs = cache.search(searcher, query, sort, Set.of(""), 30, 1000);
+        assertArrayEquals(getDocIds(Arrays.copyOf(expected.scoreDocs, 30)), getDocIds(topDocs.scoreDocs));
+    }
+
+    @Test
+    void testInvalidate() throws Exception {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        Query query = new TermQuery(new Term("full", "odd"));
+        cache.search(searcher, query, null, Set.of("foo", "bar"), 10, Short.MAX_VALUE);
+        cache.search(searcher, query, null, Set.of("bar"), 10, Short.MAX_VALUE);
+        assertEquals(2, cache.size());
+
+        cache.invalidate("foo");
+        assertEquals(1, cache.size());
+        cache.invalidate("bar");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEviction() throws Exception {
+        int savedSize = env.getSearchResultCacheSize();
+        try {
+            env.setSearchResultCacheSize(2);
+            IndexSearcher searcher = new IndexSearcher(reader);
+            for (String term : new String[]{"foo", "even", "odd"}) {
+                cache.search(searcher, new TermQuery(new Term("full", term)), null, Set.of(""), 10, Short.MAX_VALUE);
+            }
+            assertEquals(2, cache.size());
+        } finally {
+            env.setSearchResultCacheSize(savedSize);
+        }
+    }
+}
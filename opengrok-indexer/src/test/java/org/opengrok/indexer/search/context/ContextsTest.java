@@ -0,0 +1,185 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search.context;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.analysis.LineOffsets;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.index.Indexer;
+import org.opengrok.indexer.search.QueryBuilder;
+import org.opengrok.indexer.search.SearchEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that {@link Context#getContexts} produces the same output as calling {@code getContext2()} for each document.
+ */
+class ContextsTest {
+
+    @TempDir
+    static Path root;
+
+    private static RuntimeEnvironment env;
+    private static String savedSourceRoot;
+    private static String savedDataRoot;
+    private static boolean savedHistoryEnabled;
+    private static boolean savedProjectsEnabled;
+
+    @BeforeAll
+    static void setUpClass() throws Exception {
+        Path sourceRoot = Files.createDirectories(root.resolve("src"));
+        Files.writeString(sourceRoot.resolve("one.txt"), "alpha\nfoo bar\nbeta\n");
+        Files.writeString(sourceRoot.resolve("two.txt"), "foo\nfoo foo\ngamma\n");
+        Files.writeString(sourceRoot.resolve("none.txt"), "nothing to see here\n");
+        StringBuilder many = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            many.append("line ").append(i).append(i % 3 == 0 ? " foo\n" : "\n");
+        }
+        Files.writeString(sourceRoot.resolve("many.txt"), many);
+
+        // Same beginning as the small file, followed by enough lines to get line offsets stored in the index.
+        StringBuilder head = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            head.append("l\u00ednea ").append(i).append(i % 7 == 3 ? " baz \u00e9t\u00e9\n" : "\n");
+        }
+        Files.writeString(sourceRoot.resolve("head.txt"), head);
+        StringBuilder large = new StringBuilder(head);
+        while (large.length() < LineOffsets.MIN_FILE_SIZE) {
+            large.append("\u00e9t\u00e9 filler text\n");
+        }
+        Files.writeString(sourceRoot.resolve("large.txt"), large);
+
+        env = RuntimeEnvironment.getInstance();
+        savedSourceRoot = env.getSourceRootPath();
+        savedDataRoot = env.getDataRootPath();
+        savedHistoryEnabled = env.isHistoryEnabled();
+        savedProjectsEnabled = env.isProjectsEnabled();
+        env.setSourceRoot(sourceRoot.toString());
+        env.setDataRoot(Files.createDirectories(root.resolve("data")).toString());
+        env.setHistoryEnabled(false);
+        env.setProjectsEnabled(false);
+
+        Indexer.getInstance().doIndexerExecution(null, null);
+    }
+
+    @AfterAll
+    static void tearDownClass() {
+        env.setSourceRoot(savedSourceRoot);
+        env.setDataRoot(savedDataRoot);
+        env.setHistoryEnabled(savedHistoryEnabled);
+        env.setProjectsEnabled(savedProjectsEnabled);
+    }
+
+    @Test
+    void testGetContextsLimited() throws IOException {
+        testGetContexts(true);
+    }
+
+    @Test
+    void testGetContextsUnlimited() throws IOException {
+        testGetContexts(false);
+    }
+
+    /**
+     * The context of a large file is produced just from the lines around the matches,
+     * it has to be the same as for a small file with the same lines.
+     */
+    @Test
+    void testWindowedContext() throws IOException {
+        SearchEngine instance = new SearchEngine();
+        instance.setFreetext("baz");
+        try {
+            assertEquals(2, instance.search());
+            Context context = new Context(instance.getQueryObject(), instance.getQueryBuilder());
+
+            Map<String, String> contexts = new HashMap<>();
+            for (ScoreDoc scoreDoc : instance.scoreDocs()) {
+                Document doc = instance.doc(scoreDoc.doc);
+                String path = doc.get(QueryBuilder.PATH);
+                assertEquals(path.endsWith("large.txt"), hasLineOffsets(instance.getSearcher(), scoreDoc.doc));
+
+                StringWriter out = new StringWriter();
+                assertTrue(context.getContext2(env, instance.getSearcher(), scoreDoc.doc, out,
+                        "/source/xref", "/source/more", false, 0));
+                contexts.put(path.substring(path.lastIndexOf('/') + 1), out.toString());
+            }
+            assertEquals(contexts.get("head.txt"), contexts.get("large.txt").replace("large.txt", "head.txt"));
+        } finally {
+            instance.destroy();
+        }
+    }
+
+    private static boolean hasLineOffsets(IndexSearcher searcher, int docId) throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+        BinaryDocValues values = leaf.reader().getBinaryDocValues(QueryBuilder.LINEOFFS);
+        return values != null && values.advanceExact(docId - leaf.docBase);
+    }
+
+    private void testGetContexts(boolean limit) throws IOException {
+        SearchEngine instance = new SearchEngine();
+        instance.setFreetext("foo");
+        try {
+            assertEquals(3, instance.search());
+            Context context = new Context(instance.getQueryObject(), instance.getQueryBuilder());
+
+            Map<Integer, Document> docs = new LinkedHashMap<>();
+            for (ScoreDoc scoreDoc : instance.scoreDocs()) {
+                docs.put(scoreDoc.doc, instance.doc(scoreDoc.doc));
+            }
+
+            Map<Integer, String> contexts = context.getContexts(env, instance.getSearcher(), docs,
+                    "/source/xref", "/source/more", limit, 0);
+            assertEquals(docs.keySet(), contexts.keySet());
+            for (int docId : docs.keySet()) {
+                StringWriter out = new StringWriter();
+                assertTrue(context.getContext2(env, instance.getSearcher(), docId, out,
+                        "/source/xref", "/source/more", limit, 0));
+                assertFalse(out.toString().isEmpty());
+                assertEquals(out.toString(), contexts.get(docId));
+            }
+        } finally {
+            instance.destroy();
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2010, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.search.context;
@@ -31,6 +31,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.lucene.index.Term;
@@ -188,6 +189,39 @@ class HistoryContextTest {
                 "Created a <b>small</b> dummy program"));
     }
 
+    /**
+     * The history contexts of multiple files have to be the same as the ones obtained file by file.
+     */
+    @Test
+    @EnabledForRepository(MERCURIAL)
+    void testGetContexts() throws Exception {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        File sourceRoot = new File(repositories.getSourceRoot());
+        List<String> paths = List.of("/mercurial/Makefile", "/mercurial/main.c", "/mercurial/header.h",
+                "/mercurial/Makefile");
+
+        // Construct a query equivalent to hist:small OR hist:target
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(new TermQuery(new Term("hist", "small")), Occur.SHOULD);
+        query.add(new TermQuery(new Term("hist", "target")), Occur.SHOULD);
+        HistoryContext historyContext = new HistoryContext(query.build());
+
+        Map<String, String> contexts = historyContext.getContexts(env, sourceRoot, paths, "/source");
+        assertFalse(contexts.isEmpty());
+        for (String path : paths) {
+            StringWriter sw = new StringWriter();
+            if (historyContext.getContext(new File(sourceRoot, path), path, sw, "/source")) {
+                assertEquals(sw.toString(), contexts.get(path), path);
+            } else {
+                assertFalse(contexts.containsKey(path), path);
+            }
+        }
+        assertTrue(contexts.get("/mercurial/Makefile").contains("Created a <b>small</b> dummy program"));
+
+        TermQuery q1 = new TermQuery(new Term("hist", "term_does_not_exist"));
+        assertTrue(new HistoryContext(q1).getContexts(env, sourceRoot, paths, "/source").isEmpty());
+    }
+
     /**
      * Test URI and HTML encoding of {@code writeMatch()}.
      * @throws IOException I/O exception
@@ -18,25 +18,36 @@
  */
 
 /*
- * Copyright (c) 2007, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2019, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.web;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.xml.parsers.DocumentBuilderFactory;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -45,6 +56,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.EnabledOnOs;
 import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.opengrok.indexer.condition.EnabledForRepository;
@@ -58,12 +70,14 @@ import org.opengrok.indexer.util.TestRepository;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.opengrok.indexer.condition.RepositoryInstalled.Type.MERCURIAL;
 
 /**
@@ -319,6 +333,44 @@ class UtilTest {
                 new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
     }
 
+    @Test
+    void dumpGzippedXref(@TempDir Path dir) throws Exception {
+        String xref = "<a href=\"/source/xref/foo/bar.c\">bar.c</a>\n".repeat(1000);
+        File file = dir.resolve("bar.c.gz").toFile();
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)),
+                StandardCharsets.UTF_8)) {
+            out.write(xref);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(Util.dumpGzippedXref(Channels.newChannel(out), file));
+        assertArrayEquals(Files.readAllBytes(file.toPath()), out.toByteArray());
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(xref, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void dumpGzippedXrefNotGzipped(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("bar.c").toFile();
+        Files.writeString(file.toPath(), "<a href=\"/source/xref/foo/bar.c\">bar.c</a>");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertFalse(Util.dumpGzippedXref(Channels.newChannel(out), file));
+        assertFalse(Util.dumpGzippedXref(Channels.newChannel(out), dir.resolve("nonexistent.gz").toFile()));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void isXrefPassthroughPossible() {
+        assumeTrue(StandardCharsets.UTF_8.equals(Charset.defaultCharset()));
+        assertTrue(Util.isXrefPassthroughPossible(null));
+        assertTrue(Util.isXrefPassthroughPossible("/source"));
+        assertTrue(Util.isXrefPassthroughPossible("/source/"));
+        assertFalse(Util.isXrefPassthroughPossible(""));
+        assertFalse(Util.isXrefPassthroughPossible("/opengrok"));
+    }
+
     @Test
     void jsStringLiteral() {
         assertEquals("\"abc\\n\\r\\\"\\\\\"",
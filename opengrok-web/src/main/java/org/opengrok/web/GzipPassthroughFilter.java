@@ -0,0 +1,134 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.web.QueryParameters;
+import org.opengrok.indexer.web.Util;
+
+/**
+ * Filter that makes it possible to send precompressed xref files to clients that accept gzip encoding
+ * without decompressing them first. The response of eligible requests is wrapped with
+ * {@link GzipPassthroughResponse} which is then used by {@code list.jsp} to transfer the stored xref.
+ */
+public class GzipPassthroughFilter implements Filter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GzipPassthroughFilter.class);
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+        if (!isEligible(request)) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
+        response.addHeader("Vary", "Accept-Encoding");
+        GzipPassthroughResponse wrapper = new GzipPassthroughResponse(request, response);
+        chain.doFilter(request, wrapper);
+        wrapper.finish();
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            LOGGER.log(Level.FINEST, "passed through {0} bytes of gzipped xref for {1}",
+                    new Object[]{wrapper.getPassthroughBytes(), request.getPathInfo()});
+        }
+    }
+
+    /**
+     * The decision has to be made before the page is rendered because the {@code Content-Encoding}
+     * header has to precede the body, so only the inexpensive checks are performed here.
+     * {@code list.jsp} falls back to decompressing the xref if it cannot be passed through in the end.
+     */
+    private static boolean isEligible(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod()) || !acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            return false;
+        }
+
+        if (!Util.isXrefPassthroughPossible(request.getContextPath())) {
+            return false;
+        }
+
+        // Annotated xrefs are always generated on the fly.
+        if (Boolean.parseBoolean(request.getParameter(QueryParameters.ANNOTATION_PARAM))) {
+            return false;
+        }
+
+        PageConfig cfg = PageConfig.get(request);
+        if (!cfg.getEnv().isCompressXref() || cfg.getPath().isEmpty() || cfg.isDir()) {
+            return false;
+        }
+
+        File xrefFile = cfg.findDataFile();
+        return xrefFile != null && xrefFile.getName().endsWith(".gz");
+    }
+
+    /**
+     * @param acceptEncoding value of the {@code Accept-Encoding} request header
+     * @return whether the header allows the {@code gzip} content coding
+     */
+    @VisibleForTesting
+    static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals(GzipPassthroughResponse.GZIP) && !name.equals("x-gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+}
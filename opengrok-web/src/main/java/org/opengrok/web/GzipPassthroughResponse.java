@@ -0,0 +1,337 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.web.Util;
+
+/**
+ * Response wrapper that sends the body to the client as a series of gzip members.
+ * <p>
+ * Everything written by the page is compressed on the fly. Precompressed content (gzipped xref files
+ * produced by the indexer) can be appended as is via {@link #passthrough(Writer, File)}: the current
+ * member is finished, the stored bytes are copied to the client and a new member is started for the
+ * rest of the page. Per RFC 1952 the client decodes the concatenation as a single stream.
+ * <p>
+ * The {@code Content-Encoding} header is set only once the first byte of the body is written so that
+ * e.g. redirects and error responses are not affected.
+ *
+ * @see GzipPassthroughFilter
+ */
+public class GzipPassthroughResponse extends HttpServletResponseWrapper {
+
+    private static final String ATTR_NAME = GzipPassthroughResponse.class.getName();
+
+    static final String GZIP = "gzip";
+
+    private final MemberOutputStream body = new MemberOutputStream();
+    private PrintWriter writer;
+    private ServletOutputStream outputStream;
+
+    private boolean encodingSet;
+    private long passthroughBytes;
+
+    GzipPassthroughResponse(HttpServletRequest request, HttpServletResponse response) {
+        super(response);
+        request.setAttribute(ATTR_NAME, this);
+    }
+
+    /**
+     * Get the wrapper installed by {@link GzipPassthroughFilter} for the given request.
+     * @param request request to check
+     * @return the response wrapper or {@code null} if gzip passthrough is not possible for the request
+     */
+    @Nullable
+    public static GzipPassthroughResponse get(HttpServletRequest request) {
+        Object response = request.getAttribute(ATTR_NAME);
+        return response instanceof GzipPassthroughResponse ? (GzipPassthroughResponse) response : null;
+    }
+
+    /**
+     * Send the gzipped file to the client as is.
+     * @param out the writer the page has been writing to. It is flushed before the file is sent.
+     * @param file gzipped file to send
+     * @return {@code true} if the file was sent, {@code false} if nothing was written
+     * (e.g. the file is not gzipped) and the caller has to fall back to sending the content itself
+     * @throws IOException on I/O error
+     */
+    public boolean passthrough(Writer out, File file) throws IOException {
+        out.flush();
+        if (writer != null) {
+            writer.flush();
+        }
+        body.finishMember();
+
+        OutputStream raw = getResponse().getOutputStream();
+        setEncoding();
+        CountingChannel channel = new CountingChannel(raw);
+        if (!Util.dumpGzippedXref(channel, file)) {
+            return false;
+        }
+        passthroughBytes += channel.count;
+        return true;
+    }
+
+    /**
+     * @return number of bytes sent to the client without being compressed by this response
+     */
+    long getPassthroughBytes() {
+        return passthroughBytes;
+    }
+
+    /**
+     * Finish the response body. Has to be called once the request processing is done.
+     * @throws IOException on I/O error
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        body.finishMember();
+    }
+
+    private void setEncoding() {
+        if (!encodingSet) {
+            encodingSet = true;
+            super.setHeader("Content-Encoding", GZIP);
+        }
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (outputStream != null) {
+            throw new IllegalStateException("getOutputStream() has already been called");
+        }
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(body, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    body.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    body.flush();
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    /**
+     * The length of the compressed body is not known upfront.
+     */
+    @Override
+    public void setContentLength(int len) {
+        // Ignored.
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        // Ignored.
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        body.flush();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        resetBody();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        resetBody();
+    }
+
+    /**
+     * Drop the compressed data that did not make it to the client yet. The headers were either
+     * reset too or the {@code Content-Encoding} header is still in place.
+     */
+    private void resetBody() {
+        body.discardMember();
+        if (!isCommitted() && getHeader("Content-Encoding") == null) {
+            encodingSet = false;
+        }
+    }
+
+    /**
+     * Stream compressing the data into gzip members that are started lazily.
+     */
+    private class MemberOutputStream extends OutputStream {
+        private Member member;
+
+        private Member getMember() throws IOException {
+            if (member == null) {
+                setEncoding();
+                OutputStream raw = getResponse().getOutputStream();
+                member = new Member(new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        raw.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        raw.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        raw.flush();
+                    }
+                });
+            }
+            return member;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            getMember().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                getMember().write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (member != null) {
+                member.flush();
+            }
+        }
+
+        void finishMember() throws IOException {
+            if (member != null) {
+                // Closes the deflater, the underlying stream is left open.
+                member.close();
+                member = null;
+            }
+        }
+
+        void discardMember() {
+            if (member != null) {
+                member.discard();
+                member = null;
+            }
+        }
+    }
+
+    /**
+     * Gzip member that can be dropped without writing the rest of its data.
+     */
+    private static class Member extends GZIPOutputStream {
+        Member(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        /**
+         * Release the native memory of the deflater. Unlike {@link #close()} this does not write anything.
+         */
+        void discard() {
+            def.end();
+        }
+    }
+
+    /**
+     * Channel counting the bytes written to the underlying stream.
+     */
+    private static class CountingChannel implements WritableByteChannel {
+        private final WritableByteChannel channel;
+        private long count;
+
+        CountingChannel(OutputStream out) {
+            this.channel = Channels.newChannel(out);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int written = channel.write(src);
+            count += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // The response stream is closed by the container.
+        }
+    }
+}
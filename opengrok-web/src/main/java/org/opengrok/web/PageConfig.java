@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2011, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2023, Gino Augustine <gino.augustine@oracle.com>.
@@ -58,6 +58,7 @@ import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -961,12 +962,9 @@ public class PageConfig {
         }
 
         // Add all projects which match the project parameter name values/
-        getParameterValues(projectParamName)
+        getIndexedAndAllowed(getParameterValues(projectParamName)
                 .stream()
-                .map(Project::getByName)
-                .filter(Objects::nonNull)
-                .filter(this::isIndexedAndAllowed)
-                .map(Project::getName)
+                .map(Project::getByName))
                 .forEach(projectNames::add);
         var groupNames = getParameterValues(groupParamName)
                 .stream()
@@ -982,21 +980,16 @@ public class PageConfig {
 
         // Add projects based on cookie.
         if (projectNames.isEmpty() && getIntParam(QueryParameters.NUM_SELECTED_PARAM, -1) != 0) {
-            getCookieVals(cookieName)
+            getIndexedAndAllowed(getCookieVals(cookieName)
                     .stream()
-                    .map(Project::getByName)
-                    .filter(Objects::nonNull)
-                    .filter(this::isIndexedAndAllowed)
-                    .map(Project::getName)
+                    .map(Project::getByName))
                     .forEach(projectNames::add);
         }
 
         // Add default projects.
         if (projectNames.isEmpty()) {
-            Optional.ofNullable(env.getDefaultProjects())
-                    .stream().flatMap(Collection::stream)
-                    .filter(this::isIndexedAndAllowed)
-                    .map(Project::getName)
+            getIndexedAndAllowed(Optional.ofNullable(env.getDefaultProjects())
+                    .stream().flatMap(Collection::stream))
                     .forEach(projectNames::add);
         }
 
@@ -1006,6 +999,20 @@ public class PageConfig {
     private boolean isIndexedAndAllowed(Project project) {
         return project.isIndexed() && this.isAllowed(project);
     }
+
+    /**
+     * @param projects stream of projects, can contain {@code null} values
+     * @return names of the indexed projects the current request is allowed to access
+     */
+    private List<String> getIndexedAndAllowed(Stream<Project> projects) {
+        return getAllowedProjects(projects
+                .filter(Objects::nonNull)
+                .filter(Project::isIndexed)
+                .collect(Collectors.toList()))
+                .stream()
+                .map(Project::getName)
+                .collect(Collectors.toList());
+    }
     public ProjectHelper getProjectHelper() {
         return ProjectHelper.getInstance(this);
     }
@@ -1312,11 +1319,22 @@ public class PageConfig {
      * fails or an uncompressed version of the file is younger than its
      * compressed version, the uncompressed file gets used.
      *
+     * If the indexer does not generate xrefs and the on-demand xref cache is enabled
+     * (see {@link RuntimeEnvironment#getXrefCacheSize()}), the xref is served from {@link XrefCache}.
+     * Any xref files left in the data root by an earlier run with xref generation are ignored then.
+     *
      * @return {@code null} if not found, the file otherwise.
      */
     public File findDataFile() {
-        return checkFile(resourceFile, new File(getEnv().getDataRootPath() + Prefix.XREF_P),
-                getPath(), env.isCompressXref());
+        boolean useCache = !getEnv().isGenerateHtml() && getEnv().getXrefCacheSize() > 0;
+        File file = null;
+        if (!useCache) {
+            file = checkFile(resourceFile, new File(getEnv().getDataRootPath() + Prefix.XREF_P),
+                    getPath(), env.isCompressXref());
+        } else if (!isDir()) {
+            file = XrefCache.getInstance().get(getResourceFile(), getPath(), getProject());
+        }
+        return file;
     }
 
     /**
@@ -1658,6 +1676,24 @@ public class PageConfig {
         return this.authFramework.isAllowed(this.req, g);
     }
 
+    /**
+     * Checks which of the projects the current request is allowed to access.
+     * @param projects projects
+     * @return the allowed projects in the iteration order of {@code projects}
+     */
+    public List<Project> getAllowedProjects(Collection<Project> projects) {
+        return this.authFramework.getAllowedProjects(this.req, projects);
+    }
+
+    /**
+     * Checks which of the groups the current request is allowed to access.
+     * @param groups groups
+     * @return the allowed groups in the iteration order of {@code groups}
+     */
+    public List<Group> getAllowedGroups(Collection<Group> groups) {
+        return this.authFramework.getAllowedGroups(this.req, groups);
+    }
+
 
     public SortedSet<AcceptedMessage> getMessages() {
         return env.getMessages();
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2015, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2019, Krystof Tulinger <k.tulinger@seznam.cz>.
  */
@@ -180,9 +180,8 @@ public final class ProjectHelper {
      * @return filtered set of projects
      */
     private Set<Project> filterProjects(Set<Project> p) {
-        Set<Project> repos = new TreeSet<>(p);
-        repos.removeIf(t -> !cfg.isAllowed(t) || !t.isIndexed());
-        return repos;
+        return new TreeSet<>(cfg.getAllowedProjects(
+                p.stream().filter(Project::isIndexed).collect(Collectors.toList())));
     }
 
     /**
@@ -192,9 +191,8 @@ public final class ProjectHelper {
      * @return filtered set of groups
      */
     private Set<Group> filterGroups(Set<Group> p) {
-        Set<Group> grps = new TreeSet<>(p);
-        grps.removeIf(t -> !(cfg.isAllowed(t) || hasAllowedSubgroup(t)));
-        return grps;
+        // hasAllowedSubgroup() is true only for allowed groups so it does not need to be checked
+        return new TreeSet<>(cfg.getAllowedGroups(p));
     }
 
     /**
@@ -0,0 +1,296 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.analysis.AbstractAnalyzer;
+import org.opengrok.indexer.analysis.AnalyzerFactory;
+import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.analysis.Definitions;
+import org.opengrok.indexer.configuration.Project;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.index.IndexDatabase;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.IOUtils;
+import org.opengrok.indexer.util.Statistics;
+import org.opengrok.indexer.util.TandemPath;
+
+/**
+ * Size-bounded on-disk cache of xref files rendered on demand. This allows to run the indexer without
+ * generating the xref files (see {@link RuntimeEnvironment#isGenerateHtml()}) and still serve
+ * the xrefs of the current version of the files without rendering them on every request.
+ * <p>
+ * The files are stored under the {@link #XREF_CACHE_DIR} directory of the data root in the same layout
+ * (and with the same compression) as the pre-generated xref files so that they can be served the same way.
+ * A cached file is rendered again once it is older than the source file or than the last index run
+ * as the definitions used for rendering come from the index.
+ * The least recently used files are removed once the size of the cache exceeds
+ * {@link RuntimeEnvironment#getXrefCacheSize()}. Concurrent requests for the same file wait for
+ * a single rendering.
+ */
+public final class XrefCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(XrefCache.class);
+
+    public static final String XREF_CACHE_DIR = "xrefcache";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final XrefCache INSTANCE = new XrefCache();
+
+    /**
+     * Cached files (absolute paths) in access order mapped to their sizes.
+     */
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+    private File cacheRoot;
+
+    private final ConcurrentMap<String, CompletableFuture<File>> inFlight = new ConcurrentHashMap<>();
+
+    public static XrefCache getInstance() {
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    XrefCache() {
+    }
+
+    /**
+     * Get the xref file for the current version of the source file, rendering it if necessary.
+     * @param sourceFile source file
+     * @param path path of the file relative to source root
+     * @param project project of the file
+     * @return xref file or {@code null} if the cache is disabled or the xref cannot be produced
+     * (e.g. the file is not a text file)
+     */
+    @Nullable
+    public File get(File sourceFile, String path, @Nullable Project project) {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        long limit = env.getXrefCacheSize() * 1024L * 1024L;
+        if (limit <= 0 || !sourceFile.isFile()) {
+            return null;
+        }
+
+        boolean compressed = env.isCompressXref();
+        File root = getCacheRoot(env);
+        File cached = new File(root, compressed ? TandemPath.join(path, ".gz") : path);
+        String key = cached.getAbsolutePath();
+
+        Date lastIndexRun = env.getDateForLastIndexRun();
+        long validSince = Math.max(sourceFile.lastModified(), lastIndexRun != null ? lastIndexRun.getTime() : 0);
+        if (cached.isFile() && cached.lastModified() >= validSince) {
+            touch(key, cached.length(), limit);
+            increment("hit");
+            return cached;
+        }
+
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            increment("wait");
+            return existing.join();
+        }
+
+        increment("miss");
+        File result = null;
+        try {
+            result = render(sourceFile, cached, project, compressed);
+            if (result != null) {
+                touch(key, result.length(), limit);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to render xref for '%s'", sourceFile), e);
+        } finally {
+            future.complete(result);
+            inFlight.remove(key, future);
+        }
+        return result;
+    }
+
+    @Nullable
+    private File render(File sourceFile, File cached, @Nullable Project project, boolean compressed)
+            throws IOException {
+
+        AnalyzerFactory factory;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(sourceFile))) {
+            factory = AnalyzerGuru.find(in, sourceFile.getName());
+        }
+        if (factory == null || AnalyzerGuru.getGenre(factory) != AbstractAnalyzer.Genre.PLAIN) {
+            return null;
+        }
+
+        // The definitions are stored in the index for the current version of the file.
+        Definitions defs = null;
+        try {
+            defs = IndexDatabase.getDefinitions(sourceFile);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, String.format("cannot get definitions for '%s'", sourceFile), e);
+        }
+
+        File parent = cached.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException(String.format("cannot create directory '%s'", parent));
+        }
+
+        Statistics stat = new Statistics();
+        Path temp = Files.createTempFile(parent.toPath(), "xref", TEMP_SUFFIX);
+        try {
+            try (Reader in = IOUtils.createBOMStrippedReader(new FileInputStream(sourceFile),
+                    StandardCharsets.UTF_8.name());
+                 Writer out = new BufferedWriter(new OutputStreamWriter(compressed ?
+                         new GZIPOutputStream(new FileOutputStream(temp.toFile())) :
+                         new FileOutputStream(temp.toFile())))) {
+                AnalyzerGuru.writeXref(factory, in, out, defs, null, project, sourceFile);
+            }
+            Files.move(temp, cached.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        stat.report(LOGGER, Level.FINEST, String.format("rendered xref for '%s'", sourceFile),
+                "xref.cache.render");
+
+        return cached;
+    }
+
+    private synchronized File getCacheRoot(RuntimeEnvironment env) {
+        File root = new File(env.getDataRootFile(), XREF_CACHE_DIR);
+        if (!root.equals(cacheRoot)) {
+            cacheRoot = root;
+            load(root);
+        }
+        return root;
+    }
+
+    /**
+     * Register the files left in the cache directory by previous runs, oldest first.
+     */
+    private void load(File root) {
+        entries.clear();
+        totalSize = 0;
+        if (!root.isDirectory()) {
+            return;
+        }
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(root.toPath())) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("cannot list xref cache directory '%s'", root), e);
+            return;
+        }
+
+        files.stream().map(Path::toFile).
+                filter(file -> {
+                    if (file.getName().endsWith(TEMP_SUFFIX)) {
+                        // leftover from interrupted rendering
+                        delete(file);
+                        return false;
+                    }
+                    return true;
+                }).
+                sorted(Comparator.comparingLong(File::lastModified)).
+                forEach(file -> {
+                    entries.put(file.getAbsolutePath(), file.length());
+                    totalSize += file.length();
+                });
+        LOGGER.log(Level.FINE, "xref cache ''{0}'' contains {1} files, {2} bytes",
+                new Object[]{root, entries.size(), totalSize});
+    }
+
+    private synchronized void touch(String key, long size, long limit) {
+        Long previous = entries.put(key, size);
+        totalSize += size - (previous != null ? previous : 0);
+
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalSize > limit && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            iterator.remove();
+            totalSize -= eldest.getValue();
+            delete(new File(eldest.getKey()));
+            increment("eviction");
+        }
+    }
+
+    private static void delete(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("cannot delete '%s' from xref cache", file), e);
+        }
+    }
+
+    /**
+     * @return sum of the sizes of the cached files
+     */
+    @VisibleForTesting
+    synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    private static void increment(String what) {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Counter.builder("xref.cache").
+                    description("on-demand xref cache lookups").
+                    tag("what", what).
+                    register(registry).
+                    increment();
+        }
+    }
+}
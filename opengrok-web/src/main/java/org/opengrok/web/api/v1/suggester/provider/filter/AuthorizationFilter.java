@@ -18,10 +18,14 @@
  */
 
 /*
- * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.web.api.v1.suggester.provider.filter;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
@@ -60,11 +64,12 @@ public class AuthorizationFilter implements ContainerRequestFilter {
         if (auth != null) {
             String[] projects = request.getParameterValues(PROJECTS_PARAM);
             if (projects != null) {
-                for (String project : projects) {
-                    Project p = Project.getByName(project);
-                    if (!auth.isAllowed(request, p)) {
-                        context.abortWith(Response.status(Response.Status.FORBIDDEN).build());
-                    }
+                List<Project> requested = Arrays.stream(projects).
+                        map(Project::getByName).
+                        collect(Collectors.toList());
+                // unknown projects are not allowed
+                if (auth.getAllowedProjects(request, requested).size() != requested.size()) {
+                    context.abortWith(Response.status(Response.Status.FORBIDDEN).build());
                 }
             }
         }
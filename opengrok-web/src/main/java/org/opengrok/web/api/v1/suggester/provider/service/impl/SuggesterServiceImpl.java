@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, 2024, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.web.api.v1.suggester.provider.service.impl;
 
@@ -328,6 +328,7 @@ public class SuggesterServiceImpl implements SuggesterService {
                 getParallelismLevel(suggesterConfig.getSearchThreadPoolSizeInNcpuPercent(), "search"),
                 Metrics.getRegistry(),
                 env.isPrintProgress());
+        suggester.setIncrementalRebuildThreshold(suggesterConfig.getIncrementalRebuildThreshold());
 
         new Thread(() -> {
             suggester.init(getAllProjectIndexDirs());
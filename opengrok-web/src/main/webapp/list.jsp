@@ -16,7 +16,7 @@ information: Portions Copyright [yyyy] [name of copyright owner]
 
 CDDL HEADER END
 
-Copyright (c) 2005, 2025, Oracle and/or its affiliates. All rights reserved.
+Copyright (c) 2005, 2026, Oracle and/or its affiliates. All rights reserved.
 Portions Copyright 2011 Jens Elkner.
 Portions Copyright (c) 2017-2020, Chris Fraire <cfraire@me.com>.
 
@@ -42,7 +42,8 @@ org.opengrok.indexer.index.IndexDatabase,
 org.opengrok.indexer.search.DirectoryEntry,
 org.opengrok.indexer.util.FileExtraZipper,
 org.opengrok.indexer.util.IOUtils,
-org.opengrok.web.DirectoryListing"
+org.opengrok.web.DirectoryListing,
+org.opengrok.web.GzipPassthroughResponse"
 %>
 <%@ page import="static org.opengrok.web.PageConfig.DUMMY_REVISION" %>
 <%@ page import="static org.opengrok.indexer.history.LatestRevisionUtil.getLatestRevision" %>
@@ -213,7 +214,8 @@ document.pageReady.push(function() { pageReadyList();});
     } else if (rev.length() != 0) {
         // requesting a revision
         File xrefFile;
-        if (cfg.isLatestRevision(rev) && (xrefFile = cfg.findDataFile()) != null) {
+        if ((cfg.isLatestRevision(rev) || (rev.equals(DUMMY_REVISION) && (cfg.getEnv().isGenerateHtml() ||
+                cfg.getEnv().getXrefCacheSize() > 0))) && (xrefFile = cfg.findDataFile()) != null) {
             if (cfg.annotate()) {
                 // annotate
                 BufferedInputStream bin = new BufferedInputStream(new FileInputStream(resourceFile));
@@ -271,9 +273,12 @@ Click <a href="<%= rawPath %>">download <%= basename %></a><%
 %>
 <div id="src" data-navigate-window-enabled="<%= navigateWindowEnabled %>">
     <pre><%
-                    boolean compressed = xrefFile.getName().endsWith(".gz");
-                    Util.dumpXref(out, xrefFile, compressed,
-                            request.getContextPath());
+                    GzipPassthroughResponse gzipResponse = GzipPassthroughResponse.get(request);
+                    if (gzipResponse == null || !gzipResponse.passthrough(out, xrefFile)) {
+                        boolean compressed = xrefFile.getName().endsWith(".gz");
+                        Util.dumpXref(out, xrefFile, compressed,
+                                request.getContextPath());
+                    }
     %></pre>
 </div>
 <%
@@ -294,8 +299,11 @@ include file="/xref.jspf"
 %>
 <div id="src" data-navigate-window-enabled="<%= navigateWindowEnabled %>">
     <pre><%
-            boolean compressed = xrefFile.getName().endsWith(".gz");
-            Util.dumpXref(out, xrefFile, compressed, request.getContextPath());
+            GzipPassthroughResponse gzipResponse = GzipPassthroughResponse.get(request);
+            if (gzipResponse == null || !gzipResponse.passthrough(out, xrefFile)) {
+                boolean compressed = xrefFile.getName().endsWith(".gz");
+                Util.dumpXref(out, xrefFile, compressed, request.getContextPath());
+            }
     %></pre>
 </div>
 <%
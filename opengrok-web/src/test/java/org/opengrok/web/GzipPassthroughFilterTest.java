@@ -0,0 +1,189 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.web.DummyHttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Provides coverage for the {@link GzipPassthroughFilter} and {@link GzipPassthroughResponse} classes.
+ */
+class GzipPassthroughFilterTest {
+
+    private static HttpServletResponse mockResponse(ByteArrayOutputStream body) throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getCharacterEncoding()).thenReturn(StandardCharsets.UTF_8.name());
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return response;
+    }
+
+    private static String decode(byte[] bytes) throws IOException {
+        // GZIPInputStream reads all the concatenated members.
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testAcceptsGzip() {
+        assertTrue(GzipPassthroughFilter.acceptsGzip("gzip"));
+        assertTrue(GzipPassthroughFilter.acceptsGzip("gzip, deflate, br"));
+        assertTrue(GzipPassthroughFilter.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(GzipPassthroughFilter.acceptsGzip("x-gzip"));
+        assertFalse(GzipPassthroughFilter.acceptsGzip(null));
+        assertFalse(GzipPassthroughFilter.acceptsGzip("identity"));
+        assertFalse(GzipPassthroughFilter.acceptsGzip("deflate, gzip;q=0"));
+        assertFalse(GzipPassthroughFilter.acceptsGzip("gzip;q=foo"));
+    }
+
+    @Test
+    void testPassthrough(@TempDir Path dir) throws IOException {
+        String xref = "<a class=\"l\" name=\"1\" href=\"#1\">1</a>int main() {}\n".repeat(100);
+        File file = dir.resolve("main.c.gz").toFile();
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)),
+                StandardCharsets.UTF_8)) {
+            out.write(xref);
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = mockResponse(body);
+        HttpServletRequest request = new DummyHttpServletRequest();
+        assertNull(GzipPassthroughResponse.get(request));
+        GzipPassthroughResponse wrapper = new GzipPassthroughResponse(request, response);
+        assertSame(wrapper, GzipPassthroughResponse.get(request));
+
+        PrintWriter out = wrapper.getWriter();
+        out.write("<pre>é");
+        assertTrue(wrapper.passthrough(out, file));
+        out.write("</pre>");
+        wrapper.finish();
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        assertEquals(Files.size(file.toPath()), wrapper.getPassthroughBytes());
+        assertEquals("<pre>é" + xref + "</pre>", decode(body.toByteArray()));
+    }
+
+    @Test
+    void testPassthroughFallback(@TempDir Path dir) throws IOException {
+        File file = dir.resolve("main.c.gz").toFile();
+        Files.writeString(file.toPath(), "not gzipped");
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = mockResponse(body);
+        GzipPassthroughResponse wrapper = new GzipPassthroughResponse(new DummyHttpServletRequest(), response);
+
+        PrintWriter out = wrapper.getWriter();
+        out.write("<pre>");
+        assertFalse(wrapper.passthrough(out, file));
+        out.write("plain</pre>");
+        wrapper.finish();
+
+        assertEquals(0, wrapper.getPassthroughBytes());
+        assertEquals("<pre>plain</pre>", decode(body.toByteArray()));
+    }
+
+    /**
+     * The data of the gzip member dropped by reset should not appear in the body, and writing
+     * should continue with a new member.
+     */
+    @Test
+    void testResetBuffer() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = mockResponse(body);
+        doAnswer(invocation -> {
+            body.reset();
+            return null;
+        }).when(response).resetBuffer();
+        GzipPassthroughResponse wrapper = new GzipPassthroughResponse(new DummyHttpServletRequest(), response);
+
+        PrintWriter out = wrapper.getWriter();
+        out.write("discarded");
+        out.flush();
+        wrapper.resetBuffer();
+        out.write("<pre>kept</pre>");
+        wrapper.finish();
+
+        assertEquals("<pre>kept</pre>", decode(body.toByteArray()));
+    }
+
+    @Test
+    void testNoBody() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = mockResponse(body);
+        GzipPassthroughResponse wrapper = new GzipPassthroughResponse(new DummyHttpServletRequest(), response);
+
+        wrapper.sendRedirect("/source/xref/foo");
+        wrapper.finish();
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals(0, body.size());
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Provides coverage for the {@link XrefCache} class.
+ */
+class XrefCacheTest {
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+
+    private String origSourceRoot;
+    private String origDataRoot;
+    private int origCacheSize;
+    private boolean origCompressXref;
+
+    @TempDir
+    private Path sourceRoot;
+    @TempDir
+    private Path dataRoot;
+
+    @BeforeEach
+    void setUp() {
+        origSourceRoot = env.getSourceRootPath();
+        origDataRoot = env.getDataRootPath();
+        origCacheSize = env.getXrefCacheSize();
+        origCompressXref = env.isCompressXref();
+
+        env.setSourceRoot(sourceRoot.toString());
+        env.setDataRoot(dataRoot.toString());
+        env.setXrefCacheSize(1);
+        env.setCompressXref(false);
+        env.refreshDateForLastIndexRun();
+    }
+
+    @AfterEach
+    void tearDown() {
+        env.setSourceRoot(origSourceRoot);
+        env.setDataRoot(origDataRoot);
+        env.setXrefCacheSize(origCacheSize);
+        env.setCompressXref(origCompressXref);
+        env.refreshDateForLastIndexRun();
+    }
+
+    private File createSourceFile(String name, String content) throws IOException {
+        Path file = sourceRoot.resolve(name);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+
+    @Test
+    void testDisabled() throws IOException {
+        env.setXrefCacheSize(0);
+        File file = createSourceFile("foo.txt", "foo\n");
+        assertNull(new XrefCache().get(file, "/foo.txt", null));
+    }
+
+    @Test
+    void testRenderAndHit() throws IOException {
+        File file = createSourceFile("foo.txt", "foo bar\n");
+        XrefCache cache = new XrefCache();
+
+        File xref = cache.get(file, "/foo.txt", null);
+        assertNotNull(xref);
+        assertEquals(new File(new File(dataRoot.toFile(), XrefCache.XREF_CACHE_DIR), "foo.txt"), xref);
+        assertTrue(Files.readString(xref.toPath()).contains("foo bar"));
+        long lastModified = xref.lastModified();
+        assertEquals(xref.length(), cache.getTotalSize());
+
+        // The second request is served from the cache without rendering.
+        assertTrue(xref.setLastModified(lastModified + 10_000));
+        File cached = cache.get(file, "/foo.txt", null);
+        assertEquals(xref, cached);
+        assertEquals(lastModified + 10_000, cached.lastModified());
+    }
+
+    @Test
+    void testStaleEntryIsRendered() throws IOException {
+        File file = createSourceFile("foo.txt", "foo\n");
+        XrefCache cache = new XrefCache();
+        File xref = cache.get(file, "/foo.txt", null);
+        assertNotNull(xref);
+
+        Files.writeString(file.toPath(), "bar\n");
+        assertTrue(file.setLastModified(xref.lastModified() + 10_000));
+        xref = cache.get(file, "/foo.txt", null);
+        assertNotNull(xref);
+        String content = Files.readString(xref.toPath());
+        assertTrue(content.contains("bar"));
+        assertFalse(content.contains("foo"));
+    }
+
+    /**
+     * The definitions and links in the xref come from the index so the xrefs rendered before reindex are stale.
+     */
+    @Test
+    void testEntryOlderThanIndexIsRendered() throws IOException {
+        File file = createSourceFile("foo.txt", "foo\n");
+        XrefCache cache = new XrefCache();
+        File xref = cache.get(file, "/foo.txt", null);
+        assertNotNull(xref);
+        assertTrue(file.setLastModified(xref.lastModified() - 20_000));
+        assertTrue(xref.setLastModified(xref.lastModified() - 10_000));
+        long lastModified = xref.lastModified();
+        assertEquals(lastModified, cache.get(file, "/foo.txt", null).lastModified());
+
+        File timestamp = new File(dataRoot.toFile(), "timestamp");
+        assertTrue(timestamp.createNewFile());
+        assertTrue(timestamp.setLastModified(lastModified + 5_000));
+        env.refreshDateForLastIndexRun();
+        xref = cache.get(file, "/foo.txt", null);
+        assertNotNull(xref);
+        assertTrue(xref.lastModified() > lastModified + 5_000);
+    }
+
+    @Test
+    void testCompressed() throws IOException {
+        env.setCompressXref(true);
+        File file = createSourceFile("foo.txt", "foo bar\n");
+        File xref = new XrefCache().get(file, "/foo.txt", null);
+        assertNotNull(xref);
+        assertEquals("foo.txt.gz", xref.getName());
+        try (InputStream in = new GZIPInputStream(new FileInputStream(xref))) {
+            assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).contains("foo bar"));
+        }
+    }
+
+    @Test
+    void testBinaryFileIsNotRendered() throws IOException {
+        Path file = sourceRoot.resolve("foo.bin");
+        Files.write(file, new byte[]{0, 1, 2, 3, 0, (byte) 0xff, 0});
+        assertNull(new XrefCache().get(file.toFile(), "/foo.bin", null));
+    }
+
+    @Test
+    void testEviction() throws IOException {
+        String content = "line\n".repeat(120_000); // 600 KB, the cache is limited to 1 MB
+        File foo = createSourceFile("foo.txt", content);
+        File bar = createSourceFile("bar.txt", content);
+        XrefCache cache = new XrefCache();
+
+        File fooXref = cache.get(foo, "/foo.txt", null);
+        assertNotNull(fooXref);
+        assertTrue(fooXref.isFile());
+        File barXref = cache.get(bar, "/bar.txt", null);
+        assertNotNull(barXref);
+
+        assertTrue(barXref.isFile());
+        assertFalse(fooXref.exists());
+        assertEquals(barXref.length(), cache.getTotalSize());
+    }
+
+    @Test
+    void testExistingFilesAreLoaded() throws IOException {
+        File foo = createSourceFile("foo.txt", "foo\n");
+        File fooXref = new XrefCache().get(foo, "/foo.txt", null);
+        assertNotNull(fooXref);
+        File stray = new File(fooXref.getParentFile(), "xref123.tmp");
+        Files.writeString(stray.toPath(), "partial");
+
+        XrefCache cache = new XrefCache();
+        assertNotNull(cache.get(foo, "/foo.txt", null));
+        assertEquals(fooXref.length(), cache.getTotalSize());
+        assertFalse(stray.exists());
+    }
+
+    @Test
+    void testConcurrentRequests() throws Exception {
+        File file = createSourceFile("foo.txt", "line\n".repeat(10_000));
+        XrefCache cache = new XrefCache();
+        final int count = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<File>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(file, "/foo.txt", null);
+                }));
+            }
+            start.countDown();
+            File expected = new File(new File(dataRoot.toFile(), XrefCache.XREF_CACHE_DIR), "foo.txt");
+            for (Future<File> future : futures) {
+                assertEquals(expected, future.get());
+            }
+            assertEquals(expected.length(), cache.getTotalSize());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2016, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package opengrok.auth.plugin.configuration;
 
@@ -71,6 +71,12 @@ public class Configuration implements Serializable {
     private int readTimeout;
     @JsonProperty
     private int countLimit;
+    @JsonProperty
+    private int cacheTtl = 5 * 60 * 1000; // ms
+    @JsonProperty
+    private int cacheStaleTtl = 60 * 1000; // ms
+    @JsonProperty
+    private int cacheSize = 10000;
 
     public void setServers(Collection<LdapServer> servers) {
         this.servers = new ArrayList<>(servers);
@@ -128,6 +134,40 @@ public class Configuration implements Serializable {
         this.countLimit = limit;
     }
 
+    /**
+     * @return time in milliseconds the LDAP lookup results are cached, zero disables the cache
+     */
+    public int getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public void setCacheTtl(int ttl) {
+        this.cacheTtl = ttl;
+    }
+
+    /**
+     * @return time in milliseconds after {@link #getCacheTtl()} the cached results are still used
+     * while they are being refreshed in the background
+     */
+    public int getCacheStaleTtl() {
+        return cacheStaleTtl;
+    }
+
+    public void setCacheStaleTtl(int ttl) {
+        this.cacheStaleTtl = ttl;
+    }
+
+    /**
+     * @return maximum number of cached LDAP lookup results
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int size) {
+        this.cacheSize = size;
+    }
+
     public String getSearchBase() {
         return searchBase;
     }
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2016, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package opengrok.auth.plugin.ldap;
 
@@ -44,6 +44,7 @@ import javax.naming.directory.Attributes;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
 
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
 import opengrok.auth.plugin.configuration.Configuration;
 import opengrok.auth.plugin.util.WebHook;
@@ -108,9 +109,29 @@ public class LdapFacade extends AbstractLdapProvider {
     private long errorTimestamp = 0;
     private boolean reported = false;
 
+    /**
+     * Cache of the lookup results shared across sessions, {@code null} if disabled.
+     */
+    private final LdapLookupCache cache;
+
     private final Timer ldapLookupTimer = Timer.builder("ldap.latency").
             description("LDAP lookup latency").
             register(Metrics.getRegistry());
+    private final Timer ldapCachedLookupTimer = Timer.builder("ldap.cache.latency").
+            description("LDAP lookup latency including the results served from the cache").
+            register(Metrics.getRegistry());
+    private final Counter ldapCacheHitCounter = Counter.builder("ldap.cache.requests").
+            description("LDAP lookup cache requests").
+            tag("result", "hit").
+            register(Metrics.getRegistry());
+    private final Counter ldapCacheStaleCounter = Counter.builder("ldap.cache.requests").
+            description("LDAP lookup cache requests").
+            tag("result", "stale").
+            register(Metrics.getRegistry());
+    private final Counter ldapCacheMissCounter = Counter.builder("ldap.cache.requests").
+            description("LDAP lookup cache requests").
+            tag("result", "miss").
+            register(Metrics.getRegistry());
 
     /**
      * Interface for converting LDAP results into user defined types.
@@ -181,6 +202,7 @@ public class LdapFacade extends AbstractLdapProvider {
         setInterval(cfg.getInterval());
         setSearchBase(cfg.getSearchBase());
         setWebHooks(cfg.getWebHooks());
+        cache = LdapLookupCache.getInstance(cfg);
 
         // Anti-pattern: do some non-trivial stuff in the constructor.
         prepareSearchControls(cfg.getSearchTimeout(), cfg.getCountLimit());
@@ -281,11 +303,32 @@ public class LdapFacade extends AbstractLdapProvider {
     @Override
     public LdapSearchResult<Map<String, Set<String>>> lookupLdapContent(String dn, String filter, String[] values) throws LdapException {
 
-        return lookup(
-                dn != null ? dn : getSearchBase(),
-                filter == null ? LDAP_FILTER : filter,
-                values,
-                new ContentAttributeMapper(values));
+        String searchDn = dn != null ? dn : getSearchBase();
+        String searchFilter = filter == null ? LDAP_FILTER : filter;
+        if (cache == null) {
+            return lookup(searchDn, searchFilter, values, new ContentAttributeMapper(values));
+        }
+
+        Instant start = Instant.now();
+        LdapSearchResult<Map<String, Set<String>>> res = cache.get(searchDn, searchFilter, values,
+                () -> lookup(searchDn, searchFilter, values, new ContentAttributeMapper(values)),
+                this::recordCacheOutcome);
+        ldapCachedLookupTimer.record(Duration.between(start, Instant.now()));
+        return res;
+    }
+
+    private void recordCacheOutcome(LdapLookupCache.Outcome outcome) {
+        switch (outcome) {
+            case HIT:
+                ldapCacheHitCounter.increment();
+                break;
+            case STALE:
+                ldapCacheStaleCounter.increment();
+                break;
+            default:
+                ldapCacheMissCounter.increment();
+                break;
+        }
     }
 
     private SearchControls prepareSearchControls(int ldapTimeout, int ldapCountLimit) {
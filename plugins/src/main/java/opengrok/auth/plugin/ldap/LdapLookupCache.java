@@ -0,0 +1,330 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package opengrok.auth.plugin.ldap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import opengrok.auth.plugin.configuration.Configuration;
+import opengrok.auth.plugin.ldap.AbstractLdapProvider.LdapSearchResult;
+import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
+
+/**
+ * Cache of LDAP lookup results shared by all sessions. The cache is keyed by
+ * the DN, filter and the returning attributes of the lookup.
+ * <p>
+ * A result is served from the cache for {@code ttl} after it was loaded.
+ * For another {@code staleTtl} the stale result is still served while it is
+ * reloaded in the background. Older results are reloaded synchronously.
+ * Concurrent lookups of the same key share single LDAP lookup.
+ * <p>
+ * Failed lookups are not cached, the {@link LdapException} is thrown to all
+ * the callers waiting for the lookup.
+ */
+final class LdapLookupCache {
+
+    private static final Logger LOGGER = Logger.getLogger(LdapLookupCache.class.getName());
+
+    /**
+     * The caches are shared by all the {@link LdapFacade} instances created
+     * from the same configuration (the plugins share the configurations
+     * loaded from the same file).
+     */
+    private static final Map<Configuration, LdapLookupCache> CACHES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final int REFRESH_THREADS = 2;
+
+    /**
+     * Performs the actual LDAP lookup.
+     */
+    interface Loader {
+        LdapSearchResult<Map<String, Set<String>>> load() throws LdapException;
+    }
+
+    /**
+     * The way the result of a lookup was obtained.
+     */
+    enum Outcome {
+        /**
+         * Result served from the cache.
+         */
+        HIT,
+        /**
+         * Stale result served from the cache while it is reloaded in the background.
+         */
+        STALE,
+        /**
+         * Result obtained by LDAP lookup (possibly shared with concurrent callers).
+         */
+        MISS
+    }
+
+    private static final class Key {
+        private final String dn;
+        private final String filter;
+        private final List<String> attributes;
+
+        Key(String dn, String filter, String[] attributes) {
+            this.dn = dn;
+            this.filter = filter;
+            if (attributes == null) {
+                this.attributes = null;
+            } else {
+                // The order of the attributes does not change the result.
+                String[] sorted = attributes.clone();
+                Arrays.sort(sorted);
+                this.attributes = Arrays.asList(sorted);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(dn, key.dn) && Objects.equals(filter, key.filter) &&
+                    Objects.equals(attributes, key.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dn, filter, attributes);
+        }
+    }
+
+    private static final class Entry {
+        private final LdapSearchResult<Map<String, Set<String>>> result;
+        private final long loaded;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(LdapSearchResult<Map<String, Set<String>>> result, long loaded) {
+            this.result = result;
+            this.loaded = loaded;
+        }
+    }
+
+    private final long ttl;
+    private final long staleTtl;
+    private final int maxSize;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Key, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttl time in milliseconds the results are served from the cache
+     * @param staleTtl time in milliseconds after {@code ttl} the stale results are served while reloaded
+     * @param maxSize maximum number of cached results
+     * @param refreshExecutor executor for the background reloads
+     * @param clock source of time in nanoseconds
+     */
+    LdapLookupCache(long ttl, long staleTtl, int maxSize, Executor refreshExecutor, LongSupplier clock) {
+        this.ttl = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.staleTtl = TimeUnit.MILLISECONDS.toNanos(Math.max(staleTtl, 0));
+        this.maxSize = Math.max(maxSize, 1);
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * @param cfg plugin configuration
+     * @return the cache shared by the facades using the configuration or {@code null} if the cache is disabled
+     */
+    static LdapLookupCache getInstance(Configuration cfg) {
+        if (cfg.getCacheTtl() <= 0 || cfg.getCacheSize() <= 0) {
+            return null;
+        }
+        return CACHES.computeIfAbsent(cfg, c -> {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new OpenGrokThreadFactory("ldap-cache-"));
+            executor.allowCoreThreadTimeOut(true);
+            return new LdapLookupCache(c.getCacheTtl(), c.getCacheStaleTtl(), c.getCacheSize(), executor,
+                    System::nanoTime);
+        });
+    }
+
+    /**
+     * Get the result of LDAP lookup, either from the cache or using the {@code loader}.
+     *
+     * @param dn LDAP DN
+     * @param filter LDAP filter
+     * @param attributes returning LDAP attributes
+     * @param loader performs the lookup
+     * @param outcomes receives the outcome of the call
+     * @return copy of the lookup result, {@code null} if the lookup did not find anything
+     * @throws LdapException if the lookup failed
+     */
+    LdapSearchResult<Map<String, Set<String>>> get(String dn, String filter, String[] attributes, Loader loader,
+            Consumer<Outcome> outcomes) throws LdapException {
+
+        Key key = new Key(dn, filter, attributes);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            long age = clock.getAsLong() - entry.loaded;
+            if (age < ttl) {
+                outcomes.accept(Outcome.HIT);
+                return copy(entry.result);
+            }
+            if (age < ttl + staleTtl) {
+                outcomes.accept(Outcome.STALE);
+                refresh(key, entry, loader);
+                return copy(entry.result);
+            }
+        }
+
+        outcomes.accept(Outcome.MISS);
+        return copy(load(key, loader).result);
+    }
+
+    private void refresh(Key key, Entry entry, Loader loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, loader);
+                } catch (LdapException | RuntimeException e) {
+                    // Keep serving the stale result, the next request will try again.
+                    entry.refreshing.set(false);
+                    LOGGER.log(Level.FINE, "failed to refresh LDAP lookup result", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private Entry load(Key key, Loader loader) throws LdapException {
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            Entry entry = new Entry(loader.load(), clock.getAsLong());
+            put(key, entry);
+            future.complete(entry);
+            return entry;
+        } catch (LdapException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) throws LdapException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LdapException("interrupted while waiting for LDAP lookup", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new LdapException(cause.getMessage(), cause);
+        }
+    }
+
+    private void put(Key key, Entry entry) {
+        entries.put(key, entry);
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Remove the expired entries and if that is not enough, the oldest entries
+     * so that the eviction does not have to be done on each insertion.
+     */
+    private synchronized void evict() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+
+        long now = clock.getAsLong();
+        entries.values().removeIf(e -> now - e.loaded >= ttl + staleTtl);
+
+        int target = maxSize - maxSize / 10;
+        if (entries.size() > target) {
+            List<Map.Entry<Key, Entry>> list = new ArrayList<>(entries.entrySet());
+            list.sort(Comparator.comparingLong(e -> e.getValue().loaded));
+            for (int i = 0; i < list.size() - target; i++) {
+                entries.remove(list.get(i).getKey(), list.get(i).getValue());
+            }
+        }
+    }
+
+    /**
+     * @return number of cached results
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * The callers (e.g. {@link opengrok.auth.entity.LdapUser}) are free to modify the attributes.
+     */
+    private static LdapSearchResult<Map<String, Set<String>>> copy(LdapSearchResult<Map<String, Set<String>>> res) {
+        if (res == null || res.getAttrs() == null) {
+            return res;
+        }
+        Map<String, Set<String>> attrs = new HashMap<>();
+        for (Map.Entry<String, Set<String>> attr : res.getAttrs().entrySet()) {
+            attrs.put(attr.getKey(), attr.getValue() == null ? null : new TreeSet<>(attr.getValue()));
+        }
+        return new LdapSearchResult<>(res.getDN(), attrs);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package opengrok.auth.plugin.ldap;
+
+import opengrok.auth.plugin.ldap.AbstractLdapProvider.LdapSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LdapLookupCacheTest {
+
+    private static final long TTL = 1000;
+    private static final long STALE_TTL = 500;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private LdapLookupCache newCache(int maxSize) {
+        // Run the background refresh synchronously.
+        return new LdapLookupCache(TTL, STALE_TTL, maxSize, Runnable::run, clock::get);
+    }
+
+    private void sleep(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static LdapSearchResult<Map<String, Set<String>>> newResult(String dn, String value) {
+        return new LdapSearchResult<>(dn, Map.of("mail", new TreeSet<>(Set.of(value))));
+    }
+
+    private static String getValue(LdapSearchResult<Map<String, Set<String>>> res) {
+        return res.getAttrs().get("mail").iterator().next();
+    }
+
+    @Test
+    void testHitAndExpiration() throws LdapException {
+        LdapLookupCache cache = newCache(10);
+        AtomicInteger loads = new AtomicInteger();
+        List<LdapLookupCache.Outcome> outcomes = new ArrayList<>();
+        LdapLookupCache.Loader loader = () -> newResult("uid=foo", "foo" + loads.incrementAndGet());
+
+        assertEquals("foo1", getValue(cache.get("uid=foo", "objectclass=*", null, loader, outcomes::add)));
+        sleep(TTL - 1);
+        assertEquals("foo1", getValue(cache.get("uid=foo", "objectclass=*", null, loader, outcomes::add)));
+        sleep(TTL + STALE_TTL);
+        assertEquals("foo2", getValue(cache.get("uid=foo", "objectclass=*", null, loader, outcomes::add)));
+
+        assertEquals(2, loads.get());
+        assertEquals(List.of(LdapLookupCache.Outcome.MISS, LdapLookupCache.Outcome.HIT,
+                LdapLookupCache.Outcome.MISS), outcomes);
+    }
+
+    @Test
+    void testStaleWhileRevalidate() throws LdapException {
+        LdapLookupCache cache = newCache(10);
+        AtomicInteger loads = new AtomicInteger();
+        List<LdapLookupCache.Outcome> outcomes = new ArrayList<>();
+        LdapLookupCache.Loader loader = () -> newResult("uid=foo", "foo" + loads.incrementAndGet());
+
+        cache.get("uid=foo", null, null, loader, outcomes::add);
+        sleep(TTL + 1);
+        // The stale value is returned, the refreshed one is used afterwards.
+        assertEquals("foo1", getValue(cache.get("uid=foo", null, null, loader, outcomes::add)));
+        assertEquals("foo2", getValue(cache.get("uid=foo", null, null, loader, outcomes::add)));
+
+        assertEquals(2, loads.get());
+        assertEquals(List.of(LdapLookupCache.Outcome.MISS, LdapLookupCache.Outcome.STALE,
+                LdapLookupCache.Outcome.HIT), outcomes);
+    }
+
+    @Test
+    void testFailedRefreshKeepsStaleResult() throws LdapException {
+        LdapLookupCache cache = newCache(10);
+        cache.get("uid=foo", null, null, () -> newResult("uid=foo", "foo"), outcome -> { });
+        sleep(TTL + 1);
+        LdapLookupCache.Loader failing = () -> {
+            throw new LdapException("LDAP server pool is still broken");
+        };
+        assertEquals("foo", getValue(cache.get("uid=foo", null, null, failing, outcome -> { })));
+        assertEquals("foo", getValue(cache.get("uid=foo", null, null, failing, outcome -> { })));
+        sleep(STALE_TTL);
+        assertThrows(LdapException.class, () -> cache.get("uid=foo", null, null, failing, outcome -> { }));
+    }
+
+    @Test
+    void testKey() throws LdapException {
+        LdapLookupCache cache = newCache(10);
+        AtomicInteger loads = new AtomicInteger();
+        LdapLookupCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return null;
+        };
+
+        assertNull(cache.get("uid=foo", "(objectclass=*)", new String[]{"mail", "uid"}, loader, outcome -> { }));
+        assertNull(cache.get("uid=foo", "(objectclass=*)", new String[]{"uid", "mail"}, loader, outcome -> { }));
+        assertEquals(1, loads.get());
+        cache.get("uid=foo", "(objectclass=*)", new String[]{"uid"}, loader, outcome -> { });
+        cache.get("uid=foo", "(uid=foo)", new String[]{"uid"}, loader, outcome -> { });
+        cache.get("uid=bar", "(uid=foo)", new String[]{"uid"}, loader, outcome -> { });
+        cache.get("uid=bar", "(uid=foo)", null, loader, outcome -> { });
+        assertEquals(5, loads.get());
+    }
+
+    /**
+     * The callers can modify the returned attributes.
+     */
+    @Test
+    void testResultIsCopied() throws LdapException {
+        LdapLookupCache cache = newCache(10);
+        LdapLookupCache.Loader loader = () -> newResult("uid=foo", "foo");
+
+        LdapSearchResult<Map<String, Set<String>>> first = cache.get("uid=foo", null, null, loader, outcome -> { });
+        first.getAttrs().get("mail").add("bar");
+        first.getAttrs().put("uid", Collections.singleton("foo"));
+        LdapSearchResult<Map<String, Set<String>>> second = cache.get("uid=foo", null, null, loader, outcome -> { });
+        assertNotSame(first.getAttrs(), second.getAttrs());
+        assertEquals(Map.of("mail", Set.of("foo")), second.getAttrs());
+    }
+
+    @Test
+    void testSizeIsBounded() throws LdapException {
+        final int maxSize = 100;
+        LdapLookupCache cache = newCache(maxSize);
+        for (int i = 0; i < 10 * maxSize; i++) {
+            String dn = "uid=user" + i;
+            cache.get(dn, null, null, () -> newResult(dn, dn), outcome -> { });
+            sleep(1);
+            assertTrue(cache.size() <= maxSize);
+        }
+
+        // The most recent results are kept.
+        List<LdapLookupCache.Outcome> outcomes = new ArrayList<>();
+        String dn = "uid=user" + (10 * maxSize - 1);
+        cache.get(dn, null, null, () -> newResult(dn, dn), outcomes::add);
+        assertEquals(List.of(LdapLookupCache.Outcome.HIT), outcomes);
+    }
+
+    /**
+     * Concurrent misses of the same key share single lookup, including its failure.
+     */
+    @Test
+    void testConcurrentMisses() throws Exception {
+        LdapLookupCache cache = newCache(10);
+        final int threads = 8;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        LdapLookupCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new LdapException("Tried all LDAP servers in a pool but no server works");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> cache.get("uid=foo", null, null, loader, outcome -> { })));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                futures.add(executor.submit(() -> cache.get("uid=foo", null, null, loader, outcome -> { })));
+            }
+            // Give the other threads a chance to join the lookup.
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<?> future : futures) {
+                Exception ex = assertThrows(Exception.class, () -> future.get(10, TimeUnit.SECONDS));
+                assertTrue(ex.getCause() instanceof LdapException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Lookups started after the failure do the lookup again.
+        assertTrue(loads.get() < threads);
+        assertEquals("foo", getValue(cache.get("uid=foo", null, null, () -> newResult("uid=foo", "foo"),
+                outcome -> { })));
+    }
+}
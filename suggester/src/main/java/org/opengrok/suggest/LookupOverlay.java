@@ -0,0 +1,243 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest;
+
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Holds the terms that changed since the base WFST of a field was built, together with their new weights.
+ * <p>
+ * The overlay has its own (small) {@link WFSTCompletionLookup} that is built from the changed terms only.
+ * Lookups combine the results of both structures with the overlay taking precedence, so the cost of
+ * an incremental rebuild is proportional to the number of changed terms. Once the overlay grows too big,
+ * the base WFST is rebuilt from scratch and the overlay is dropped.
+ */
+final class LookupOverlay {
+
+    private static final String WFST_TEMP_FILE_PREFIX = "opengrok_suggester_overlay";
+
+    private final TreeMap<BytesRef, Long> weights;
+
+    private final WFSTCompletionLookup lookup;
+
+    private LookupOverlay(final TreeMap<BytesRef, Long> weights, final WFSTCompletionLookup lookup) {
+        this.weights = weights;
+        this.lookup = lookup;
+    }
+
+    /**
+     * @return overlay without any terms
+     */
+    static LookupOverlay empty() {
+        return new LookupOverlay(new TreeMap<>(), null);
+    }
+
+    /**
+     * Creates a new overlay containing the terms of this overlay updated with {@code changes}.
+     * @param changes changed terms and their weights
+     * @param tempDir directory for temporary files used when building the WFST
+     * @return new overlay
+     * @throws IOException if the WFST could not be built
+     */
+    LookupOverlay merge(final Map<BytesRef, Long> changes, final Directory tempDir) throws IOException {
+        TreeMap<BytesRef, Long> merged = new TreeMap<>(weights);
+        merged.putAll(changes);
+        return build(merged, tempDir);
+    }
+
+    private static LookupOverlay build(final TreeMap<BytesRef, Long> weights, final Directory tempDir)
+            throws IOException {
+        if (weights.isEmpty()) {
+            return empty();
+        }
+
+        WFSTCompletionLookup lookup = new WFSTCompletionLookup(tempDir, WFST_TEMP_FILE_PREFIX);
+        lookup.build(new WeightsIterator(weights));
+        return new LookupOverlay(weights, lookup);
+    }
+
+    /**
+     * @return number of terms in the overlay
+     */
+    int size() {
+        return weights.size();
+    }
+
+    /**
+     * @param key term text
+     * @return weight of the term or {@code null} if the term is not in the overlay
+     */
+    Long get(final CharSequence key) {
+        return weights.get(new BytesRef(key));
+    }
+
+    /**
+     * Looks up the terms in both the {@code base} WFST and in this overlay.
+     * @param base base WFST the overlay applies to
+     * @param prefix prefix the returned terms must contain
+     * @param num number of terms to return
+     * @return terms with the highest weight
+     * @throws IOException on lookup error
+     */
+    List<Lookup.LookupResult> lookup(final WFSTCompletionLookup base, final CharSequence prefix, final int num)
+            throws IOException {
+        if (lookup == null) {
+            return base.lookup(prefix, false, num);
+        }
+
+        List<Lookup.LookupResult> results = new ArrayList<>(lookup.lookup(prefix, false, num));
+
+        // Terms from the base that are also in the overlay have stale weights, skip them. Ask the base
+        // for more results until there is enough of them or the base is exhausted.
+        int maxNum = num + weights.size();
+        int baseNum = num;
+        List<Lookup.LookupResult> current = new ArrayList<>();
+        while (true) {
+            current.clear();
+            List<Lookup.LookupResult> baseResults = base.lookup(prefix, false, baseNum);
+            for (Lookup.LookupResult result : baseResults) {
+                if (get(result.key) == null) {
+                    current.add(result);
+                }
+            }
+            if (current.size() >= num || baseResults.size() < baseNum || baseNum >= maxNum) {
+                break;
+            }
+            baseNum = Math.min(baseNum * 2, maxNum);
+        }
+
+        results.addAll(current);
+        results.sort(Comparator.comparingLong((Lookup.LookupResult r) -> r.value).reversed());
+        return results.size() > num ? new ArrayList<>(results.subList(0, num)) : results;
+    }
+
+    /**
+     * Stores the overlay terms into a file.
+     * @param file destination
+     * @throws IOException on I/O error
+     */
+    void store(final File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(weights.size());
+            for (Map.Entry<BytesRef, Long> entry : weights.entrySet()) {
+                BytesRef term = entry.getKey();
+                out.writeInt(term.length);
+                out.write(term.bytes, term.offset, term.length);
+                out.writeLong(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Loads the overlay stored by {@link #store(File)}. The WFST is rebuilt from the stored terms.
+     * @param file source file, if it does not exist an empty overlay is returned
+     * @param tempDir directory for temporary files used when building the WFST
+     * @return overlay
+     * @throws IOException on I/O error
+     */
+    static LookupOverlay load(final File file, final Directory tempDir) throws IOException {
+        if (!file.exists()) {
+            return empty();
+        }
+
+        TreeMap<BytesRef, Long> weights = new TreeMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                weights.put(new BytesRef(bytes), in.readLong());
+            }
+        }
+        return build(weights, tempDir);
+    }
+
+    /**
+     * {@link InputIterator} over the overlay terms.
+     */
+    private static class WeightsIterator implements InputIterator {
+
+        private final Iterator<Map.Entry<BytesRef, Long>> iterator;
+
+        private Map.Entry<BytesRef, Long> current;
+
+        WeightsIterator(final TreeMap<BytesRef, Long> weights) {
+            this.iterator = weights.entrySet().iterator();
+        }
+
+        @Override
+        public long weight() {
+            return current.getValue();
+        }
+
+        @Override
+        public BytesRef payload() {
+            return null;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return false;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+
+        @Override
+        public BytesRef next() {
+            if (!iterator.hasNext()) {
+                current = null;
+                return null;
+            }
+            current = iterator.next();
+            return current.getKey();
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2023, Oracle and/or its affiliates.
+ * Copyright (c) 2023, 2026, Oracle and/or its affiliates.
  * Portions Copyright (c) 2023, Gino Augustine <gino.augustine@oracle.com>.
  */
 package org.opengrok.suggest;
@@ -35,21 +35,29 @@ import org.opengrok.suggest.query.PhraseScorer;
 import org.opengrok.suggest.query.data.BitIntsHolder;
 
 import java.io.IOException;
+import java.util.function.BooleanSupplier;
 
 /**
  * Collects Suggester query results.
  * @author Gino Augustine
  */
 class SuggestResultCollector implements Collector {
+    /**
+     * Number of collected documents after which the {@code stop} condition is checked.
+     */
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
     private final LeafReaderContext leafReaderContext;
     private final ComplexQueryData data;
     private final BitIntsHolder documentIds;
+    private final BooleanSupplier stop;
 
     SuggestResultCollector(LeafReaderContext leafReaderContext, ComplexQueryData data,
-                                  BitIntsHolder documentIds) {
+                                  BitIntsHolder documentIds, BooleanSupplier stop) {
         this.leafReaderContext = leafReaderContext;
         this.data = data;
         this.documentIds = documentIds;
+        this.stop = stop;
     }
 
     /**
@@ -59,6 +67,9 @@ class SuggestResultCollector implements Collector {
      */
     @Override
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        if (stop.getAsBoolean()) {
+            throw new CollectionTerminatedException();
+        }
         return new SuggesterLeafCollector(context);
     }
 
@@ -73,6 +84,7 @@ class SuggestResultCollector implements Collector {
     private final class SuggesterLeafCollector implements LeafCollector {
         private final LeafReaderContext context;
         private final int docBase;
+        private int collected;
 
         private SuggesterLeafCollector(LeafReaderContext context) {
             this.context = context;
@@ -123,6 +135,9 @@ class SuggestResultCollector implements Collector {
          */
         @Override
         public void collect(int doc) throws IOException {
+            if (++collected % STOP_CHECK_INTERVAL == 0 && stop.getAsBoolean()) {
+                throw new CollectionTerminatedException();
+            }
             if (leafReaderContext == context) {
                 documentIds.set(docBase + doc);
             }
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, 2025, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.suggest;
 
@@ -55,21 +55,25 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Provides an interface for accessing suggester functionality.
@@ -88,6 +92,8 @@ public final class Suggester implements Closeable {
 
     private Duration awaitTerminationTime;
 
+    private int incrementalRebuildThreshold;
+
     private final boolean allowMostPopular;
 
     private final boolean projectsEnabled;
@@ -108,6 +114,10 @@ public final class Suggester implements Closeable {
     private final Timer suggesterRebuildTimer;  // per suggester data
     private final Timer suggesterInitTimer;     // per suggester data
 
+    private final MeterRegistry registry;
+    // per project and lookup type, removed together with the project data
+    private final Map<String, Timer> lookupTimers = new ConcurrentHashMap<>();
+
     private final ExecutorService searchExecutorService;
 
     private final ExecutorService initRebuildExecutor;
@@ -174,6 +184,7 @@ public final class Suggester implements Closeable {
                     return thread;
                 });
 
+        this.registry = registry;
         suggesterRebuildTimer = Timer.builder("suggester.rebuild.latency").
                 description("suggester rebuild latency").
                 register(registry);
@@ -246,7 +257,7 @@ public final class Suggester implements Closeable {
         SuggesterProjectData projectData = null;
         try {
             projectData = new SuggesterProjectData(FSDirectory.open(indexDir.path),
-                    getSuggesterDir(indexDir.name), allowMostPopular, allowedFields);
+                    getSuggesterDir(indexDir.name), allowMostPopular, allowedFields, incrementalRebuildThreshold);
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, String.format("creating suggester data for %s failed", indexDir), e);
             return null;
@@ -455,6 +466,7 @@ public final class Suggester implements Closeable {
             }
             projectDataMap.remove(suggesterName);
             collection.remove();
+            removeLookupTimers(suggesterName);
         }
     }
 
@@ -480,92 +492,59 @@ public final class Suggester implements Closeable {
                     indexReaders.get(0).getReader()));
         }
 
-        Suggestions suggestions;
-        if (!SuggesterUtils.isComplexQuery(query, suggesterQuery)) { // use WFST for lone prefix
-            suggestions = prefixLookup(readers, (SuggesterPrefixQuery) suggesterQuery);
-        } else {
-            suggestions = complexLookup(readers, suggesterQuery, query);
-        }
+        Suggestions suggestions = lookup(readers, suggesterQuery, query);
 
         return new Suggestions(SuggesterUtils.combineResults(suggestions.items, resultSize),
                 suggestions.partialResult);
     }
 
-    private Suggestions prefixLookup(
-            final List<NamedIndexReader> readers,
-            final SuggesterPrefixQuery suggesterQuery
-    ) {
-        BooleanWrapper partialResult = new BooleanWrapper();
-
-        List<LookupResultItem> results = readers.parallelStream().flatMap(namedIndexReader -> {
-            SuggesterProjectData data = projectDataMap.get(namedIndexReader.name);
-            if (data == null) {
-                LOGGER.log(Level.FINE, "{0} not yet initialized", namedIndexReader.name);
-                partialResult.value = true;
-                return Stream.empty();
-            }
-            boolean gotLock = data.tryLock();
-            if (!gotLock) { // do not wait for rebuild
-                partialResult.value = true;
-                return Stream.empty();
-            }
-
-            try {
-                String prefix = suggesterQuery.getPrefix().text();
-
-                return data.lookup(suggesterQuery.getField(), prefix, resultSize)
-                        .stream()
-                        .map(item -> new LookupResultItem(item.key.toString(), namedIndexReader.name, item.value));
-            } finally {
-                data.unlock();
-            }
-        }).collect(Collectors.toList());
-
-        return new Suggestions(results, partialResult.value);
-    }
-
-    private Suggestions complexLookup(
+    /**
+     * Fans out the lookup to all the readers. The results are collected as the individual lookups complete.
+     * Once the time threshold is exceeded, the lookups still in progress are cancelled and the results
+     * collected so far are returned.
+     */
+    private Suggestions lookup(
             final List<NamedIndexReader> readers,
             final SuggesterQuery suggesterQuery,
             final Query query
     ) {
-        List<LookupResultItem> results = new ArrayList<>(readers.size() * resultSize);
-        List<SuggesterSearchTask> searchTasks = new ArrayList<>(readers.size());
+        boolean prefixLookup = !SuggesterUtils.isComplexQuery(query, suggesterQuery);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeThreshold);
+
+        Queue<LookupResultItem> results = new ConcurrentLinkedQueue<>();
+        List<SuggesterLookupTask> tasks = new ArrayList<>(readers.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(readers.size());
         for (NamedIndexReader ir : readers) {
-            searchTasks.add(new SuggesterSearchTask(ir, query, suggesterQuery, results));
+            SuggesterLookupTask task = new SuggesterLookupTask(ir, query, suggesterQuery, prefixLookup, deadline);
+            tasks.add(task);
+            try {
+                futures.add(CompletableFuture.supplyAsync(task, searchExecutorService).thenAccept(results::addAll));
+            } catch (RejectedExecutionException e) {
+                LOGGER.log(Level.WARNING, "Could not schedule suggester lookup for {0}", ir.name);
+                task.cancel();
+            }
         }
 
-        List<Future<Void>> futures;
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
         try {
-            futures = searchExecutorService.invokeAll(searchTasks, timeThreshold, TimeUnit.MILLISECONDS);
+            all.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.log(Level.FINE, "Suggester lookup for {0} exceeded the time threshold", suggesterQuery);
         } catch (InterruptedException e) {
-            LOGGER.log(Level.WARNING, "Interrupted while invoking suggester search", e);
+            LOGGER.log(Level.WARNING, "Interrupted while waiting for suggester lookup", e);
             Thread.currentThread().interrupt();
-            return new Suggestions(Collections.emptyList(), true);
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Suggester lookup failed", e);
         }
 
-        boolean partialResult = futures.stream().anyMatch(Future::isCancelled);
-
-        // wait for tasks to finish
-        for (SuggesterSearchTask searchTask : searchTasks) {
-            if (!searchTask.started) {
-                continue;
-            }
-
-            if (!searchTask.finished) {
-                synchronized (searchTask) {
-                    while (!searchTask.finished) {
-                        try {
-                            searchTask.wait();
-                        } catch (InterruptedException e) {
-                            LOGGER.log(Level.WARNING, "Interrupted while waiting for task: {0}", searchTask);
-                            Thread.currentThread().interrupt();
-                        }
-                    }
-                }
-            }
+        if (!all.isDone()) {
+            // The lookups stop cooperatively. Wait for them because the readers are released by the caller.
+            tasks.forEach(SuggesterLookupTask::cancel);
+            all.handle((res, ex) -> null).join();
         }
-        return new Suggestions(results, partialResult);
+
+        boolean partialResult = tasks.stream().anyMatch(task -> task.partialResult);
+        return new Suggestions(new ArrayList<>(results), partialResult);
     }
 
     /**
@@ -621,6 +600,19 @@ public final class Suggester implements Closeable {
         this.awaitTerminationTime = awaitTerminationTime;
     }
 
+    /**
+     * Sets the maximum size of the index changes (in percent of the terms and documents) for which the rebuild
+     * merges the changes into the existing data rather than building them from scratch. Affects only
+     * the suggester data initialized after this call. The incremental rebuild is disabled until this is set.
+     * @param incrementalRebuildThreshold threshold in percent, 0 disables the incremental rebuild
+     */
+    public void setIncrementalRebuildThreshold(final int incrementalRebuildThreshold) {
+        if (incrementalRebuildThreshold < 0 || incrementalRebuildThreshold > 100) {
+            throw new IllegalArgumentException("Need percentage value");
+        }
+        this.incrementalRebuildThreshold = incrementalRebuildThreshold;
+    }
+
     /**
      * Increases search counts for specific term.
      * @param project project where the term resides
@@ -690,65 +682,115 @@ public final class Suggester implements Closeable {
         });
     }
 
-    private class SuggesterSearchTask implements Callable<Void> {
+    /**
+     * Lookup of the suggestions in a single index.
+     */
+    private class SuggesterLookupTask implements Supplier<List<LookupResultItem>> {
 
         private final NamedIndexReader namedIndexReader;
         private final Query query;
         private final SuggesterQuery suggesterQuery;
-        private final List<LookupResultItem> results;
+        private final boolean prefixLookup;
+        private final long deadline;
 
-        private volatile boolean finished = false;
-        private volatile boolean started = false;
+        private volatile boolean cancelled;
+        private volatile SuggesterSearcher searcher;
+        private volatile boolean partialResult;
 
-        SuggesterSearchTask(
+        SuggesterLookupTask(
                 final NamedIndexReader namedIndexReader,
                 final Query query,
                 final SuggesterQuery suggesterQuery,
-                final List<LookupResultItem> results
+                final boolean prefixLookup,
+                final long deadline
         ) {
             this.namedIndexReader = namedIndexReader;
             this.query = query;
             this.suggesterQuery = suggesterQuery;
-            this.results = results;
+            this.prefixLookup = prefixLookup;
+            this.deadline = deadline;
         }
 
-        @Override
-        public Void call() {
-            try {
-                started = true;
+        void cancel() {
+            cancelled = true;
+            partialResult = true;
+            SuggesterSearcher s = searcher;
+            if (s != null) {
+                s.cancel();
+            }
+        }
 
-                SuggesterProjectData data = projectDataMap.get(namedIndexReader.name);
-                if (data == null) {
-                    LOGGER.log(Level.FINE, "{0} not yet initialized", namedIndexReader.name);
-                    return null;
-                }
-                boolean gotLock = data.tryLock();
-                if (!gotLock) { // do not wait for rebuild
-                    return null;
-                }
+        @Override
+        public List<LookupResultItem> get() {
+            if (cancelled) {
+                return Collections.emptyList();
+            }
 
-                try {
-                    SuggesterSearcher searcher = new SuggesterSearcher(namedIndexReader.reader, resultSize);
+            SuggesterProjectData data = projectDataMap.get(namedIndexReader.name);
+            if (data == null) {
+                LOGGER.log(Level.FINE, "{0} not yet initialized", namedIndexReader.name);
+                partialResult = true;
+                return Collections.emptyList();
+            }
+            boolean gotLock = data.tryLock();
+            if (!gotLock) { // do not wait for rebuild
+                partialResult = true;
+                return Collections.emptyList();
+            }
 
-                    List<LookupResultItem> resultItems = searcher.suggest(query, namedIndexReader.name, suggesterQuery,
-                            data.getSearchCounts(suggesterQuery.getField()));
+            long start = System.nanoTime();
+            try {
+                if (prefixLookup) {
+                    String prefix = ((SuggesterPrefixQuery) suggesterQuery).getPrefix().text();
+                    return data.lookup(suggesterQuery.getField(), prefix, resultSize).stream()
+                            .map(item -> new LookupResultItem(item.key.toString(), namedIndexReader.name, item.value))
+                            .collect(Collectors.toList());
+                }
 
-                    synchronized (results) {
-                        results.addAll(resultItems);
-                    }
-                } finally {
-                    data.unlock();
+                searcher = new SuggesterSearcher(namedIndexReader.reader, resultSize, deadline);
+                if (cancelled) {
+                    searcher.cancel();
                 }
+                List<LookupResultItem> items = searcher.suggest(query, namedIndexReader.name, suggesterQuery,
+                        data.getSearchCounts(suggesterQuery.getField()));
+                if (searcher.isInterrupted()) {
+                    partialResult = true;
+                }
+                return items;
             } finally {
-                synchronized (this) {
-                    finished = true;
-                    this.notifyAll();
+                data.unlock();
+                // Do not resurrect the timer of project removed in the meantime.
+                if (projectDataMap.get(namedIndexReader.name) == data) {
+                    getLookupTimer(namedIndexReader.name, prefixLookup).record(System.nanoTime() - start,
+                            TimeUnit.NANOSECONDS);
                 }
             }
-            return null;
         }
     }
 
+    private static String getLookupTimerKey(final String project, final boolean prefixLookup) {
+        return project + (prefixLookup ? "/prefix" : "/complex");
+    }
+
+    private void removeLookupTimers(final String project) {
+        for (boolean prefixLookup : new boolean[] {true, false}) {
+            Timer timer = lookupTimers.remove(getLookupTimerKey(project, prefixLookup));
+            if (timer != null) {
+                registry.remove(timer);
+            }
+        }
+    }
+
+    private Timer getLookupTimer(final String project, final boolean prefixLookup) {
+        return lookupTimers.computeIfAbsent(getLookupTimerKey(project, prefixLookup),
+                key -> Timer.builder("suggester.lookup.latency").
+                        description("suggester lookup latency per project").
+                        tag("project", project).
+                        tag("type", prefixLookup ? "prefix" : "complex").
+                        publishPercentileHistogram().
+                        register(registry));
+    }
+
     /**
      * Result suggestions data.
      */
@@ -873,9 +915,4 @@ public final class Suggester implements Closeable {
 
     }
 
-    private static class BooleanWrapper {
-
-        private volatile boolean value;
-
-    }
 }
@@ -18,16 +18,22 @@
  */
 
 /*
- * Copyright (c) 2018, 2024, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.suggest;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.FilterLeafReader;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.spell.LuceneDictionary;
 import org.apache.lucene.search.suggest.InputIterator;
 import org.apache.lucene.search.suggest.Lookup;
@@ -46,8 +52,10 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -57,6 +65,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -81,6 +91,10 @@ class SuggesterProjectData implements Closeable {
 
     private static final String VERSION_FILE_NAME = "version.txt";
 
+    private static final String OVERLAY_FILE_SUFFIX = ".overlay";
+
+    private static final String SEGMENTS_FILE_NAME = "segments.txt";
+
     private static final int DEFAULT_WEIGHT = 0;
 
     private static final double AVERAGE_LENGTH_DEFAULT = 22;
@@ -91,6 +105,14 @@ class SuggesterProjectData implements Closeable {
 
     private final Map<String, WFSTCompletionLookup> lookups = new HashMap<>();
 
+    private final Map<String, LookupOverlay> overlays = new HashMap<>();
+
+    /**
+     * Terms whose search count changed since the last rebuild, their weights need to be updated
+     * by the incremental rebuild.
+     */
+    private final Map<String, Set<BytesRef>> searchedTerms = new ConcurrentHashMap<>();
+
     private final Map<String, PopularityMap> searchCountMaps = new HashMap<>();
 
     private final Map<String, Double> averageLengths = new HashMap<>();
@@ -101,6 +123,12 @@ class SuggesterProjectData implements Closeable {
 
     private final Set<String> allowedFields;
 
+    /**
+     * Maximum size of the changes (in percent of the data) that are merged into the existing data
+     * instead of rebuilding it from scratch, 0 disables the incremental rebuild.
+     */
+    private final int incrementalRebuildThreshold;
+
     private Set<String> fields;
 
     private final Directory tempDir;
@@ -111,12 +139,14 @@ class SuggesterProjectData implements Closeable {
             final Directory indexDir,
             final Path suggesterDir,
             final boolean allowMostPopular,
-            final Set<String> allowedFields
+            final Set<String> allowedFields,
+            final int incrementalRebuildThreshold
     ) throws IOException {
         this.indexDir = indexDir;
         this.suggesterDir = suggesterDir;
         this.allowMostPopular = allowMostPopular;
         this.allowedFields = allowedFields;
+        this.incrementalRebuildThreshold = incrementalRebuildThreshold;
 
         tempDir = FSDirectory.open(Paths.get(System.getProperty(TMP_DIR_PROPERTY)));
 
@@ -157,7 +187,7 @@ class SuggesterProjectData implements Closeable {
                 loadStoredWFSTs();
             } else {
                 createSuggesterDir();
-                build();
+                update();
             }
 
             if (allowMostPopular) {
@@ -200,6 +230,7 @@ class SuggesterProjectData implements Closeable {
                 if (wfstFile.exists()) {
                     var wfst = loadStoredWFST(wfstFile);
                     lookups.put(field, wfst);
+                    overlays.put(field, LookupOverlay.load(getOverlayFile(field), tempDir));
                 } else {
                     logger.log(Level.INFO, "Missing WFST file for {0} field in ''{1}'', creating a new one",
                             new Object[] {field, suggesterDir});
@@ -208,6 +239,7 @@ class SuggesterProjectData implements Closeable {
                     store(lookup, field);
 
                     lookups.put(field, lookup);
+                    overlays.put(field, LookupOverlay.empty());
                 }
             }
         }
@@ -229,19 +261,24 @@ class SuggesterProjectData implements Closeable {
         return getFile(field + WFST_FILE_SUFFIX);
     }
 
+    private File getOverlayFile(final String field) {
+        return getFile(field + OVERLAY_FILE_SUFFIX);
+    }
+
     private File getFile(final String fileName) {
         return suggesterDir.resolve(fileName).toFile();
     }
 
     /**
-     * Forces the rebuild of the data structure.
+     * Forces the rebuild of the data structure. If the incremental rebuild is enabled and the index
+     * changed only a little since the last rebuild, only the changes are merged into the existing data.
      * @throws IOException if some error occurred
      */
     public void rebuild() throws IOException {
         lock.writeLock().lock();
         try {
             initFields();
-            build();
+            update();
 
             if (allowMostPopular) {
                 initSearchCountMap();
@@ -262,6 +299,12 @@ class SuggesterProjectData implements Closeable {
         }
     }
 
+    private void update() throws IOException {
+        if (!tryIncrementalBuild()) {
+            build();
+        }
+    }
+
     private void build() throws IOException {
         try (IndexReader indexReader = DirectoryReader.open(indexDir)) {
             for (String field : fields) {
@@ -269,10 +312,211 @@ class SuggesterProjectData implements Closeable {
                 store(lookup, field);
 
                 lookups.put(field, lookup);
+                overlays.put(field, LookupOverlay.empty());
+                Files.deleteIfExists(getOverlayFile(field).toPath());
+            }
+            searchedTerms.clear();
+
+            storeSegmentStats(getSegmentStats(indexReader), 0, indexReader.numDocs());
+        }
+    }
+
+    /**
+     * Merges the terms of the index segments that were added since the last build into the overlays
+     * of the existing WFSTs.
+     * <p>
+     * Terms that were only present in deleted documents cannot be detected this way and are kept with their
+     * old weights. The number of such documents is accumulated and once it exceeds the threshold, or once
+     * an overlay grows over the threshold, the data is rebuilt from scratch.
+     * @return {@code true} if the incremental build was performed, {@code false} if full build is needed
+     */
+    private boolean tryIncrementalBuild() throws IOException {
+        if (incrementalRebuildThreshold <= 0 || !hasStoredData()) {
+            return false;
+        }
+
+        StoredSegmentStats stored = loadSegmentStats();
+        if (stored == null || stored.numDocs <= 0) {
+            return false;
+        }
+
+        try (IndexReader indexReader = DirectoryReader.open(indexDir)) {
+            Map<String, SegmentStats> current = getSegmentStats(indexReader);
+            if (current == null) {
+                return false;
+            }
+
+            List<LeafReader> newSegments = new ArrayList<>();
+            long staleDocs = stored.staleDocs;
+            for (LeafReaderContext context : indexReader.leaves()) {
+                SegmentStats previous = stored.segments.get(getSegmentName(context.reader()));
+                if (previous == null) {
+                    newSegments.add(context.reader());
+                } else {
+                    staleDocs += Math.max(0, context.reader().numDeletedDocs() - previous.delCount);
+                }
+            }
+            for (Entry<String, SegmentStats> entry : stored.segments.entrySet()) {
+                if (!current.containsKey(entry.getKey())) {
+                    // Either merged into a new segment or all its documents were deleted.
+                    staleDocs += entry.getValue().maxDoc - entry.getValue().delCount;
+                }
+            }
+
+            if (staleDocs * 100 > (long) incrementalRebuildThreshold * indexReader.numDocs()) {
+                logger.log(Level.FINE, "Too many deleted documents in ''{0}'', performing full rebuild",
+                        indexDir);
+                return false;
+            }
+
+            Map<String, LookupOverlay> newOverlays = new HashMap<>();
+            for (String field : fields) {
+                WFSTCompletionLookup lookup = lookups.get(field);
+                if (lookup == null) {
+                    File wfstFile = getWFSTFile(field);
+                    if (!wfstFile.exists()) {
+                        return false;
+                    }
+                    lookup = loadStoredWFST(wfstFile);
+                    lookups.put(field, lookup);
+                    overlays.put(field, LookupOverlay.load(getOverlayFile(field), tempDir));
+                }
+
+                Map<BytesRef, Long> changes = getChangedTerms(indexReader, newSegments, field, stored.numDocs);
+                LookupOverlay overlay = overlays.getOrDefault(field, LookupOverlay.empty()).merge(changes, tempDir);
+                if ((long) overlay.size() * 100 > incrementalRebuildThreshold * lookup.getCount()) {
+                    logger.log(Level.FINE, "Too many changed terms for field {0} in ''{1}'', performing full rebuild",
+                            new Object[] {field, indexDir});
+                    return false;
+                }
+                newOverlays.put(field, overlay);
+            }
+
+            for (Entry<String, LookupOverlay> entry : newOverlays.entrySet()) {
+                entry.getValue().store(getOverlayFile(entry.getKey()));
+                overlays.put(entry.getKey(), entry.getValue());
             }
+            storeSegmentStats(current, staleDocs, stored.numDocs);
+            searchedTerms.clear();
+
+            logger.log(Level.FINE, "Incrementally rebuilt suggester data in ''{0}'' from {1} new segments",
+                    new Object[] {suggesterDir, newSegments.size()});
+            return true;
         }
     }
 
+    private Map<BytesRef, Long> getChangedTerms(
+            final IndexReader indexReader,
+            final List<LeafReader> segments,
+            final String field,
+            final int numDocs
+    ) throws IOException {
+        Map<BytesRef, Long> changes = new TreeMap<>();
+        PopularityCounter searchCounts = getSearchCounts(field);
+        for (LeafReader segment : segments) {
+            Terms terms = segment.terms(field);
+            if (terms == null) {
+                continue;
+            }
+
+            TermsEnum termsEnum = terms.iterator();
+            BytesRef term;
+            while ((term = termsEnum.next()) != null) {
+                if (term.length > MAX_TERM_SIZE || changes.containsKey(term)) {
+                    continue;
+                }
+                BytesRef copy = BytesRef.deepCopyOf(term);
+                changes.put(copy, computeWeight(indexReader, field, copy, numDocs, searchCounts));
+            }
+        }
+
+        for (BytesRef term : searchedTerms.getOrDefault(field, Collections.emptySet())) {
+            if (!changes.containsKey(term) && indexReader.docFreq(new Term(field, term)) > 0) {
+                changes.put(term, computeWeight(indexReader, field, term, numDocs, searchCounts));
+            }
+        }
+        return changes;
+    }
+
+    private static long computeWeight(
+            final IndexReader indexReader,
+            final String field,
+            final BytesRef term,
+            final int numDocs,
+            final PopularityCounter searchCounts
+    ) {
+        return SuggesterUtils.computeScore(indexReader, field, term, numDocs)
+                + (long) searchCounts.get(term) * SuggesterSearcher.TERM_ALREADY_SEARCHED_MULTIPLIER;
+    }
+
+    private static String getSegmentName(final LeafReader reader) {
+        LeafReader unwrapped = FilterLeafReader.unwrap(reader);
+        if (unwrapped instanceof SegmentReader) {
+            return ((SegmentReader) unwrapped).getSegmentName();
+        }
+        return null;
+    }
+
+    /**
+     * @return statistics of the index segments or {@code null} if the reader is not composed of segments
+     */
+    private static Map<String, SegmentStats> getSegmentStats(final IndexReader indexReader) {
+        Map<String, SegmentStats> stats = new HashMap<>();
+        for (LeafReaderContext context : indexReader.leaves()) {
+            String name = getSegmentName(context.reader());
+            if (name == null) {
+                return null;
+            }
+            stats.put(name, new SegmentStats(context.reader().maxDoc(), context.reader().numDeletedDocs()));
+        }
+        return stats;
+    }
+
+    private void storeSegmentStats(final Map<String, SegmentStats> stats, final long staleDocs, final int numDocs) {
+        File file = getFile(SEGMENTS_FILE_NAME);
+        if (stats == null) {
+            FileUtils.deleteQuietly(file);
+            return;
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(staleDocs).append(' ').append(numDocs).append('\n');
+        for (Entry<String, SegmentStats> entry : stats.entrySet()) {
+            builder.append(entry.getKey()).append(' ').append(entry.getValue().maxDoc).append(' ').
+                    append(entry.getValue().delCount).append('\n');
+        }
+        try {
+            FileUtils.writeStringToFile(file, builder.toString(), StandardCharsets.UTF_8.toString());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not store segment statistics", e);
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    private StoredSegmentStats loadSegmentStats() {
+        File file = getFile(SEGMENTS_FILE_NAME);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            List<String> lines = FileUtils.readLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) {
+                return null;
+            }
+            Map<String, SegmentStats> segments = new HashMap<>();
+            for (String line : lines.subList(1, lines.size())) {
+                String[] parts = line.split(" ");
+                segments.put(parts[0], new SegmentStats(Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+            }
+            String[] header = lines.get(0).split(" ");
+            return new StoredSegmentStats(segments, Long.parseLong(header[0]), Integer.parseInt(header[1]));
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Could not read segment statistics", e);
+        }
+        return null;
+    }
+
     private WFSTCompletionLookup build(final IndexReader indexReader, final String field) throws IOException {
         WFSTInputIterator iterator = new WFSTInputIterator(
                 new LuceneDictionary(indexReader, field).getEntryIterator(), indexReader, field, getSearchCounts(field));
@@ -309,7 +553,7 @@ class SuggesterProjectData implements Closeable {
         searchCountMaps.clear();
 
         for (String field : fields) {
-            int numEntries = (int) lookups.get(field).getCount();
+            int numEntries = (int) getCount(field);
             if (numEntries == 0) {
                 logger.log(Level.FINE, () -> String.format("Skipping creation of ChronicleMap for field %s " +
                         "in directory '%s' due to zero number of entries", field, suggesterDir));
@@ -329,10 +573,10 @@ class SuggesterProjectData implements Closeable {
                 return;
             }
             if (getCommitVersion() != getDataVersion()) {
-                removeOldTerms(chronicleMapAdapter, lookups.get(field));
+                removeOldTerms(chronicleMapAdapter, field);
 
-                if (conf.getEntries() < lookups.get(field).getCount()) {
-                    int newEntriesCount = (int) lookups.get(field).getCount();
+                if (conf.getEntries() < getCount(field)) {
+                    int newEntriesCount = (int) getCount(field);
                     double newKeyAvgLength = getAverageLength(field);
 
                     conf.setEntries(newEntriesCount);
@@ -388,8 +632,25 @@ class SuggesterProjectData implements Closeable {
         return AVERAGE_LENGTH_DEFAULT;
     }
 
-    private void removeOldTerms(final ChronicleMapAdapter adapter, final WFSTCompletionLookup lookup) {
-        adapter.removeIf(key -> lookup.get(key.toString()) == null);
+    private void removeOldTerms(final ChronicleMapAdapter adapter, final String field) {
+        adapter.removeIf(key -> !contains(field, key.toString()));
+    }
+
+    /**
+     * @return approximate number of terms for the field (terms in the overlay might be counted twice)
+     */
+    private long getCount(final String field) {
+        LookupOverlay overlay = overlays.get(field);
+        return lookups.get(field).getCount() + (overlay == null ? 0 : overlay.size());
+    }
+
+    private boolean contains(final String field, final String term) {
+        WFSTCompletionLookup lookup = lookups.get(field);
+        if (lookup == null) {
+            return false;
+        }
+        LookupOverlay overlay = overlays.get(field);
+        return lookup.get(term) != null || (overlay != null && overlay.get(term) != null);
     }
 
     /**
@@ -407,7 +668,11 @@ class SuggesterProjectData implements Closeable {
                 logger.log(Level.WARNING, "No WFST for field {0} in ''{1}''", new Object[] {field, suggesterDir});
                 return Collections.emptyList();
             }
-            return lookup.lookup(prefix, false, resultSize);
+            LookupOverlay overlay = overlays.get(field);
+            if (overlay == null) {
+                return lookup.lookup(prefix, false, resultSize);
+            }
+            return overlay.lookup(lookup, prefix, resultSize);
         } catch (IOException e) {
             logger.log(Level.WARNING, "Could not perform lookup in ''{0}'' for {1}:{2}",
                     new Object[] {suggesterDir, field, prefix});
@@ -476,8 +741,7 @@ class SuggesterProjectData implements Closeable {
         }
 
         try {
-            WFSTCompletionLookup lookup = lookups.get(term.field());
-            if (lookup == null || lookup.get(term.text()) == null) {
+            if (!contains(term.field(), term.text())) {
                 logger.log(Level.FINE, "Cannot increment search count for unknown term {0} in ''{1}''",
                         new Object[]{term, suggesterDir});
                 return false; // unknown term
@@ -486,6 +750,8 @@ class SuggesterProjectData implements Closeable {
             PopularityMap map = searchCountMaps.get(term.field());
             if (map != null) {
                 map.increment(term.bytes(), value);
+                searchedTerms.computeIfAbsent(term.field(), field -> ConcurrentHashMap.newKeySet()).
+                        add(BytesRef.deepCopyOf(term.bytes()));
                 ret = true;
             }
         } finally {
@@ -601,6 +867,41 @@ class SuggesterProjectData implements Closeable {
                 '}';
     }
 
+    /**
+     * Number of documents and deleted documents of an index segment.
+     */
+    private static class SegmentStats {
+        private final int maxDoc;
+        private final int delCount;
+
+        SegmentStats(final int maxDoc, final int delCount) {
+            this.maxDoc = maxDoc;
+            this.delCount = delCount;
+        }
+    }
+
+    /**
+     * Segment statistics of the index the suggester data were built from.
+     */
+    private static class StoredSegmentStats {
+        private final Map<String, SegmentStats> segments;
+        /**
+         * Number of documents deleted since the last full rebuild.
+         */
+        private final long staleDocs;
+        /**
+         * Number of documents at the time of the last full rebuild. The weights of the changed terms are
+         * normalized with it so that they are comparable with the weights in the base WFST.
+         */
+        private final int numDocs;
+
+        StoredSegmentStats(final Map<String, SegmentStats> segments, final long staleDocs, final int numDocs) {
+            this.segments = segments;
+            this.staleDocs = staleDocs;
+            this.numDocs = numDocs;
+        }
+    }
+
     /**
      * An {@link InputIterator} for WFST data structure with most popular completion support.
      */
@@ -633,10 +934,7 @@ class SuggesterProjectData implements Closeable {
         @Override
         public long weight() {
             if (last != null) {
-                int add = searchCounts.get(last);
-
-                return SuggesterUtils.computeScore(indexReader, field, last)
-                        + (long) add * SuggesterSearcher.TERM_ALREADY_SEARCHED_MULTIPLIER;
+                return computeWeight(indexReader, field, last, indexReader.numDocs(), searchCounts);
             }
 
             return DEFAULT_WEIGHT;
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.suggest;
@@ -67,6 +67,15 @@ class SuggesterSearcher extends IndexSearcher {
 
     private boolean interrupted;
 
+    private volatile boolean cancelled;
+
+    /**
+     * {@link System#nanoTime()} after which the search should stop, only valid if {@link #hasDeadline}.
+     */
+    private final long deadline;
+
+    private final boolean hasDeadline;
+
     private final int numDocs;
 
     private final IndexSearcher is;
@@ -76,10 +85,49 @@ class SuggesterSearcher extends IndexSearcher {
      * @param resultSize size of the results
      */
     SuggesterSearcher(final IndexReader reader, final int resultSize) {
+        this(reader, resultSize, 0, false);
+    }
+
+    /**
+     * @param reader reader of the index for which to provide suggestions
+     * @param resultSize size of the results
+     * @param deadline value of {@link System#nanoTime()} after which the search stops and returns partial results
+     */
+    SuggesterSearcher(final IndexReader reader, final int resultSize, final long deadline) {
+        this(reader, resultSize, deadline, true);
+    }
+
+    private SuggesterSearcher(final IndexReader reader, final int resultSize, final long deadline,
+                              final boolean hasDeadline) {
         super(reader);
         is = new IndexSearcher(reader);
         numDocs = reader.numDocs();
         this.resultSize = resultSize;
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+    }
+
+    /**
+     * Makes the search in progress stop as soon as possible and return the results found so far.
+     * Can be called from any thread.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return whether the last search was stopped before completion (due to cancellation, deadline or interrupt)
+     */
+    boolean isInterrupted() {
+        return interrupted;
+    }
+
+    private boolean shouldStop() {
+        if (!interrupted && (cancelled || Thread.currentThread().isInterrupted() ||
+                (hasDeadline && System.nanoTime() - deadline > 0))) {
+            interrupted = true;
+        }
+        return interrupted;
     }
 
     /**
@@ -112,7 +160,7 @@ class SuggesterSearcher extends IndexSearcher {
         }
 
         for (LeafReaderContext context : this.leafContexts) {
-            if (interrupted) {
+            if (shouldStop()) {
                 break;
             }
             try {
@@ -136,8 +184,7 @@ class SuggesterSearcher extends IndexSearcher {
             final SuggesterQuery suggesterQuery,
             final PopularityCounter searchCounts
     ) throws IOException {
-        if (Thread.currentThread().isInterrupted()) {
-            interrupted = true;
+        if (shouldStop()) {
             return Collections.emptyList();
         }
 
@@ -173,8 +220,7 @@ class SuggesterSearcher extends IndexSearcher {
 
         BytesRef term = termsEnum.next();
         while (term != null) {
-            if (Thread.currentThread().isInterrupted()) {
-                interrupted = true;
+            if (shouldStop()) {
                 break;
             }
             postingsEnum = derivePostingsEnum(postingsEnum, termsEnum, needPositionsAndFrequencies);
@@ -238,10 +284,9 @@ class SuggesterSearcher extends IndexSearcher {
 
         BitIntsHolder documentIds = new BitIntsHolder();
         try {
-            search(query, new SuggestResultCollector(leafReaderContext, data, documentIds));
+            search(query, new SuggestResultCollector(leafReaderContext, data, documentIds, this::shouldStop));
         } catch (IOException e) {
-            if (Thread.currentThread().isInterrupted()) {
-                interrupted = true;
+            if (shouldStop()) {
                 return null;
             } else {
                 logger.log(Level.WARNING, e, () -> "Could not get document ids for " + query);
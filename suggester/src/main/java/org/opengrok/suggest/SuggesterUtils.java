@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.suggest;
 
@@ -92,9 +92,27 @@ public class SuggesterUtils {
      * @return score for the term
      */
     static long computeScore(final IndexReader indexReader, final String field, final BytesRef bytesRef) {
+        return computeScore(indexReader, field, bytesRef, indexReader.numDocs());
+    }
+
+    /**
+     * Computes score of the of the specified term with the document frequency normalized by {@code numDocs}.
+     * Makes it possible to compute scores comparable with the ones computed for an older version of the index.
+     * @param indexReader reader where the term occurs
+     * @param field term field
+     * @param bytesRef term text
+     * @param numDocs number of documents to normalize the document frequency with
+     * @return score for the term
+     */
+    static long computeScore(
+            final IndexReader indexReader,
+            final String field,
+            final BytesRef bytesRef,
+            final int numDocs
+    ) {
         try {
             Term term = new Term(field, bytesRef);
-            double normalizedDocumentFrequency = computeNormalizedDocumentFrequency(indexReader, term);
+            double normalizedDocumentFrequency = ((double) indexReader.docFreq(term)) / numDocs;
 
             return (long) (normalizedDocumentFrequency * NORMALIZED_DOCUMENT_FREQUENCY_MULTIPLIER);
         } catch (IOException e) {
@@ -103,13 +121,6 @@ public class SuggesterUtils {
         return DEFAULT_TERM_WEIGHT;
     }
 
-    private static double computeNormalizedDocumentFrequency(final IndexReader indexReader, final Term term)
-            throws IOException {
-        int documentFrequency = indexReader.docFreq(term);
-
-        return ((double) documentFrequency) / indexReader.numDocs();
-    }
-
     /**
      * Decomposes the provided {@code query} into terms.
      * @param query query to decompose
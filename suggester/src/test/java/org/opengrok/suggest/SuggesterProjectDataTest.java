@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.suggest;
 
@@ -48,6 +48,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
@@ -61,6 +62,8 @@ class SuggesterProjectDataTest {
 
     private static final String FIELD = "test";
 
+    private static final int INCREMENTAL_REBUILD_THRESHOLD = 10;
+
     private Directory dir;
 
     private Path tempDir;
@@ -97,7 +100,12 @@ class SuggesterProjectDataTest {
     }
 
     private void init(boolean allowMostPopular) throws IOException {
-        data = new SuggesterProjectData(dir, tempDir, allowMostPopular, Collections.singleton(FIELD));
+        init(allowMostPopular, INCREMENTAL_REBUILD_THRESHOLD);
+    }
+
+    private void init(boolean allowMostPopular, int incrementalRebuildThreshold) throws IOException {
+        data = new SuggesterProjectData(dir, tempDir, allowMostPopular, Collections.singleton(FIELD),
+                incrementalRebuildThreshold);
         data.init();
     }
 
@@ -276,7 +284,8 @@ class SuggesterProjectDataTest {
             iw.addDocument(doc);
         }
 
-        SuggesterProjectData data = new SuggesterProjectData(dir, tempDir, false, Collections.singleton("test"));
+        SuggesterProjectData data = new SuggesterProjectData(dir, tempDir, false, Collections.singleton("test"),
+                INCREMENTAL_REBUILD_THRESHOLD);
         data.init();
         data.remove();
 
@@ -286,7 +295,8 @@ class SuggesterProjectDataTest {
     @Test
     void testUnknownFieldIgnored() throws IOException {
         addText(FIELD, "term");
-        data = new SuggesterProjectData(dir, tempDir, false, new HashSet<>(Arrays.asList(FIELD, "unknown")));
+        data = new SuggesterProjectData(dir, tempDir, false, new HashSet<>(Arrays.asList(FIELD, "unknown")),
+                INCREMENTAL_REBUILD_THRESHOLD);
         data.init();
 
         List<Lookup.LookupResult> res = data.lookup("unknown", "a", 10);
@@ -329,4 +339,55 @@ class SuggesterProjectDataTest {
         assertFalse(getSuggestions(FIELD, "t", 10).isEmpty());
     }
 
+    private static String getTerms(final String prefix, final int count) {
+        return IntStream.range(0, count).mapToObj(i -> prefix + i).collect(Collectors.joining(" "));
+    }
+
+    @Test
+    void testIncrementalRebuild() throws IOException {
+        addText(FIELD, getTerms("term", 100));
+        init(false);
+
+        addText(FIELD, "term5 newterm");
+        data.rebuild();
+
+        assertTrue(tempDir.resolve(FIELD + ".overlay").toFile().exists());
+        assertThat(getSuggestions(FIELD, "n", 10), contains("newterm"));
+        // term5 is now present in both documents so it has to be suggested first
+        assertEquals("term5", getSuggestions(FIELD, "t", 10).get(0));
+        assertEquals(10, getSuggestions(FIELD, "t", 10).size());
+
+        // the overlay has to survive reopening
+        try (SuggesterProjectData reopened = new SuggesterProjectData(dir, tempDir, false,
+                Collections.singleton(FIELD), INCREMENTAL_REBUILD_THRESHOLD)) {
+            reopened.init();
+            List<Lookup.LookupResult> res = reopened.lookup(FIELD, "t", 10);
+            assertEquals("term5", res.get(0).key.toString());
+        }
+    }
+
+    @Test
+    void testIncrementalRebuildOverThreshold() throws IOException {
+        addText(FIELD, getTerms("term", 100));
+        init(false);
+
+        addText(FIELD, getTerms("other", 20));
+        data.rebuild();
+
+        assertFalse(tempDir.resolve(FIELD + ".overlay").toFile().exists());
+        assertEquals(20, getSuggestions(FIELD, "other", 30).size());
+    }
+
+    @Test
+    void testIncrementalRebuildDisabled() throws IOException {
+        addText(FIELD, getTerms("term", 100));
+        init(false, 0);
+
+        addText(FIELD, "newterm");
+        data.rebuild();
+
+        assertFalse(tempDir.resolve(FIELD + ".overlay").toFile().exists());
+        assertThat(getSuggestions(FIELD, "n", 10), contains("newterm"));
+    }
+
 }
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2026, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.suggest;
 
@@ -47,10 +47,13 @@ import org.opengrok.suggest.query.SuggesterWildcardQuery;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SuggesterSearcherTest {
 
@@ -159,4 +162,42 @@ class SuggesterSearcherTest {
         assertThat(tokens, contains("opengrok", "opengrok2"));
     }
 
+    @Test
+    void testExpiredDeadline() throws IOException {
+        try (IndexReader ir = DirectoryReader.open(dir)) {
+            SuggesterSearcher expired = new SuggesterSearcher(ir, 10, System.nanoTime() - 1);
+            List<LookupResultItem> suggestions = expired.suggest(new TermQuery(new Term("test", "test")), "test",
+                    new SuggesterPrefixQuery(new Term("test", "o")), k -> 0);
+
+            assertTrue(suggestions.isEmpty());
+            assertTrue(expired.isInterrupted());
+        }
+    }
+
+    @Test
+    void testCancel() throws IOException {
+        try (IndexReader ir = DirectoryReader.open(dir)) {
+            SuggesterSearcher cancelled = new SuggesterSearcher(ir, 10, System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+            cancelled.cancel();
+            List<LookupResultItem> suggestions = cancelled.suggest(null, "test",
+                    new SuggesterPrefixQuery(new Term("test", "o")), k -> 0);
+
+            assertTrue(suggestions.isEmpty());
+            assertTrue(cancelled.isInterrupted());
+        }
+    }
+
+    @Test
+    void testDeadlineNotExceeded() throws IOException {
+        try (IndexReader ir = DirectoryReader.open(dir)) {
+            SuggesterSearcher s = new SuggesterSearcher(ir, 10, System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+            List<LookupResultItem> suggestions = s.suggest(new TermQuery(new Term("test", "test")), "test",
+                    new SuggesterPrefixQuery(new Term("test", "o")), k -> 0);
+
+            assertThat(suggestions.stream().map(LookupResultItem::getPhrase).collect(Collectors.toList()),
+                    contains("opengrok"));
+            assertFalse(s.isInterrupted());
+        }
+    }
+
 }
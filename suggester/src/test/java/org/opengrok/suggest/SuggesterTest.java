@@ -62,6 +62,8 @@ import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -233,10 +235,18 @@ class SuggesterTest {
     @Test
     void testRemove() throws Exception {
         SuggesterTestData t = initSuggester();
+        t.s.search(Collections.singletonList(t.getNamedIndexReader()),
+                new SuggesterPrefixQuery(new Term("test", "t")), null);
+        assertNotNull(registry.find("suggester.lookup.latency").tag("project", "test").timer());
 
         t.s.remove(Collections.singleton("test"));
 
         assertFalse(t.suggesterDir.resolve("test").toFile().exists());
+        // the timers of removed projects should not accumulate
+        assertNull(registry.find("suggester.lookup.latency").tag("project", "test").timer());
+        for (Suggester.NamedIndexReader ir : t.namedIndexReaders) {
+            ir.getReader().close();
+        }
 
         FileUtils.deleteDirectory(t.suggesterDir.toFile());
         FileUtils.deleteDirectory(t.indexDir.toFile());